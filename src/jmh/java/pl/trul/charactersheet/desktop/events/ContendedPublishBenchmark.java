@@ -0,0 +1,74 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishing throughput of several threads at once while listeners of the published event type keep being
+ * registered and unregistered. Listeners run inline, so the publish path itself is measured rather than executor.
+ * Compare runs with different publisher counts, e.g. -PjmhArgs="ContendedPublishBenchmark -tg 1,1" and "-tg 4,1".
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContendedPublishBenchmark {
+    private static final int EVENT_TYPE = 1;
+    private static final long CHURN_PAUSE_NANOS = 100_000;
+
+    @Param({"8"})
+    public int listenerCount;
+
+    private AsynchronousEventDispatcher dispatcher;
+    private final Event event = new Event(EVENT_TYPE);
+
+    @Setup
+    public void setUp() {
+        dispatcher = new AsynchronousEventDispatcher();
+        for (int i = 0; i < listenerCount; ++i) {
+            dispatcher.registerListener(EVENT_TYPE, (e) -> { }, DeliveryMode.INLINE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    @Benchmark
+    @Group("publishDuringChurn")
+    @GroupThreads(4)
+    public void publish() {
+        dispatcher.publish(event);
+    }
+
+    @Benchmark
+    @Group("publishDuringChurn")
+    @GroupThreads(1)
+    public EventConnection churn() throws Exception {
+        EventConnection conn = dispatcher.registerListener(EVENT_TYPE, (e) -> { }, DeliveryMode.INLINE);
+        dispatcher.unregisterListener(conn);
+        LockSupport.parkNanos(CHURN_PAUSE_NANOS);
+        return conn;
+    }
+}
@@ -0,0 +1,55 @@
+package pl.trul.charactersheet.desktop.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of AsynchronousEventBlocker itself, without any dispatching: counting handlers down and blocking on
+ * completion which has already happened.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventBlockerBenchmark {
+    private static final int HANDLERS = 4;
+    private static final Duration BLOCK_LIMIT = Duration.ofSeconds(1);
+
+    @Benchmark
+    public AsynchronousEventBlocker finishHandlers() {
+        AsynchronousEventBlocker blocker = new AsynchronousEventBlocker(HANDLERS);
+        for (int i = 0; i < HANDLERS; ++i) {
+            blocker.handlerFinished();
+        }
+        return blocker;
+    }
+
+    @Benchmark
+    public AsynchronousEventBlocker finishHandlersAndBlock() throws Exception {
+        AsynchronousEventBlocker blocker = finishHandlers();
+        blocker.block(BLOCK_LIMIT);
+        return blocker;
+    }
+
+    @Benchmark
+    public AsynchronousEventBlocker finishHandlersWithCallback() {
+        AsynchronousEventBlocker blocker = new AsynchronousEventBlocker(HANDLERS);
+        blocker.whenFinished(() -> { });
+        for (int i = 0; i < HANDLERS; ++i) {
+            blocker.handlerFinished();
+        }
+        return blocker;
+    }
+}
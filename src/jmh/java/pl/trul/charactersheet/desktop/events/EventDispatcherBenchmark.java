@@ -0,0 +1,72 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventBlocker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing throughput and end-to-end delivery latency of AsynchronousEventDispatcher, depending on number of
+ * listeners registered for published event type.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventDispatcherBenchmark {
+    private static final int EVENT_TYPE = 1;
+    private static final Duration DELIVERY_LIMIT = Duration.ofSeconds(10);
+
+    @Param({"1", "10", "100"})
+    public int listenerCount;
+
+    private AsynchronousEventDispatcher dispatcher;
+    private final Event event = new Event(EVENT_TYPE);
+
+    @Setup
+    public void setUp() {
+        dispatcher = new AsynchronousEventDispatcher();
+        for (int i = 0; i < listenerCount; ++i) {
+            dispatcher.registerListener(EVENT_TYPE, (e) -> { });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.gentleShutdown(DELIVERY_LIMIT, DELIVERY_LIMIT);
+    }
+
+    /**
+     * Publisher side only: listener invocations are queued and run concurrently with next publications.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public EventBlocker notifyEvent() {
+        return dispatcher.notifyEvent(event);
+    }
+
+    /**
+     * Publication followed by waiting until all listeners are done.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public EventBlocker notifyEventAndBlock() throws Exception {
+        EventBlocker blocker = dispatcher.notifyEvent(event);
+        blocker.block(DELIVERY_LIMIT);
+        return blocker;
+    }
+}
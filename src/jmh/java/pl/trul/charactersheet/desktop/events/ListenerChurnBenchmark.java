@@ -0,0 +1,59 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of registering and unregistering a listener while other listeners of the same event type stay registered,
+ * with several threads doing so at once (as sheet views do when they are opened and closed).
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class ListenerChurnBenchmark {
+    private static final int EVENT_TYPE = 1;
+
+    @Param({"0", "100", "1000"})
+    public int registeredListeners;
+
+    private AsynchronousEventDispatcher dispatcher;
+
+    @Setup
+    public void setUp() {
+        dispatcher = new AsynchronousEventDispatcher();
+        for (int i = 0; i < registeredListeners; ++i) {
+            dispatcher.registerListener(EVENT_TYPE, (e) -> { });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    @Benchmark
+    public EventConnection registerAndUnregister() throws Exception {
+        EventConnection conn = dispatcher.registerListener(EVENT_TYPE, (e) -> { });
+        dispatcher.unregisterListener(conn);
+        return conn;
+    }
+}
@@ -0,0 +1,91 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.events.TaskFinishedEvent;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency of getting a task running on AsynchronousTaskScheduler, and scheduler's own overhead per task cycle
+ * (running cycles of a task doing nothing), depending on number of cycles run per slice.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskSchedulerBenchmark {
+    private static final int CYCLES = 1000;
+
+    @Param({"1", "16"})
+    public int cyclesPerSlice;
+
+    private DesktopTopLogicFactory factory;
+    private AsynchronousTaskScheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        factory = new DesktopTopLogicFactory();
+        new AppRootLogic(factory);
+        AppRootLogic.getEventDispatcher().registerListener(TaskFinishedEvent.eventType(), (e) -> { });
+        scheduler = new AsynchronousTaskScheduler(Runtime.getRuntime().availableProcessors(), cyclesPerSlice);
+        scheduler.init();
+    }
+
+    /**
+     * Dispatcher and executor pools of the factory are shut down as well, so they do not leak into the next trial.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        factory.shutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    /**
+     * Time from scheduling a task until its first cycle has started.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public void scheduleTaskUntilFirstCycle() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.scheduleTask(new CyclingTask(started::countDown, (TaskState state, ErrorMonad error) -> TaskState.DONE));
+        started.await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OperationsPerInvocation(CYCLES)
+    public void cycleOverhead() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger cycles = new AtomicInteger();
+        scheduler.scheduleTask(new CyclingTask(() -> { }, (TaskState state, ErrorMonad error) -> {
+            if (cycles.incrementAndGet() < CYCLES) {
+                return state;
+            }
+            done.countDown();
+            return TaskState.DONE;
+        }));
+        done.await();
+    }
+}
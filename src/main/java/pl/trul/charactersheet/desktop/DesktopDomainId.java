@@ -6,7 +6,9 @@ import com.github.michal_stempkowski.charactersheet.internal.DomainId;
  * Enum used to differentiate between different domains inside desktop target.
  */
 public enum DesktopDomainId implements DomainId {
-    GUI(0);
+    GUI(0),
+    PERSISTENCE(1),
+    CALCULATION(2);
 
     private final int id;
 
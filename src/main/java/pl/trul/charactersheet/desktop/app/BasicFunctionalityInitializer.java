@@ -1,8 +1,6 @@
 package pl.trul.charactersheet.desktop.app;
 
 
-import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
-import com.github.michal_stempkowski.charactersheet.internal.app.PackageInitializer;
 import com.github.michal_stempkowski.charactersheet.internal.events.EventDomain;
 import com.github.michal_stempkowski.charactersheet.internal.logging.LoggingDomain;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.ParallelismDomain;
@@ -10,18 +8,21 @@ import com.github.michal_stempkowski.charactersheet.internal.parallelism.Paralle
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.Supplier;
 
 /**
  * Class responsible for basic domain initialization (events, logging, parallelism)
  */
-public class BasicFunctionalityInitializer extends PackageInitializer {
+public class BasicFunctionalityInitializer extends DependencyAwareInitializer {
+    public BasicFunctionalityInitializer(DomainStartup startup) {
+        super(startup);
+    }
+
     @Override
-    protected List<Supplier<Domain>> getDomainCreators() {
+    protected List<DomainSpec> getDomainSpecs() {
         return new ArrayList<>(Arrays.asList(
-                LoggingDomain::new,
-                EventDomain::new,
-                ParallelismDomain::new
+                DomainSpec.of(LoggingDomain.class, LoggingDomain::new),
+                DomainSpec.of(EventDomain.class, EventDomain::new),
+                DomainSpec.of(ParallelismDomain.class, ParallelismDomain::new).dependsOn(EventDomain.class)
         ));
     }
 }
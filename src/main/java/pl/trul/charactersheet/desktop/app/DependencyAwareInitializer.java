@@ -0,0 +1,31 @@
+package pl.trul.charactersheet.desktop.app;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
+import com.github.michal_stempkowski.charactersheet.internal.app.PackageInitializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Package initializer whose domains are declared with DomainSpec and started by shared DomainStartup, so setups of
+ * independent domains (also from other initializers) run in parallel.
+ */
+public abstract class DependencyAwareInitializer extends PackageInitializer {
+    private final DomainStartup startup;
+
+    protected DependencyAwareInitializer(DomainStartup startup) {
+        this.startup = startup;
+    }
+
+    protected abstract List<DomainSpec> getDomainSpecs();
+
+    @Override
+    protected final List<Supplier<Domain>> getDomainCreators() {
+        List<Supplier<Domain>> creators = new ArrayList<>();
+        for (DomainSpec spec : getDomainSpecs()) {
+            creators.add(() -> startup.register(spec));
+        }
+        return creators;
+    }
+}
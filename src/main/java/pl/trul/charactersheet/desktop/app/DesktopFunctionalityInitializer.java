@@ -1,22 +1,31 @@
 package pl.trul.charactersheet.desktop.app;
 
-import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
-import com.github.michal_stempkowski.charactersheet.internal.app.PackageInitializer;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDomain;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.ParallelismDomain;
+import pl.trul.charactersheet.desktop.calculation.CalculationDomain;
 import pl.trul.charactersheet.desktop.gui.GuiDomain;
+import pl.trul.charactersheet.desktop.persistence.PersistenceDomain;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Supplier;
 
 /**
- * Class responsible for desktop specific domain initialization (gui)
+ * Class responsible for desktop specific domain initialization (gui, persistence, calculation)
  */
-public class DesktopFunctionalityInitializer extends PackageInitializer {
+public class DesktopFunctionalityInitializer extends DependencyAwareInitializer {
+    public DesktopFunctionalityInitializer(DomainStartup startup) {
+        super(startup);
+    }
+
     @Override
-    protected List<Supplier<Domain>> getDomainCreators() {
-        return new ArrayList<>(Collections.singletonList(
-                GuiDomain::new
+    protected List<DomainSpec> getDomainSpecs() {
+        return new ArrayList<>(Arrays.asList(
+                DomainSpec.of(GuiDomain.class, GuiDomain::new).dependsOn(EventDomain.class, ParallelismDomain.class),
+                DomainSpec.of(PersistenceDomain.class, PersistenceDomain::new)
+                        .dependsOn(EventDomain.class, ParallelismDomain.class),
+                DomainSpec.of(CalculationDomain.class, CalculationDomain::new)
+                        .dependsOn(EventDomain.class, ParallelismDomain.class)
         ));
     }
 }
@@ -10,25 +10,64 @@ import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatc
 import com.github.michal_stempkowski.charactersheet.internal.events.events.InitializeEvent;
 import com.github.michal_stempkowski.charactersheet.internal.events.events.ShutdownPerformedEvent;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskScheduler;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.events.TaskFinishedEvent;
 import pl.trul.charactersheet.desktop.events.AsynchronousEventDispatcher;
+import pl.trul.charactersheet.desktop.events.DeliveryMode;
+import pl.trul.charactersheet.desktop.events.DispatcherMetrics;
+import pl.trul.charactersheet.desktop.events.EventLane;
+import pl.trul.charactersheet.desktop.events.EventPublisher;
+import pl.trul.charactersheet.desktop.events.ModalEventDispatcher;
+import pl.trul.charactersheet.desktop.events.OverflowPolicy;
+import pl.trul.charactersheet.desktop.events.RingBufferEventDispatcher;
+import pl.trul.charactersheet.desktop.events.WaitStrategy;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownCoordinator;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownParticipant;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownReport;
+import pl.trul.charactersheet.desktop.logging.LoggerCache;
 import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+import pl.trul.charactersheet.desktop.parallelism.ExecutorSubsystem;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class responsible for providing desktop
  */
 public class DesktopTopLogicFactory implements TopLogicFactory {
-    private static final String LINE_FORMATTING = "%s|\t%s|\t%s";
-    private EventDispatcher eventDispatcher;
-    private TaskScheduler taskScheduler;
+    private static final String DISPATCHER_MODE_PROPERTY = "charactersheet.events.dispatcher";
+    private static final String DISPATCHER_MODE_ASYNCHRONOUS = "asynchronous";
+    private static final String DISPATCHER_MODE_RING_BUFFER = "ring-buffer";
+    private static final String RING_SIZE_PROPERTY = "charactersheet.events.ring.size";
+    private static final String RING_CONSUMERS_PROPERTY = "charactersheet.events.ring.consumers";
+    private static final String RING_BATCH_PROPERTY = "charactersheet.events.ring.batch";
+    private static final String RING_WAIT_STRATEGY_PROPERTY = "charactersheet.events.ring.waitStrategy";
+    private static final String CONTROL_LANE_NAME = "control";
+    private static final int CONTROL_LANE_PRIORITY = 100;
+    private static final int CONTROL_LANE_CAPACITY = 1024;
+    private static final Duration LEAK_DETECTION_INTERVAL = Duration.ofSeconds(30);
+    private static final int LEAK_DETECTION_GROWTH_STREAK = 5;
+    private static final String EVENTS_POOL = "events";
+    private static final String BLOCKING_TASKS_POOL = "blocking-tasks";
+    private static final String DOMAIN_STARTUP_POOL = "domain-startup";
+    private static final String STARTUP_TIMEOUT_PROPERTY = "charactersheet.startup.timeoutSeconds";
+    private static final int DEFAULT_STARTUP_TIMEOUT_SECONDS = 60;
+    private volatile DomainStartup domainStartup;
+    private volatile ExecutorSubsystem executorSubsystem;
+    private final LoggerCache loggers = new LoggerCache();
+    private Logger logger = Logger.getLogger(DesktopTopLogicFactory.class.getName());
+    private volatile EventDispatcher eventDispatcher;
+    private volatile TaskScheduler taskScheduler;
+    private final Object creationMutex = new Object();
     private final Lock factoryLock = new ReentrantLock();
     private final Condition shutdownPerformedCondition = factoryLock.newCondition();
     private boolean isRunning = false;
@@ -36,45 +75,170 @@ public class DesktopTopLogicFactory implements TopLogicFactory {
     @Override
     public List<PackageInitializer> getPackageInitializers() {
         return new ArrayList<>(Arrays.asList(
-                new BasicFunctionalityInitializer(),
-                new DesktopFunctionalityInitializer()
+                new BasicFunctionalityInitializer(getDomainStartup()),
+                new DesktopFunctionalityInitializer(getDomainStartup())
         ));
     }
 
+    /**
+     * @return startup of domains declared by package initializers
+     */
+    public DomainStartup getDomainStartup() {
+        if (domainStartup == null) {
+            synchronized (creationMutex) {
+                if (domainStartup == null) {
+                    domainStartup = new DomainStartup(getExecutorSubsystem().getPool(DOMAIN_STARTUP_POOL));
+                }
+            }
+        }
+        return domainStartup;
+    }
+
+    /**
+     * Components are created lazily, but only once, as domains are set up concurrently. Created ones are read
+     * without locking, as they are looked up on every publish.
+     */
     @Override
     public EventDispatcher getEventDispatcher() {
         if (eventDispatcher == null) {
-            eventDispatcher = new AsynchronousEventDispatcher();
+            synchronized (creationMutex) {
+                if (eventDispatcher == null) {
+                    eventDispatcher = createEventDispatcher();
+                }
+            }
         }
         return eventDispatcher;
     }
 
+    private EventDispatcher createEventDispatcher() {
+        String mode = System.getProperty(DISPATCHER_MODE_PROPERTY, DISPATCHER_MODE_ASYNCHRONOUS);
+        if (DISPATCHER_MODE_RING_BUFFER.equals(mode)) {
+            RingBufferEventDispatcher dispatcher = new RingBufferEventDispatcher(
+                    Integer.getInteger(RING_SIZE_PROPERTY, RingBufferEventDispatcher.DEFAULT_BUFFER_SIZE),
+                    Integer.getInteger(RING_CONSUMERS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger(RING_BATCH_PROPERTY, RingBufferEventDispatcher.DEFAULT_BATCH_SIZE),
+                    WaitStrategy.valueOf(System.getProperty(RING_WAIT_STRATEGY_PROPERTY, WaitStrategy.PARK.name())));
+            dispatcher.getMetrics().registerMBean(DispatcherMetrics.DEFAULT_OBJECT_NAME);
+            dispatcher.start();
+            return dispatcher;
+        }
+        return createLanedEventDispatcher();
+    }
+
+    private EventDispatcher createLanedEventDispatcher() {
+        AsynchronousEventDispatcher dispatcher =
+                new AsynchronousEventDispatcher(getExecutorSubsystem().getPool(EVENTS_POOL));
+        EventLane controlLane = new EventLane(
+                CONTROL_LANE_NAME, CONTROL_LANE_PRIORITY, CONTROL_LANE_CAPACITY, OverflowPolicy.CALLER_RUNS);
+        dispatcher.assignLane(InitializeEvent.eventType(), controlLane);
+        dispatcher.assignLane(ShutdownPerformedEvent.eventType(), controlLane);
+        dispatcher.assignLane(TaskFinishedEvent.eventType(), controlLane);
+        dispatcher.getMetrics().registerMBean(DispatcherMetrics.DEFAULT_OBJECT_NAME);
+        dispatcher.startLeakDetection(LEAK_DETECTION_INTERVAL, LEAK_DETECTION_GROWTH_STREAK);
+        return dispatcher;
+    }
+
     @Override
     public Logger createLogger(Target targetId, DomainId domainId, String name) {
-        return Logger.getLogger(String.format(LINE_FORMATTING, targetId.toString(), domainId.toString(), name));
+        return loggers.get(targetId, domainId, name);
     }
 
     @Override
     public void start() {
-        getEventDispatcher().registerListener(ShutdownPerformedEvent.eventType(), this::on_shutdown_performed);
+        awaitDomainStartup();
+        registerInlineListener(ShutdownPerformedEvent.eventType(), this::on_shutdown_performed);
 //        runDemoThread();
-        AppRootLogic.getEventDispatcher().notifyEvent(new InitializeEvent());
+        EventPublisher.of(AppRootLogic.getEventDispatcher()).publish(new InitializeEvent());
         sleepUntilShutdownPerformed();
         performGentleShutdown();
     }
 
+    /**
+     * Waits until all eagerly started domains are set up, logging their timing.
+     */
+    protected void awaitDomainStartup() {
+        Duration timeout = Duration.ofSeconds(Integer.getInteger(STARTUP_TIMEOUT_PROPERTY, DEFAULT_STARTUP_TIMEOUT_SECONDS));
+        try {
+            getDomainStartup().awaitEagerDomains(timeout);
+        } catch (ExecutionException | TimeoutException ex) {
+            logger.log(Level.SEVERE, "Domain startup has failed", ex);
+            throw new IllegalStateException("Domain startup has failed", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Domain startup has been interrupted", ex);
+        } finally {
+            logger.info(getDomainStartup().getTimingReport());
+        }
+    }
+
     @Override
     public TaskScheduler getTaskScheduler() {
         if (taskScheduler == null) {
-            taskScheduler = new AsynchronousTaskScheduler();
+            synchronized (creationMutex) {
+                if (taskScheduler == null) {
+                    taskScheduler = new AsynchronousTaskScheduler(Runtime.getRuntime().availableProcessors(),
+                            AsynchronousTaskScheduler.DEFAULT_CYCLES_PER_SLICE,
+                            getExecutorSubsystem().getPool(BLOCKING_TASKS_POOL));
+                }
+            }
         }
         return taskScheduler;
     }
 
+    /**
+     * @return executor pools shared by desktop components, configured from executors.properties
+     */
+    public ExecutorSubsystem getExecutorSubsystem() {
+        if (executorSubsystem == null) {
+            synchronized (creationMutex) {
+                if (executorSubsystem == null) {
+                    ExecutorSubsystem created = ExecutorSubsystem.load();
+                    created.registerMBean(ExecutorSubsystem.DEFAULT_OBJECT_NAME);
+                    executorSubsystem = created;
+                }
+            }
+        }
+        return executorSubsystem;
+    }
+
+    private void registerInlineListener(int eventType, Consumer<Event> listener) {
+        EventDispatcher dispatcher = getEventDispatcher();
+        if (dispatcher instanceof ModalEventDispatcher) {
+            ((ModalEventDispatcher) dispatcher).registerListener(eventType, listener, DeliveryMode.INLINE);
+        } else {
+            dispatcher.registerListener(eventType, listener);
+        }
+    }
+
     private void performGentleShutdown() {
-        Duration finalizationTime = Duration.ofSeconds(1);
-        Duration lastResortTime = Duration.ofSeconds(1);
-        AppRootLogic.getEventDispatcher().gentleShutdown(finalizationTime, lastResortTime);
+        ShutdownReport report = shutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        if (!report.isTerminated()) {
+            logger.severe("Last resort failed, performing emergency shutdown!!!");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Shuts down dispatcher, scheduler and executor pools together against a single deadline. Exiting the process
+     * is left to the caller, as the last resort if some of their threads are still running afterwards.
+     */
+    public ShutdownReport shutdown(Duration finalizationTime, Duration lastResortTime) {
+        List<ShutdownParticipant> participants = new ArrayList<>();
+        EventDispatcher dispatcher = getEventDispatcher();
+        if (dispatcher instanceof ShutdownParticipant) {
+            participants.add((ShutdownParticipant) dispatcher);
+        } else {
+            dispatcher.gentleShutdown(finalizationTime, lastResortTime);
+        }
+        TaskScheduler scheduler = taskScheduler;
+        if (scheduler instanceof ShutdownParticipant) {
+            participants.add((ShutdownParticipant) scheduler);
+        }
+        ExecutorSubsystem executors = executorSubsystem;
+        if (executors != null) {
+            participants.add(executors);
+        }
+        return new ShutdownCoordinator().shutdown(finalizationTime, lastResortTime, participants);
     }
 
     private void sleepUntilShutdownPerformed() {
@@ -95,7 +259,7 @@ public class DesktopTopLogicFactory implements TopLogicFactory {
         Thread t = new Thread(() -> {
             try {
                 Thread.sleep(3_000);
-                getEventDispatcher().notifyEvent(new ShutdownPerformedEvent());
+                EventPublisher.of(getEventDispatcher()).publish(new ShutdownPerformedEvent());
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
@@ -0,0 +1,66 @@
+package pl.trul.charactersheet.desktop.app;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Declaration of a domain started by DomainStartup: how to create it, which domains have to be set up before it
+ * and whether its setup may be deferred until it is first used.
+ */
+public final class DomainSpec {
+    private final Class<? extends Domain> type;
+    private final Supplier<? extends Domain> creator;
+    private final List<Class<? extends Domain>> dependencies = new ArrayList<>();
+    private boolean lazy = false;
+
+    private DomainSpec(Class<? extends Domain> type, Supplier<? extends Domain> creator) {
+        this.type = type;
+        this.creator = creator;
+    }
+
+    public static <T extends Domain> DomainSpec of(Class<T> type, Supplier<T> creator) {
+        return new DomainSpec(type, creator);
+    }
+
+    /**
+     * Domains of given types (possibly declared by other initializers) are set up before this one.
+     */
+    @SafeVarargs
+    public final DomainSpec dependsOn(Class<? extends Domain>... types) {
+        dependencies.addAll(Arrays.asList(types));
+        return this;
+    }
+
+    /**
+     * Defers creation and setup of domain until it is first used, or until a domain depending on it is set up.
+     */
+    public DomainSpec lazy() {
+        lazy = true;
+        return this;
+    }
+
+    public Class<? extends Domain> getType() {
+        return type;
+    }
+
+    public String getName() {
+        return type.getSimpleName();
+    }
+
+    public List<Class<? extends Domain>> getDependencies() {
+        return Collections.unmodifiableList(dependencies);
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    Domain create() {
+        return creator.get();
+    }
+}
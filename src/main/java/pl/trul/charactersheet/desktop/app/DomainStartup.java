@@ -0,0 +1,262 @@
+package pl.trul.charactersheet.desktop.app;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Starts domains declared by DependencyAwareInitializers. Domain is created and set up on executor as soon as all
+ * domains it depends on are set up, so independent domains start in parallel. Lazy domains are started only once
+ * they are required (see require) or some started domain depends on them.
+ *
+ * Domains handed over to internal initialization are placeholders: their setup only requests start of the real
+ * domain, while getStatus waits until it is set up. Times of all setups are gathered into a timing report.
+ */
+public class DomainStartup {
+    private static final String REPORT_LINE_FORMATTING = "%n  %-24s %8s %8s %8s  %-24s %s";
+
+    private final Executor executor;
+    private final ConcurrentHashMap<Class<? extends Domain>, Node> nodes = new ConcurrentHashMap<>();
+    private final List<Node> declared = new CopyOnWriteArrayList<>();
+    private Logger logger = Logger.getLogger(DomainStartup.class.getName());
+
+    public DomainStartup(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return placeholder of declared domain, to be set up by internal initialization
+     * @throws IllegalStateException if domain of the same type has already been declared
+     */
+    Domain register(DomainSpec spec) {
+        Node node = getNode(spec.getType());
+        if (!node.declare(spec)) {
+            throw new IllegalStateException("Domain " + spec.getName() + " has been declared twice");
+        }
+        declared.add(node);
+        if (node.demanded.get()) {
+            launch(node);
+        }
+        return new StartupDomain(node);
+    }
+
+    /**
+     * Waits until domain of given type is set up, starting it first if it is lazy.
+     * @throws ExecutionException if setup of domain (or any of its dependencies) has failed
+     */
+    public <T extends Domain> T require(Class<T> type) throws ExecutionException, InterruptedException {
+        Node node = getNode(type);
+        demand(node);
+        return type.cast(node.ready.get());
+    }
+
+    /**
+     * Waits until all domains which are not lazy are set up.
+     * @throws IllegalStateException if some domain depends on undeclared domain, or dependencies form a cycle
+     * @throws ExecutionException if setup of any domain has failed
+     */
+    public void awaitEagerDomains(Duration timeout) throws ExecutionException, InterruptedException, TimeoutException {
+        validate();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Node node : declared) {
+            if (node.spec.isLazy()) {
+                continue;
+            }
+            demand(node);
+            try {
+                node.ready.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                throw new TimeoutException(String.format("Domain %s has not been set up within %s",
+                        node.spec.getName(), timeout));
+            }
+        }
+    }
+
+    /**
+     * @return per domain breakdown of startup: when setup has started (counted from the first declaration), how
+     * long it has waited for its dependencies and an executor thread, and how long it has taken
+     */
+    public String getTimingReport() {
+        long origin = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        long setupTotal = 0;
+        for (Node node : declared) {
+            origin = Math.min(origin, node.declaredNanos);
+            if (node.ready.isDone() && node.finishedNanos != 0) {
+                end = Math.max(end, node.finishedNanos);
+                setupTotal += node.finishedNanos - node.startedNanos;
+            }
+        }
+
+        StringBuilder report = new StringBuilder(String.format(
+                "Startup of %d domains took %d ms (%d ms of setups)",
+                declared.size(), end == Long.MIN_VALUE ? 0 : toMillis(end - origin), toMillis(setupTotal)));
+        report.append(String.format(REPORT_LINE_FORMATTING, "domain", "start", "waited", "setup", "thread",
+                "depends on"));
+        for (Node node : declared) {
+            String dependencies = node.spec.getDependencies().isEmpty() ? "-"
+                    : node.spec.getDependencies().stream().map(Class::getSimpleName).collect(Collectors.joining(", "));
+            if (node.finishedNanos == 0) {
+                String state = node.ready.isCompletedExceptionally() ? "failed"
+                        : node.launched.get() ? "pending" : "lazy, not used";
+                report.append(String.format(REPORT_LINE_FORMATTING, node.spec.getName(), "-", "-", "-", state,
+                        dependencies));
+            } else {
+                report.append(String.format(REPORT_LINE_FORMATTING, node.spec.getName(),
+                        toMillis(node.startedNanos - origin) + " ms",
+                        toMillis(node.startedNanos - node.declaredNanos) + " ms",
+                        toMillis(node.finishedNanos - node.startedNanos) + " ms",
+                        node.threadName, dependencies));
+            }
+        }
+        return report.toString();
+    }
+
+    private Node getNode(Class<? extends Domain> type) {
+        return nodes.computeIfAbsent(type, Node::new);
+    }
+
+    private void demand(Node node) {
+        node.demanded.set(true);
+        if (node.spec != null) {
+            launch(node);
+        }
+    }
+
+    private void launch(Node node) {
+        if (!node.launched.compareAndSet(false, true)) {
+            return;
+        }
+        List<Class<? extends Domain>> dependencies = node.spec.getDependencies();
+        CompletableFuture<?>[] dependenciesReady = new CompletableFuture<?>[dependencies.size()];
+        for (int i = 0; i < dependenciesReady.length; ++i) {
+            Node dependency = getNode(dependencies.get(i));
+            demand(dependency);
+            dependenciesReady[i] = dependency.ready;
+        }
+        CompletableFuture.allOf(dependenciesReady).whenCompleteAsync((ignored, failure) -> setUp(node, failure),
+                executor);
+    }
+
+    private void setUp(Node node, Throwable dependencyFailure) {
+        if (dependencyFailure != null) {
+            Throwable cause = dependencyFailure instanceof CompletionException
+                    ? dependencyFailure.getCause() : dependencyFailure;
+            node.ready.completeExceptionally(new IllegalStateException(
+                    "Domain " + node.spec.getName() + " skipped, as its dependency has failed", cause));
+            return;
+        }
+        node.threadName = Thread.currentThread().getName();
+        node.startedNanos = System.nanoTime();
+        try {
+            Domain domain = node.spec.create();
+            domain.setup();
+            node.finishedNanos = System.nanoTime();
+            logger.fine(() -> String.format("Domain %s set up in %d ms", node.spec.getName(),
+                    toMillis(node.finishedNanos - node.startedNanos)));
+            node.ready.complete(domain);
+        } catch (Throwable t) {
+            node.ready.completeExceptionally(t);
+        }
+    }
+
+    private void validate() {
+        for (Node node : nodes.values()) {
+            if (node.spec == null) {
+                throw new IllegalStateException("Domain " + node.type.getSimpleName()
+                        + " is a dependency, but it has never been declared");
+            }
+        }
+        Set<Node> visited = new HashSet<>();
+        for (Node node : declared) {
+            checkForCycles(node, visited, new ArrayList<>());
+        }
+    }
+
+    private void checkForCycles(Node node, Set<Node> visited, List<Node> path) {
+        if (path.contains(node)) {
+            throw new IllegalStateException("Domain dependencies form a cycle: " + path.stream()
+                    .map(n -> n.spec.getName()).collect(Collectors.joining(" -> ")) + " -> " + node.spec.getName());
+        }
+        if (!visited.add(node)) {
+            return;
+        }
+        path.add(node);
+        for (Class<? extends Domain> dependency : node.spec.getDependencies()) {
+            checkForCycles(getNode(dependency), visited, path);
+        }
+        path.remove(path.size() - 1);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class Node {
+        private final Class<? extends Domain> type;
+        private final CompletableFuture<Domain> ready = new CompletableFuture<>();
+        private final AtomicBoolean demanded = new AtomicBoolean(false);
+        private final AtomicBoolean launched = new AtomicBoolean(false);
+        private volatile DomainSpec spec = null;
+        private volatile long declaredNanos = 0;
+        private volatile long startedNanos = 0;
+        private volatile long finishedNanos = 0;
+        private volatile String threadName = null;
+
+        private Node(Class<? extends Domain> type) {
+            this.type = type;
+        }
+
+        synchronized boolean declare(DomainSpec spec) {
+            if (this.spec != null) {
+                return false;
+            }
+            declaredNanos = System.nanoTime();
+            this.spec = spec;
+            return true;
+        }
+    }
+
+    /**
+     * Placeholder of domain handed over to internal initialization.
+     */
+    private final class StartupDomain implements Domain {
+        private final Node node;
+
+        private StartupDomain(Node node) {
+            this.node = node;
+        }
+
+        /**
+         * Waits until real domain is set up, which also counts as the first use of lazy domain.
+         */
+        @Override
+        public ErrorMonad getStatus() {
+            demand(node);
+            return node.ready.join().getStatus();
+        }
+
+        @Override
+        public void setup() {
+            if (!node.spec.isLazy()) {
+                demand(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import java.nio.file.Path;
+
+/**
+ * Work done by a batch run for each character file. Called concurrently from scheduler threads, so implementations
+ * have to be thread safe. Throwing marks the file as failed, without stopping the run.
+ */
+public interface BatchJob {
+    void process(Path file) throws Exception;
+}
@@ -0,0 +1,137 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import pl.trul.charactersheet.desktop.sheet.CharacterFileFormat;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point running a batch job over character files on all cores, without GUI.
+ * Run with --help for usage.
+ */
+public class BatchMain {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: BatchMain [options] <job> <character file or directory>...",
+            "  <job>             validate, recompute, export or fully qualified name of a BatchJob class",
+            "  --output <dir>    directory written by export job, recompute rewrites files in place without it",
+            "  --timeout <sec>   files not processed within this many seconds fail (default "
+                    + BatchRun.DEFAULT_DEADLINE.getSeconds() + ")",
+            "Directories are searched recursively for *" + CharacterFileFormat.EXTENSION + " files.",
+            "Exits with status 1 if any file has failed.");
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * @return process exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        String jobName = null;
+        Path output = null;
+        Duration deadline = BatchRun.DEFAULT_DEADLINE;
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--help":
+                        out.println(USAGE);
+                        return 0;
+                    case "--output":
+                        output = Paths.get(args[++i]);
+                        break;
+                    case "--timeout":
+                        deadline = Duration.ofSeconds(Long.parseLong(args[++i]));
+                        break;
+                    default:
+                        if (jobName == null) {
+                            jobName = args[i];
+                        } else {
+                            inputs.add(Paths.get(args[i]));
+                        }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            err.println("Invalid arguments: " + ex.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        if (inputs.isEmpty()) {
+            err.println(USAGE);
+            return 2;
+        }
+
+        BatchJob job;
+        List<Path> files;
+        try {
+            job = createJob(jobName, output);
+            files = listFiles(inputs);
+        } catch (IllegalArgumentException | IOException ex) {
+            err.println(ex.getMessage());
+            return 2;
+        }
+
+        BatchTopLogicFactory factory = new BatchTopLogicFactory(jobName, job, files, deadline);
+        new AppRootLogic(factory);
+        if (!AppRootLogic.init()) {
+            err.println("Initialization has failed");
+            return 2;
+        }
+        AppRootLogic.start();
+
+        BatchReport report = factory.getReport();
+        if (report == null) {
+            err.println("Batch has not finished");
+            return 1;
+        }
+        out.println(report);
+        return report.isPassed() ? 0 : 1;
+    }
+
+    static BatchJob createJob(String jobName, Path output) {
+        switch (jobName) {
+            case "validate":
+                return new ValidateJob();
+            case "recompute":
+                return new RecomputeJob(output);
+            case "export":
+                if (output == null) {
+                    throw new IllegalArgumentException("Export job requires --output directory");
+                }
+                return new ExportJob(output);
+            default:
+                try {
+                    return Class.forName(jobName).asSubclass(BatchJob.class).newInstance();
+                } catch (ReflectiveOperationException | ClassCastException ex) {
+                    throw new IllegalArgumentException("Unknown batch job " + jobName, ex);
+                }
+        }
+    }
+
+    static List<Path> listFiles(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> tree = Files.walk(input)) {
+                    files.addAll(tree
+                            .filter(path -> path.toString().endsWith(CharacterFileFormat.EXTENSION))
+                            .filter(Files::isRegularFile)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(input);
+            }
+        }
+        return files;
+    }
+}
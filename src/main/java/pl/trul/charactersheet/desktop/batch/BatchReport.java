@@ -0,0 +1,73 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch run: how many files have been processed, which of them failed and the throughput.
+ */
+public class BatchReport {
+    private static final int MAX_LISTED_FAILURES = 20;
+
+    private final String jobName;
+    private final int fileCount;
+    private final int succeeded;
+    private final List<String> failures;
+    private final Duration duration;
+
+    public BatchReport(String jobName, int fileCount, int succeeded, List<String> failures, Duration duration) {
+        this.jobName = jobName;
+        this.fileCount = fileCount;
+        this.succeeded = succeeded;
+        this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+        this.duration = duration;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return "file: reason" of each failed file
+     */
+    public List<String> getFailures() {
+        return failures;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public double getFilesPerSecond() {
+        long nanos = duration.toNanos();
+        return nanos == 0 ? 0.0 : (succeeded + failures.size()) * 1e9 / nanos;
+    }
+
+    /**
+     * @return true if every file has been processed successfully
+     */
+    public boolean isPassed() {
+        return succeeded == fileCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(
+                "Batch %s: %d files, %d succeeded, %d failed in %d ms (%.1f files/s)",
+                jobName, fileCount, succeeded, failures.size(), duration.toMillis(), getFilesPerSecond()));
+        for (String failure : failures.subList(0, Math.min(failures.size(), MAX_LISTED_FAILURES))) {
+            report.append(System.lineSeparator()).append("  FAILED ").append(failure);
+        }
+        if (failures.size() > MAX_LISTED_FAILURES) {
+            report.append(System.lineSeparator()).append(String.format(
+                    "  ... and %d more", failures.size() - MAX_LISTED_FAILURES));
+        }
+        return report.toString();
+    }
+}
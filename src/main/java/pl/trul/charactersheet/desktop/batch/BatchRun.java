@@ -0,0 +1,126 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskScheduler;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.events.TaskFinishedEvent;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+
+import java.nio.file.Path;
+import java.rmi.server.UID;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a BatchJob over files as single cycle tasks of the scheduler, so files are processed on all of its threads.
+ * Run is finished once every task has reported TaskFinishedEvent, or once its deadline passes; files which have not
+ * been processed by then are reported as failed.
+ */
+public class BatchRun {
+    public static final Duration DEFAULT_DEADLINE = Duration.ofHours(1);
+
+    private Logger logger = Logger.getLogger(BatchRun.class.getName());
+    private final String jobName;
+    private final BatchJob job;
+    private final List<Path> files;
+    private final Duration deadline;
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+    private final Set<UID> pendingTasks = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Integer, Path> unprocessedFiles = new ConcurrentHashMap<>();
+
+    public BatchRun(String jobName, BatchJob job, List<Path> files) {
+        this(jobName, job, files, DEFAULT_DEADLINE);
+    }
+
+    public BatchRun(String jobName, BatchJob job, List<Path> files, Duration deadline) {
+        this.jobName = jobName;
+        this.job = job;
+        this.files = new ArrayList<>(files);
+        this.deadline = deadline;
+    }
+
+    public BatchReport execute(TaskScheduler scheduler, EventDispatcher dispatcher) throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(files.size());
+        EventConnection conn = dispatcher.registerListener(TaskFinishedEvent.eventType(), event -> {
+            if (pendingTasks.remove(Event.<TaskFinishedEvent>tryCast(event).getTask().id)) {
+                finished.countDown();
+            }
+        });
+
+        long startNanos = System.nanoTime();
+        try {
+            List<CyclingTask> tasks = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); ++i) {
+                int index = i;
+                CyclingTask task = new CyclingTask(() -> process(index), (TaskState state, ErrorMonad error) -> TaskState.DONE);
+                pendingTasks.add(task.id);
+                unprocessedFiles.put(index, files.get(index));
+                tasks.add(task);
+            }
+            if (scheduler instanceof AsynchronousTaskScheduler) {
+                ((AsynchronousTaskScheduler) scheduler).scheduleAll(tasks);
+            } else {
+                tasks.forEach(scheduler::scheduleTask);
+            }
+            if (!finished.await(deadline.toNanos(), TimeUnit.NANOSECONDS)) {
+                failUnprocessedFiles();
+            }
+        } finally {
+            try {
+                dispatcher.unregisterListener(conn);
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, "Unable to unregister batch listener", ex);
+            }
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+        return new BatchReport(jobName, files.size(), succeeded.get(), new ArrayList<>(failures), duration);
+    }
+
+    /**
+     * Outcome is only recorded while file is still unprocessed, so a file finishing after the deadline is not
+     * reported twice.
+     */
+    private void process(int index) {
+        Path file = files.get(index);
+        Exception failure = null;
+        try {
+            job.process(file);
+        } catch (Exception ex) {
+            logger.log(Level.FINE, "Processing of " + file + " has failed", ex);
+            failure = ex;
+        }
+        Exception outcome = failure;
+        unprocessedFiles.computeIfPresent(index, (i, processed) -> {
+            if (outcome == null) {
+                succeeded.incrementAndGet();
+            } else {
+                failures.add(processed + ": " + outcome.getMessage());
+            }
+            return null;
+        });
+    }
+
+    private void failUnprocessedFiles() {
+        logger.warning(() -> String.format("Batch %s has not finished within %s", jobName, deadline));
+        for (Integer index : unprocessedFiles.keySet()) {
+            Path file = unprocessedFiles.remove(index);
+            if (file != null) {
+                failures.add(file + ": not finished within " + deadline);
+            }
+        }
+    }
+}
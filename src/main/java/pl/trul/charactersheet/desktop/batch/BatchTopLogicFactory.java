@@ -0,0 +1,68 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.PackageInitializer;
+import pl.trul.charactersheet.desktop.app.BasicFunctionalityInitializer;
+import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownReport;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Headless TopLogicFactory: desktop dispatcher, scheduler and executors with basic domains only, so neither GUI nor
+ * JavaFX is started. Starting it runs the batch and shuts everything down as soon as all components are quiescent,
+ * instead of waiting for ShutdownPerformedEvent.
+ */
+public class BatchTopLogicFactory extends DesktopTopLogicFactory {
+    private static final Duration FINALIZATION_TIME = Duration.ofSeconds(1);
+    private static final Duration LAST_RESORT_TIME = Duration.ofSeconds(1);
+
+    private Logger logger = Logger.getLogger(BatchTopLogicFactory.class.getName());
+    private final BatchRun run;
+    private BatchReport report;
+    private ShutdownReport shutdownReport;
+
+    /**
+     * @param deadline time after which files not processed yet are reported as failed
+     */
+    public BatchTopLogicFactory(String jobName, BatchJob job, List<Path> files, Duration deadline) {
+        this.run = new BatchRun(jobName, job, files, deadline);
+    }
+
+    @Override
+    public List<PackageInitializer> getPackageInitializers() {
+        return new ArrayList<>(Collections.singletonList(new BasicFunctionalityInitializer(getDomainStartup())));
+    }
+
+    @Override
+    public void start() {
+        awaitDomainStartup();
+        try {
+            report = run.execute(getTaskScheduler(), getEventDispatcher());
+            logger.info(report::toString);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warning("Batch run has been interrupted");
+        } finally {
+            shutdownReport = shutdown(FINALIZATION_TIME, LAST_RESORT_TIME);
+        }
+    }
+
+    /**
+     * @return report of the run, or null if it has not finished
+     */
+    public BatchReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return report of shutdown after the run, or null if it has not been started
+     */
+    public ShutdownReport getShutdownReport() {
+        return shutdownReport;
+    }
+}
@@ -0,0 +1,72 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import pl.trul.charactersheet.desktop.sheet.CharacterFileFormat;
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Exports character files as JSON documents ({"id": ..., "sections": {section: {entry: {field: value}}}}) into
+ * output directory, named after the source file.
+ */
+public class ExportJob implements BatchJob {
+    private final Path outputDirectory;
+
+    public ExportJob(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    @Override
+    public void process(Path file) throws Exception {
+        CharacterSheet sheet = CharacterFileFormat.read(file);
+        String name = file.getFileName().toString();
+        if (name.endsWith(CharacterFileFormat.EXTENSION)) {
+            name = name.substring(0, name.length() - CharacterFileFormat.EXTENSION.length());
+        }
+        Files.createDirectories(outputDirectory);
+        Files.write(outputDirectory.resolve(name + ".json"), toJson(sheet).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String toJson(CharacterSheet sheet) {
+        StringBuilder json = new StringBuilder("{\"id\": ");
+        appendString(json, sheet.getId()).append(", \"sections\": {");
+        String sectionSeparator = "";
+        for (Map.Entry<String, Map<String, SheetEntry>> section : sheet.getSections().entrySet()) {
+            appendString(json.append(sectionSeparator), section.getKey()).append(": {");
+            String entrySeparator = "";
+            for (SheetEntry entry : section.getValue().values()) {
+                appendString(json.append(entrySeparator), entry.getId()).append(": {");
+                String fieldSeparator = "";
+                for (Map.Entry<String, String> field : entry.getFields().entrySet()) {
+                    appendString(json.append(fieldSeparator), field.getKey()).append(": ");
+                    appendString(json, field.getValue());
+                    fieldSeparator = ", ";
+                }
+                json.append('}');
+                entrySeparator = ", ";
+            }
+            json.append('}');
+            sectionSeparator = ", ";
+        }
+        return json.append("}}\n").toString();
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+}
@@ -0,0 +1,59 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import pl.trul.charactersheet.desktop.calculation.CalculationEngine;
+import pl.trul.charactersheet.desktop.calculation.StandardRules;
+import pl.trul.charactersheet.desktop.sheet.CharacterFileFormat;
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+import pl.trul.charactersheet.desktop.sheet.FieldRef;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recomputes derived fields of character files (see StandardRules). File is rewritten only if some derived field
+ * was stale, either in place or into output directory, if given. Every file is recomputed on the thread processing
+ * it, as batch already runs files in parallel.
+ */
+public class RecomputeJob implements BatchJob {
+    private final Path outputDirectory;
+
+    /**
+     * @param outputDirectory directory for recomputed files, null to rewrite them in place
+     */
+    public RecomputeJob(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    @Override
+    public void process(Path file) throws Exception {
+        CharacterSheet sheet = CharacterFileFormat.read(file);
+        CalculationEngine engine = new CalculationEngine(StandardRules.createGraph());
+        Map<FieldRef, String> values = new HashMap<>();
+        for (Map.Entry<String, Map<String, SheetEntry>> section : sheet.getSections().entrySet()) {
+            for (SheetEntry entry : section.getValue().values()) {
+                entry.getFields().forEach((field, value) ->
+                        values.put(FieldRef.of(section.getKey(), entry.getId(), field), value));
+            }
+        }
+        engine.update(values);
+
+        boolean stale = false;
+        for (FieldRef derived : engine.getGraph().getDerivedFields()) {
+            String value = engine.getValue(derived);
+            if (!Objects.equals(sheet.getField(derived.getSection(), derived.getEntryId(), derived.getField()), value)) {
+                sheet.setField(derived.getSection(), derived.getEntryId(), derived.getField(), value);
+                stale = true;
+            }
+        }
+        if (outputDirectory != null) {
+            Files.createDirectories(outputDirectory);
+            CharacterFileFormat.write(sheet, outputDirectory.resolve(file.getFileName()));
+        } else if (stale) {
+            CharacterFileFormat.write(sheet, file);
+        }
+    }
+}
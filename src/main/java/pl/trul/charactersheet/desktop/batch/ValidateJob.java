@@ -0,0 +1,15 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import pl.trul.charactersheet.desktop.sheet.CharacterFileFormat;
+
+import java.nio.file.Path;
+
+/**
+ * Checks that files are well formed character files.
+ */
+public class ValidateJob implements BatchJob {
+    @Override
+    public void process(Path file) throws Exception {
+        CharacterFileFormat.read(file);
+    }
+}
@@ -0,0 +1,111 @@
+package pl.trul.charactersheet.desktop.calculation;
+
+import com.github.michal_stempkowski.charactersheet.internal.Target;
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskScheduler;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import pl.trul.charactersheet.desktop.DesktopDomainId;
+import pl.trul.charactersheet.desktop.events.AsynchronousEventDispatcher;
+import pl.trul.charactersheet.desktop.events.EventPublisher;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+import pl.trul.charactersheet.desktop.sheet.DerivedFieldsChangedEvent;
+import pl.trul.charactersheet.desktop.sheet.FieldRef;
+import pl.trul.charactersheet.desktop.sheet.SheetEntryRemovedEvent;
+import pl.trul.charactersheet.desktop.sheet.SheetFieldChangedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Domain responsible for derived fields of the character sheet (see StandardRules). Every edit recomputes only
+ * the derived fields depending on it and publishes them as a single DerivedFieldsChangedEvent. Edits are handled
+ * one at a time, in order they have been published.
+ *
+ * Number of affected fields from which recomputation runs in parallel is configured with system property
+ * charactersheet.calculation.parallelThreshold (64).
+ */
+public class CalculationDomain implements Domain {
+    private static final String PARALLEL_THRESHOLD_PROPERTY = "charactersheet.calculation.parallelThreshold";
+
+    private final ErrorMonad status = new ErrorMonad();
+    private final Logger logger;
+    private CalculationEngine engine;
+
+    public CalculationDomain() {
+        logger = AppRootLogic.createLogger(Target.DESKTOP, DesktopDomainId.CALCULATION, getClass().getName());
+    }
+
+    @Override
+    public ErrorMonad getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setup() {
+        DependencyGraph graph = StandardRules.createGraph();
+        TaskScheduler scheduler = AppRootLogic.getTaskScheduler();
+        if (scheduler instanceof AsynchronousTaskScheduler) {
+            engine = new CalculationEngine(graph, (AsynchronousTaskScheduler) scheduler,
+                    Integer.getInteger(PARALLEL_THRESHOLD_PROPERTY, CalculationEngine.DEFAULT_PARALLEL_THRESHOLD));
+        } else {
+            engine = new CalculationEngine(graph);
+        }
+        logger.info(String.format("Calculation engine created with %d derived fields", graph.getDerivedFields().size()));
+
+        EventDispatcher dispatcher = AppRootLogic.getEventDispatcher();
+        if (dispatcher instanceof AsynchronousEventDispatcher) {
+            ((AsynchronousEventDispatcher) dispatcher).registerSerialListener(this::onSheetEdited,
+                    SheetFieldChangedEvent.eventType(), SheetEntryRemovedEvent.eventType());
+        } else {
+            dispatcher.registerListener(SheetFieldChangedEvent.eventType(), this::onSheetEdited);
+            dispatcher.registerListener(SheetEntryRemovedEvent.eventType(), this::onSheetEdited);
+        }
+    }
+
+    public CalculationEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Field changes and removals go through the same listener, so they share a single serial queue.
+     */
+    private void onSheetEdited(Event event) {
+        if (event.eventType == SheetEntryRemovedEvent.eventType()) {
+            onEntryRemoved(event);
+        } else {
+            onFieldChanged(event);
+        }
+    }
+
+    private void onFieldChanged(Event event) {
+        SheetFieldChangedEvent change = Event.tryCast(event);
+        publishChanges(engine.update(Collections.singletonMap(FieldRef.of(change), change.getValue())));
+    }
+
+    /**
+     * Derived fields of the removed entry itself are not published, they are gone together with it.
+     */
+    private void onEntryRemoved(Event event) {
+        SheetEntryRemovedEvent removal = Event.tryCast(event);
+        Map<FieldRef, String> derived = engine.removeEntry(removal.getSection(), removal.getEntryId());
+        derived.keySet().removeIf(field -> field.getSection().equals(removal.getSection())
+                && field.getEntryId().equals(removal.getEntryId()));
+        publishChanges(derived);
+    }
+
+    private void publishChanges(Map<FieldRef, String> derived) {
+        if (derived.isEmpty()) {
+            return;
+        }
+        List<SheetFieldChangedEvent> changes = new ArrayList<>(derived.size());
+        derived.forEach((field, value) -> changes.add(new SheetFieldChangedEvent(
+                field.getSection(), field.getEntryId(), field.getField(), value)));
+        EventPublisher.of(AppRootLogic.getEventDispatcher()).publish(new DerivedFieldsChangedEvent(changes));
+    }
+}
@@ -0,0 +1,203 @@
+package pl.trul.charactersheet.desktop.calculation;
+
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+import pl.trul.charactersheet.desktop.parallelism.TaskGraph;
+import pl.trul.charactersheet.desktop.sheet.FieldRef;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps values of input and derived fields of a DependencyGraph and recomputes only derived fields affected by
+ * a change. Derived field whose inputs have all kept their values is skipped, so recomputation also stops where
+ * a change has no further effect.
+ *
+ * Affected fields are split into independent branches (not sharing any dependency among affected fields). Once at
+ * least parallelThreshold fields are affected, branches are recomputed in parallel as a TaskGraph of the scheduler;
+ * smaller changes are recomputed on the calling thread, as scheduling them would cost more than computing.
+ * With scheduler given, updates must not be made from scheduler's threads, as they wait for recomputation.
+ */
+public class CalculationEngine {
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 64;
+    private static final Duration RECOMPUTATION_LIMIT = Duration.ofSeconds(10);
+
+    private Logger logger = Logger.getLogger(CalculationEngine.class.getName());
+    private final DependencyGraph graph;
+    private final AsynchronousTaskScheduler scheduler;
+    private final int parallelThreshold;
+    private final ConcurrentHashMap<FieldRef, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Creates engine recomputing everything on the calling thread.
+     */
+    public CalculationEngine(DependencyGraph graph) {
+        this(graph, null, Integer.MAX_VALUE);
+    }
+
+    public CalculationEngine(DependencyGraph graph, AsynchronousTaskScheduler scheduler, int parallelThreshold) {
+        this.graph = graph;
+        this.scheduler = scheduler;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public DependencyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return current value of input or derived field, or null
+     */
+    public String getValue(FieldRef field) {
+        return values.get(field);
+    }
+
+    /**
+     * Applies changes of fields (null value removes a field) and recomputes derived fields depending on them.
+     * Fields which no derived field depends on are not kept, so they are ignored, as are changes of derived
+     * fields themselves: they are owned by the engine.
+     * @return derived fields whose value has changed, dependencies before dependents (null value when removed)
+     */
+    public synchronized Map<FieldRef, String> update(Map<FieldRef, String> changes) {
+        Set<FieldRef> changed = new HashSet<>();
+        for (Map.Entry<FieldRef, String> change : changes.entrySet()) {
+            FieldRef field = change.getKey();
+            if (graph.isInput(field) && !graph.isDerived(field) && put(field, change.getValue())) {
+                changed.add(field);
+            }
+        }
+        if (changed.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return recompute(graph.dirtySubgraph(changed), changed);
+    }
+
+    /**
+     * Removes all fields of an entry.
+     * @see #update
+     */
+    public Map<FieldRef, String> removeEntry(String section, String entryId) {
+        Map<FieldRef, String> removals = new HashMap<>();
+        for (FieldRef field : graph.getInputFields(section, entryId)) {
+            removals.put(field, null);
+        }
+        return update(removals);
+    }
+
+    private Map<FieldRef, String> recompute(List<FieldRef> dirty, Set<FieldRef> sourceChanges) {
+        Set<FieldRef> changed = ConcurrentHashMap.newKeySet();
+        changed.addAll(sourceChanges);
+        List<List<FieldRef>> branches = scheduler != null && dirty.size() >= parallelThreshold
+                ? splitIntoBranches(dirty) : Collections.singletonList(dirty);
+        if (branches.size() == 1) {
+            evaluate(branches.get(0), changed);
+        } else {
+            evaluateInParallel(branches, changed);
+        }
+
+        Map<FieldRef, String> result = new LinkedHashMap<>();
+        for (FieldRef field : dirty) {
+            if (changed.contains(field)) {
+                result.put(field, values.get(field));
+            }
+        }
+        return result;
+    }
+
+    private void evaluateInParallel(List<List<FieldRef>> branches, Set<FieldRef> changed) {
+        TaskGraph tasks = new TaskGraph();
+        for (List<FieldRef> branch : branches) {
+            tasks.addTask(new CyclingTask(() -> evaluate(branch, changed),
+                    (TaskState state, ErrorMonad error) -> error.hasErrorOccurred() ? TaskState.ERROR : TaskState.DONE));
+        }
+        try {
+            scheduler.scheduleGraph(tasks).block(RECOMPUTATION_LIMIT);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new IllegalStateException("Recomputation of derived fields has failed", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recomputation of derived fields has been interrupted", ex);
+        }
+    }
+
+    /**
+     * Evaluates fields of a branch in given (topological) order. Failing formula is logged and leaves value as is.
+     */
+    private void evaluate(List<FieldRef> branch, Set<FieldRef> changed) {
+        for (FieldRef field : branch) {
+            DependencyGraph.Derivation derivation = graph.getDerivation(field);
+            List<String> inputs = new ArrayList<>(derivation.inputs.size());
+            boolean anyInputChanged = false;
+            for (FieldRef input : derivation.inputs) {
+                anyInputChanged |= changed.contains(input);
+                inputs.add(values.get(input));
+            }
+            if (!anyInputChanged) {
+                continue;
+            }
+            try {
+                if (put(field, derivation.formula.evaluate(inputs))) {
+                    changed.add(field);
+                }
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, "Formula of " + field + " has failed", ex);
+            }
+        }
+    }
+
+    /**
+     * @return fields grouped by weakly connected components of dirty subgraph, keeping their order
+     */
+    private List<List<FieldRef>> splitIntoBranches(List<FieldRef> dirty) {
+        Map<FieldRef, Integer> indices = new HashMap<>();
+        for (int i = 0; i < dirty.size(); ++i) {
+            indices.put(dirty.get(i), i);
+        }
+        int[] parents = new int[dirty.size()];
+        for (int i = 0; i < parents.length; ++i) {
+            parents[i] = i;
+        }
+        for (int i = 0; i < dirty.size(); ++i) {
+            for (FieldRef input : graph.getInputs(dirty.get(i))) {
+                Integer inputIndex = indices.get(input);
+                if (inputIndex != null) {
+                    parents[findRoot(parents, i)] = findRoot(parents, inputIndex);
+                }
+            }
+        }
+
+        Map<Integer, List<FieldRef>> branches = new LinkedHashMap<>();
+        for (int i = 0; i < dirty.size(); ++i) {
+            branches.computeIfAbsent(findRoot(parents, i), root -> new ArrayList<>()).add(dirty.get(i));
+        }
+        return new ArrayList<>(branches.values());
+    }
+
+    private static int findRoot(int[] parents, int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    private boolean put(FieldRef field, String value) {
+        String previous = value == null ? values.remove(field) : values.put(field, value);
+        return !Objects.equals(previous, value);
+    }
+}
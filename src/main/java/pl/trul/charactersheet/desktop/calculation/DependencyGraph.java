@@ -0,0 +1,150 @@
+package pl.trul.charactersheet.desktop.calculation;
+
+import pl.trul.charactersheet.desktop.sheet.FieldRef;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Derived fields of a sheet together with fields they depend on. Finding fields affected by a change walks only
+ * edges reachable from changed fields, so its cost depends on size of the change rather than size of the sheet.
+ *
+ * Fields have to be defined before the graph is shared; afterwards it is only read.
+ */
+public class DependencyGraph {
+    private static final List<FieldRef> NO_FIELDS = Collections.emptyList();
+
+    private final Map<FieldRef, Derivation> derivations = new HashMap<>();
+    private final Map<FieldRef, List<FieldRef>> dependents = new HashMap<>();
+    private final Map<List<String>, Set<FieldRef>> inputsByEntry = new HashMap<>();
+
+    /**
+     * Single derived field: its formula and inputs.
+     */
+    static final class Derivation {
+        final Formula formula;
+        final List<FieldRef> inputs;
+
+        Derivation(Formula formula, List<FieldRef> inputs) {
+            this.formula = formula;
+            this.inputs = inputs;
+        }
+    }
+
+    /**
+     * Defines derived field. Inputs may be derived fields themselves.
+     * @throws IllegalArgumentException if field is already derived, or definition would create a cycle
+     */
+    public DependencyGraph define(FieldRef target, Formula formula, FieldRef... inputs) {
+        if (derivations.containsKey(target)) {
+            throw new IllegalArgumentException("Field " + target + " is already derived");
+        }
+        List<FieldRef> inputList = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(inputs)));
+        Set<FieldRef> reachable = collectDependents(Collections.singleton(target));
+        for (FieldRef input : inputList) {
+            if (input.equals(target) || reachable.contains(input)) {
+                throw new IllegalArgumentException(String.format(
+                        "Field %s cannot depend on %s, as it would create a cycle", target, input));
+            }
+        }
+        derivations.put(target, new Derivation(formula, inputList));
+        for (FieldRef input : inputList) {
+            dependents.computeIfAbsent(input, i -> new ArrayList<>()).add(target);
+            inputsByEntry.computeIfAbsent(Arrays.asList(input.getSection(), input.getEntryId()), e -> new HashSet<>())
+                    .add(input);
+        }
+        return this;
+    }
+
+    public boolean isDerived(FieldRef field) {
+        return derivations.containsKey(field);
+    }
+
+    /**
+     * @return true if some derived field depends on given one
+     */
+    public boolean isInput(FieldRef field) {
+        return dependents.containsKey(field);
+    }
+
+    /**
+     * @return fields of given entry which some derived field depends on
+     */
+    public Set<FieldRef> getInputFields(String section, String entryId) {
+        Set<FieldRef> result = inputsByEntry.get(Arrays.asList(section, entryId));
+        return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    public Set<FieldRef> getDerivedFields() {
+        return Collections.unmodifiableSet(derivations.keySet());
+    }
+
+    public List<FieldRef> getInputs(FieldRef target) {
+        Derivation derivation = derivations.get(target);
+        return derivation == null ? NO_FIELDS : derivation.inputs;
+    }
+
+    public List<FieldRef> getDependents(FieldRef field) {
+        List<FieldRef> result = dependents.get(field);
+        return result == null ? NO_FIELDS : Collections.unmodifiableList(result);
+    }
+
+    Derivation getDerivation(FieldRef target) {
+        return derivations.get(target);
+    }
+
+    /**
+     * @return derived fields depending (directly or not) on any of changed ones, dependencies before dependents
+     */
+    public List<FieldRef> dirtySubgraph(Collection<FieldRef> changed) {
+        Set<FieldRef> dirty = collectDependents(changed);
+        Map<FieldRef, Integer> pendingInputs = new HashMap<>();
+        Deque<FieldRef> ready = new ArrayDeque<>();
+        for (FieldRef field : dirty) {
+            int count = 0;
+            for (FieldRef input : getInputs(field)) {
+                if (dirty.contains(input)) {
+                    ++count;
+                }
+            }
+            pendingInputs.put(field, count);
+            if (count == 0) {
+                ready.add(field);
+            }
+        }
+
+        List<FieldRef> ordered = new ArrayList<>(dirty.size());
+        while (!ready.isEmpty()) {
+            FieldRef field = ready.poll();
+            ordered.add(field);
+            for (FieldRef dependent : getDependents(field)) {
+                if (pendingInputs.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private Set<FieldRef> collectDependents(Collection<FieldRef> fields) {
+        Set<FieldRef> visited = new HashSet<>();
+        Deque<FieldRef> toVisit = new ArrayDeque<>(fields);
+        while (!toVisit.isEmpty()) {
+            for (FieldRef dependent : getDependents(toVisit.poll())) {
+                if (visited.add(dependent)) {
+                    toVisit.add(dependent);
+                }
+            }
+        }
+        return visited;
+    }
+}
@@ -0,0 +1,12 @@
+package pl.trul.charactersheet.desktop.calculation;
+
+import java.util.List;
+
+/**
+ * Computes value of a derived field from values of its inputs, given in order they have been declared (null for
+ * missing fields). Returning null removes the derived field. Has to be pure: it may be run on any thread.
+ */
+@FunctionalInterface
+public interface Formula {
+    String evaluate(List<String> inputs);
+}
@@ -0,0 +1,46 @@
+package pl.trul.charactersheet.desktop.calculation;
+
+import pl.trul.charactersheet.desktop.sheet.FieldRef;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Derived fields common to all sheets: modifier of every ability, being floor((score - 10) / 2).
+ */
+public final class StandardRules {
+    public static final String ABILITIES_SECTION = "abilities";
+    public static final String SCORE_FIELD = "score";
+    public static final String MODIFIER_FIELD = "modifier";
+    public static final List<String> ABILITIES = Collections.unmodifiableList(Arrays.asList(
+            "strength", "dexterity", "constitution", "intelligence", "wisdom", "charisma"));
+
+    private StandardRules() {
+    }
+
+    public static DependencyGraph createGraph() {
+        DependencyGraph graph = new DependencyGraph();
+        defineAbilityModifiers(graph);
+        return graph;
+    }
+
+    public static void defineAbilityModifiers(DependencyGraph graph) {
+        for (String ability : ABILITIES) {
+            graph.define(FieldRef.of(ABILITIES_SECTION, ability, MODIFIER_FIELD), StandardRules::abilityModifier,
+                    FieldRef.of(ABILITIES_SECTION, ability, SCORE_FIELD));
+        }
+    }
+
+    /**
+     * @return null unless score is a number
+     */
+    static String abilityModifier(List<String> inputs) {
+        String score = inputs.get(0);
+        try {
+            return score == null ? null : Integer.toString(Math.floorDiv(Integer.parseInt(score.trim()) - 10, 2));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
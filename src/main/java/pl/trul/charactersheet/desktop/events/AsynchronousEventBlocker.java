@@ -4,29 +4,140 @@ package pl.trul.charactersheet.desktop.events;
 import com.github.michal_stempkowski.charactersheet.internal.events.EventBlocker;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Hook returned by EventDispatcher.notifyEvent. Allows blocking until all event handling is finished.
+ * Hook returned by EventDispatcher.notifyEvent. Allows blocking until all event handling is finished, or
+ * registering callbacks run once it is.
+ *
+ * Completion of all handlers is tracked with a single countdown, handlers dropped because of lane overflow
+ * count as finished.
  */
 public class AsynchronousEventBlocker implements EventBlocker {
-    private final List<Future<?>> handlers;
+    private final AtomicInteger pendingHandlers;
+    private final AtomicInteger droppedHandlers = new AtomicInteger();
+    private final EventLane lane;
+    private volatile Throwable failure = null;
+    private List<Runnable> callbacks = null;
+    private boolean finished;
 
-    public AsynchronousEventBlocker(List<Future<?>> handlers) {
-        this.handlers = handlers;
+    public AsynchronousEventBlocker(int handlers) {
+        this(handlers, null);
     }
 
+    public AsynchronousEventBlocker(int handlers, EventLane lane) {
+        this.pendingHandlers = new AtomicInteger(handlers);
+        this.lane = lane;
+        this.finished = handlers == 0;
+    }
+
+    /**
+     * Waits until all handlers are finished, for no longer than given duration in total.
+     * @throws ExecutionException if any of handlers has thrown
+     */
     public void block(Duration d) throws ExecutionException, InterruptedException, TimeoutException {
-        for (Future<?> h : handlers) {
-            h.get(d.toMillis(), TimeUnit.MILLISECONDS);
+        if (pendingHandlers.get() > 0) {
+            long deadline = System.nanoTime() + d.toNanos();
+            synchronized (this) {
+                while (!finished) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new TimeoutException(String.format(
+                                "%d event handlers still running after %s", pendingHandlers.get(), d));
+                    }
+                    wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                }
+            }
+        }
+
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new ExecutionException(cause);
         }
     }
 
     public boolean hasFinished() {
-        return handlers.stream().allMatch(x -> x.isCancelled() || x.isDone());
+        return pendingHandlers.get() == 0;
+    }
+
+    /**
+     * Runs callback once all handlers are finished: on the thread finishing the last handler, or immediately on
+     * calling thread if they already are.
+     */
+    public void whenFinished(Runnable callback) {
+        synchronized (this) {
+            if (!finished) {
+                if (callbacks == null) {
+                    callbacks = new ArrayList<>();
+                }
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * @return first failure thrown by any of handlers, empty if there was none (so far)
+     */
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * @return number of handlers dropped because of lane overflow (or shutdown)
+     */
+    public long droppedHandlers() {
+        return droppedHandlers.get();
+    }
+
+    /**
+     * @return lane through which event is delivered, empty if dispatcher does not use lanes
+     */
+    public Optional<EventLane> getLane() {
+        return Optional.ofNullable(lane);
+    }
+
+    /**
+     * @return current number of invocations queued in event's lane
+     */
+    public int getLaneOccupancy() {
+        return lane == null ? 0 : lane.getOccupancy();
+    }
+
+    void handlerFinished() {
+        if (pendingHandlers.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    void handlerFailed(Throwable t) {
+        if (failure == null) {
+            failure = t;
+        }
+        handlerFinished();
+    }
+
+    void handlerDropped() {
+        droppedHandlers.incrementAndGet();
+        handlerFinished();
+    }
+
+    private void finish() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            finished = true;
+            notifyAll();
+            toRun = callbacks;
+            callbacks = null;
+        }
+        if (toRun != null) {
+            toRun.forEach(Runnable::run);
+        }
     }
 }
@@ -4,116 +4,440 @@ package pl.trul.charactersheet.desktop.events;
 import com.github.michal_stempkowski.charactersheet.internal.events.Event;
 import com.github.michal_stempkowski.charactersheet.internal.events.EventBlocker;
 import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
-import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownCoordinator;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownParticipant;
+import pl.trul.charactersheet.desktop.utils.CopyOnWriteIntMap;
 
+import java.lang.ref.WeakReference;
 import java.time.Duration;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Class responsible for managing system events. It groups events into some categories, to which subscribers can subscribe.
  * It allows events from different components to remain separated from each other.
  *
- * Event dispatcher is a singleton.
+ * Event dispatcher is a singleton. Listener lookup is lock-free (see ListenerRegistry), so publishing threads
+ * do not contend with each other. Listener invocations are queued in bounded, prioritized event lanes (see
+ * LaneScheduler), which keeps floods of bulk events from starving control events like ShutdownPerformedEvent.
+ * Listeners may also be registered to run inline on publisher's thread, or serially on their own (see DeliveryMode).
+ * UI listeners may be run in batches, once per frame, by the UI thread draining PulseBatcher.
+ * Listeners may be registered weakly, so they do not keep their owners alive.
+ * Frequent state events may be registered as coalescable, so only the latest of them is delivered.
+ * Per event type statistics are gathered in DispatcherMetrics, which can be exposed over JMX. Slow publications
+ * and listener invocations are also recorded as Flight Recorder events.
  */
-public class AsynchronousEventDispatcher implements EventDispatcher {
-    private final Map<Integer, List<EventConnection>> connections = new HashMap<>();
+public class AsynchronousEventDispatcher implements ModalEventDispatcher, EventPublisher, ShutdownParticipant {
+    public static final String DEFAULT_LANE_NAME = "default";
+    public static final int DEFAULT_LANE_CAPACITY = 4096;
+    private static final int MIN_PARALLELISM = 4;
+
+    private final ListenerRegistry registry = new ListenerRegistry();
     private Logger logger = Logger.getLogger(AsynchronousEventDispatcher.class.getName());
-    private ExecutorService executor = Executors.newCachedThreadPool();
-    private final Object mutex = new Object();
+    private final ExecutorService executor;
+    private final LaneScheduler lanes;
+    private final DispatcherMetrics metrics = new DispatcherMetrics(registry::listenerCount);
+    private final CopyOnWriteIntMap<EventCoalescer> coalescers = new CopyOnWriteIntMap<>();
+    private final InvocationTracker invocations = new InvocationTracker();
+    private final PulseBatcher pulseBatcher = new PulseBatcher(this::invokeListener, metrics);
+    private ScheduledExecutorService maintenanceTimer = null;
 
     public  AsynchronousEventDispatcher() {
+        this(new EventLane(DEFAULT_LANE_NAME, 0, DEFAULT_LANE_CAPACITY, OverflowPolicy.CALLER_RUNS),
+                Math.max(MIN_PARALLELISM, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param executor runs lane drainers and serial deliveries, dispatcher shuts it down on gentleShutdown
+     */
+    public AsynchronousEventDispatcher(ExecutorService executor) {
+        this(new EventLane(DEFAULT_LANE_NAME, 0, DEFAULT_LANE_CAPACITY, OverflowPolicy.CALLER_RUNS),
+                Math.max(MIN_PARALLELISM, 2 * Runtime.getRuntime().availableProcessors()), executor);
+    }
+
+    public AsynchronousEventDispatcher(EventLane defaultLane, int parallelism) {
+        this(defaultLane, parallelism, Executors.newCachedThreadPool());
+    }
+
+    public AsynchronousEventDispatcher(EventLane defaultLane, int parallelism, ExecutorService executor) {
+        this.executor = executor;
+        lanes = new LaneScheduler(executor, this::invokeListener, parallelism, defaultLane);
         logger.info("EventDispatcher created");
     }
 
+    public DispatcherMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return queue of PULSE listener invocations, to be drained by UI thread once per frame
+     */
+    public PulseBatcher getPulseBatcher() {
+        return pulseBatcher;
+    }
+
+    /**
+     * Routes all further events of given type into lane. Events without assigned lane go to the default one.
+     */
+    public void assignLane(int eventType, EventLane lane) {
+        lanes.assignLane(eventType, lane);
+    }
+
+    /**
+     * Registers event type as coalescable: events with equal keys published within window from the first of them
+     * are merged, and only the latest one is delivered (see EventCoalescer). Delivery happens on maintenance thread.
+     */
+    public void registerCoalescing(int eventType, Function<Event, ?> keyExtractor, Duration window) {
+        logger.fine(() -> "Registering coalescing of event " + Integer.toString(eventType) + " within " + window);
+        coalescers.put(eventType, new EventCoalescer(keyExtractor, window, getMaintenanceTimer(),
+                this::deliverCoalesced, metrics.forEventType(eventType)));
+    }
+
+    /**
+     * @return number of events of given type replaced by newer ones before being delivered
+     */
+    public long getCoalescedEventCount(int eventType) {
+        return metrics.forEventType(eventType).getCoalescedCount();
+    }
+
+    private synchronized ScheduledExecutorService getMaintenanceTimer() {
+        if (maintenanceTimer == null) {
+            maintenanceTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread timer = new Thread(r, "event-dispatcher-maintenance");
+                timer.setDaemon(true);
+                return timer;
+            });
+        }
+        return maintenanceTimer;
+    }
+
     public void gentleShutdown(Duration finalizationTime, Duration lastResortTime) {
+        new ShutdownCoordinator().shutdown(finalizationTime, lastResortTime, Collections.singletonList(this));
+    }
+
+    /**
+     * Stops maintenance and delivers coalesced events right away, events published later are still delivered.
+     */
+    @Override
+    public void beginShutdown() {
         logger.info("Gentle shutdown has begun");
+        stopMaintenance();
+    }
+
+    @Override
+    public boolean isQuiescent() {
+        if (!lanes.isIdle() || invocations.getRunningCount() > 0) {
+            return false;
+        }
+        for (EventCoalescer coalescer : coalescers.values()) {
+            if (coalescer.getPendingCount() > 0) {
+                return false;
+            }
+        }
+        return forEachSerialBinding(binding -> binding.getSerialDelivery().getPendingCount() == 0);
+    }
+
+    @Override
+    public List<String> getStragglers() {
+        List<String> stragglers = new ArrayList<>(invocations.describeRunning());
+        stragglers.addAll(lanes.describePending());
+        forEachSerialBinding(binding -> {
+            int pending = binding.getSerialDelivery().getPendingCount();
+            if (pending > 0) {
+                stragglers.add(String.format("serial listener %s has %d pending events",
+                        binding.getConnection().getConnectionId(), pending));
+            }
+            return true;
+        });
+        return stragglers;
+    }
+
+    /**
+     * Invocations of PULSE listeners still queued are dropped, as UI thread is not going to drain them anymore.
+     */
+    @Override
+    public void release() {
+        pulseBatcher.cancelPending();
         executor.shutdown();
-        if (!safelyAwaitTermination(finalizationTime)) {
-            logger.warning("Last resort shutdown has begun!");
-            executor.shutdownNow();
-            if (!safelyAwaitTermination(lastResortTime)) {
-                logger.severe("Last resort failed, performing emergency shutdown!!!");
-                System.exit(1);
+    }
+
+    @Override
+    public void forceShutdown() {
+        logger.warning("Last resort shutdown has begun!");
+        stopMaintenance();
+        executor.shutdownNow();
+        lanes.cancelPending();
+        pulseBatcher.cancelPending();
+    }
+
+    @Override
+    public boolean awaitTermination(long deadlineNanos) throws InterruptedException {
+        return executor.awaitTermination(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return false as soon as predicate does not hold for some binding with serial delivery
+     */
+    private boolean forEachSerialBinding(Predicate<ListenerBinding> predicate) {
+        for (int eventType : registry.getEventTypes()) {
+            for (ListenerBinding binding : registry.getListeners(eventType)) {
+                if (binding.getSerialDelivery() != null && !predicate.test(binding)) {
+                    return false;
+                }
             }
         }
-        logger.info("Shutdown performed gracefully");
+        return true;
     }
 
-    private boolean safelyAwaitTermination(Duration terminationLimit) {
-        try {
-            return executor.awaitTermination(terminationLimit.toMillis(), TimeUnit.MILLISECONDS);
-        } catch (InterruptedException ex) {
-            logger.severe("awaitTermination during gentleShutdown has been terminated!");
-            return false;
+    /**
+     * Starts sampling listener counts periodically on maintenance thread, logging event types whose count
+     * keeps growing.
+     */
+    public ListenerLeakDetector startLeakDetection(Duration interval, int growthStreakThreshold) {
+        ListenerLeakDetector detector = new ListenerLeakDetector(registry, growthStreakThreshold);
+        getMaintenanceTimer().scheduleAtFixedRate(
+                detector::sample, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+        return detector;
+    }
+
+    private void stopMaintenance() {
+        synchronized (this) {
+            if (maintenanceTimer != null) {
+                maintenanceTimer.shutdownNow();
+            }
+        }
+        for (EventCoalescer coalescer : coalescers.values()) {
+            coalescer.flushAll();
         }
     }
 
     public EventConnection registerListener(int eventType, Consumer<Event> eventConsumer) {
-        logger.fine("Registering listener for event " + Integer.toString(eventType));
+        return registerListener(eventType, eventConsumer, DeliveryMode.ASYNC);
+    }
+
+    @Override
+    public EventConnection registerListener(int eventType, Consumer<Event> eventConsumer, DeliveryMode mode) {
+        logger.fine(() -> "Registering " + mode + " listener for event " + Integer.toString(eventType));
         EventConnection conn = new EventConnection(eventType, eventConsumer);
-        synchronizedListenersUpdate(conn);
+        SerialDelivery serialDelivery = mode == DeliveryMode.SERIAL
+                ? new SerialDelivery(conn, executor, this::invokeListener)
+                : null;
+        registry.add(new ListenerBinding(conn, mode, serialDelivery));
+        metrics.forEventType(eventType);
         return conn;
     }
 
-    private void synchronizedListenersUpdate(EventConnection conn) {
-        logger.finer(String.format("synchronizedListenersUpdate - entering (%s)", conn.getConnectionId().toString()));
-        synchronized (mutex) {
-            List<EventConnection> conns = connections.getOrDefault(conn.getEventType(), new LinkedList<>());
-            conns.add(conn);
-            connections.put(conn.getEventType(), conns);
-            logger.finer(String.format("synchronizedListenersUpdate - leaving (%s)", conn.getConnectionId().toString()));
+    /**
+     * Registers a single SERIAL listener for several event types. Their events share one serial delivery, so they
+     * are handled one at a time in order they have been published, whatever their type.
+     * @return connections, one per event type
+     */
+    public List<EventConnection> registerSerialListener(Consumer<Event> eventConsumer, int... eventTypes) {
+        logger.fine(() -> "Registering SERIAL listener for events " + Arrays.toString(eventTypes));
+        List<EventConnection> connections = new ArrayList<>(eventTypes.length);
+        SerialDelivery serialDelivery = null;
+        for (int eventType : eventTypes) {
+            EventConnection conn = new EventConnection(eventType, eventConsumer);
+            if (serialDelivery == null) {
+                serialDelivery = new SerialDelivery(conn, executor, this::invokeListener);
+            }
+            registry.add(new ListenerBinding(conn, DeliveryMode.SERIAL, serialDelivery));
+            metrics.forEventType(eventType);
+            connections.add(conn);
         }
+        return connections;
     }
 
-    public EventBlocker notifyEvent(Event e) {
-        return new AsynchronousEventBlocker(synchronizedGetEventListeners(e).stream()
-                .map(x -> executor.submit(() -> x.getEventConsumer().accept(e)))
-                .collect(Collectors.toList()));
+    /**
+     * Registers listener run in batches by PulseBatcher. While its invocation waits for the next pulse, newer events
+     * with the same coalescing key replace the queued one.
+     * @param coalescingKey extracts coalescing key from event, null if events should never be coalesced
+     */
+    public EventConnection registerPulseListener(int eventType, Consumer<Event> eventConsumer,
+                                                 Function<Event, ?> coalescingKey) {
+        logger.fine(() -> "Registering PULSE listener for event " + Integer.toString(eventType));
+        EventConnection conn = new EventConnection(eventType, eventConsumer);
+        pulseBatcher.register(conn, coalescingKey);
+        registry.add(new ListenerBinding(conn, DeliveryMode.PULSE, null));
+        metrics.forEventType(eventType);
+        return conn;
     }
 
-    private List<EventConnection> synchronizedGetEventListeners(Event e) {
-        logger.finer(String.format("synchronizedGetEventListeners - entering (%s)", e.eventType));
-        synchronized (mutex) {
-            List<EventConnection> conns = connections.getOrDefault(e.eventType, new LinkedList<>());
-            if (conns.isEmpty()) {
-                logger.warning("No listeners for event " + e.getClass().getName());
-            }
+    /**
+     * Registers listener which does not keep its owner reachable. Once owner is garbage collected, listener stops
+     * receiving events and is pruned during dispatch. Handler must not capture owner itself, use a method reference
+     * like Owner::onEvent rather than owner::onEvent.
+     */
+    public <T> EventConnection registerWeakListener(int eventType, T owner, BiConsumer<? super T, Event> handler) {
+        return registerWeakListener(eventType, owner, handler, DeliveryMode.ASYNC);
+    }
 
-            try {
-                return new ArrayList<>(conns);
-            }
-            finally {
-                logger.finer(String.format("synchronizedGetEventListeners - leaving (%s)", e.eventType));
+    public <T> EventConnection registerWeakListener(int eventType, T owner, BiConsumer<? super T, Event> handler,
+                                                    DeliveryMode mode) {
+        logger.fine(() -> "Registering weak " + mode + " listener for event " + Integer.toString(eventType));
+        WeakReference<T> ownerReference = new WeakReference<>(owner);
+        EventConnection conn = new EventConnection(eventType, (event) -> {
+            T currentOwner = ownerReference.get();
+            if (currentOwner != null) {
+                handler.accept(currentOwner, event);
             }
+        });
+        SerialDelivery serialDelivery = mode == DeliveryMode.SERIAL
+                ? new SerialDelivery(conn, executor, this::invokeListener)
+                : null;
+        registry.add(new ListenerBinding(conn, mode, serialDelivery, ownerReference));
+        metrics.forEventType(eventType);
+        return conn;
+    }
+
+    public EventBlocker notifyEvent(Event e) {
+        EventPublishedJfrEvent publishedEvent = EventPublishedJfrEvent.beginIfEnabled();
+        long now = System.nanoTime();
+        metrics.forEventType(e.eventType).recordPublished(now);
+        EventCoalescer coalescer = coalescers.get(e.eventType);
+        EventBlocker completion = coalescer != null ? coalescer.submit(e) : deliver(e, now);
+        if (publishedEvent != null) {
+            publishedEvent.finish(e, coalescer != null);
         }
+        return completion;
     }
 
-    public void unregisterListener(EventConnection conn) throws Exception{
-        if (!synchronizedRemoveListener(conn)) {
-            throw new NoSuchElementException();
+    @Override
+    public void publish(Event e) {
+        EventPublishedJfrEvent publishedEvent = EventPublishedJfrEvent.beginIfEnabled();
+        long now = System.nanoTime();
+        metrics.forEventType(e.eventType).recordPublished(now);
+        EventCoalescer coalescer = coalescers.get(e.eventType);
+        if (coalescer != null) {
+            coalescer.submit(e);
+        } else {
+            ListenerBinding[] listeners = getEventListeners(e);
+            dispatch(e, listeners, lanes.getLane(e.eventType), null, now);
+        }
+        if (publishedEvent != null) {
+            publishedEvent.finish(e, coalescer != null);
         }
     }
 
-    private boolean synchronizedRemoveListener(EventConnection conn) {
-        logger.finer(String.format("synchronizedRemoveListener - entering (%s)", conn.getConnectionId().toString()));
-        synchronized (mutex) {
-            try {
-                return Optional.ofNullable(connections.get(conn.getEventType()))
-                        .orElseThrow(NoSuchElementException::new)
-                        .removeIf(x -> x.getConnectionId() == conn.getConnectionId());
+    private AsynchronousEventBlocker deliverCoalesced(Event e) {
+        return deliver(e, System.nanoTime());
+    }
+
+    private AsynchronousEventBlocker deliver(Event e, long publishedNanos) {
+        ListenerBinding[] listeners = getEventListeners(e);
+        EventLane lane = lanes.getLane(e.eventType);
+        AsynchronousEventBlocker completion = new AsynchronousEventBlocker(listeners.length, lane);
+        dispatch(e, listeners, lane, completion, publishedNanos);
+        return completion;
+    }
+
+    /**
+     * Hands queued listeners over to their executors first, so they start while inline ones run on this thread.
+     */
+    private void dispatch(Event e, ListenerBinding[] listeners, EventLane lane, AsynchronousEventBlocker completion,
+                          long now) {
+        boolean hasInlineListeners = false;
+        for (ListenerBinding x : listeners) {
+            if (x.getDeliveryMode() == DeliveryMode.INLINE) {
+                hasInlineListeners = true;
+                continue;
+            }
+            if (!x.isActive()) {
+                skipListener(x, completion);
+                continue;
+            }
+            switch (x.getDeliveryMode()) {
+                case ASYNC:
+                    lanes.submit(lane, e, x.getConnection(), completion, now);
+                    break;
+                case SERIAL:
+                    x.getSerialDelivery().deliver(e, completion, now);
+                    break;
+                case PULSE:
+                    pulseBatcher.submit(e, x.getConnection(), completion, now);
+                    break;
             }
-            finally {
-                logger.finer(String.format(
-                        "synchronizedRemoveListener - leaving (%s)", conn.getConnectionId().toString()));
+        }
+
+        if (hasInlineListeners) {
+            for (ListenerBinding x : listeners) {
+                if (x.getDeliveryMode() != DeliveryMode.INLINE) {
+                    continue;
+                }
+                if (x.isActive()) {
+                    invokeListener(e, x.getConnection(), completion, now);
+                } else {
+                    skipListener(x, completion);
+                }
             }
+        }
+    }
 
+    private void skipListener(ListenerBinding binding, AsynchronousEventBlocker completion) {
+        if (binding.isCollected()) {
+            registry.prune(binding);
+        }
+        if (completion != null) {
+            completion.handlerFinished();
         }
     }
-}
 
+    private void invokeListener(Event e, EventConnection conn, AsynchronousEventBlocker completion,
+                                long publishedNanos) {
+        ListenerInvokedJfrEvent invokedEvent = ListenerInvokedJfrEvent.beginIfEnabled();
+        InvocationTracker.Slot invocation = invocations.enter(e, conn);
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            conn.getEventConsumer().accept(e);
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Listener failed while handling " + e.getClass().getName(), t);
+            failure = t;
+        } finally {
+            invocations.exit(invocation);
+        }
+
+        long executionNanos = System.nanoTime() - start;
+        if (invokedEvent != null) {
+            invokedEvent.finish(e, start - publishedNanos, failure != null);
+        }
+        metrics.forEventType(e.eventType).recordInvocation(start - publishedNanos, executionNanos,
+                executionNanos > metrics.getSlowListenerThresholdNanos(), failure != null);
+        if (completion == null) {
+            return;
+        }
+        if (failure == null) {
+            completion.handlerFinished();
+        } else {
+            completion.handlerFailed(failure);
+        }
+    }
+
+    private ListenerBinding[] getEventListeners(Event e) {
+        ListenerBinding[] conns = registry.getListeners(e.eventType);
+        if (conns.length == 0) {
+            logger.warning(() -> "No listeners for event " + e.getClass().getName());
+        }
+        return conns;
+    }
+
+    public void unregisterListener(EventConnection conn) throws Exception{
+        if (!registry.remove(conn)) {
+            throw new NoSuchElementException();
+        }
+        pulseBatcher.unregister(conn);
+    }
+}
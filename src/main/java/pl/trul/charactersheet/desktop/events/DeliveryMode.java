@@ -0,0 +1,15 @@
+package pl.trul.charactersheet.desktop.events;
+
+/**
+ * Describes on which thread and in what order listener is invoked.
+ */
+public enum DeliveryMode {
+    /** Listener runs synchronously on publisher's thread. Meant for cheap listeners, like flipping a flag. */
+    INLINE,
+    /** Listener runs on dispatcher's thread pool, through event lanes. */
+    ASYNC,
+    /** Listener runs on dispatcher's thread pool, handling one event at a time in publishing order. */
+    SERIAL,
+    /** Listener runs on thread draining dispatcher's PulseBatcher (UI thread), in batches once per frame. */
+    PULSE
+}
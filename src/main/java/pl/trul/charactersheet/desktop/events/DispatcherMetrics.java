@@ -0,0 +1,128 @@
+package pl.trul.charactersheet.desktop.events;
+
+import pl.trul.charactersheet.desktop.utils.CopyOnWriteIntMap;
+import pl.trul.charactersheet.desktop.utils.LatencyHistogram;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per event type metrics of event dispatcher: publish rate, listener count, time invocations wait in queue,
+ * listener execution time, slow and failed listeners, coalesced events. Low overhead is meant to keep it enabled in production.
+ * Time spent on each batch of PULSE listeners (on UI thread) is tracked as well.
+ */
+public class DispatcherMetrics implements DispatcherMetricsMXBean {
+    public static final String DEFAULT_OBJECT_NAME = "pl.trul.charactersheet.desktop:type=EventDispatcher";
+    private static final long DEFAULT_SLOW_LISTENER_THRESHOLD_MILLIS = 50;
+
+    private final CopyOnWriteIntMap<EventTypeMetrics> metrics = new CopyOnWriteIntMap<>();
+    private final IntUnaryOperator listenerCounter;
+    private final LatencyHistogram pulseBatches = new LatencyHistogram();
+    private final AtomicInteger largestPulseBatch = new AtomicInteger();
+    private Logger logger = Logger.getLogger(DispatcherMetrics.class.getName());
+    private volatile long slowListenerThresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_LISTENER_THRESHOLD_MILLIS);
+
+    public DispatcherMetrics(IntUnaryOperator listenerCounter) {
+        this.listenerCounter = listenerCounter;
+    }
+
+    public EventTypeMetrics forEventType(int eventType) {
+        return metrics.computeIfAbsent(eventType, EventTypeMetrics::new);
+    }
+
+    /**
+     * Registers metrics in platform MBean server, replacing metrics of previously created dispatcher if needed.
+     */
+    public void registerMBean(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException ex) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Unable to register dispatcher metrics as " + objectName, ex);
+        }
+    }
+
+    @Override
+    public List<EventTypeStatistics> getEventTypeStatistics() {
+        long now = System.nanoTime();
+        List<EventTypeStatistics> result = new ArrayList<>();
+        for (EventTypeMetrics m : metrics.values()) {
+            LatencyHistogram queueWait = m.getQueueWait();
+            LatencyHistogram execution = m.getExecution();
+            result.add(new EventTypeStatistics(
+                    m.getEventType(),
+                    m.getPublishedCount(),
+                    m.getPublishRate().getRatePerSecond(now),
+                    listenerCounter.applyAsInt(m.getEventType()),
+                    toMicros(queueWait.getPercentileNanos(50)),
+                    toMicros(queueWait.getPercentileNanos(99)),
+                    toMicros(queueWait.getPercentileNanos(99.9)),
+                    toMicros(execution.getPercentileNanos(50)),
+                    toMicros(execution.getPercentileNanos(99)),
+                    toMicros(execution.getPercentileNanos(99.9)),
+                    m.getSlowListeners(),
+                    m.getFailedListeners(),
+                    m.getCoalescedCount()));
+        }
+        return result;
+    }
+
+    @Override
+    public long getSlowListenerThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowListenerThresholdNanos);
+    }
+
+    @Override
+    public void setSlowListenerThresholdMillis(long thresholdMillis) {
+        slowListenerThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    @Override
+    public long getPulseBatchCount() {
+        return pulseBatches.getCount();
+    }
+
+    @Override
+    public long getPulseBatchP50Micros() {
+        return toMicros(pulseBatches.getPercentileNanos(50));
+    }
+
+    @Override
+    public long getPulseBatchP99Micros() {
+        return toMicros(pulseBatches.getPercentileNanos(99));
+    }
+
+    @Override
+    public int getLargestPulseBatch() {
+        return largestPulseBatch.get();
+    }
+
+    void recordPulseBatch(long durationNanos, int size) {
+        pulseBatches.record(durationNanos);
+        largestPulseBatch.accumulateAndGet(size, Math::max);
+    }
+
+    long getSlowListenerThresholdNanos() {
+        return slowListenerThresholdNanos;
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
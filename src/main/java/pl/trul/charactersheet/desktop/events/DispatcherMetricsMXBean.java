@@ -0,0 +1,22 @@
+package pl.trul.charactersheet.desktop.events;
+
+import java.util.List;
+
+/**
+ * Management interface of event dispatcher metrics.
+ */
+public interface DispatcherMetricsMXBean {
+    List<EventTypeStatistics> getEventTypeStatistics();
+
+    long getSlowListenerThresholdMillis();
+
+    void setSlowListenerThresholdMillis(long thresholdMillis);
+
+    long getPulseBatchCount();
+
+    long getPulseBatchP50Micros();
+
+    long getPulseBatchP99Micros();
+
+    int getLargestPulseBatch();
+}
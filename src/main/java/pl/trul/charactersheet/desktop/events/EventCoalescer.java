@@ -0,0 +1,114 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges events of a single type carrying state where only the latest value matters. The first event with given
+ * key is held back for the coalescing window; events with the same key published in the meantime replace it,
+ * so listeners receive only the newest one. Every publisher of merged events gets the same blocker, finished once
+ * the surviving event is handled.
+ *
+ * Events for which key extractor returns null are all merged with each other.
+ */
+public class EventCoalescer {
+    private static final Object NULL_KEY = new Object();
+
+    private final Function<Event, ?> keyExtractor;
+    private final long windowNanos;
+    private final ScheduledExecutorService timer;
+    private final Function<Event, AsynchronousEventBlocker> delivery;
+    private final EventTypeMetrics metrics;
+    private final ConcurrentHashMap<Object, PendingEvent> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param delivery dispatches surviving event to its listeners
+     */
+    public EventCoalescer(Function<Event, ?> keyExtractor, Duration window, ScheduledExecutorService timer,
+                          Function<Event, AsynchronousEventBlocker> delivery, EventTypeMetrics metrics) {
+        this.keyExtractor = keyExtractor;
+        this.windowNanos = window.toNanos();
+        this.timer = timer;
+        this.delivery = delivery;
+        this.metrics = metrics;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Delivers all events still waiting for their window to pass right away.
+     */
+    public void flushAll() {
+        pending.forEach(this::flush);
+    }
+
+    AsynchronousEventBlocker submit(Event e) {
+        Object extracted = keyExtractor.apply(e);
+        Object key = extracted == null ? NULL_KEY : extracted;
+        PendingEvent slot = pending.compute(key, (k, current) -> {
+            if (current != null) {
+                current.event = e;
+                metrics.recordCoalesced();
+                return current;
+            }
+            return new PendingEvent(e);
+        });
+
+        if (!slot.scheduled) {
+            schedule(key, slot);
+        }
+        return slot.completion;
+    }
+
+    private void schedule(Object key, PendingEvent slot) {
+        synchronized (slot) {
+            if (slot.scheduled) {
+                return;
+            }
+            slot.scheduled = true;
+        }
+        try {
+            timer.schedule(() -> flush(key, slot), windowNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            flush(key, slot);
+        }
+    }
+
+    private void flush(Object key, PendingEvent slot) {
+        if (!pending.remove(key, slot)) {
+            return;
+        }
+
+        AsynchronousEventBlocker delivered = delivery.apply(slot.event);
+        delivered.whenFinished(() -> {
+            Throwable failure = delivered.getFailure().orElse(null);
+            if (failure == null) {
+                slot.completion.handlerFinished();
+            } else {
+                slot.completion.handlerFailed(failure);
+            }
+        });
+    }
+
+    /**
+     * Latest event with given key, replaced in place while it waits; reads happen after removal from the map,
+     * which orders them after all replacements.
+     */
+    private static final class PendingEvent {
+        private final AsynchronousEventBlocker completion = new AsynchronousEventBlocker(1);
+        private volatile Event event;
+        private volatile boolean scheduled = false;
+
+        private PendingEvent(Event event) {
+            this.event = event;
+        }
+    }
+}
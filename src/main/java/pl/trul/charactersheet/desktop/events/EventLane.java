@@ -0,0 +1,172 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of pending listener invocations sharing the same priority. Lanes with higher priority are always
+ * drained first; once lane is full, its OverflowPolicy decides what happens with newly published invocations.
+ *
+ * Invocations are kept in preallocated parallel arrays, so queueing them does not allocate.
+ */
+public class EventLane {
+    private final String name;
+    private final int priority;
+    private final OverflowPolicy overflowPolicy;
+    private final Event[] events;
+    private final EventConnection[] connections;
+    private final AsynchronousEventBlocker[] completions;
+    private final long[] publishedAt;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private int head = 0;
+    private volatile int size = 0;
+
+    public EventLane(String name, int priority, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Lane capacity has to be positive, got " + capacity);
+        }
+        this.name = name;
+        this.priority = priority;
+        this.overflowPolicy = overflowPolicy;
+        this.events = new Event[capacity];
+        this.connections = new EventConnection[capacity];
+        this.completions = new AsynchronousEventBlocker[capacity];
+        this.publishedAt = new long[capacity];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getOccupancy() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean offer(Event event, EventConnection conn, AsynchronousEventBlocker completion, long publishedNanos) {
+        return offer(event, conn, completion, publishedNanos, true);
+    }
+
+    /**
+     * Queues invocation according to lane's overflow policy. Completion may be null when nobody waits for it.
+     * @param mayBlock false if publisher is one of the threads draining lane, which must not wait for itself; BLOCK
+     *                 policy falls back to CALLER_RUNS then
+     * @return false if invocation has not been queued and should be run by the caller
+     */
+    boolean offer(Event event, EventConnection conn, AsynchronousEventBlocker completion, long publishedNanos,
+                  boolean mayBlock) {
+        AsynchronousEventBlocker dropped = null;
+        lock.lock();
+        try {
+            while (size == events.length) {
+                switch (overflowPolicy) {
+                    case BLOCK:
+                        if (!mayBlock) {
+                            return false;
+                        }
+                        notFull.await();
+                        break;
+                    case DROP_OLDEST:
+                        dropped = completions[head];
+                        removeHead();
+                        break;
+                    case DROP_NEWEST:
+                        dropped = completion;
+                        return true;
+                    case CALLER_RUNS:
+                        return false;
+                }
+            }
+            int tail = (head + size) % events.length;
+            events[tail] = event;
+            connections[tail] = conn;
+            completions[tail] = completion;
+            publishedAt[tail] = publishedNanos;
+            ++size;
+            return true;
+        } catch (InterruptedException ex) {
+            dropped = completion;
+            Thread.currentThread().interrupt();
+            return true;
+        } finally {
+            lock.unlock();
+            if (dropped != null) {
+                dropped.handlerDropped();
+            }
+        }
+    }
+
+    /**
+     * Takes oldest queued invocation (if any) and runs it with invoker on calling thread.
+     * @return false if lane was empty
+     */
+    boolean runNext(LaneScheduler.Invoker invoker) {
+        if (size == 0) {
+            return false;
+        }
+
+        Event event;
+        EventConnection conn;
+        AsynchronousEventBlocker completion;
+        long publishedNanos;
+        lock.lock();
+        try {
+            if (size == 0) {
+                return false;
+            }
+            event = events[head];
+            conn = connections[head];
+            completion = completions[head];
+            publishedNanos = publishedAt[head];
+            removeHead();
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+        invoker.invoke(event, conn, completion, publishedNanos);
+        return true;
+    }
+
+    void cancelAll() {
+        lock.lock();
+        try {
+            while (size > 0) {
+                AsynchronousEventBlocker completion = completions[head];
+                removeHead();
+                if (completion != null) {
+                    completion.handlerDropped();
+                }
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeHead() {
+        events[head] = null;
+        connections[head] = null;
+        completions[head] = null;
+        head = (head + 1) % events.length;
+        --size;
+    }
+}
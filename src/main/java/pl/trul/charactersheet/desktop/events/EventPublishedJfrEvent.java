@@ -0,0 +1,55 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event spanning publication of an event by AsynchronousEventDispatcher, on the publishing thread.
+ * Publication is slow when inline listeners are slow or lanes push back on publisher, so only publications longer
+ * than threshold (1 ms unless overridden in recording settings) are recorded. Event is not even created unless some
+ * recording has it enabled, as publishing is the hottest path of the dispatcher.
+ */
+@Name("pl.trul.charactersheet.EventPublished")
+@Label("Event Published")
+@Category({"Charactersheet", "Events"})
+@Description("Time spent by publisher in notifyEvent or publish")
+@Threshold("1 ms")
+class EventPublishedJfrEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(EventPublishedJfrEvent.class);
+
+    @Label("Event Type")
+    int eventType;
+
+    @Label("Event Class")
+    String eventClass;
+
+    @Label("Coalesced")
+    boolean coalesced;
+
+    /**
+     * @return event which has begun, null if no recording has it enabled
+     */
+    static EventPublishedJfrEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        EventPublishedJfrEvent event = new EventPublishedJfrEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(Event e, boolean coalesced) {
+        end();
+        if (shouldCommit()) {
+            this.eventType = e.eventType;
+            this.eventClass = e.getClass().getName();
+            this.coalesced = coalesced;
+            commit();
+        }
+    }
+}
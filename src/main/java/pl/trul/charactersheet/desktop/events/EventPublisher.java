@@ -0,0 +1,22 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+
+/**
+ * Fire-and-forget publishing of events. Unlike EventDispatcher.notifyEvent, it does not track completion of
+ * listeners, which lets implementations publish without allocating anything per call.
+ */
+public interface EventPublisher {
+    void publish(Event e);
+
+    /**
+     * @return dispatcher itself if it supports fire-and-forget publishing, adapter over notifyEvent otherwise
+     */
+    static EventPublisher of(EventDispatcher dispatcher) {
+        if (dispatcher instanceof EventPublisher) {
+            return (EventPublisher) dispatcher;
+        }
+        return dispatcher::notifyEvent;
+    }
+}
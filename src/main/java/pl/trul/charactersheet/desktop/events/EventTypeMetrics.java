@@ -0,0 +1,80 @@
+package pl.trul.charactersheet.desktop.events;
+
+import pl.trul.charactersheet.desktop.utils.LatencyHistogram;
+import pl.trul.charactersheet.desktop.utils.RateMeter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics gathered by dispatcher for a single event type. All counters are striped, so recording from many
+ * threads at once does not contend.
+ */
+public class EventTypeMetrics {
+    private final int eventType;
+    private final LongAdder published = new LongAdder();
+    private final RateMeter publishRate = new RateMeter();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+    private final LongAdder slowListeners = new LongAdder();
+    private final LongAdder failedListeners = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public EventTypeMetrics(int eventType) {
+        this.eventType = eventType;
+    }
+
+    public int getEventType() {
+        return eventType;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public RateMeter getPublishRate() {
+        return publishRate;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+
+    public long getSlowListeners() {
+        return slowListeners.sum();
+    }
+
+    public long getFailedListeners() {
+        return failedListeners.sum();
+    }
+
+    /**
+     * @return number of events replaced by newer ones before being delivered
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    void recordPublished(long nowNanos) {
+        published.increment();
+        publishRate.mark(nowNanos);
+    }
+
+    void recordInvocation(long queueWaitNanos, long executionNanos, boolean slow, boolean failed) {
+        queueWait.record(queueWaitNanos);
+        execution.record(executionNanos);
+        if (slow) {
+            slowListeners.increment();
+        }
+        if (failed) {
+            failedListeners.increment();
+        }
+    }
+
+    void recordCoalesced() {
+        coalesced.increment();
+    }
+}
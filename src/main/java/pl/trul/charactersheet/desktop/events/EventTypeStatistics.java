@@ -0,0 +1,98 @@
+package pl.trul.charactersheet.desktop.events;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Point-in-time view of dispatcher statistics of a single event type, as exposed over JMX.
+ * Durations are given in microseconds.
+ */
+public class EventTypeStatistics {
+    private final int eventType;
+    private final long publishedCount;
+    private final double publishRatePerSecond;
+    private final int listenerCount;
+    private final long queueWaitP50Micros;
+    private final long queueWaitP99Micros;
+    private final long queueWaitP999Micros;
+    private final long executionP50Micros;
+    private final long executionP99Micros;
+    private final long executionP999Micros;
+    private final long slowListeners;
+    private final long failedListeners;
+    private final long coalescedCount;
+
+    @ConstructorProperties({"eventType", "publishedCount", "publishRatePerSecond", "listenerCount",
+            "queueWaitP50Micros", "queueWaitP99Micros", "queueWaitP999Micros",
+            "executionP50Micros", "executionP99Micros", "executionP999Micros",
+            "slowListeners", "failedListeners", "coalescedCount"})
+    public EventTypeStatistics(int eventType, long publishedCount, double publishRatePerSecond, int listenerCount,
+                               long queueWaitP50Micros, long queueWaitP99Micros, long queueWaitP999Micros,
+                               long executionP50Micros, long executionP99Micros, long executionP999Micros,
+                               long slowListeners, long failedListeners, long coalescedCount) {
+        this.eventType = eventType;
+        this.publishedCount = publishedCount;
+        this.publishRatePerSecond = publishRatePerSecond;
+        this.listenerCount = listenerCount;
+        this.queueWaitP50Micros = queueWaitP50Micros;
+        this.queueWaitP99Micros = queueWaitP99Micros;
+        this.queueWaitP999Micros = queueWaitP999Micros;
+        this.executionP50Micros = executionP50Micros;
+        this.executionP99Micros = executionP99Micros;
+        this.executionP999Micros = executionP999Micros;
+        this.slowListeners = slowListeners;
+        this.failedListeners = failedListeners;
+        this.coalescedCount = coalescedCount;
+    }
+
+    public int getEventType() {
+        return eventType;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    public double getPublishRatePerSecond() {
+        return publishRatePerSecond;
+    }
+
+    public int getListenerCount() {
+        return listenerCount;
+    }
+
+    public long getQueueWaitP50Micros() {
+        return queueWaitP50Micros;
+    }
+
+    public long getQueueWaitP99Micros() {
+        return queueWaitP99Micros;
+    }
+
+    public long getQueueWaitP999Micros() {
+        return queueWaitP999Micros;
+    }
+
+    public long getExecutionP50Micros() {
+        return executionP50Micros;
+    }
+
+    public long getExecutionP99Micros() {
+        return executionP99Micros;
+    }
+
+    public long getExecutionP999Micros() {
+        return executionP999Micros;
+    }
+
+    public long getSlowListeners() {
+        return slowListeners;
+    }
+
+    public long getFailedListeners() {
+        return failedListeners;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+}
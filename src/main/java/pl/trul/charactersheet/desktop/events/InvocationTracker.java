@@ -0,0 +1,86 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks listener invocations which are currently running, so shutdown can tell whether dispatcher is quiescent
+ * and report listeners holding it up. Every thread reuses its own slot, so tracking does not allocate; nested
+ * (inline) invocations are reported as the outermost one.
+ */
+class InvocationTracker {
+    private final Set<Slot> slots = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Slot> currentSlot = ThreadLocal.withInitial(this::createSlot);
+
+    Slot enter(Event event, EventConnection conn) {
+        Slot slot = currentSlot.get();
+        if (slot.depth++ == 0) {
+            slot.startNanos = System.nanoTime();
+            slot.connection = conn;
+            slot.event = event;
+        }
+        return slot;
+    }
+
+    void exit(Slot slot) {
+        if (--slot.depth == 0) {
+            slot.event = null;
+            slot.connection = null;
+        }
+    }
+
+    int getRunningCount() {
+        int running = 0;
+        for (Slot slot : slots) {
+            if (slot.event != null) {
+                ++running;
+            }
+        }
+        return running;
+    }
+
+    List<String> describeRunning() {
+        List<String> running = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Slot slot : slots) {
+            Event event = slot.event;
+            EventConnection conn = slot.connection;
+            Thread thread = slot.thread.get();
+            if (event != null && conn != null && thread != null) {
+                running.add(String.format("listener %s of event %s (type %d) running for %d ms on %s",
+                        conn.getConnectionId(), event.getClass().getName(), event.eventType,
+                        TimeUnit.NANOSECONDS.toMillis(now - slot.startNanos), thread.getName()));
+            }
+        }
+        return running;
+    }
+
+    private Slot createSlot() {
+        slots.removeIf(slot -> {
+            Thread thread = slot.thread.get();
+            return thread == null || !thread.isAlive();
+        });
+        Slot slot = new Slot(Thread.currentThread());
+        slots.add(slot);
+        return slot;
+    }
+
+    static final class Slot {
+        private final WeakReference<Thread> thread;
+        private int depth = 0;
+        private volatile long startNanos;
+        private volatile EventConnection connection;
+        private volatile Event event;
+
+        private Slot(Thread thread) {
+            this.thread = new WeakReference<>(thread);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import pl.trul.charactersheet.desktop.utils.CopyOnWriteIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Routes listener invocations into event lanes and drains them on executor. At most `parallelism` drainers run at
+ * once and each of them always picks invocation from the non-empty lane with the highest priority, so a flood of
+ * low priority events can not starve more important ones.
+ *
+ * Lane assignments are kept in copy-on-write map, as they change rarely and are read on every publish.
+ *
+ * Drainers never wait for space in a full BLOCK lane, as they may be the only ones who could make it: a listener
+ * publishing into such lane runs the new invocation itself instead. Once executor has been shut down, published
+ * invocations are dropped.
+ */
+public class LaneScheduler {
+    private static final ThreadLocal<LaneScheduler> currentDrainer = new ThreadLocal<>();
+
+    private Logger logger = Logger.getLogger(LaneScheduler.class.getName());
+    private final Executor executor;
+    private final Invoker invoker;
+    private final int parallelism;
+    private final EventLane defaultLane;
+    private final AtomicInteger activeDrainers = new AtomicInteger();
+    private final Runnable drainer = this::drain;
+    private final Object writeMutex = new Object();
+    private volatile EventLane[] lanes;
+    private final CopyOnWriteIntMap<EventLane> assignments = new CopyOnWriteIntMap<>();
+
+    public LaneScheduler(Executor executor, Invoker invoker, int parallelism, EventLane defaultLane) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Lane parallelism has to be positive, got " + parallelism);
+        }
+        this.executor = executor;
+        this.invoker = invoker;
+        this.parallelism = parallelism;
+        this.defaultLane = defaultLane;
+        this.lanes = new EventLane[] { defaultLane };
+    }
+
+    public EventLane getDefaultLane() {
+        return defaultLane;
+    }
+
+    public EventLane getLane(int eventType) {
+        return assignments.getOrDefault(eventType, defaultLane);
+    }
+
+    public void assignLane(int eventType, EventLane lane) {
+        synchronized (writeMutex) {
+            if (Arrays.stream(lanes).noneMatch(x -> x == lane)) {
+                EventLane[] updatedLanes = Arrays.copyOf(lanes, lanes.length + 1);
+                updatedLanes[lanes.length] = lane;
+                Arrays.sort(updatedLanes, Comparator.comparingInt(EventLane::getPriority).reversed());
+                lanes = updatedLanes;
+            }
+
+            assignments.put(eventType, lane);
+        }
+    }
+
+    /**
+     * Queues invocation in lane, applying lane's overflow policy, and makes sure somebody will drain it.
+     * Once drainers are running, this does not allocate.
+     */
+    public void submit(EventLane lane, Event event, EventConnection conn, AsynchronousEventBlocker completion,
+                       long publishedNanos) {
+        if (!lane.offer(event, conn, completion, publishedNanos, currentDrainer.get() != this)) {
+            invoker.invoke(event, conn, completion, publishedNanos);
+            return;
+        }
+        if (tryAcquireDrainer()) {
+            try {
+                executor.execute(drainer);
+            } catch (RejectedExecutionException ex) {
+                activeDrainers.decrementAndGet();
+                if (!isShutDown()) {
+                    throw ex;
+                }
+                logger.warning(() -> "Event published after shutdown, dropping " + event.getClass().getName());
+                if (activeDrainers.get() == 0) {
+                    cancelPending();
+                }
+            }
+        }
+    }
+
+    private boolean isShutDown() {
+        return executor instanceof ExecutorService && ((ExecutorService) executor).isShutdown();
+    }
+
+    /**
+     * Cancels every queued invocation, used when dispatcher is forcefully shut down.
+     */
+    public void cancelPending() {
+        for (EventLane lane : lanes) {
+            lane.cancelAll();
+        }
+    }
+
+    /**
+     * @return true if no invocation is queued or being run by drainers
+     */
+    public boolean isIdle() {
+        return activeDrainers.get() == 0 && !hasPendingInvocations();
+    }
+
+    /**
+     * @return descriptions of lanes with queued invocations
+     */
+    public List<String> describePending() {
+        List<String> pending = new ArrayList<>();
+        for (EventLane lane : lanes) {
+            if (!lane.isEmpty()) {
+                pending.add(String.format("lane %s has %d queued invocations", lane.getName(), lane.getOccupancy()));
+            }
+        }
+        return pending;
+    }
+
+    private void drain() {
+        currentDrainer.set(this);
+        try {
+            do {
+                while (!Thread.currentThread().isInterrupted() && runHighestPriority()) {
+                    // keep draining
+                }
+                activeDrainers.decrementAndGet();
+            } while (!Thread.currentThread().isInterrupted() && hasPendingInvocations() && tryAcquireDrainer());
+        } finally {
+            currentDrainer.remove();
+        }
+    }
+
+    private boolean runHighestPriority() {
+        for (EventLane lane : lanes) {
+            if (lane.runNext(invoker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasPendingInvocations() {
+        for (EventLane lane : lanes) {
+            if (!lane.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryAcquireDrainer() {
+        while (true) {
+            int active = activeDrainers.get();
+            if (active >= parallelism) {
+                return false;
+            }
+            if (activeDrainers.compareAndSet(active, active + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Runs a single listener invocation and reports its outcome to completion (which may be null).
+     */
+    public interface Invoker {
+        void invoke(Event event, EventConnection conn, AsynchronousEventBlocker completion, long publishedNanos);
+    }
+}
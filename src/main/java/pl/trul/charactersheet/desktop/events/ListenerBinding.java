@@ -0,0 +1,64 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Connection of a listener together with the way its events are delivered.
+ *
+ * Bindings are only ever deactivated (on unregistration, or once weakly referenced owner is collected), so inactive
+ * ones may linger in dispatch table snapshots until registry compacts them and have to be skipped by dispatchers.
+ */
+public class ListenerBinding {
+    private final EventConnection connection;
+    private final DeliveryMode deliveryMode;
+    private final SerialDelivery serialDelivery;
+    private final WeakReference<?> owner;
+    private volatile boolean active = true;
+
+    public ListenerBinding(EventConnection connection, DeliveryMode deliveryMode, SerialDelivery serialDelivery) {
+        this(connection, deliveryMode, serialDelivery, null);
+    }
+
+    /**
+     * @param owner weak reference to listener's owner, null if listener is strongly referenced
+     */
+    public ListenerBinding(EventConnection connection, DeliveryMode deliveryMode, SerialDelivery serialDelivery,
+                           WeakReference<?> owner) {
+        this.connection = connection;
+        this.deliveryMode = deliveryMode;
+        this.serialDelivery = serialDelivery;
+        this.owner = owner;
+    }
+
+    public EventConnection getConnection() {
+        return connection;
+    }
+
+    public DeliveryMode getDeliveryMode() {
+        return deliveryMode;
+    }
+
+    /**
+     * @return per-listener serial executor, null unless delivery mode is SERIAL
+     */
+    public SerialDelivery getSerialDelivery() {
+        return serialDelivery;
+    }
+
+    public boolean isActive() {
+        return active && !isCollected();
+    }
+
+    /**
+     * @return true if listener has been registered weakly and its owner has already been garbage collected
+     */
+    public boolean isCollected() {
+        return owner != null && owner.get() == null;
+    }
+
+    void deactivate() {
+        active = false;
+    }
+}
@@ -0,0 +1,62 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning a single listener invocation, carrying time the invocation has waited in queue.
+ * Only invocations running longer than threshold (5 ms unless overridden in recording settings) are recorded.
+ * It is begun for every invocation, so it is created only while some recording has it enabled.
+ */
+@Name("pl.trul.charactersheet.ListenerInvoked")
+@Label("Listener Invoked")
+@Category({"Charactersheet", "Events"})
+@Threshold("5 ms")
+@StackTrace(false)
+class ListenerInvokedJfrEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(ListenerInvokedJfrEvent.class);
+
+    @Label("Event Type")
+    int eventType;
+
+    @Label("Event Class")
+    String eventClass;
+
+    @Label("Queue Time")
+    @Description("Time between publication of event and start of invocation")
+    @Timespan
+    long queueTime;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * @return event which has begun, null if no recording has it enabled
+     */
+    static ListenerInvokedJfrEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        ListenerInvokedJfrEvent event = new ListenerInvokedJfrEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(Event e, long queueNanos, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.eventType = e.eventType;
+            this.eventClass = e.getClass().getName();
+            this.queueTime = queueNanos;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package pl.trul.charactersheet.desktop.events;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Diagnostic sampling listener counts of all event types and reporting the ones whose count keeps growing, which
+ * usually means listeners are registered repeatedly and never unregistered. Count staying the same does not break
+ * a growth streak, only a drop does.
+ */
+public class ListenerLeakDetector {
+    private final ListenerRegistry registry;
+    private final int growthStreakThreshold;
+    private final Map<Integer, Trend> trends = new HashMap<>();
+    private Logger logger = Logger.getLogger(ListenerLeakDetector.class.getName());
+
+    /**
+     * @param growthStreakThreshold number of samples in a row with growing listener count needed to report a leak
+     */
+    public ListenerLeakDetector(ListenerRegistry registry, int growthStreakThreshold) {
+        this.registry = registry;
+        this.growthStreakThreshold = growthStreakThreshold;
+    }
+
+    /**
+     * Prunes collected weak listeners and takes a single sample of listener counts.
+     */
+    public synchronized void sample() {
+        registry.compact();
+        for (int eventType : registry.getEventTypes()) {
+            int count = registry.listenerCount(eventType);
+            Trend trend = trends.get(eventType);
+            if (trend == null) {
+                trends.put(eventType, new Trend(count));
+            } else if (trend.update(count) == growthStreakThreshold) {
+                logger.warning(String.format(
+                        "Possible listener leak: listeners of event %d grew from %d to %d over %d samples",
+                        eventType, trend.streakStartCount, count, growthStreakThreshold));
+            }
+        }
+    }
+
+    /**
+     * @return current listener counts of event types with growth streak reaching threshold, by event type
+     */
+    public synchronized Map<Integer, Integer> getSuspectedLeaks() {
+        Map<Integer, Integer> result = new TreeMap<>();
+        trends.forEach((eventType, trend) -> {
+            if (trend.streak >= growthStreakThreshold) {
+                result.put(eventType, trend.lastCount);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static final class Trend {
+        private int lastCount;
+        private int streakStartCount;
+        private int streak = 0;
+
+        private Trend(int count) {
+            this.lastCount = count;
+            this.streakStartCount = count;
+        }
+
+        int update(int count) {
+            if (count > lastCount) {
+                ++streak;
+            } else if (count < lastCount) {
+                streak = 0;
+                streakStartCount = count;
+            }
+            lastCount = count;
+            return streak;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import pl.trul.charactersheet.desktop.utils.CopyOnWriteIntMap;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of event listeners keyed by primitive event type. Reads never block: rows of listeners are immutable
+ * and kept in a CopyOnWriteIntMap, so each modification publishes a new snapshot and readers only dereference it.
+ *
+ * Removal is O(1): binding is found by its connection id and deactivated, while the table is compacted lazily,
+ * once inactive bindings outnumber registered ones. Dispatch table rows may therefore contain inactive bindings.
+ *
+ * Arrays returned by getListeners are shared between all readers and must never be modified.
+ */
+public class ListenerRegistry {
+    private static final ListenerBinding[] NO_LISTENERS = new ListenerBinding[0];
+    private static final int MIN_STALE_BINDINGS_BEFORE_COMPACTION = 16;
+
+    private final CopyOnWriteIntMap<ListenerBinding[]> rows = new CopyOnWriteIntMap<>();
+    private final Object writeMutex = new Object();
+    private final ConcurrentHashMap<UUID, ListenerBinding> bindings = new ConcurrentHashMap<>();
+    private final AtomicInteger staleBindings = new AtomicInteger();
+
+    public ListenerBinding[] getListeners(int eventType) {
+        return rows.getOrDefault(eventType, NO_LISTENERS);
+    }
+
+    /**
+     * @return number of active listeners of given event type
+     */
+    public int listenerCount(int eventType) {
+        int count = 0;
+        for (ListenerBinding binding : getListeners(eventType)) {
+            if (binding.isActive()) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return all event types which have (or recently had) listeners, in ascending order
+     */
+    public int[] getEventTypes() {
+        return rows.keys();
+    }
+
+    public void add(ListenerBinding binding) {
+        synchronized (writeMutex) {
+            bindings.put(binding.getConnection().getConnectionId(), binding);
+            int eventType = binding.getConnection().getEventType();
+            ListenerBinding[] current = getListeners(eventType);
+            ListenerBinding[] row = Arrays.copyOf(current, current.length + 1);
+            row[current.length] = binding;
+            rows.put(eventType, row);
+        }
+    }
+
+    public boolean remove(EventConnection conn) {
+        ListenerBinding binding = bindings.remove(conn.getConnectionId());
+        if (binding == null) {
+            return false;
+        }
+        retire(binding);
+        return true;
+    }
+
+    /**
+     * Removes binding of weakly registered listener whose owner has been collected.
+     */
+    public void prune(ListenerBinding binding) {
+        if (bindings.remove(binding.getConnection().getConnectionId(), binding)) {
+            retire(binding);
+        }
+    }
+
+    /**
+     * Drops inactive bindings (including the ones with collected owners) from dispatch table. Event types without
+     * listeners are kept, as they are few and keeping them makes rows stable for readers.
+     */
+    public void compact() {
+        synchronized (writeMutex) {
+            staleBindings.set(0);
+            for (int eventType : rows.keys()) {
+                ListenerBinding[] current = getListeners(eventType);
+                ListenerBinding[] row = new ListenerBinding[current.length];
+                int size = 0;
+                for (ListenerBinding binding : current) {
+                    if (binding.isActive()) {
+                        row[size++] = binding;
+                    } else if (bindings.remove(binding.getConnection().getConnectionId(), binding)) {
+                        binding.deactivate();
+                    }
+                }
+                if (size != current.length) {
+                    rows.put(eventType, Arrays.copyOf(row, size));
+                }
+            }
+        }
+    }
+
+    private void retire(ListenerBinding binding) {
+        binding.deactivate();
+        int stale = staleBindings.incrementAndGet();
+        if (stale >= MIN_STALE_BINDINGS_BEFORE_COMPACTION && stale > bindings.size()) {
+            compact();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+
+import java.util.function.Consumer;
+
+/**
+ * Event dispatcher which lets listeners choose how they are delivered (see DeliveryMode).
+ */
+public interface ModalEventDispatcher extends EventDispatcher {
+    /**
+     * @throws IllegalArgumentException if dispatcher does not support given delivery mode
+     */
+    EventConnection registerListener(int eventType, Consumer<Event> eventConsumer, DeliveryMode mode);
+}
@@ -0,0 +1,15 @@
+package pl.trul.charactersheet.desktop.events;
+
+/**
+ * Describes what happens with a listener invocation published into an event lane which is already full.
+ */
+public enum OverflowPolicy {
+    /** Publisher waits until lane has free space. */
+    BLOCK,
+    /** Oldest queued invocation is cancelled in order to make space for the new one. */
+    DROP_OLDEST,
+    /** New invocation is cancelled, queued ones are left intact. */
+    DROP_NEWEST,
+    /** New invocation is executed synchronously on publisher's thread. */
+    CALLER_RUNS
+}
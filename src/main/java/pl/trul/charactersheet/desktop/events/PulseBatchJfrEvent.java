@@ -0,0 +1,50 @@
+package pl.trul.charactersheet.desktop.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event spanning a single batch of PULSE listener invocations. Only batches taking longer than
+ * threshold (8 ms, half of a 60 fps frame, unless overridden in recording settings) are recorded.
+ */
+@Name("pl.trul.charactersheet.PulseBatch")
+@Label("Pulse Batch")
+@Category({"Charactersheet", "Events"})
+@Threshold("8 ms")
+@StackTrace(false)
+class PulseBatchJfrEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(PulseBatchJfrEvent.class);
+
+    @Label("Handled")
+    int handled;
+
+    @Label("Deferred")
+    @Description("Invocations left for the next pulse because batch has used up its time budget")
+    int deferred;
+
+    /**
+     * @return event which has begun, null if no recording has it enabled
+     */
+    static PulseBatchJfrEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        PulseBatchJfrEvent event = new PulseBatchJfrEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(int handled, int deferred) {
+        end();
+        if (shouldCommit()) {
+            this.handled = handled;
+            this.deferred = deferred;
+            commit();
+        }
+    }
+}
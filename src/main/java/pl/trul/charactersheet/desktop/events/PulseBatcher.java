@@ -0,0 +1,260 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Queue of invocations of PULSE listeners, run in batches by whoever calls drain, which on desktop is JavaFX
+ * Application Thread once per frame (see gui.FxPulseBridge). A burst of events thus costs UI thread one batch per
+ * frame instead of a Runnable per event.
+ *
+ * Listeners may be registered with a coalescing key: while an invocation waits for the next pulse, a newer event
+ * with the same key supersedes it and is queued at the tail, so it still runs after events published before it.
+ * Publishers of all superseded events are finished together with the surviving one.
+ *
+ * Pulse requester is notified whenever the queue stops being empty, so the UI thread only has to drain it while
+ * there is something queued. Until somebody drains it, queue holds at most capacity invocations; newer ones are
+ * dropped, like in a DROP_NEWEST lane.
+ */
+public class PulseBatcher {
+    public static final int DEFAULT_CAPACITY = 65_536;
+
+    private final LaneScheduler.Invoker invoker;
+    private final DispatcherMetrics metrics;
+    private final ConcurrentHashMap<UUID, Function<Event, ?>> coalescingKeys = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CoalescingKey, PendingInvocation> coalescing = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingInvocation> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Object drainMutex = new Object();
+    private final int capacity;
+    private volatile Runnable pulseRequester = null;
+
+    public PulseBatcher(LaneScheduler.Invoker invoker, DispatcherMetrics metrics) {
+        this(invoker, metrics, DEFAULT_CAPACITY);
+    }
+
+    public PulseBatcher(LaneScheduler.Invoker invoker, DispatcherMetrics metrics, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pulse queue capacity has to be positive, got " + capacity);
+        }
+        this.invoker = invoker;
+        this.metrics = metrics;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param requester called on publishing thread once queue stops being empty, must return quickly; null to stop
+     *                  requesting pulses
+     */
+    public void setPulseRequester(Runnable requester) {
+        this.pulseRequester = requester;
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Runs invocations queued before the call on calling thread, in publishing order. Invocations left once the
+     * budget is used up wait for the next pulse, so a flood of events can not stall a frame for long.
+     * @return number of invocations run
+     */
+    public int drain(long budgetNanos) {
+        synchronized (drainMutex) {
+            int queued = pendingCount.get();
+            if (queued == 0) {
+                return 0;
+            }
+
+            PulseBatchJfrEvent batchEvent = PulseBatchJfrEvent.beginIfEnabled();
+            long start = System.nanoTime();
+            int taken = 0;
+            int handled = 0;
+            while (taken < queued && System.nanoTime() - start < budgetNanos) {
+                PendingInvocation next = pending.poll();
+                pendingCount.decrementAndGet();
+                ++taken;
+                if (isSuperseded(next)) {
+                    continue;
+                }
+                invoker.invoke(next.event, next.connection, next.getCompletion(), next.publishedNanos);
+                ++handled;
+            }
+            long duration = System.nanoTime() - start;
+            metrics.recordPulseBatch(duration, handled);
+            if (batchEvent != null) {
+                batchEvent.finish(handled, queued - taken);
+            }
+            return handled;
+        }
+    }
+
+    /**
+     * Finishes all queued invocations as dropped, for when nobody is going to drain them anymore.
+     */
+    public void cancelPending() {
+        synchronized (drainMutex) {
+            PendingInvocation next;
+            while ((next = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                if (isSuperseded(next)) {
+                    continue;
+                }
+                AsynchronousEventBlocker completion = next.getCompletion();
+                if (completion != null) {
+                    completion.handlerDropped();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes invocation out of coalescing, so newer events with its key are queued anew.
+     * @return true if invocation has been superseded by a newer one, which has taken over its publishers
+     */
+    private boolean isSuperseded(PendingInvocation invocation) {
+        return invocation.key != null && !coalescing.remove(invocation.key, invocation);
+    }
+
+    /**
+     * @param keyExtractor coalescing key of events handled by listener, null if its events are never coalesced
+     */
+    void register(EventConnection conn, Function<Event, ?> keyExtractor) {
+        if (keyExtractor != null) {
+            coalescingKeys.put(conn.getConnectionId(), keyExtractor);
+        }
+    }
+
+    void unregister(EventConnection conn) {
+        coalescingKeys.remove(conn.getConnectionId());
+    }
+
+    void submit(Event event, EventConnection conn, AsynchronousEventBlocker completion, long publishedNanos) {
+        if (pendingCount.get() >= capacity) {
+            if (completion != null) {
+                completion.handlerDropped();
+            }
+            return;
+        }
+        Function<Event, ?> keyExtractor = coalescingKeys.get(conn.getConnectionId());
+        if (keyExtractor == null) {
+            enqueue(new PendingInvocation(event, conn, completion, publishedNanos, null));
+            return;
+        }
+
+        CoalescingKey key = new CoalescingKey(conn.getConnectionId(), keyExtractor.apply(event));
+        coalescing.compute(key, (k, current) -> {
+            PendingInvocation created = new PendingInvocation(event, conn, completion, publishedNanos, k);
+            if (current != null) {
+                created.takeOver(current);
+                metrics.forEventType(event.eventType).recordCoalesced();
+            }
+            enqueue(created);
+            return created;
+        });
+    }
+
+    /**
+     * Counted only once queued, so drain never expects more invocations than it can take.
+     */
+    private void enqueue(PendingInvocation invocation) {
+        pending.add(invocation);
+        if (pendingCount.getAndIncrement() == 0) {
+            Runnable requester = pulseRequester;
+            if (requester != null) {
+                requester.run();
+            }
+        }
+    }
+
+    /**
+     * Invocation waiting for a pulse. Superseded publishers are taken over under coalescing map's lock and read only
+     * after removal from it, which orders reads after all take-overs.
+     */
+    private static final class PendingInvocation {
+        private final EventConnection connection;
+        private final CoalescingKey key;
+        private final Event event;
+        private final long publishedNanos;
+        private final AsynchronousEventBlocker completion;
+        private List<AsynchronousEventBlocker> superseded = null;
+
+        private PendingInvocation(Event event, EventConnection connection, AsynchronousEventBlocker completion,
+                                  long publishedNanos, CoalescingKey key) {
+            this.event = event;
+            this.connection = connection;
+            this.completion = completion;
+            this.publishedNanos = publishedNanos;
+            this.key = key;
+        }
+
+        private void takeOver(PendingInvocation older) {
+            superseded = older.superseded != null ? older.superseded : new ArrayList<>();
+            if (older.completion != null) {
+                superseded.add(older.completion);
+            }
+        }
+
+        /**
+         * @return completion finishing publishers of surviving event and of all events it has replaced
+         */
+        private AsynchronousEventBlocker getCompletion() {
+            List<AsynchronousEventBlocker> replaced = superseded;
+            if (replaced == null) {
+                return completion;
+            }
+
+            AsynchronousEventBlocker survivor = completion;
+            AsynchronousEventBlocker shared = new AsynchronousEventBlocker(1);
+            shared.whenFinished(() -> {
+                Throwable failure = shared.getFailure().orElse(null);
+                if (survivor != null) {
+                    replaced.add(survivor);
+                }
+                for (AsynchronousEventBlocker publisher : replaced) {
+                    if (shared.droppedHandlers() > 0) {
+                        publisher.handlerDropped();
+                    } else if (failure == null) {
+                        publisher.handlerFinished();
+                    } else {
+                        publisher.handlerFailed(failure);
+                    }
+                }
+            });
+            return shared;
+        }
+    }
+
+    private static final class CoalescingKey {
+        private final UUID connectionId;
+        private final Object key;
+
+        private CoalescingKey(UUID connectionId, Object key) {
+            this.connectionId = connectionId;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CoalescingKey)) {
+                return false;
+            }
+            CoalescingKey other = (CoalescingKey) o;
+            return connectionId.equals(other.connectionId) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * connectionId.hashCode() + Objects.hashCode(key);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package pl.trul.charactersheet.desktop.events;
+
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventBlocker;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Event dispatcher built on a preallocated ring buffer. Published events are claimed into fixed slots and
+ * handled by a fixed number of consumer threads, which take published slots in batches and run all listeners
+ * of an event in order. Thread count and memory stay constant no matter how many events are published;
+ * publishers wait (according to WaitStrategy) when the buffer is full. Fire-and-forget publish does not allocate.
+ *
+ * Each slot carries a sequence number (as in Vyukov's bounded MPMC queue): a slot is free for position p
+ * when its sequence equals p, and published when it equals p + 1. Publishers in the middle of claiming a slot are
+ * counted, so consumers do not leave on shutdown before every claimed slot has been published.
+ *
+ * Publications and listener invocations are recorded in DispatcherMetrics, like in AsynchronousEventDispatcher.
+ *
+ * Consumer threads are started by start(), events published before that wait in the buffer. Only ASYNC and INLINE
+ * listeners are supported, as consumers take slots in batches and there is no UI thread draining the dispatcher.
+ */
+public class RingBufferEventDispatcher implements ModalEventDispatcher, EventPublisher {
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final ListenerRegistry registry = new ListenerRegistry();
+    private final DispatcherMetrics metrics = new DispatcherMetrics(registry::listenerCount);
+    private Logger logger = Logger.getLogger(RingBufferEventDispatcher.class.getName());
+
+    private final int mask;
+    private final int batchSize;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLongArray sequences;
+    private final Event[] events;
+    private final ListenerBinding[][] listeners;
+    private final AsynchronousEventBlocker[] completions;
+    private final long[] publishedAt;
+    private final AtomicLong producerPosition = new AtomicLong();
+    private final AtomicLong consumerPosition = new AtomicLong();
+    private final AtomicInteger activePublishers = new AtomicInteger();
+    private final Thread[] consumers;
+    private volatile boolean running = true;
+    private boolean started = false;
+
+    public RingBufferEventDispatcher() {
+        this(DEFAULT_BUFFER_SIZE, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, WaitStrategy.PARK);
+    }
+
+    public RingBufferEventDispatcher(int bufferSize, int consumerCount, int batchSize, WaitStrategy waitStrategy) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Ring buffer size has to be a power of two, got " + bufferSize);
+        }
+        if (consumerCount < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Consumer count and batch size have to be positive");
+        }
+
+        this.mask = bufferSize - 1;
+        this.batchSize = batchSize;
+        this.waitStrategy = waitStrategy;
+        this.sequences = new AtomicLongArray(bufferSize);
+        this.events = new Event[bufferSize];
+        this.listeners = new ListenerBinding[bufferSize][];
+        this.completions = new AsynchronousEventBlocker[bufferSize];
+        this.publishedAt = new long[bufferSize];
+        for (int i = 0; i < bufferSize; ++i) {
+            sequences.set(i, i);
+        }
+
+        consumers = new Thread[consumerCount];
+        for (int i = 0; i < consumerCount; ++i) {
+            consumers[i] = new Thread(this::consumerLoop, "ring-event-consumer-" + i);
+            consumers[i].setDaemon(true);
+        }
+        logger.info(String.format("EventDispatcher created (ring of %d slots, %d consumers, %s)",
+                bufferSize, consumerCount, waitStrategy));
+    }
+
+    /**
+     * Starts consumer threads, has to be called once, after construction.
+     */
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("Ring buffer dispatcher has already been started");
+        }
+        started = true;
+        for (Thread consumer : consumers) {
+            consumer.start();
+        }
+    }
+
+    public DispatcherMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void gentleShutdown(Duration finalizationTime, Duration lastResortTime) {
+        logger.info("Gentle shutdown has begun");
+        running = false;
+        synchronized (this) {
+            if (!started) {
+                abandonPendingSlots();
+                logger.info("Dispatcher has never been started, pending events dropped");
+                return;
+            }
+        }
+        if (!safelyAwaitTermination(finalizationTime)) {
+            logger.warning("Last resort shutdown has begun!");
+            for (Thread consumer : consumers) {
+                consumer.interrupt();
+            }
+            if (!safelyAwaitTermination(lastResortTime)) {
+                logger.severe("Some event consumers are still running after last resort shutdown!");
+                return;
+            }
+        }
+        logger.info("Shutdown performed gracefully");
+    }
+
+    private boolean safelyAwaitTermination(Duration terminationLimit) {
+        long deadline = System.nanoTime() + terminationLimit.toNanos();
+        try {
+            for (Thread consumer : consumers) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedJoin(consumer, remaining);
+                }
+                if (consumer.isAlive()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            logger.severe("awaitTermination during gentleShutdown has been terminated!");
+            return false;
+        }
+    }
+
+    public EventConnection registerListener(int eventType, Consumer<Event> eventConsumer) {
+        return registerListener(eventType, eventConsumer, DeliveryMode.ASYNC);
+    }
+
+    /**
+     * @throws IllegalArgumentException for SERIAL and PULSE delivery, which are not supported
+     */
+    @Override
+    public EventConnection registerListener(int eventType, Consumer<Event> eventConsumer, DeliveryMode mode) {
+        if (mode != DeliveryMode.ASYNC && mode != DeliveryMode.INLINE) {
+            throw new IllegalArgumentException("Ring buffer dispatcher does not support " + mode + " delivery");
+        }
+        logger.fine(() -> "Registering " + mode + " listener for event " + Integer.toString(eventType));
+        EventConnection conn = new EventConnection(eventType, eventConsumer);
+        registry.add(new ListenerBinding(conn, mode, null));
+        metrics.forEventType(eventType);
+        return conn;
+    }
+
+    public EventBlocker notifyEvent(Event e) {
+        long now = System.nanoTime();
+        metrics.forEventType(e.eventType).recordPublished(now);
+        ListenerBinding[] conns = getEventListeners(e);
+        if (conns.length == 0) {
+            return new AsynchronousEventBlocker(0);
+        }
+
+        int inlineCount = countInline(conns);
+        boolean queued = inlineCount < conns.length;
+        AsynchronousEventBlocker completion = new AsynchronousEventBlocker(inlineCount + (queued ? 1 : 0));
+        if (!running) {
+            logger.warning(() -> "Event published after shutdown, dropping " + e.getClass().getName());
+            for (int i = 0; i < inlineCount + (queued ? 1 : 0); ++i) {
+                completion.handlerDropped();
+            }
+            return completion;
+        }
+        if (queued && !publish(e, conns, completion, now)) {
+            logger.warning(() -> "Event published during shutdown, dropping " + e.getClass().getName());
+            completion.handlerDropped();
+        }
+        if (inlineCount > 0) {
+            runInline(e, conns, completion, now);
+        }
+        return completion;
+    }
+
+    @Override
+    public void publish(Event e) {
+        long now = System.nanoTime();
+        metrics.forEventType(e.eventType).recordPublished(now);
+        ListenerBinding[] conns = getEventListeners(e);
+        if (conns.length == 0) {
+            return;
+        }
+
+        if (!running) {
+            logger.warning(() -> "Event published after shutdown, dropping " + e.getClass().getName());
+            return;
+        }
+        int inlineCount = countInline(conns);
+        if (inlineCount < conns.length && !publish(e, conns, null, now)) {
+            logger.warning(() -> "Event published during shutdown, dropping " + e.getClass().getName());
+        }
+        if (inlineCount > 0) {
+            runInline(e, conns, null, now);
+        }
+    }
+
+    private static int countInline(ListenerBinding[] conns) {
+        int inlineCount = 0;
+        for (ListenerBinding conn : conns) {
+            if (conn.getDeliveryMode() == DeliveryMode.INLINE) {
+                ++inlineCount;
+            }
+        }
+        return inlineCount;
+    }
+
+    /**
+     * Runs INLINE listeners on publisher's thread, each of them reporting to completion (which may be null).
+     */
+    private void runInline(Event e, ListenerBinding[] conns, AsynchronousEventBlocker completion, long publishedNanos) {
+        EventTypeMetrics eventMetrics = metrics.forEventType(e.eventType);
+        for (ListenerBinding conn : conns) {
+            if (conn.getDeliveryMode() != DeliveryMode.INLINE) {
+                continue;
+            }
+            Throwable failure = conn.isActive() ? invoke(e, conn, eventMetrics, publishedNanos) : skip(conn);
+            if (completion == null) {
+                continue;
+            }
+            if (failure == null) {
+                completion.handlerFinished();
+            } else {
+                completion.handlerFailed(failure);
+            }
+        }
+    }
+
+    private ListenerBinding[] getEventListeners(Event e) {
+        ListenerBinding[] conns = registry.getListeners(e.eventType);
+        if (conns.length == 0) {
+            logger.warning(() -> "No listeners for event " + e.getClass().getName());
+        }
+        return conns;
+    }
+
+    public void unregisterListener(EventConnection conn) throws Exception{
+        if (!registry.remove(conn)) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    /**
+     * @return false if dispatcher has been shut down before slot could be claimed
+     */
+    private boolean publish(Event e, ListenerBinding[] conns, AsynchronousEventBlocker completion,
+                            long publishedNanos) {
+        activePublishers.incrementAndGet();
+        try {
+            long position = claimSlot();
+            if (position < 0) {
+                return false;
+            }
+            int idx = index(position);
+            events[idx] = e;
+            listeners[idx] = conns;
+            completions[idx] = completion;
+            publishedAt[idx] = publishedNanos;
+            sequences.lazySet(idx, position + 1);
+            return true;
+        } finally {
+            activePublishers.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return claimed position, -1 once dispatcher is shut down
+     */
+    private long claimSlot() {
+        while (running) {
+            long position = producerPosition.get();
+            long difference = sequences.get(index(position)) - position;
+            if (difference == 0) {
+                if (producerPosition.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (difference < 0) {
+                waitStrategy.idle();
+            }
+        }
+        return -1;
+    }
+
+    private void consumerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long position = consumerPosition.get();
+            int available = countPublished(position);
+            if (available == 0) {
+                if (!running && activePublishers.get() == 0 && producerPosition.get() == position) {
+                    return;
+                }
+                waitStrategy.idle();
+            } else if (consumerPosition.compareAndSet(position, position + available)) {
+                for (int i = 0; i < available; ++i) {
+                    consume(position + i);
+                }
+            }
+        }
+        abandonPendingSlots();
+    }
+
+    private int countPublished(long position) {
+        int available = 0;
+        while (available < batchSize && sequences.get(index(position + available)) == position + available + 1) {
+            ++available;
+        }
+        return available;
+    }
+
+    private void consume(long position) {
+        int idx = index(position);
+        Event e = events[idx];
+        ListenerBinding[] conns = listeners[idx];
+        AsynchronousEventBlocker completion = completions[idx];
+        long publishedNanos = publishedAt[idx];
+        events[idx] = null;
+        listeners[idx] = null;
+        completions[idx] = null;
+        sequences.lazySet(idx, position + mask + 1);
+
+        EventTypeMetrics eventMetrics = metrics.forEventType(e.eventType);
+        Throwable failure = null;
+        for (ListenerBinding conn : conns) {
+            if (conn.getDeliveryMode() == DeliveryMode.INLINE) {
+                continue;
+            }
+            Throwable listenerFailure = conn.isActive() ? invoke(e, conn, eventMetrics, publishedNanos) : skip(conn);
+            if (failure == null) {
+                failure = listenerFailure;
+            }
+        }
+
+        if (completion == null) {
+            return;
+        }
+        if (failure == null) {
+            completion.handlerFinished();
+        } else {
+            completion.handlerFailed(failure);
+        }
+    }
+
+    /**
+     * @return failure of listener, null if it has handled event
+     */
+    private Throwable invoke(Event e, ListenerBinding conn, EventTypeMetrics eventMetrics, long publishedNanos) {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            conn.getConnection().getEventConsumer().accept(e);
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Listener failed while handling " + e.getClass().getName(), t);
+            failure = t;
+        }
+        long executionNanos = System.nanoTime() - start;
+        eventMetrics.recordInvocation(start - publishedNanos, executionNanos,
+                executionNanos > metrics.getSlowListenerThresholdNanos(), failure != null);
+        return failure;
+    }
+
+    private Throwable skip(ListenerBinding conn) {
+        if (conn.isCollected()) {
+            registry.prune(conn);
+        }
+        return null;
+    }
+
+    /**
+     * Drops published slots, including ones claimed by publishers still in flight.
+     */
+    private void abandonPendingSlots() {
+        while (true) {
+            long position = consumerPosition.get();
+            int available = countPublished(position);
+            if (available == 0) {
+                if (activePublishers.get() == 0 && producerPosition.get() == position) {
+                    return;
+                }
+                waitStrategy.idle();
+                continue;
+            }
+            if (consumerPosition.compareAndSet(position, position + available)) {
+                for (int i = 0; i < available; ++i) {
+                    int idx = index(position + i);
+                    AsynchronousEventBlocker completion = completions[idx];
+                    events[idx] = null;
+                    listeners[idx] = null;
+                    completions[idx] = null;
+                    sequences.lazySet(idx, position + i + mask + 1);
+                    if (completion != null) {
+                        completion.handlerDropped();
+                    }
+                }
+            }
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position & mask);
+    }
+}
@@ -0,0 +1,83 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lightweight serial executor of a single listener. Events are handled one at a time, in the order they were
+ * published, borrowing a thread from executor only while there is something to handle. After a batch of events
+ * the thread is returned to executor, so a busy listener can not monopolize it. Once executor rejects it, events
+ * are handled on the thread which has delivered them, so none of them is left pending.
+ */
+public class SerialDelivery implements Runnable {
+    private static final int BATCH_SIZE = 32;
+
+    private final EventConnection connection;
+    private final Executor executor;
+    private final LaneScheduler.Invoker invoker;
+    private final ConcurrentLinkedQueue<PendingEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    public SerialDelivery(EventConnection connection, Executor executor, LaneScheduler.Invoker invoker) {
+        this.connection = connection;
+        this.executor = executor;
+        this.invoker = invoker;
+    }
+
+    public void deliver(Event event, AsynchronousEventBlocker completion, long publishedNanos) {
+        pending.add(new PendingEvent(event, completion, publishedNanos));
+        if (pendingCount.getAndIncrement() == 0 && !trySchedule()) {
+            run();
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    @Override
+    public void run() {
+        for (int handled = 1; ; ++handled) {
+            PendingEvent next = pending.poll();
+            invoker.invoke(next.event, connection, next.completion, next.publishedNanos);
+            if (pendingCount.decrementAndGet() == 0) {
+                return;
+            }
+            if (handled == BATCH_SIZE) {
+                if (trySchedule()) {
+                    return;
+                }
+                handled = 0;
+            }
+        }
+    }
+
+    /**
+     * @return false if executor has rejected delivery, which has to go on on the calling thread then
+     */
+    private boolean trySchedule() {
+        try {
+            executor.execute(this);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    private static final class PendingEvent {
+        private final Event event;
+        private final AsynchronousEventBlocker completion;
+        private final long publishedNanos;
+
+        private PendingEvent(Event event, AsynchronousEventBlocker completion, long publishedNanos) {
+            this.event = event;
+            this.completion = completion;
+            this.publishedNanos = publishedNanos;
+        }
+    }
+}
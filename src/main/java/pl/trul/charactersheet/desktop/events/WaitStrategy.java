@@ -0,0 +1,31 @@
+package pl.trul.charactersheet.desktop.events;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Describes how ring buffer producers and consumers behave while they have to wait for each other.
+ * Trades CPU usage for latency: BUSY_SPIN gives the lowest latency and burns a core, PARK is the cheapest.
+ */
+public enum WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        void idle() {
+        }
+    },
+    YIELD {
+        @Override
+        void idle() {
+            Thread.yield();
+        }
+    },
+    PARK {
+        @Override
+        void idle() {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    };
+
+    private static final long PARK_NANOS = 50_000;
+
+    abstract void idle();
+}
@@ -0,0 +1,58 @@
+package pl.trul.charactersheet.desktop.gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import pl.trul.charactersheet.desktop.events.PulseBatcher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers events of PULSE listeners on JavaFX Application Thread: on every pulse (frame) it drains dispatcher's
+ * PulseBatcher, spending at most frame budget on it, so UI keeps its frame rate during event bursts. Timer only runs
+ * while there are invocations queued: batcher starts it once its queue stops being empty, and it stops itself after
+ * a pulse which has left the queue empty.
+ */
+public class FxPulseBridge extends AnimationTimer {
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private final PulseBatcher batcher;
+    private final long frameBudgetNanos;
+
+    public FxPulseBridge(PulseBatcher batcher) {
+        this(batcher, DEFAULT_FRAME_BUDGET_NANOS);
+    }
+
+    public FxPulseBridge(PulseBatcher batcher, long frameBudgetNanos) {
+        this.batcher = batcher;
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+    /**
+     * Starts draining batcher whenever it has something queued. Must be called on JavaFX Application Thread.
+     */
+    public void attach() {
+        batcher.setPulseRequester(() -> Platform.runLater(this::start));
+        if (batcher.getPendingCount() > 0) {
+            start();
+        }
+    }
+
+    /**
+     * Stops draining batcher. Must be called on JavaFX Application Thread.
+     */
+    public void detach() {
+        batcher.setPulseRequester(null);
+        stop();
+    }
+
+    /**
+     * Stopping races with publishers only harmlessly: pulse they request is started after this pulse ends.
+     */
+    @Override
+    public void handle(long now) {
+        batcher.drain(frameBudgetNanos);
+        if (batcher.getPendingCount() == 0) {
+            stop();
+        }
+    }
+}
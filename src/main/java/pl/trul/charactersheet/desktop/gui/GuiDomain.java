@@ -4,23 +4,28 @@ import com.github.michal_stempkowski.charactersheet.internal.Target;
 import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
 import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
 import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
 import com.github.michal_stempkowski.charactersheet.internal.events.events.InitializeEvent;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskScheduler;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.events.TaskFinishedEvent;
 import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
 import pl.trul.charactersheet.desktop.DesktopDomainId;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
 
 import java.util.logging.Logger;
 
 /**
  * Domain responsible for creation and handling of graphical user interface on desktop instances of application.
+ * Sheet view starts receiving sheet events on setup, its changes are applied once the window is displayed.
  */
 public class GuiDomain implements Domain {
 
     private final ErrorMonad status = new ErrorMonad();
     private final Logger logger;
     private CyclingTask guiMainTask;
+    private EventConnection taskFinishedConnection;
     @Override
     public ErrorMonad getStatus() {
         return status;
@@ -32,8 +37,10 @@ public class GuiDomain implements Domain {
 
     @Override
     public void setup() {
+        SheetView sheetView = new SheetView();
+        sheetView.connect(AppRootLogic.getEventDispatcher());
         guiMainTask = new CyclingTask(
-                new MainApp()::mainLoop,
+                new MainApp(sheetView)::mainLoop,
                 (TaskState s, ErrorMonad e) -> {
                     if (e.hasErrorOccurred()) {
                         e.get().forEach(Throwable::printStackTrace);
@@ -48,14 +55,36 @@ public class GuiDomain implements Domain {
     }
 
     private void onInitializeEventStartGui(Event event) {
-        AppRootLogic.getEventDispatcher().registerListener(TaskFinishedEvent.eventType(), this::onTaskFinished);
-        AppRootLogic.getTaskScheduler().scheduleTask(guiMainTask);
+        taskFinishedConnection = AppRootLogic.getEventDispatcher().registerListener(
+                TaskFinishedEvent.eventType(), this::onTaskFinished);
+        scheduleBlockingTask(guiMainTask);
+    }
+
+    /**
+     * JavaFX launch blocks for the whole life of application, so it must not occupy cooperative scheduler's worker.
+     */
+    private void scheduleBlockingTask(CyclingTask task) {
+        TaskScheduler scheduler = AppRootLogic.getTaskScheduler();
+        if (scheduler instanceof AsynchronousTaskScheduler) {
+            ((AsynchronousTaskScheduler) scheduler).scheduleBlockingTask(task);
+        } else {
+            scheduler.scheduleTask(task);
+        }
     }
 
     private void onTaskFinished(Event event) {
         TaskFinishedEvent ev = Event.tryCast(event);
         if (ev.getTask().id == guiMainTask.id) {
             logger.info("Gui task has finished!");
+            unregisterTaskFinishedListener();
+        }
+    }
+
+    private void unregisterTaskFinishedListener() {
+        try {
+            AppRootLogic.getEventDispatcher().unregisterListener(taskFinishedConnection);
+        } catch (Exception e) {
+            logger.warning("Unable to unregister TaskFinishedEvent listener: " + e);
         }
     }
 }
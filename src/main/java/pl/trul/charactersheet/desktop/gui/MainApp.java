@@ -2,16 +2,17 @@ package pl.trul.charactersheet.desktop.gui;
 
 import com.github.michal_stempkowski.charactersheet.internal.Target;
 import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
 import com.github.michal_stempkowski.charactersheet.internal.events.events.ShutdownPerformedEvent;
 import javafx.application.Application;
 import javafx.geometry.Insets;
-import javafx.geometry.Pos;
 import javafx.scene.Scene;
-import javafx.scene.control.Button;
-import javafx.scene.layout.VBoxBuilder;
-import javafx.scene.text.Text;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import pl.trul.charactersheet.desktop.DesktopDomainId;
+import pl.trul.charactersheet.desktop.events.AsynchronousEventDispatcher;
+import pl.trul.charactersheet.desktop.events.EventPublisher;
 
 import java.util.logging.Logger;
 
@@ -19,24 +20,54 @@ import java.util.logging.Logger;
  * Class responsible for handling main application loop.
  */
 public class MainApp extends Application {
+    private static final double DEFAULT_WIDTH = 800;
+    private static final double DEFAULT_HEIGHT = 600;
+    private static volatile SheetView sheetView = new SheetView();
+
     private final Logger logger;
+    private FxPulseBridge pulseBridge = null;
 
     public MainApp() {
         logger = AppRootLogic.createLogger(Target.DESKTOP, DesktopDomainId.GUI, getClass().getName());
     }
 
+    /**
+     * JavaFX creates its own instance of application, so view is handed over to it statically.
+     */
+    public MainApp(SheetView view) {
+        this();
+        sheetView = view;
+    }
+
     @Override
     public void start(Stage primaryStage) throws Exception {
-        primaryStage.setScene(new Scene(VBoxBuilder.create().
-                children(new Text("Hi"), new Button("Ok.")).
-                alignment(Pos.CENTER).padding(new Insets(5)).build()));
+        VBox root = new VBox(sheetView.getRoot());
+        root.setPadding(new Insets(5));
+        VBox.setVgrow(sheetView.getRoot(), Priority.ALWAYS);
+        primaryStage.setScene(new Scene(root, DEFAULT_WIDTH, DEFAULT_HEIGHT));
         primaryStage.show();
+        startPulseBridge();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (pulseBridge != null) {
+            pulseBridge.detach();
+        }
+    }
+
+    private void startPulseBridge() {
+        EventDispatcher dispatcher = AppRootLogic.getEventDispatcher();
+        if (dispatcher instanceof AsynchronousEventDispatcher) {
+            pulseBridge = new FxPulseBridge(((AsynchronousEventDispatcher) dispatcher).getPulseBatcher());
+            pulseBridge.attach();
+        }
     }
 
     public void mainLoop() {
         logger.info("Starting main loop");
         launch();
         logger.info("JavaFx finished");
-        AppRootLogic.getEventDispatcher().notifyEvent(new ShutdownPerformedEvent());
+        EventPublisher.of(AppRootLogic.getEventDispatcher()).publish(new ShutdownPerformedEvent());
     }
 }
@@ -0,0 +1,49 @@
+package pl.trul.charactersheet.desktop.gui;
+
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+
+import java.util.Map;
+
+/**
+ * Row of a virtualized sheet section. ListView creates only as many cells as fit on screen and reuses them while
+ * scrolling, so nodes of a cell are built once and only their text changes.
+ */
+public class SheetEntryCell extends ListCell<SheetEntry> {
+    private static final double NAME_WIDTH = 200;
+
+    private final Label name = new Label();
+    private final Label fields = new Label();
+    private final HBox row = new HBox(8, name, fields);
+
+    public SheetEntryCell() {
+        name.setMinWidth(NAME_WIDTH);
+        HBox.setHgrow(fields, Priority.ALWAYS);
+    }
+
+    @Override
+    protected void updateItem(SheetEntry entry, boolean empty) {
+        super.updateItem(entry, empty);
+        if (empty || entry == null) {
+            setGraphic(null);
+            return;
+        }
+        name.setText(entry.getId());
+        fields.setText(describeFields(entry.getFields()));
+        setGraphic(row);
+    }
+
+    static String describeFields(Map<String, String> entryFields) {
+        StringBuilder text = new StringBuilder();
+        entryFields.forEach((field, value) -> {
+            if (text.length() > 0) {
+                text.append("   ");
+            }
+            text.append(field).append(": ").append(value);
+        });
+        return text.toString();
+    }
+}
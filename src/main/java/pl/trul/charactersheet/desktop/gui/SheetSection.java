@@ -0,0 +1,58 @@
+package pl.trul.charactersheet.desktop.gui;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entries of a single sheet section, kept in an observable list so virtualized views update only the rows which
+ * have actually changed. Must be modified on JavaFX Application Thread only.
+ */
+public class SheetSection {
+    private final String name;
+    private final ObservableList<SheetEntry> entries = FXCollections.observableArrayList();
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    public SheetSection(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ObservableList<SheetEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Replaces only the changed entry, appending it if it is new. Removal of a field of a missing entry is ignored,
+     * so it does not leave an empty row behind.
+     */
+    public void applyFieldChange(String entryId, String field, String value) {
+        Integer position = positions.get(entryId);
+        if (position == null) {
+            if (value == null) {
+                return;
+            }
+            positions.put(entryId, entries.size());
+            entries.add(new SheetEntry(entryId).withField(field, value));
+        } else {
+            entries.set(position, entries.get(position).withField(field, value));
+        }
+    }
+
+    public void removeEntry(String entryId) {
+        Integer position = positions.remove(entryId);
+        if (position == null) {
+            return;
+        }
+        entries.remove((int) position);
+        for (int i = position; i < entries.size(); ++i) {
+            positions.put(entries.get(i).getId(), i);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package pl.trul.charactersheet.desktop.gui;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import javafx.application.Platform;
+import javafx.scene.Parent;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import pl.trul.charactersheet.desktop.events.AsynchronousEventDispatcher;
+import pl.trul.charactersheet.desktop.sheet.DerivedFieldsChangedEvent;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+import pl.trul.charactersheet.desktop.sheet.SheetEntryRemovedEvent;
+import pl.trul.charactersheet.desktop.sheet.SheetFieldChangedEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Character sheet view updated incrementally from field-level sheet events: each change replaces a single row of
+ * its section, nothing is rebuilt. Sections are rendered as virtualized lists, so number of nodes depends on
+ * window size rather than on sheet size, and nodes are not created until the view is first displayed.
+ *
+ * Sheet events are delivered in per-frame batches on JavaFX Application Thread, changes of the same field waiting
+ * for the same frame are coalesced. All methods but connect must be called on that thread.
+ */
+public class SheetView {
+    private static final double ROW_HEIGHT = 24;
+
+    private final Map<String, SheetSection> sections = new LinkedHashMap<>();
+    private VBox root = null;
+
+    /**
+     * Starts receiving sheet events from dispatcher.
+     */
+    public void connect(EventDispatcher dispatcher) {
+        if (dispatcher instanceof AsynchronousEventDispatcher) {
+            AsynchronousEventDispatcher batching = (AsynchronousEventDispatcher) dispatcher;
+            batching.registerPulseListener(SheetFieldChangedEvent.eventType(), this::onFieldChanged,
+                    SheetFieldChangedEvent::coalescingKey);
+            batching.registerPulseListener(SheetEntryRemovedEvent.eventType(), this::onEntryRemoved, null);
+            batching.registerPulseListener(DerivedFieldsChangedEvent.eventType(), this::onDerivedFieldsChanged, null);
+        } else {
+            dispatcher.registerListener(SheetFieldChangedEvent.eventType(),
+                    (event) -> Platform.runLater(() -> onFieldChanged(event)));
+            dispatcher.registerListener(SheetEntryRemovedEvent.eventType(),
+                    (event) -> Platform.runLater(() -> onEntryRemoved(event)));
+            dispatcher.registerListener(DerivedFieldsChangedEvent.eventType(),
+                    (event) -> Platform.runLater(() -> onDerivedFieldsChanged(event)));
+        }
+    }
+
+    /**
+     * @return root node of the view, built on first call
+     */
+    public Parent getRoot() {
+        if (root == null) {
+            root = new VBox();
+            sections.values().forEach(this::addSectionNodes);
+        }
+        return root;
+    }
+
+    SheetSection getSection(String name) {
+        return sections.computeIfAbsent(name, this::createSection);
+    }
+
+    private SheetSection createSection(String name) {
+        SheetSection section = new SheetSection(name);
+        if (root != null) {
+            addSectionNodes(section);
+        }
+        return section;
+    }
+
+    private void addSectionNodes(SheetSection section) {
+        ListView<SheetEntry> entries = new ListView<>(section.getEntries());
+        entries.setFixedCellSize(ROW_HEIGHT);
+        entries.setCellFactory((view) -> new SheetEntryCell());
+        VBox.setVgrow(entries, Priority.ALWAYS);
+        root.getChildren().addAll(new Text(section.getName()), entries);
+    }
+
+    private void onFieldChanged(Event event) {
+        SheetFieldChangedEvent change = Event.tryCast(event);
+        getSection(change.getSection()).applyFieldChange(change.getEntryId(), change.getField(), change.getValue());
+    }
+
+    private void onDerivedFieldsChanged(Event event) {
+        DerivedFieldsChangedEvent changes = Event.tryCast(event);
+        changes.getChanges().forEach(this::onFieldChanged);
+    }
+
+    private void onEntryRemoved(Event event) {
+        SheetEntryRemovedEvent removal = Event.tryCast(event);
+        SheetSection section = sections.get(removal.getSection());
+        if (section != null) {
+            section.removeEntry(removal.getEntryId());
+        }
+    }
+}
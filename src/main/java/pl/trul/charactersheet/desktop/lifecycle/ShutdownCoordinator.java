@@ -0,0 +1,105 @@
+package pl.trul.charactersheet.desktop.lifecycle;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Shuts down several participants in parallel against a single global deadline. All of them start draining at
+ * once; as soon as all are quiescent at the same time (checked twice in a row, at least MIN_POLL_NANOS apart, as
+ * participants hand work over to each other), they are released. Only if grace period elapses first, work still
+ * in flight is reported and cancelled, and the rest of the deadline is left for threads to terminate. Idle system
+ * shuts down almost immediately.
+ */
+public class ShutdownCoordinator {
+    private static final long MIN_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private Logger logger = Logger.getLogger(ShutdownCoordinator.class.getName());
+
+    /**
+     * @param gracePeriod time for participants to become quiescent on their own
+     * @param forcePeriod time for threads to terminate after grace period, once their work is cancelled
+     */
+    public ShutdownReport shutdown(Duration gracePeriod, Duration forcePeriod, List<ShutdownParticipant> participants) {
+        logger.info(String.format("Coordinated shutdown of %d components has begun", participants.size()));
+        long start = System.nanoTime();
+        long graceDeadline = start + gracePeriod.toNanos();
+        long deadline = graceDeadline + forcePeriod.toNanos();
+        Map<String, List<String>> stragglers = new LinkedHashMap<>();
+
+        participants.forEach(ShutdownParticipant::beginShutdown);
+        boolean quiescent = false;
+        boolean terminated = false;
+        try {
+            quiescent = awaitQuiescence(participants, graceDeadline);
+            if (quiescent) {
+                participants.forEach(ShutdownParticipant::release);
+                terminated = awaitTermination(participants, graceDeadline);
+            }
+            if (!terminated) {
+                collectStragglers(participants, stragglers);
+                logger.warning("Components are not quiescent in time, cancelling their work");
+                participants.forEach(ShutdownParticipant::forceShutdown);
+                terminated = awaitTermination(participants, deadline);
+            }
+        } catch (InterruptedException ex) {
+            logger.severe("Coordinated shutdown has been interrupted!");
+            Thread.currentThread().interrupt();
+        }
+
+        ShutdownReport report = new ShutdownReport(
+                quiescent, terminated, Duration.ofNanos(System.nanoTime() - start), stragglers);
+        if (terminated) {
+            logger.info(report.toString());
+        } else {
+            logger.severe(report.toString());
+        }
+        return report;
+    }
+
+    private boolean awaitQuiescence(List<ShutdownParticipant> participants, long deadline) {
+        long pollNanos = MIN_POLL_NANOS;
+        boolean quiescentBefore = false;
+        while (true) {
+            boolean quiescent = participants.stream().allMatch(ShutdownParticipant::isQuiescent);
+            if (quiescent && quiescentBefore) {
+                return true;
+            }
+            quiescentBefore = quiescent;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (quiescent) {
+                // gives work handed over between participants time to show up before confirming
+                LockSupport.parkNanos(Math.min(MIN_POLL_NANOS, remaining));
+                continue;
+            }
+            LockSupport.parkNanos(Math.min(pollNanos, remaining));
+            pollNanos = Math.min(2 * pollNanos, MAX_POLL_NANOS);
+        }
+    }
+
+    private boolean awaitTermination(List<ShutdownParticipant> participants, long deadline)
+            throws InterruptedException {
+        boolean terminated = true;
+        for (ShutdownParticipant participant : participants) {
+            terminated &= participant.awaitTermination(deadline);
+        }
+        return terminated;
+    }
+
+    private void collectStragglers(List<ShutdownParticipant> participants, Map<String, List<String>> stragglers) {
+        for (ShutdownParticipant participant : participants) {
+            List<String> running = participant.getStragglers();
+            if (!running.isEmpty()) {
+                stragglers.put(participant.getClass().getSimpleName(), running);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package pl.trul.charactersheet.desktop.lifecycle;
+
+import java.util.List;
+
+/**
+ * Component shut down by ShutdownCoordinator together with others, against a single global deadline.
+ *
+ * Shutdown goes through: beginShutdown, waiting until all participants are quiescent at once, then release
+ * (or forceShutdown if quiescence has not been reached in time) and finally awaitTermination.
+ */
+public interface ShutdownParticipant {
+    /**
+     * Stops starting work which would not end by itself (like timers or next cycles of tasks), work in flight
+     * continues and other participants may still hand over new work.
+     */
+    void beginShutdown();
+
+    /**
+     * @return true if participant has no work in flight
+     */
+    boolean isQuiescent();
+
+    /**
+     * @return human readable descriptions of work in flight, reported when it holds shutdown up
+     */
+    List<String> getStragglers();
+
+    /**
+     * Stops accepting work and lets threads finish, called once all participants are quiescent.
+     */
+    void release();
+
+    /**
+     * Cancels work in flight and interrupts threads running it.
+     */
+    void forceShutdown();
+
+    /**
+     * @return true if all threads of participant have terminated before deadline (as in System.nanoTime)
+     */
+    boolean awaitTermination(long deadlineNanos) throws InterruptedException;
+}
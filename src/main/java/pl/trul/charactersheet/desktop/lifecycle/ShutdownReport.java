@@ -0,0 +1,61 @@
+package pl.trul.charactersheet.desktop.lifecycle;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of coordinated shutdown.
+ */
+public class ShutdownReport {
+    private final boolean quiescent;
+    private final boolean terminated;
+    private final Duration duration;
+    private final Map<String, List<String>> stragglers;
+
+    ShutdownReport(boolean quiescent, boolean terminated, Duration duration, Map<String, List<String>> stragglers) {
+        this.quiescent = quiescent;
+        this.terminated = terminated;
+        this.duration = duration;
+        this.stragglers = Collections.unmodifiableMap(stragglers);
+    }
+
+    /**
+     * @return true if all participants have become quiescent before grace period has elapsed
+     */
+    public boolean isQuiescent() {
+        return quiescent;
+    }
+
+    /**
+     * @return true if threads of all participants have terminated before global deadline
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return work which held shutdown up, per participant, empty if shutdown has been graceful
+     */
+    public Map<String, List<String>> getStragglers() {
+        return stragglers;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(String.format("Shutdown %s in %d ms",
+                quiescent && terminated ? "performed gracefully" : terminated ? "forced" : "failed",
+                duration.toMillis()));
+        for (Map.Entry<String, List<String>> entry : stragglers.entrySet()) {
+            for (String straggler : entry.getValue()) {
+                result.append(String.format("%n  %s: %s", entry.getKey(), straggler));
+            }
+        }
+        return result.toString();
+    }
+}
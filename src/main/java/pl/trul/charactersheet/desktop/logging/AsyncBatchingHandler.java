@@ -0,0 +1,174 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler queueing records in a bounded buffer and writing them to target handler in batches, on a thread of its
+ * own. Logging threads never wait for disk: once the buffer is full, new records are dropped and counted, and
+ * number of dropped records is logged with the next batch.
+ *
+ * When created by LogManager, it is configured with the following properties (prefixed with the class name):
+ * level (ALL), target (class name of target handler, java.util.logging.FileHandler), capacity (8192) and
+ * batchSize (256). Target handler reads its own configuration as usual.
+ */
+public class AsyncBatchingHandler extends Handler {
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final Handler target;
+    private final BlockingQueue<LogRecord> queue;
+    private final int batchSize;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean open = true;
+    private long reportedDrops = 0;
+
+    public AsyncBatchingHandler() {
+        this(createConfiguredTarget(), getIntProperty("capacity", DEFAULT_CAPACITY),
+                getIntProperty("batchSize", DEFAULT_BATCH_SIZE));
+        String level = LogManager.getLogManager().getProperty(getClass().getName() + ".level");
+        setLevel(level != null ? Level.parse(level.trim()) : Level.ALL);
+    }
+
+    public AsyncBatchingHandler(Handler target, int capacity, int batchSize) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Capacity and batch size have to be positive");
+        }
+        this.target = target;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.writer = new Thread(this::writerLoop, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!open || !isLoggable(record)) {
+            return;
+        }
+        // Caller is inferred lazily from current stack, which is not available on writer thread
+        record.getSourceClassName();
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Writes all queued records on calling thread and flushes target.
+     */
+    @Override
+    public void flush() {
+        writeLock.lock();
+        try {
+            List<LogRecord> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+            }
+            target.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes remaining records and closes target. Records published afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        open = false;
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        target.close();
+    }
+
+    /**
+     * @return number of records dropped because buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void writerLoop() {
+        List<LogRecord> batch = new ArrayList<>(batchSize);
+        while (open || !queue.isEmpty()) {
+            try {
+                LogRecord first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                writeLock.lock();
+                try {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    target.flush();
+                } finally {
+                    writeLock.unlock();
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                reportError("Writing log records failed", ex, ErrorManager.WRITE_FAILURE);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<LogRecord> batch) {
+        reportDropped();
+        for (LogRecord record : batch) {
+            target.publish(record);
+        }
+        batch.clear();
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total > reportedDrops) {
+            LogRecord record = new LogRecord(Level.WARNING, String.format(
+                    "%d log records dropped, log buffer was full", total - reportedDrops));
+            record.setLoggerName(AsyncBatchingHandler.class.getName());
+            record.setSourceClassName(AsyncBatchingHandler.class.getName());
+            record.setSourceMethodName("publish");
+            reportedDrops = total;
+            target.publish(record);
+        }
+    }
+
+    private static Handler createConfiguredTarget() {
+        String className = LogManager.getLogManager().getProperty(AsyncBatchingHandler.class.getName() + ".target");
+        if (className == null) {
+            className = "java.util.logging.FileHandler";
+        }
+        try {
+            return (Handler) ClassLoader.getSystemClassLoader().loadClass(className.trim())
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new IllegalStateException("Unable to create target log handler " + className, ex);
+        }
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = LogManager.getLogManager().getProperty(AsyncBatchingHandler.class.getName() + "." + name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+}
@@ -0,0 +1,107 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * Command line tool rendering journal segments written by JournalHandler as text, optionally filtered.
+ * Run with --help for usage.
+ */
+public class JournalDecoder {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: JournalDecoder [options] <segment file or journal directory>...",
+            "  --target <target>   only records of loggers of given Target (e.g. DESKTOP)",
+            "  --domain <domain>   only records of loggers of given DomainId (e.g. PARALLELISM)",
+            "  --level <level>     only records of given level or more severe (e.g. INFO)",
+            "  --from <instant>    only records logged at or after given time (e.g. 2016-01-01T12:00:00Z)",
+            "  --to <instant>      only records logged before given time");
+
+    public static void main(String[] args) {
+        int status = run(args, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * @return process exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Predicate<JournalEntry> filter = entry -> true;
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--help":
+                        out.println(USAGE);
+                        return 0;
+                    case "--target":
+                        String target = args[++i];
+                        filter = filter.and(entry -> target.equals(entry.getTarget()));
+                        break;
+                    case "--domain":
+                        String domain = args[++i];
+                        filter = filter.and(entry -> domain.equals(entry.getDomain()));
+                        break;
+                    case "--level":
+                        int level = Level.parse(args[++i]).intValue();
+                        filter = filter.and(entry -> entry.getLevel().intValue() >= level);
+                        break;
+                    case "--from":
+                        Instant from = Instant.parse(args[++i]);
+                        filter = filter.and(entry -> !entry.getTime().isBefore(from));
+                        break;
+                    case "--to":
+                        Instant to = Instant.parse(args[++i]);
+                        filter = filter.and(entry -> entry.getTime().isBefore(to));
+                        break;
+                    default:
+                        inputs.add(Paths.get(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | DateTimeParseException ex) {
+            err.println("Invalid arguments: " + ex.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        if (inputs.isEmpty()) {
+            err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            for (Path segment : listSegments(inputs)) {
+                for (JournalEntry entry : JournalReader.read(segment)) {
+                    if (filter.test(entry)) {
+                        out.println(entry.render());
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            err.println("Unable to read journal: " + ex.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    private static List<Path> listSegments(List<Path> inputs) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                segments.addAll(JournalHandler.listSegments(input));
+            } else {
+                segments.add(input);
+            }
+        }
+        return segments;
+    }
+}
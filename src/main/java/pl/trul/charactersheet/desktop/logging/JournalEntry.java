@@ -0,0 +1,113 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.util.logging.Level;
+
+/**
+ * Log record decoded from journal segment.
+ */
+public class JournalEntry {
+    private static final String LINE_FORMATTING = "%1$tF %1$tT.%1$tL %2$-7s [%3$s] %4$s (thread %5$d) %6$s%7$s";
+
+    private final long millis;
+    private final Level level;
+    private final String loggerName;
+    private final int threadId;
+    private final String sourceClassName;
+    private final String sourceMethodName;
+    private final String message;
+    private final Object[] parameters;
+    private final String thrown;
+
+    JournalEntry(long millis, Level level, String loggerName, int threadId, String sourceClassName,
+                 String sourceMethodName, String message, Object[] parameters, String thrown) {
+        this.millis = millis;
+        this.level = level;
+        this.loggerName = loggerName;
+        this.threadId = threadId;
+        this.sourceClassName = sourceClassName;
+        this.sourceMethodName = sourceMethodName;
+        this.message = message;
+        this.parameters = parameters;
+        this.thrown = thrown;
+    }
+
+    public Instant getTime() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    /**
+     * @return Target of logger created with AppRootLogic.createLogger, null for other loggers
+     */
+    public String getTarget() {
+        return getLoggerNamePart(0);
+    }
+
+    /**
+     * @return DomainId of logger created with AppRootLogic.createLogger, null for other loggers
+     */
+    public String getDomain() {
+        return getLoggerNamePart(1);
+    }
+
+    public int getThreadId() {
+        return threadId;
+    }
+
+    public String getSourceClassName() {
+        return sourceClassName;
+    }
+
+    public String getSourceMethodName() {
+        return sourceMethodName;
+    }
+
+    /**
+     * @return message with parameters filled in, as java.util.logging.Formatter would do it
+     */
+    public String getFormattedMessage() {
+        if (parameters == null || parameters.length == 0 || message == null) {
+            return message;
+        }
+        try {
+            return MessageFormat.format(message, parameters);
+        } catch (IllegalArgumentException ex) {
+            return message;
+        }
+    }
+
+    /**
+     * @return stack trace of thrown exception, null if there was none
+     */
+    public String getThrown() {
+        return thrown;
+    }
+
+    /**
+     * @return single line (followed by stack trace, if any) rendering of entry
+     */
+    public String render() {
+        String source = sourceClassName == null ? loggerName
+                : sourceMethodName == null ? sourceClassName
+                : sourceClassName + "." + sourceMethodName;
+        return String.format(LINE_FORMATTING, millis, level.getName(), loggerName, source, threadId,
+                getFormattedMessage(), thrown == null ? "" : System.lineSeparator() + thrown.trim());
+    }
+
+    private String getLoggerNamePart(int index) {
+        if (loggerName == null) {
+            return null;
+        }
+        String[] parts = loggerName.split("\\|\t", 3);
+        return parts.length == 3 ? parts[index] : null;
+    }
+}
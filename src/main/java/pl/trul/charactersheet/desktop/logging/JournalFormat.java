@@ -0,0 +1,53 @@
+package pl.trul.charactersheet.desktop.logging;
+
+/**
+ * Layout of binary journal segments written by JournalHandler and read by JournalReader.
+ *
+ * Segment starts with header (magic, version, sequence number, creation time in epoch millis) followed by entries,
+ * each starting with a tag byte. String definitions assign ids to logger names, source locations and message
+ * templates, which records then refer to; definitions are local to a segment, so every segment decodes on its own.
+ * Unused space of a segment is zero-filled, so zero tag marks the end of data.
+ *
+ * All numbers are big-endian, strings are written as byte length followed by UTF-8 bytes.
+ */
+final class JournalFormat {
+    static final int MAGIC = 0x434A524E;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 4 + 2 + 8 + 8;
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    static final byte TAG_END = 0;
+    static final byte TAG_STRING = 1;
+    static final byte TAG_RECORD = 2;
+
+    static final int NO_STRING = -1;
+
+    static final byte MESSAGE_LITERAL = 0;
+    static final byte MESSAGE_TEMPLATE = 1;
+
+    static final byte PARAM_NULL = 0;
+    static final byte PARAM_STRING = 1;
+    static final byte PARAM_INT = 2;
+    static final byte PARAM_LONG = 3;
+    static final byte PARAM_DOUBLE = 4;
+    static final byte PARAM_BOOLEAN = 5;
+
+    private JournalFormat() {
+    }
+
+    static String segmentFileName(long sequence) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    static boolean isSegmentFileName(String fileName) {
+        return fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX);
+    }
+
+    /**
+     * @return sequence number of segment with given file name
+     */
+    static long parseSequence(String fileName) {
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,270 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import pl.trul.charactersheet.desktop.utils.MappedBuffers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler writing compact binary records into rolling, memory-mapped segment files (see JournalFormat), which can
+ * be rendered back to text with JournalDecoder. Records are never formatted: logger names, source locations and
+ * message templates of parametrized records are interned once per segment, and parameters are written in binary.
+ * Once the directory holds maxSegments segments, the oldest one is deleted.
+ *
+ * Writes only reach page cache, so flush does not touch the disk; data survives crash of the process, segment is
+ * forced to disk on close. Handler is meant to be used as target of AsyncBatchingHandler, so nobody waits for it.
+ *
+ * When created by LogManager, it is configured with the following properties (prefixed with the class name):
+ * level (ALL), directory (logs/journal), segmentSize in bytes (16 MiB) and maxSegments (64).
+ */
+public class JournalHandler extends Handler {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 64;
+    public static final String DEFAULT_DIRECTORY = "logs/journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Deque<Path> segments = new ArrayDeque<>();
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<String, Integer> stagedStrings = new HashMap<>();
+    private final ScratchBuffer scratch = new ScratchBuffer();
+    private final DataOutputStream out = new DataOutputStream(scratch);
+    private MappedByteBuffer segment = null;
+    private long nextSequence = 0;
+
+    public JournalHandler() throws IOException {
+        this(Paths.get(getProperty("directory", DEFAULT_DIRECTORY)),
+                Integer.parseInt(getProperty("segmentSize", Integer.toString(DEFAULT_SEGMENT_SIZE))),
+                Integer.parseInt(getProperty("maxSegments", Integer.toString(DEFAULT_MAX_SEGMENTS))));
+        setLevel(Level.parse(getProperty("level", Level.ALL.getName())));
+    }
+
+    public JournalHandler(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= JournalFormat.HEADER_SIZE || maxSegments < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid journal segment size %d or segment count %d", segmentSize, maxSegments));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        for (Path existing : listSegments(directory)) {
+            segments.addLast(existing);
+            nextSequence = JournalFormat.parseSequence(existing.getFileName().toString()) + 1;
+        }
+        roll();
+    }
+
+    /**
+     * @return segment files in given directory, oldest first
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (JournalFormat.isSegmentFileName(file.getFileName().toString())) {
+                    result.add(file);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (segment == null || !isLoggable(record)) {
+            return;
+        }
+        try {
+            encode(record);
+            if (scratch.size() > segment.remaining()) {
+                roll();
+                encode(record);
+                if (scratch.size() > segment.remaining()) {
+                    reportError("Log record does not fit into journal segment", null, ErrorManager.WRITE_FAILURE);
+                    return;
+                }
+            }
+            scratch.writeTo(segment);
+            strings.putAll(stagedStrings);
+        } catch (IOException | RuntimeException ex) {
+            reportError("Unable to write log record to journal", ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Does nothing, written records are already visible to readers of segment files.
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+            MappedBuffers.unmap(segment);
+            segment = null;
+        }
+    }
+
+    /**
+     * Mapping of the finished segment is released right away, so it can be deleted once it is the oldest one.
+     */
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.force();
+            MappedBuffers.unmap(segment);
+            segment = null;
+        }
+        strings.clear();
+        long sequence = nextSequence++;
+        Path file = directory.resolve(JournalFormat.segmentFileName(sequence));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(JournalFormat.MAGIC);
+        segment.putShort(JournalFormat.VERSION);
+        segment.putLong(sequence);
+        segment.putLong(System.currentTimeMillis());
+
+        segments.addLast(file);
+        while (segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.removeFirst());
+        }
+    }
+
+    /**
+     * Strings first used by the record are only staged, they are interned once the record has been written.
+     */
+    private void encode(LogRecord record) throws IOException {
+        scratch.reset();
+        stagedStrings.clear();
+        Object[] params = record.getParameters();
+        boolean isTemplate = params != null && params.length > 0 && record.getMessage() != null;
+        int loggerId = intern(record.getLoggerName());
+        int sourceClassId = intern(record.getSourceClassName());
+        int sourceMethodId = intern(record.getSourceMethodName());
+        int templateId = isTemplate ? intern(record.getMessage()) : JournalFormat.NO_STRING;
+
+        out.writeByte(JournalFormat.TAG_RECORD);
+        out.writeLong(record.getMillis());
+        out.writeInt(record.getLevel().intValue());
+        out.writeInt(loggerId);
+        out.writeInt(record.getThreadID());
+        out.writeInt(sourceClassId);
+        out.writeInt(sourceMethodId);
+        if (isTemplate) {
+            out.writeByte(JournalFormat.MESSAGE_TEMPLATE);
+            out.writeInt(templateId);
+            out.writeShort(params.length);
+            for (Object param : params) {
+                writeParam(param);
+            }
+        } else {
+            out.writeByte(JournalFormat.MESSAGE_LITERAL);
+            writeString(record.getMessage());
+        }
+        Throwable thrown = record.getThrown();
+        out.writeBoolean(thrown != null);
+        if (thrown != null) {
+            StringWriter stackTrace = new StringWriter();
+            thrown.printStackTrace(new PrintWriter(stackTrace));
+            writeString(stackTrace.toString());
+        }
+    }
+
+    private int intern(String s) throws IOException {
+        if (s == null) {
+            return JournalFormat.NO_STRING;
+        }
+        Integer id = strings.get(s);
+        if (id == null) {
+            id = stagedStrings.get(s);
+        }
+        if (id == null) {
+            id = strings.size() + stagedStrings.size();
+            stagedStrings.put(s, id);
+            out.writeByte(JournalFormat.TAG_STRING);
+            out.writeInt(id);
+            writeString(s);
+        }
+        return id;
+    }
+
+    private void writeParam(Object param) throws IOException {
+        if (param == null) {
+            out.writeByte(JournalFormat.PARAM_NULL);
+        } else if (param instanceof Integer || param instanceof Short || param instanceof Byte) {
+            out.writeByte(JournalFormat.PARAM_INT);
+            out.writeInt(((Number) param).intValue());
+        } else if (param instanceof Long) {
+            out.writeByte(JournalFormat.PARAM_LONG);
+            out.writeLong((Long) param);
+        } else if (param instanceof Double || param instanceof Float) {
+            out.writeByte(JournalFormat.PARAM_DOUBLE);
+            out.writeDouble(((Number) param).doubleValue());
+        } else if (param instanceof Boolean) {
+            out.writeByte(JournalFormat.PARAM_BOOLEAN);
+            out.writeBoolean((Boolean) param);
+        } else {
+            out.writeByte(JournalFormat.PARAM_STRING);
+            writeString(param.toString());
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            out.writeInt(JournalFormat.NO_STRING);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getProperty(String name, String defaultValue) {
+        String value = LogManager.getLogManager().getProperty(JournalHandler.class.getName() + "." + name);
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Reusable encoding buffer, copied into segment without intermediate arrays.
+     */
+    private static final class ScratchBuffer extends ByteArrayOutputStream {
+        ScratchBuffer() {
+            super(4096);
+        }
+
+        void writeTo(ByteBuffer target) {
+            target.put(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import pl.trul.charactersheet.desktop.utils.MappedBuffers;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Decodes journal segments written by JournalHandler.
+ */
+public final class JournalReader {
+    private final ByteBuffer data;
+    private final Map<Integer, String> strings = new HashMap<>();
+
+    private JournalReader(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Reads all entries of segment, in order of writing. Entry cut off by crash of writing process ends the segment.
+     * @throws IOException if file is not a journal segment
+     */
+    public static List<JournalEntry> read(Path segment) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (data.remaining() < JournalFormat.HEADER_SIZE || data.getInt() != JournalFormat.MAGIC) {
+                throw new IOException(segment + " is not a journal segment");
+            }
+            short version = data.getShort();
+            if (version != JournalFormat.VERSION) {
+                throw new IOException(String.format("Unsupported version %d of journal segment %s", version, segment));
+            }
+            data.getLong();
+            data.getLong();
+            return new JournalReader(data).readEntries();
+        } finally {
+            MappedBuffers.unmap(data);
+        }
+    }
+
+    private List<JournalEntry> readEntries() {
+        List<JournalEntry> entries = new ArrayList<>();
+        try {
+            while (data.hasRemaining()) {
+                byte tag = data.get();
+                if (tag == JournalFormat.TAG_STRING) {
+                    int id = data.getInt();
+                    strings.put(id, readString());
+                } else if (tag == JournalFormat.TAG_RECORD) {
+                    entries.add(readRecord());
+                } else {
+                    break;
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            // Partially written entry, nothing follows it
+        }
+        return entries;
+    }
+
+    private JournalEntry readRecord() {
+        long millis = data.getLong();
+        Level level = Level.parse(Integer.toString(data.getInt()));
+        String loggerName = strings.get(data.getInt());
+        int threadId = data.getInt();
+        String sourceClassName = strings.get(data.getInt());
+        String sourceMethodName = strings.get(data.getInt());
+        String message;
+        Object[] parameters = null;
+        if (data.get() == JournalFormat.MESSAGE_TEMPLATE) {
+            message = strings.get(data.getInt());
+            parameters = new Object[data.getShort()];
+            for (int i = 0; i < parameters.length; ++i) {
+                parameters[i] = readParam();
+            }
+        } else {
+            message = readString();
+        }
+        String thrown = data.get() != 0 ? readString() : null;
+        return new JournalEntry(millis, level, loggerName, threadId, sourceClassName, sourceMethodName,
+                message, parameters, thrown);
+    }
+
+    private Object readParam() {
+        byte type = data.get();
+        switch (type) {
+            case JournalFormat.PARAM_NULL:
+                return null;
+            case JournalFormat.PARAM_STRING:
+                return readString();
+            case JournalFormat.PARAM_INT:
+                return data.getInt();
+            case JournalFormat.PARAM_LONG:
+                return data.getLong();
+            case JournalFormat.PARAM_DOUBLE:
+                return data.getDouble();
+            case JournalFormat.PARAM_BOOLEAN:
+                return data.get() != 0;
+            default:
+                throw new IllegalArgumentException("Unknown parameter type " + type);
+        }
+    }
+
+    private String readString() {
+        int length = data.getInt();
+        if (length == JournalFormat.NO_STRING) {
+            return null;
+        }
+        if (length < 0 || length > data.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
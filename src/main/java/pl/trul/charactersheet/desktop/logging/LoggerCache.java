@@ -0,0 +1,75 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import com.github.michal_stempkowski.charactersheet.internal.DomainId;
+import com.github.michal_stempkowski.charactersheet.internal.Target;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Caches loggers per (Target, DomainId, name), so components asking for their logger repeatedly neither format
+ * logger name nor go through LogManager's global lock again.
+ *
+ * Cached loggers should be used with deferred message suppliers (logger.fine(() -> ...)), so messages of disabled
+ * levels are never formatted.
+ */
+public class LoggerCache {
+    private static final String LINE_FORMATTING = "%s|\t%s|\t%s";
+
+    private final ConcurrentHashMap<Key, Logger> loggers = new ConcurrentHashMap<>();
+    private final Function<Key, Logger> loggerCreator;
+
+    public LoggerCache() {
+        this(Logger::getLogger);
+    }
+
+    /**
+     * @param loggerFactory creates logger of given name, on the first lookup of its key only
+     */
+    LoggerCache(Function<String, Logger> loggerFactory) {
+        this.loggerCreator = key -> loggerFactory.apply(key.loggerName());
+    }
+
+    public Logger get(Target target, DomainId domainId, String name) {
+        return loggers.computeIfAbsent(new Key(target, domainId, name), loggerCreator);
+    }
+
+    public int size() {
+        return loggers.size();
+    }
+
+    private static final class Key {
+        private final Target target;
+        private final DomainId domainId;
+        private final String name;
+
+        private Key(Target target, DomainId domainId, String name) {
+            this.target = target;
+            this.domainId = domainId;
+            this.name = name;
+        }
+
+        String loggerName() {
+            return String.format(LINE_FORMATTING, target, domainId, name);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return target == other.target && domainId.equals(other.domainId) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(target, domainId, name);
+        }
+    }
+}
@@ -6,99 +6,496 @@ import com.github.michal_stempkowski.charactersheet.internal.Target;
 import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskScheduler;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.events.TaskFinishedEvent;
+import pl.trul.charactersheet.desktop.events.EventPublisher;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownCoordinator;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownParticipant;
 
 import java.rmi.server.UID;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Class responsible for scheduling and running long running tasks. It uses thread
- * pool in order to make parallel task execution.
+ * Class responsible for scheduling and running long running tasks. Tasks are run cooperatively on a work-stealing
+ * pool sized to the number of cores: each task runs a bounded slice of cycles and is requeued, so thousands of tasks
+ * can share a few threads. Tasks with nothing to do may park themselves with TaskContext.reportIdle, until they are
+ * woken with wakeTask.
+ *
+ * Tasks may also be started at given time, run at fixed rate or with fixed delay between cycles, or delay their next
+ * cycle with TaskContext.delayNextCycle. Delays are tracked by a hierarchical timer wheel, so waiting tasks hold
+ * no thread at all.
+ *
+ * Jobs made of several dependent tasks may be scheduled at once as a TaskGraph.
+ * Scheduling, slow cycles and finishing of tasks are recorded as Flight Recorder events (see TaskCycleJfrEvent).
+ * On shutdown tasks are stopped between slices, so the scheduler is quiescent as soon as no cycle is running.
+ * Task registry is a concurrent map, so scheduling, finishing and counting tasks never contend on a common lock.
+ *
+ * Tasks whose cycles block for long (like running JavaFX application) should be scheduled with
+ * scheduleBlockingTask, which gives them a thread of their own.
  */
-public class AsynchronousTaskScheduler implements TaskScheduler {
-    private ExecutorService executors = Executors.newCachedThreadPool();
-    private Map<UID, CyclingTask> tasks = new HashMap<>();
-    private boolean hasStarted = false;
-    private final Object mutex = new Object();
+public class AsynchronousTaskScheduler implements TaskScheduler, ShutdownParticipant {
+    public static final int DEFAULT_CYCLES_PER_SLICE = 16;
+    private static final long SLICE_TIME_LIMIT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final ForkJoinPool workers;
+    private final HierarchicalTimerWheel timerWheel =
+            new HierarchicalTimerWheel("task-timer-wheel", HierarchicalTimerWheel.DEFAULT_TICK);
+    private final ExecutorService blockingExecutor;
+    private final int cyclesPerSlice;
+    private final ConcurrentHashMap<UID, ScheduledTask> tasks = new ConcurrentHashMap<>();
+    private volatile boolean hasStarted = false;
+    private volatile boolean shuttingDown = false;
+    private final AtomicInteger runningSlices = new AtomicInteger();
     private Logger logger = AppRootLogic.createLogger(Target.DESKTOP, InternalDomainId.PARALLELISM, getClass().getName());
 
+    public AsynchronousTaskScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CYCLES_PER_SLICE);
+    }
+
+    public AsynchronousTaskScheduler(int parallelism, int cyclesPerSlice) {
+        this(parallelism, cyclesPerSlice, Executors.newCachedThreadPool());
+    }
+
+    /**
+     * @param blockingExecutor runs tasks scheduled with scheduleBlockingTask, scheduler shuts it down on
+     *                         gentleShutdown
+     */
+    public AsynchronousTaskScheduler(int parallelism, int cyclesPerSlice, ExecutorService blockingExecutor) {
+        if (parallelism < 1 || cyclesPerSlice < 1) {
+            throw new IllegalArgumentException("Parallelism and cycles per slice have to be positive");
+        }
+        this.cyclesPerSlice = cyclesPerSlice;
+        this.blockingExecutor = blockingExecutor;
+        this.workers = new ForkJoinPool(parallelism, AsynchronousTaskScheduler::createWorker, null, true);
+    }
+
+    private static ForkJoinWorkerThread createWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("cooperative-task-worker-" + worker.getPoolIndex());
+        return worker;
+    }
+
     @Override
     public void scheduleTask(CyclingTask cyclingTask) {
-        synchronized (mutex) {
-            logger.info(String.format("Scheduling task [%s]", cyclingTask.id.toString()));
-            tasks.put(cyclingTask.id, cyclingTask);
-            if (hasStarted) {
-                logger.fine(String.format("Submitting task [%s]", cyclingTask.id.toString()));
-                executors.submit(() -> mainTaskLoop(cyclingTask));
+        schedule(new ScheduledTask(cyclingTask, false, this::runSlice));
+    }
+
+    /**
+     * Schedules task on a dedicated thread, running its cycles until it finishes, without yielding to other tasks.
+     */
+    public void scheduleBlockingTask(CyclingTask cyclingTask) {
+        schedule(new ScheduledTask(cyclingTask, true, this::runToCompletion));
+    }
+
+    /**
+     * Schedules task whose first cycle starts at given time (or right after init, if it is later).
+     */
+    public void scheduleAt(CyclingTask cyclingTask, Instant startTime) {
+        long delayNanos = Duration.between(Instant.now(), startTime).toNanos();
+        schedule(new ScheduledTask(cyclingTask, false, this::runSlice, delayNanos, 0, 0));
+    }
+
+    /**
+     * Schedules task whose cycles start at fixed rate. Cycles late by more than period run right one after another,
+     * until task catches up.
+     */
+    public void scheduleWithFixedRate(CyclingTask cyclingTask, Duration initialDelay, Duration period) {
+        schedule(new ScheduledTask(
+                cyclingTask, false, this::runSlice, initialDelay.toNanos(), requirePositive(period), 0));
+    }
+
+    /**
+     * Schedules task whose every cycle starts delay after the previous one has ended.
+     */
+    public void scheduleWithFixedDelay(CyclingTask cyclingTask, Duration initialDelay, Duration delay) {
+        schedule(new ScheduledTask(
+                cyclingTask, false, this::runSlice, initialDelay.toNanos(), 0, requirePositive(delay)));
+    }
+
+    private static long requirePositive(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration has to be positive, got " + duration);
+        }
+        return duration.toNanos();
+    }
+
+    /**
+     * Schedules all tasks in a single pass over the registry, logging once. If any of them is already scheduled,
+     * none of them is.
+     */
+    public void scheduleAll(Collection<CyclingTask> cyclingTasks) {
+        logger.info(String.format("Scheduling %d tasks", cyclingTasks.size()));
+        List<ScheduledTask> scheduled = new ArrayList<>(cyclingTasks.size());
+        try {
+            for (CyclingTask task : cyclingTasks) {
+                ScheduledTask t = new ScheduledTask(task, false, this::runSlice);
+                register(t);
+                scheduled.add(t);
             }
+        } catch (IllegalArgumentException ex) {
+            scheduled.forEach(t -> tasks.remove(t.getTask().id, t));
+            throw ex;
+        }
+        if (hasStarted) {
+            scheduled.forEach(this::start);
+        }
+    }
+
+    /**
+     * Runs graph of tasks: tasks without dependencies are scheduled right away, the rest as soon as all of their
+     * dependencies are finished successfully. Tasks which are not released yet are not counted by tasksInQueue.
+     */
+    public TaskGraphExecution scheduleGraph(TaskGraph graph) {
+        logger.info(String.format("Scheduling graph of %d tasks", graph.size()));
+        TaskGraphExecution execution = new TaskGraphExecution(graph, (task, listener) ->
+                schedule(new ScheduledTask(task, false, this::runSlice).withCompletionListener(listener)));
+        execution.start();
+        return execution;
+    }
+
+    private void schedule(ScheduledTask task) {
+        register(task);
+        logger.info(() -> String.format("Scheduling task [%s]", task.getTask().id.toString()));
+        TaskScheduledJfrEvent.record(task);
+        if (hasStarted) {
+            start(task);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the same task is already scheduled, the scheduled one is left intact
+     */
+    private void register(ScheduledTask task) {
+        UID taskId = task.getTask().id;
+        if (tasks.putIfAbsent(taskId, task) != null) {
+            throw new IllegalArgumentException(String.format("Task %s is already scheduled", taskId));
+        }
+    }
+
+    private void start(ScheduledTask task) {
+        if (!task.tryLaunch()) {
+            return;
+        }
+        long delayNanos = task.getInitialDelayNanos();
+        if (delayNanos > 0) {
+            submitAfter(task, delayNanos);
+        } else {
+            submit(task);
+        }
+    }
+
+    /**
+     * Resumes task parked with TaskContext.reportIdle. Waking task which is running makes it skip its next parking.
+     */
+    public void wakeTask(UID taskId) {
+        ScheduledTask task = tasks.get(taskId);
+        if (task != null && task.wake()) {
+            submit(task);
+        }
+    }
+
+    /**
+     * Removes task from scheduler. Task which is running is interrupted and does not start any further cycle,
+     * delayed or parked one is simply never run again. No TaskFinishedEvent is published for cancelled tasks.
+     * @return false if there was no such task (e.g. it has already finished)
+     */
+    public boolean cancel(UID taskId) {
+        ScheduledTask task = tasks.remove(taskId);
+        if (task == null) {
+            return false;
         }
+        logger.info(() -> String.format("Cancelling task %s", taskId.toString()));
+        task.cancel();
+        task.complete(false);
+        TaskFinishedJfrEvent.record(task);
+        return true;
     }
 
     @Override
     public void init() {
-        synchronized (mutex) {
-            logger.info("Initialization");
-            tasks.forEach((UID id, CyclingTask task) -> {
-                logger.fine(String.format("Submitting task [%s]", task.id.toString()));
-                executors.submit(() -> mainTaskLoop(task));
-            });
-            hasStarted = true;
-        }
+        logger.info("Initialization");
+        hasStarted = true;
+        tasks.values().forEach(this::start);
     }
 
     @Override
     public int tasksInQueue() {
-        synchronized (mutex) {
-            int result = tasks.size();
-            logger.fine(String.format("Checking tasks in scheduler, currently %d registered", result));
-            return result;
-        }
+        return tasks.size();
     }
 
     @Override
     public void gentleShutdown(Duration finalizationTime, Duration lastResortTime) {
+        new ShutdownCoordinator().shutdown(finalizationTime, lastResortTime, Collections.singletonList(this));
+    }
+
+    /**
+     * Tasks are stopped at the end of their current slice (or cycle, for blocking tasks), delayed and parked ones
+     * are not run again. Tasks which have not finished are abandoned on release.
+     */
+    @Override
+    public void beginShutdown() {
         logger.info("Gentle shutdown has begun");
-        executors.shutdown();
-        if (!safelyAwaitTermination(finalizationTime)) {
-            logger.warning("Last resort shutdown has begun!");
-            executors.shutdownNow();
-            if (!safelyAwaitTermination(lastResortTime)) {
-                logger.severe("Last resort failed, performing emergency shutdown!!!");
-                System.exit(1);
+        shuttingDown = true;
+        removeNeverStartedTasks();
+        timerWheel.stop();
+    }
+
+    @Override
+    public boolean isQuiescent() {
+        return runningSlices.get() == 0 && workers.isQuiescent() && !workers.hasQueuedSubmissions();
+    }
+
+    @Override
+    public List<String> getStragglers() {
+        List<String> stragglers = new ArrayList<>();
+        for (ScheduledTask task : tasks.values()) {
+            String running = task.describeRunningSlice();
+            if (running != null) {
+                stragglers.add(running);
+            }
+        }
+        return stragglers;
+    }
+
+    @Override
+    public void release() {
+        if (!tasks.isEmpty()) {
+            removeAllTasks();
+        }
+        workers.shutdown();
+        blockingExecutor.shutdown();
+    }
+
+    @Override
+    public void forceShutdown() {
+        logger.warning("Last resort shutdown has begun!");
+        removeAllTasks();
+        timerWheel.stop();
+        workers.shutdownNow();
+        blockingExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean awaitTermination(long deadlineNanos) throws InterruptedException {
+        return workers.awaitTermination(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)
+                && blockingExecutor.awaitTermination(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tasks scheduled to a scheduler which has never been initialized are reported one by one, as they have never
+     * run at all.
+     */
+    private void removeNeverStartedTasks() {
+        if (!hasStarted && !tasks.isEmpty()) {
+            List<ScheduledTask> removed = new ArrayList<>(tasks.values());
+            tasks.clear();
+            for (ScheduledTask task : removed) {
+                logger.warning(String.format("Task %s has never been started, scheduler has not been initialized",
+                        task.getTask().id));
+                task.complete(false);
+                TaskFinishedJfrEvent.record(task);
             }
         }
-        logger.info("Shutdown performed gracefully");
     }
 
-    private boolean safelyAwaitTermination(Duration terminationLimit) {
+    private void removeAllTasks() {
+        logger.warning(String.format("Abandoning %d unfinished tasks", tasks.size()));
+        List<ScheduledTask> abandoned = new ArrayList<>(tasks.values());
+        tasks.clear();
+        for (ScheduledTask task : abandoned) {
+            task.cancel();
+            task.complete(false);
+        }
+    }
+
+    private void submit(ScheduledTask task) {
         try {
-            return executors.awaitTermination(terminationLimit.toMillis(), TimeUnit.MILLISECONDS);
-        } catch (InterruptedException ex) {
-            logger.severe("awaitTermination during gentleShutdown has been terminated!");
-            return false;
+            if (task.isBlocking()) {
+                blockingExecutor.execute(task);
+            } else {
+                workers.execute(task);
+            }
+        } catch (RejectedExecutionException ex) {
+            logger.warning(String.format("Task %s rejected, scheduler has been shut down or its pool is saturated",
+                    task.getTask().id));
+            removeTask(task);
+            task.complete(false);
+        }
+    }
+
+    private void submitAfter(ScheduledTask task, long delayNanos) {
+        try {
+            task.setTimer(timerWheel.schedule(() -> submit(task), delayNanos));
+        } catch (RejectedExecutionException ex) {
+            logger.warning(String.format("Task %s rejected, scheduler has been shut down", task.getTask().id));
+            removeTask(task);
+            task.complete(false);
+        }
+    }
+
+    /**
+     * Runs a single slice and decides what happens with task next. Task is requeued (or parked) only after it is
+     * unbound from current thread, so the next slice never overlaps with this one.
+     */
+    private void runSlice(ScheduledTask scheduled) {
+        runningSlices.incrementAndGet();
+        try {
+            if (!shuttingDown && scheduled.enter()) {
+                runEnteredSlice(scheduled);
+            }
+        } finally {
+            runningSlices.decrementAndGet();
+        }
+    }
+
+    private void runEnteredSlice(ScheduledTask scheduled) {
+        SliceEnd end;
+        RuntimeException failure = null;
+        TaskContext.enter(scheduled);
+        try {
+            end = runCycles(scheduled);
+        } catch (RuntimeException ex) {
+            end = SliceEnd.FAILED;
+            failure = ex;
+        } finally {
+            TaskContext.leave();
+            scheduled.exit();
+        }
+
+        if (end == SliceEnd.FAILED) {
+            fail(scheduled, failure);
+        } else if (end == SliceEnd.FINISHED) {
+            finish(scheduled);
+        } else if (scheduled.isCancelled() || shuttingDown) {
+            return;
+        } else if (end == SliceEnd.PARKED) {
+            if (!scheduled.park()) {
+                submit(scheduled);
+            }
+        } else if (end == SliceEnd.DELAYED) {
+            submitAfter(scheduled, scheduled.getNextCycleDelayNanos());
+        } else {
+            submit(scheduled);
         }
     }
 
-    private void mainTaskLoop(CyclingTask task) {
-        logger.info(String.format("Starting task %s", task.id.toString()));
-        int cycles = 0;
-        while (!task.getState().hasFinished()) {
-            task.runSingleCycle();
-            logger.fine(String.format("Task has finished cycle %s", cycles++));
-            task.evaluateTask();
+    private SliceEnd runCycles(ScheduledTask scheduled) {
+        CyclingTask task = scheduled.getTask();
+        if (scheduled.markStarted()) {
+            logger.info(() -> String.format("Starting task %s", task.id.toString()));
         }
 
-        logger.info(String.format("Finalizing task %s", task.id.toString()));
-        AppRootLogic.getEventDispatcher().notifyEvent(new TaskFinishedEvent(task));
-        synchronized (mutex) {
-            tasks.remove(task.id);
-            logger.fine(String.format("Task cleanup finished: %s", task.id.toString()));
+        long deadline = System.nanoTime() + SLICE_TIME_LIMIT_NANOS;
+        for (int cycle = 0; cycle < cyclesPerSlice && !scheduled.isCancelled(); ++cycle) {
+            runCycle(scheduled);
+            if (task.getState().hasFinished()) {
+                return SliceEnd.FINISHED;
+            }
+            if (scheduled.consumeIdleReport()) {
+                return SliceEnd.PARKED;
+            }
+            if (scheduled.takeNextCycleDelay() > 0) {
+                return SliceEnd.DELAYED;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        return SliceEnd.YIELDED;
+    }
+
+    private void runCycle(ScheduledTask scheduled) {
+        CyclingTask task = scheduled.getTask();
+        long cycle = scheduled.nextCycle();
+        TaskCycleJfrEvent cycleEvent = TaskCycleJfrEvent.beginIfEnabled();
+        task.runSingleCycle();
+        task.evaluateTask();
+        if (cycleEvent != null) {
+            cycleEvent.finish(scheduled, cycle);
+        }
+    }
+
+    private void runToCompletion(ScheduledTask scheduled) {
+        runningSlices.incrementAndGet();
+        try {
+            if (!shuttingDown && scheduled.enter()) {
+                runEnteredToCompletion(scheduled);
+            }
+        } finally {
+            runningSlices.decrementAndGet();
         }
     }
+
+    private void runEnteredToCompletion(ScheduledTask scheduled) {
+        CyclingTask task = scheduled.getTask();
+        scheduled.markStarted();
+        logger.info(() -> String.format("Starting blocking task %s", task.id.toString()));
+        RuntimeException failure = null;
+        TaskContext.enter(scheduled);
+        try {
+            while (!task.getState().hasFinished() && !scheduled.isCancelled() && !shuttingDown) {
+                runCycle(scheduled);
+                long delayNanos = scheduled.takeNextCycleDelay();
+                if (delayNanos > 0 && !task.getState().hasFinished()) {
+                    LockSupport.parkNanos(delayNanos);
+                }
+            }
+        } catch (RuntimeException ex) {
+            failure = ex;
+        } finally {
+            TaskContext.leave();
+            scheduled.exit();
+        }
+        if (failure != null) {
+            fail(scheduled, failure);
+        } else if (task.getState().hasFinished()) {
+            finish(scheduled);
+        }
+    }
+
+    private void finish(ScheduledTask scheduled) {
+        CyclingTask task = scheduled.getTask();
+        logger.info(() -> String.format("Finalizing task %s", task.id.toString()));
+        scheduled.complete(task.getState() != TaskState.ERROR);
+        TaskFinishedJfrEvent.record(scheduled);
+        removeTask(scheduled);
+        EventPublisher.of(AppRootLogic.getEventDispatcher()).publish(new TaskFinishedEvent(task));
+        logger.fine(() -> String.format("Task cleanup finished: %s", task.id.toString()));
+    }
+
+    /**
+     * Removes task whose cycle has thrown instead of finishing, reporting it as failed.
+     */
+    private void fail(ScheduledTask scheduled, RuntimeException failure) {
+        CyclingTask task = scheduled.getTask();
+        logger.log(Level.WARNING, String.format("Task %s has thrown during its cycle, removing it", task.id), failure);
+        scheduled.complete(false, failure);
+        TaskFinishedJfrEvent.record(scheduled);
+        removeTask(scheduled);
+        EventPublisher.of(AppRootLogic.getEventDispatcher()).publish(new TaskFinishedEvent(task));
+    }
+
+    private void removeTask(ScheduledTask scheduled) {
+        tasks.remove(scheduled.getTask().id, scheduled);
+    }
+
+    private enum SliceEnd {
+        FINISHED, PARKED, DELAYED, YIELDED, FAILED
+    }
 }
@@ -0,0 +1,91 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Configuration of a single named pool of ExecutorSubsystem, read from properties prefixed with
+ * executors.pool.[name]. Any missing property falls back to its default.
+ */
+public class ExecutorPoolConfig {
+    static final String POOL_PREFIX = "executors.pool.";
+    private static final int DEFAULT_CORE_SIZE = 0;
+    private static final int DEFAULT_MAX_SIZE = 4 * Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_QUEUE_CAPACITY = 0;
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final int coreSize;
+    private final int maxSize;
+    private final int queueCapacity;
+    private final Duration keepAlive;
+    private final String threadNamePrefix;
+    private final boolean daemon;
+    private final RejectionPolicy rejectionPolicy;
+
+    /**
+     * @param queueCapacity number of tasks waiting for a thread, 0 means tasks are handed over to threads directly
+     */
+    public ExecutorPoolConfig(String name, int coreSize, int maxSize, int queueCapacity, Duration keepAlive,
+                              String threadNamePrefix, boolean daemon, RejectionPolicy rejectionPolicy) {
+        if (coreSize < 0 || maxSize < 1 || coreSize > maxSize || queueCapacity < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid sizes of pool %s: core %d, max %d, queue %d", name, coreSize, maxSize, queueCapacity));
+        }
+        this.name = name;
+        this.coreSize = coreSize;
+        this.maxSize = maxSize;
+        this.queueCapacity = queueCapacity;
+        this.keepAlive = keepAlive;
+        this.threadNamePrefix = threadNamePrefix;
+        this.daemon = daemon;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public static ExecutorPoolConfig fromProperties(String name, Properties properties) {
+        String prefix = POOL_PREFIX + name + ".";
+        return new ExecutorPoolConfig(
+                name,
+                Integer.parseInt(properties.getProperty(prefix + "coreSize", Integer.toString(DEFAULT_CORE_SIZE))),
+                Integer.parseInt(properties.getProperty(prefix + "maxSize", Integer.toString(DEFAULT_MAX_SIZE))),
+                Integer.parseInt(properties.getProperty(
+                        prefix + "queueCapacity", Integer.toString(DEFAULT_QUEUE_CAPACITY))),
+                Duration.ofSeconds(Long.parseLong(properties.getProperty(
+                        prefix + "keepAliveSeconds", Long.toString(DEFAULT_KEEP_ALIVE_SECONDS)))),
+                properties.getProperty(prefix + "threadNamePrefix", name),
+                Boolean.parseBoolean(properties.getProperty(prefix + "daemon", "true")),
+                RejectionPolicy.valueOf(properties.getProperty(prefix + "rejectionPolicy", RejectionPolicy.ABORT.name())));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCoreSize() {
+        return coreSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+}
@@ -0,0 +1,72 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Point-in-time view of a single pool of ExecutorSubsystem, as exposed over JMX.
+ */
+public class ExecutorPoolStatistics {
+    private final String name;
+    private final boolean virtual;
+    private final int poolSize;
+    private final int activeThreads;
+    private final int largestPoolSize;
+    private final int maxSize;
+    private final int queuedTasks;
+    private final long completedTasks;
+    private final long rejectedTasks;
+
+    @ConstructorProperties({"name", "virtual", "poolSize", "activeThreads", "largestPoolSize", "maxSize",
+            "queuedTasks", "completedTasks", "rejectedTasks"})
+    public ExecutorPoolStatistics(String name, boolean virtual, int poolSize, int activeThreads, int largestPoolSize,
+                                  int maxSize, int queuedTasks, long completedTasks, long rejectedTasks) {
+        this.name = name;
+        this.virtual = virtual;
+        this.poolSize = poolSize;
+        this.activeThreads = activeThreads;
+        this.largestPoolSize = largestPoolSize;
+        this.maxSize = maxSize;
+        this.queuedTasks = queuedTasks;
+        this.completedTasks = completedTasks;
+        this.rejectedTasks = rejectedTasks;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if pool starts a virtual thread per task, in which case thread counts are not tracked
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    public int getLargestPoolSize() {
+        return largestPoolSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks;
+    }
+}
@@ -0,0 +1,269 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownCoordinator;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownParticipant;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Named executor pools shared by desktop components, configured from executors.properties (see ExecutorPoolConfig).
+ * Every pool is bounded, has named threads and counts rejected tasks, which makes thread usage observable over JMX.
+ *
+ * With executors.virtualThreads=true, on runtimes supporting virtual threads every pool starts a virtual thread per
+ * task instead; on older runtimes the setting is ignored with a warning.
+ */
+public class ExecutorSubsystem implements ExecutorSubsystemMXBean, ShutdownParticipant {
+    public static final String CONFIG_RESOURCE = "/executors.properties";
+    public static final String CONFIG_FILE_PROPERTY = "charactersheet.executors.config.file";
+    public static final String DEFAULT_OBJECT_NAME = "pl.trul.charactersheet.desktop:type=Executors";
+    static final String VIRTUAL_THREADS_PROPERTY = "executors.virtualThreads";
+
+    private final Properties properties;
+    private final boolean virtualThreadMode;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private Logger logger = Logger.getLogger(ExecutorSubsystem.class.getName());
+
+    public ExecutorSubsystem(Properties properties) {
+        this.properties = properties;
+        this.virtualThreadMode = Boolean.parseBoolean(properties.getProperty(VIRTUAL_THREADS_PROPERTY, "false"))
+                && virtualThreadsSupported();
+    }
+
+    /**
+     * Reads configuration from file given with CONFIG_FILE_PROPERTY system property, or from CONFIG_RESOURCE on
+     * classpath. Missing configuration means all pools use defaults.
+     */
+    public static ExecutorSubsystem load() {
+        Properties properties = new Properties();
+        String file = System.getProperty(CONFIG_FILE_PROPERTY);
+        try (InputStream in = file != null
+                ? new FileInputStream(file)
+                : ExecutorSubsystem.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(ExecutorSubsystem.class.getName()).log(
+                    Level.WARNING, "Unable to read executors configuration, using defaults", ex);
+        }
+        return new ExecutorSubsystem(properties);
+    }
+
+    /**
+     * @return pool of given name, created on first use from its configuration
+     */
+    public ExecutorService getPool(String name) {
+        return pools.computeIfAbsent(name, this::createPool).executor;
+    }
+
+    @Override
+    public boolean isVirtualThreadMode() {
+        return virtualThreadMode;
+    }
+
+    @Override
+    public List<ExecutorPoolStatistics> getPoolStatistics() {
+        List<ExecutorPoolStatistics> result = new ArrayList<>();
+        for (Pool pool : pools.values()) {
+            result.add(pool.getStatistics());
+        }
+        return result;
+    }
+
+    public void registerMBean(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException ex) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+        } catch (JMException ex) {
+            logger.log(Level.WARNING, "Unable to register executors as " + objectName, ex);
+        }
+    }
+
+    /**
+     * Shuts down all pools, waiting finalizationTime for their tasks and interrupting them if it is not enough.
+     */
+    public void gentleShutdown(Duration finalizationTime, Duration lastResortTime) {
+        new ShutdownCoordinator().shutdown(finalizationTime, lastResortTime, Collections.singletonList(this));
+    }
+
+    @Override
+    public void beginShutdown() {
+        logger.info("Gentle shutdown has begun");
+    }
+
+    /**
+     * Virtual thread pools do not expose their activity, so they are always considered quiescent.
+     */
+    @Override
+    public boolean isQuiescent() {
+        for (Pool pool : pools.values()) {
+            ExecutorPoolStatistics statistics = pool.getStatistics();
+            if (statistics.getActiveThreads() > 0 || statistics.getQueuedTasks() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> getStragglers() {
+        List<String> stragglers = new ArrayList<>();
+        for (Pool pool : pools.values()) {
+            ExecutorPoolStatistics statistics = pool.getStatistics();
+            if (statistics.getActiveThreads() > 0 || statistics.getQueuedTasks() > 0) {
+                stragglers.add(String.format("pool %s has %d active threads and %d queued tasks",
+                        statistics.getName(), statistics.getActiveThreads(), statistics.getQueuedTasks()));
+            }
+        }
+        return stragglers;
+    }
+
+    @Override
+    public void release() {
+        pools.values().forEach(pool -> pool.executor.shutdown());
+    }
+
+    @Override
+    public void forceShutdown() {
+        logger.warning("Last resort shutdown has begun!");
+        pools.values().forEach(pool -> pool.executor.shutdownNow());
+    }
+
+    @Override
+    public boolean awaitTermination(long deadlineNanos) throws InterruptedException {
+        for (Pool pool : pools.values()) {
+            if (!pool.executor.awaitTermination(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Pool createPool(String name) {
+        ExecutorPoolConfig config = ExecutorPoolConfig.fromProperties(name, properties);
+        if (virtualThreadMode) {
+            logger.info(String.format("Creating virtual thread pool %s", name));
+            return new Pool(config, createVirtualThreadExecutor(config.getThreadNamePrefix()), null);
+        }
+
+        logger.info(String.format("Creating pool %s (core %d, max %d, queue %d, %s)", name, config.getCoreSize(),
+                config.getMaxSize(), config.getQueueCapacity(), config.getRejectionPolicy()));
+        BlockingQueue<Runnable> queue = config.getQueueCapacity() == 0
+                ? new SynchronousQueue<>()
+                : new ArrayBlockingQueue<>(config.getQueueCapacity());
+        CountingRejectionHandler rejectionHandler =
+                new CountingRejectionHandler(config.getRejectionPolicy().createHandler());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                config.getCoreSize(), config.getMaxSize(), config.getKeepAlive().toNanos(), TimeUnit.NANOSECONDS,
+                queue, new NamedThreadFactory(config.getThreadNamePrefix(), config.isDaemon()), rejectionHandler);
+        return new Pool(config, executor, rejectionHandler);
+    }
+
+    private static boolean virtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            Logger.getLogger(ExecutorSubsystem.class.getName()).warning(
+                    "Virtual threads are not supported by this runtime, using platform thread pools");
+            return false;
+        }
+    }
+
+    /**
+     * Equivalent of Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 0).factory()),
+     * called reflectively so the code still builds and runs on Java 8.
+     */
+    private static ExecutorService createVirtualThreadExecutor(String threadNamePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, threadNamePrefix + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Unable to create virtual thread executor", ex);
+        }
+    }
+
+    private static final class Pool {
+        private final ExecutorPoolConfig config;
+        private final ExecutorService executor;
+        private final CountingRejectionHandler rejectionHandler;
+
+        private Pool(ExecutorPoolConfig config, ExecutorService executor, CountingRejectionHandler rejectionHandler) {
+            this.config = config;
+            this.executor = executor;
+            this.rejectionHandler = rejectionHandler;
+        }
+
+        ExecutorPoolStatistics getStatistics() {
+            if (!(executor instanceof ThreadPoolExecutor)) {
+                return new ExecutorPoolStatistics(config.getName(), true, 0, 0, 0, 0, 0, 0, 0);
+            }
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            return new ExecutorPoolStatistics(config.getName(), false, pool.getPoolSize(), pool.getActiveCount(),
+                    pool.getLargestPoolSize(), pool.getMaximumPoolSize(), pool.getQueue().size(),
+                    pool.getCompletedTaskCount(), rejectionHandler.rejected.sum());
+        }
+    }
+
+    /**
+     * Counts tasks rejected by saturated pool before applying its policy. Tasks submitted after shutdown are always
+     * rejected with exception, as CALLER_RUNS and DISCARD policies would silently drop them and their submitters
+     * could not tell.
+     */
+    private static final class CountingRejectionHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler policy;
+        private final LongAdder rejected = new LongAdder();
+
+        private CountingRejectionHandler(RejectedExecutionHandler policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Task " + r + " submitted after pool has been shut down");
+            }
+            rejected.increment();
+            policy.rejectedExecution(r, executor);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import java.util.List;
+
+/**
+ * JMX view of executor pools shared by desktop components.
+ */
+public interface ExecutorSubsystemMXBean {
+    List<ExecutorPoolStatistics> getPoolStatistics();
+
+    boolean isVirtualThreadMode();
+}
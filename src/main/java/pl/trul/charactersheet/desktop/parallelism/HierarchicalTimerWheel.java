@@ -0,0 +1,273 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hierarchical hashed timer wheel: LEVELS wheels of WHEEL_SIZE buckets each, every level covering WHEEL_SIZE times
+ * longer span than the previous one. Timeouts far away in time sit in coarse buckets and are cascaded to finer ones
+ * as their deadline approaches, so tens of thousands of pending timeouts cost nothing until they are due.
+ *
+ * Scheduling and cancelling are O(1): both only push timeout into a lock-free queue drained by the single timer
+ * thread, which owns all buckets. Timer thread only wakes up when a bucket is due (at least once per WHEEL_SIZE
+ * ticks while anything is pending), and does not wake up at all while there are no pending timeouts.
+ * Expired actions run on timer thread, so they must be short (like submitting a task to an executor).
+ */
+public class HierarchicalTimerWheel {
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(1);
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_SPAN_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final Timeout[][] buckets = new Timeout[LEVELS][WHEEL_SIZE];
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+    private final Thread worker;
+    private Logger logger = Logger.getLogger(HierarchicalTimerWheel.class.getName());
+    private long currentTick = 0;
+    private int timeoutsInBuckets = 0;
+    private volatile boolean sleeping = false;
+    private volatile boolean running = true;
+
+    public HierarchicalTimerWheel(String threadName, Duration tick) {
+        tickNanos = tick.toNanos();
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick has to be positive, got " + tick);
+        }
+        for (Timeout[] level : buckets) {
+            for (int i = 0; i < WHEEL_SIZE; ++i) {
+                level[i] = Timeout.sentinel();
+            }
+        }
+        worker = new Thread(this::workerLoop, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules action to be run on timer thread once delay passes, rounded up to whole ticks.
+     * @throws RejectedExecutionException if wheel has been stopped
+     */
+    public Timeout schedule(Runnable action, long delayNanos) {
+        if (!running) {
+            throw new RejectedExecutionException("Timer wheel has been stopped");
+        }
+        Timeout timeout = new Timeout(this, action, System.nanoTime() + Math.max(0, delayNanos));
+        pendingTimeouts.incrementAndGet();
+        added.add(timeout);
+        if (sleeping) {
+            LockSupport.unpark(worker);
+        }
+        return timeout;
+    }
+
+    public int getPendingCount() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Stops timer thread, pending timeouts are never run.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void workerLoop() {
+        while (running) {
+            waitForNextTick();
+            long elapsedTicks = (System.nanoTime() - startNanos) / tickNanos;
+            transferCancelled();
+            if (timeoutsInBuckets == 0) {
+                currentTick = Math.max(currentTick, elapsedTicks);
+            }
+            transferAdded();
+            while (currentTick < elapsedTicks) {
+                ++currentTick;
+                cascade();
+                expire(buckets[0][(int) (currentTick & WHEEL_MASK)]);
+            }
+        }
+    }
+
+    /**
+     * Sleeps until the next tick with anything to expire or cascade, or until a new timeout is scheduled.
+     */
+    private void waitForNextTick() {
+        sleeping = true;
+        if (added.isEmpty() && running) {
+            if (pendingTimeouts.get() == 0) {
+                LockSupport.park(this);
+            } else {
+                long remaining = startNanos + nextEventTick() * tickNanos - System.nanoTime();
+                if (remaining > 0) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+        }
+        sleeping = false;
+    }
+
+    private long nextEventTick() {
+        long nextCascade = (currentTick | WHEEL_MASK) + 1;
+        for (long tick = currentTick + 1; tick < nextCascade; ++tick) {
+            Timeout head = buckets[0][(int) (tick & WHEEL_MASK)];
+            if (head.next != head) {
+                return tick;
+            }
+        }
+        return nextCascade;
+    }
+
+    private void transferAdded() {
+        for (Timeout timeout = added.poll(); timeout != null; timeout = added.poll()) {
+            if (!timeout.isCancelled()) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void transferCancelled() {
+        for (Timeout timeout = cancelled.poll(); timeout != null; timeout = cancelled.poll()) {
+            if (timeout.isLinked()) {
+                timeout.unlink();
+                --timeoutsInBuckets;
+            }
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long deadlineTick = (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+        long delta = Math.min(deadlineTick - currentTick, MAX_SPAN_TICKS);
+        if (delta <= 0) {
+            run(timeout);
+            return;
+        }
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS;
+        int slot = (int) (((currentTick + delta) >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        buckets[level][slot].linkBefore(timeout);
+        ++timeoutsInBuckets;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; ++level) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Timeout head = buckets[level][(int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+            for (Timeout timeout = head.next; timeout != head; timeout = head.next) {
+                timeout.unlink();
+                --timeoutsInBuckets;
+                place(timeout);
+            }
+        }
+    }
+
+    private void expire(Timeout head) {
+        for (Timeout timeout = head.next; timeout != head; timeout = head.next) {
+            timeout.unlink();
+            --timeoutsInBuckets;
+            run(timeout);
+        }
+    }
+
+    private void run(Timeout timeout) {
+        if (!timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+            return;
+        }
+        pendingTimeouts.decrementAndGet();
+        try {
+            timeout.action.run();
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Timer action failed", t);
+        }
+    }
+
+    /**
+     * Handle of a scheduled action. Doubly linked into its bucket, links are touched by timer thread only.
+     */
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final HierarchicalTimerWheel wheel;
+        private final Runnable action;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(HierarchicalTimerWheel wheel, Runnable action, long deadlineNanos) {
+            this.wheel = wheel;
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        private static Timeout sentinel() {
+            Timeout sentinel = new Timeout(null, null, 0);
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        /**
+         * @return false if action has already been run (or cancelled)
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pendingTimeouts.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private boolean isLinked() {
+            return next != null;
+        }
+
+        private void linkBefore(Timeout timeout) {
+            timeout.previous = previous;
+            timeout.next = this;
+            previous.next = timeout;
+            previous = timeout;
+        }
+
+        private void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = null;
+            next = null;
+        }
+    }
+}
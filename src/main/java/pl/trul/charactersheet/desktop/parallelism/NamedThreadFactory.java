@@ -0,0 +1,25 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates threads named prefix-N, so they can be told apart in thread dumps and profilers.
+ */
+public class NamedThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final boolean daemon;
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public NamedThreadFactory(String prefix, boolean daemon) {
+        this.prefix = prefix;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + nextId.getAndIncrement());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+}
@@ -0,0 +1,48 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * What pool of ExecutorSubsystem does with a task once all of its threads are busy and its queue is full.
+ */
+public enum RejectionPolicy {
+    /**
+     * Throws RejectedExecutionException to the submitter.
+     */
+    ABORT {
+        @Override
+        RejectedExecutionHandler createHandler() {
+            return new ThreadPoolExecutor.AbortPolicy();
+        }
+    },
+    /**
+     * Runs task on submitting thread, slowing submitters down.
+     */
+    CALLER_RUNS {
+        @Override
+        RejectedExecutionHandler createHandler() {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+    },
+    /**
+     * Silently drops the task.
+     */
+    DISCARD {
+        @Override
+        RejectedExecutionHandler createHandler() {
+            return new ThreadPoolExecutor.DiscardPolicy();
+        }
+    },
+    /**
+     * Drops the oldest queued task and retries submission.
+     */
+    DISCARD_OLDEST {
+        @Override
+        RejectedExecutionHandler createHandler() {
+            return new ThreadPoolExecutor.DiscardOldestPolicy();
+        }
+    };
+
+    abstract RejectedExecutionHandler createHandler();
+}
@@ -0,0 +1,260 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * CyclingTask together with its cooperative scheduling state. The same instance is resubmitted after every
+ * slice, so requeueing does not allocate.
+ *
+ * Wake-ups racing with parking are never lost: a wake-up requested while task is still running makes parking fail.
+ * Cancellation interrupts thread running the task, but only while it runs this task.
+ */
+class ScheduledTask implements Runnable {
+    private final CyclingTask task;
+    private final boolean blocking;
+    private final Consumer<ScheduledTask> runner;
+    private final AtomicBoolean parked = new AtomicBoolean(false);
+    private final AtomicBoolean wakeRequested = new AtomicBoolean(false);
+    private final AtomicBoolean launched = new AtomicBoolean(false);
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private TaskCompletionListener completionListener = null;
+    private final long periodNanos;
+    private final long fixedDelayNanos;
+    private long nextRunNanos;
+    private long requestedDelayNanos = -1;
+    private boolean idleReported = false;
+    private volatile boolean started = false;
+    private volatile HierarchicalTimerWheel.Timeout timer = null;
+    private volatile boolean cancelled = false;
+    private Thread runningThread = null;
+    private long enteredNanos = 0;
+    private long nextCycleDelayNanos = 0;
+    private final AtomicLong cycles = new AtomicLong();
+
+    ScheduledTask(CyclingTask task, boolean blocking, Consumer<ScheduledTask> runner) {
+        this(task, blocking, runner, 0, 0, 0);
+    }
+
+    /**
+     * @param initialDelayNanos delay of the first cycle, counted from now
+     * @param periodNanos if positive, cycles are started at fixed rate with this period
+     * @param fixedDelayNanos if positive, every cycle is started this long after the previous one has ended
+     */
+    ScheduledTask(CyclingTask task, boolean blocking, Consumer<ScheduledTask> runner,
+                  long initialDelayNanos, long periodNanos, long fixedDelayNanos) {
+        this.task = task;
+        this.blocking = blocking;
+        this.runner = runner;
+        this.periodNanos = periodNanos;
+        this.fixedDelayNanos = fixedDelayNanos;
+        this.nextRunNanos = System.nanoTime() + Math.max(0, initialDelayNanos);
+    }
+
+    @Override
+    public void run() {
+        runner.accept(this);
+    }
+
+    CyclingTask getTask() {
+        return task;
+    }
+
+    boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Must be set before task is scheduled.
+     */
+    ScheduledTask withCompletionListener(TaskCompletionListener listener) {
+        this.completionListener = listener;
+        return this;
+    }
+
+    /**
+     * Notifies completion listener, only the first call for given task has any effect.
+     */
+    void complete(boolean succeeded) {
+        complete(succeeded, null);
+    }
+
+    void complete(boolean succeeded, Throwable failure) {
+        if (completionListener != null && completed.compareAndSet(false, true)) {
+            completionListener.taskCompleted(task, succeeded, failure);
+        }
+    }
+
+    /**
+     * @return true on the first call only, guards against starting task twice
+     */
+    boolean tryLaunch() {
+        return launched.compareAndSet(false, true);
+    }
+
+    /**
+     * Binds task to calling thread for the duration of a slice.
+     * @return false if task has been cancelled and must not run
+     */
+    synchronized boolean enter() {
+        if (cancelled) {
+            return false;
+        }
+        runningThread = Thread.currentThread();
+        enteredNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Unbinds task from calling thread, clearing interruption caused by cancellation so it does not leak into
+     * other tasks run by the same thread.
+     */
+    synchronized void exit() {
+        runningThread = null;
+        if (cancelled) {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * @return description of slice being run, null if task is not running
+     */
+    synchronized String describeRunningSlice() {
+        if (runningThread == null) {
+            return null;
+        }
+        return String.format("task %s running slice for %d ms (%d cycles so far) on %s", task.id,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enteredNanos), cycles.get(), runningThread.getName());
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (runningThread != null) {
+            runningThread.interrupt();
+        }
+        cancelTimer();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true on the first call only
+     */
+    boolean markStarted() {
+        if (started) {
+            return false;
+        }
+        started = true;
+        return true;
+    }
+
+    /**
+     * Must only be called by thread which has entered the task.
+     * @return number of the cycle about to run, starting with 1
+     */
+    long nextCycle() {
+        return cycles.incrementAndGet();
+    }
+
+    /**
+     * May be called by any thread, like the one cancelling the task.
+     */
+    long getCycles() {
+        return cycles.get();
+    }
+
+    /**
+     * @return how long to wait before the first cycle, counted from now
+     */
+    long getInitialDelayNanos() {
+        return Math.max(0, nextRunNanos - System.nanoTime());
+    }
+
+    void requestDelay(long delayNanos) {
+        requestedDelayNanos = Math.max(0, delayNanos);
+    }
+
+    /**
+     * Consumes delay requested during last cycle, or computes the one resulting from task's rate or fixed delay.
+     * @return delay before the next cycle, -1 if task should just continue
+     */
+    long takeNextCycleDelay() {
+        nextCycleDelayNanos = computeNextCycleDelay();
+        return nextCycleDelayNanos;
+    }
+
+    /**
+     * @return delay returned by the last call to takeNextCycleDelay
+     */
+    long getNextCycleDelayNanos() {
+        return nextCycleDelayNanos;
+    }
+
+    private long computeNextCycleDelay() {
+        long requested = requestedDelayNanos;
+        requestedDelayNanos = -1;
+        if (periodNanos > 0) {
+            nextRunNanos += periodNanos;
+        }
+        if (requested >= 0) {
+            return requested;
+        }
+        if (periodNanos > 0) {
+            return Math.max(0, nextRunNanos - System.nanoTime());
+        }
+        if (fixedDelayNanos > 0) {
+            return fixedDelayNanos;
+        }
+        return -1;
+    }
+
+    void setTimer(HierarchicalTimerWheel.Timeout timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Cancels pending timer of delayed task, if there is any.
+     */
+    void cancelTimer() {
+        HierarchicalTimerWheel.Timeout current = timer;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    void reportIdle() {
+        idleReported = true;
+    }
+
+    boolean consumeIdleReport() {
+        boolean result = idleReported;
+        idleReported = false;
+        return result;
+    }
+
+    /**
+     * @return false if task has been woken in the meantime and should be resubmitted right away
+     */
+    boolean park() {
+        parked.set(true);
+        return !(wakeRequested.getAndSet(false) && parked.compareAndSet(true, false));
+    }
+
+    /**
+     * @return true if task has been parked and caller is responsible for resubmitting it
+     */
+    boolean wake() {
+        wakeRequested.set(true);
+        if (parked.compareAndSet(true, false)) {
+            wakeRequested.set(false);
+            return true;
+        }
+        return false;
+    }
+}
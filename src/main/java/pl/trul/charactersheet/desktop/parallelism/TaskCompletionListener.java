@@ -0,0 +1,13 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+
+/**
+ * Called by scheduler exactly once per task, when it finishes, is cancelled or abandoned.
+ */
+interface TaskCompletionListener {
+    /**
+     * @param failure exception which has made task fail, null if task has succeeded or its failure has no cause
+     */
+    void taskCompleted(CyclingTask task, boolean succeeded, Throwable failure);
+}
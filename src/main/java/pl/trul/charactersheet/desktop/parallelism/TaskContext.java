@@ -0,0 +1,54 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import java.rmi.server.UID;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Gives CyclingTask actions access to the cooperative scheduler running them. Calls made outside of a task
+ * scheduled by AsynchronousTaskScheduler have no effect.
+ */
+public final class TaskContext {
+    private static final ThreadLocal<ScheduledTask> current = new ThreadLocal<>();
+
+    private TaskContext() {
+    }
+
+    /**
+     * Reports that task has nothing to do for now. Once current cycle ends, task is parked and does not run again
+     * until it is woken with AsynchronousTaskScheduler.wakeTask.
+     */
+    public static void reportIdle() {
+        ScheduledTask task = current.get();
+        if (task != null) {
+            task.reportIdle();
+        }
+    }
+
+    /**
+     * Requests that the next cycle of task starts no sooner than delay after the current one ends. Task does not
+     * hold any thread while waiting.
+     */
+    public static void delayNextCycle(Duration delay) {
+        ScheduledTask task = current.get();
+        if (task != null) {
+            task.requestDelay(delay.toNanos());
+        }
+    }
+
+    /**
+     * @return id of task running on calling thread, empty if there is none
+     */
+    public static Optional<UID> currentTaskId() {
+        ScheduledTask task = current.get();
+        return task == null ? Optional.empty() : Optional.of(task.getTask().id);
+    }
+
+    static void enter(ScheduledTask task) {
+        current.set(task);
+    }
+
+    static void leave() {
+        current.remove();
+    }
+}
@@ -0,0 +1,56 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import jdk.jfr.Category;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event spanning a single task cycle (runSingleCycle followed by evaluateTask). Only cycles
+ * longer than threshold (10 ms unless overridden in recording settings) are recorded, so it is cheap enough to
+ * be left on during continuous recording. Schedulers do not even create it while no recording has it enabled.
+ */
+@Name("pl.trul.charactersheet.TaskCycle")
+@Label("Task Cycle")
+@Category({"Charactersheet", "Tasks"})
+@Threshold("10 ms")
+@StackTrace(false)
+class TaskCycleJfrEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(TaskCycleJfrEvent.class);
+
+    @Label("Task Id")
+    String taskId;
+
+    @Label("Cycle")
+    long cycle;
+
+    @Label("State After Cycle")
+    String state;
+
+    /**
+     * @return event which has begun, null if no recording has it enabled
+     */
+    static TaskCycleJfrEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        TaskCycleJfrEvent event = new TaskCycleJfrEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends event begun before the cycle and commits it if it has been slow enough.
+     */
+    void finish(ScheduledTask task, long cycle) {
+        end();
+        if (shouldCommit()) {
+            this.taskId = task.getTask().id.toString();
+            this.cycle = cycle;
+            this.state = task.getTask().getState().toString();
+            commit();
+        }
+    }
+}
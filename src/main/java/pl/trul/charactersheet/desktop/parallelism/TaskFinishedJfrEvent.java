@@ -0,0 +1,38 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when task leaves AsynchronousTaskScheduler, whether finished or cancelled.
+ */
+@Name("pl.trul.charactersheet.TaskFinished")
+@Label("Task Finished")
+@Category({"Charactersheet", "Tasks"})
+@StackTrace(false)
+class TaskFinishedJfrEvent extends jdk.jfr.Event {
+    @Label("Task Id")
+    String taskId;
+
+    @Label("Final State")
+    String state;
+
+    @Label("Cycles")
+    long cycles;
+
+    @Label("Cancelled")
+    boolean cancelled;
+
+    static void record(ScheduledTask task) {
+        TaskFinishedJfrEvent event = new TaskFinishedJfrEvent();
+        if (event.shouldCommit()) {
+            event.taskId = task.getTask().id.toString();
+            event.state = task.getTask().getState().toString();
+            event.cycles = task.getCycles();
+            event.cancelled = task.isCancelled();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+
+import java.rmi.server.UID;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Definition of a job made of CyclingTasks with declared dependencies, to be run with
+ * AsynchronousTaskScheduler.scheduleGraph. Dependencies have to be added before their dependents, which keeps
+ * the graph acyclic by construction. Graph may be extended or reused once scheduled, as execution works on a copy.
+ */
+public class TaskGraph {
+    private final List<CyclingTask> tasks = new ArrayList<>();
+    private final List<List<Integer>> dependents = new ArrayList<>();
+    private final List<Integer> dependencyCounts = new ArrayList<>();
+    private final Map<UID, Integer> indices = new HashMap<>();
+
+    /**
+     * Adds task, which will only be started once all of its dependencies are finished successfully.
+     */
+    public TaskGraph addTask(CyclingTask task, CyclingTask... dependencies) {
+        if (indices.containsKey(task.id)) {
+            throw new IllegalArgumentException(String.format("Task %s has already been added", task.id));
+        }
+        int index = tasks.size();
+        for (CyclingTask dependency : dependencies) {
+            Integer dependencyIndex = indices.get(dependency.id);
+            if (dependencyIndex == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Dependency %s has to be added before its dependents", dependency.id));
+            }
+            dependents.get(dependencyIndex).add(index);
+        }
+        tasks.add(task);
+        dependents.add(new ArrayList<>());
+        dependencyCounts.add(dependencies.length);
+        indices.put(task.id, index);
+        return this;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    CyclingTask getTask(int index) {
+        return tasks.get(index);
+    }
+
+    int getDependencyCount(int index) {
+        return dependencyCounts.get(index);
+    }
+
+    List<Integer> getDependents(int index) {
+        return Collections.unmodifiableList(dependents.get(index));
+    }
+}
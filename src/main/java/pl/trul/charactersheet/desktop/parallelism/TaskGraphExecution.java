@@ -0,0 +1,169 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+
+import java.rmi.server.UID;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Running instance of a TaskGraph. Tasks are released straight from completion of their last dependency, without
+ * going through the event dispatcher; independent branches run in parallel. Once a task fails (or is cancelled),
+ * all tasks depending on it, directly or not, are skipped. A task which could not be released fails as well.
+ *
+ * Structure of the graph is copied on creation, so the graph may be changed or reused while it runs.
+ */
+public class TaskGraphExecution {
+    private static final int PENDING = 0;
+    private static final int RELEASED = 1;
+    private static final int SKIPPED = 2;
+    private static final int COMPLETED = 3;
+
+    private final CyclingTask[] tasks;
+    private final int[][] dependents;
+    private final BiConsumer<CyclingTask, TaskCompletionListener> release;
+    private final AtomicIntegerArray remainingDependencies;
+    private final AtomicIntegerArray states;
+    private final AtomicInteger unfinishedTasks;
+    private final Set<UID> failedTasks = ConcurrentHashMap.newKeySet();
+    private final Set<UID> skippedTasks = ConcurrentHashMap.newKeySet();
+    private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    TaskGraphExecution(TaskGraph graph, BiConsumer<CyclingTask, TaskCompletionListener> release) {
+        this.release = release;
+        this.tasks = new CyclingTask[graph.size()];
+        this.dependents = new int[graph.size()][];
+        this.remainingDependencies = new AtomicIntegerArray(graph.size());
+        this.states = new AtomicIntegerArray(graph.size());
+        this.unfinishedTasks = new AtomicInteger(graph.size());
+        for (int i = 0; i < graph.size(); ++i) {
+            tasks[i] = graph.getTask(i);
+            List<Integer> taskDependents = graph.getDependents(i);
+            dependents[i] = new int[taskDependents.size()];
+            for (int j = 0; j < dependents[i].length; ++j) {
+                dependents[i][j] = taskDependents.get(j);
+            }
+            remainingDependencies.set(i, graph.getDependencyCount(i));
+        }
+    }
+
+    /**
+     * Waits until every task of graph has either finished or been skipped, for no longer than given duration.
+     * @throws ExecutionException if any of tasks has failed, caused by the first known failure with the other ones
+     *                            suppressed
+     */
+    public void block(Duration d) throws ExecutionException, InterruptedException, TimeoutException {
+        if (!finished.await(d.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException(String.format(
+                    "%d tasks of graph still unfinished after %s", unfinishedTasks.get(), d));
+        }
+        if (!failedTasks.isEmpty()) {
+            String message = String.format(
+                    "%d tasks of graph failed, %d skipped", failedTasks.size(), skippedTasks.size());
+            Iterator<Throwable> causes = failures.iterator();
+            if (!causes.hasNext()) {
+                throw new ExecutionException(new IllegalStateException(message));
+            }
+            ExecutionException ex = new ExecutionException(message, causes.next());
+            causes.forEachRemaining(ex::addSuppressed);
+            throw ex;
+        }
+    }
+
+    public boolean hasFinished() {
+        return unfinishedTasks.get() == 0;
+    }
+
+    public Set<UID> getFailedTasks() {
+        return Collections.unmodifiableSet(failedTasks);
+    }
+
+    public Set<UID> getSkippedTasks() {
+        return Collections.unmodifiableSet(skippedTasks);
+    }
+
+    void start() {
+        if (tasks.length == 0) {
+            finished.countDown();
+            return;
+        }
+        for (int i = 0; i < tasks.length; ++i) {
+            if (remainingDependencies.get(i) == 0) {
+                releaseTask(i);
+            }
+        }
+    }
+
+    private void releaseTask(int index) {
+        if (states.compareAndSet(index, PENDING, RELEASED)) {
+            try {
+                release.accept(tasks[index], (task, succeeded, failure) -> taskCompleted(index, succeeded, failure));
+            } catch (RuntimeException ex) {
+                taskCompleted(index, false, ex);
+            }
+        }
+    }
+
+    /**
+     * Only the first completion of task counts, as task which has failed to be released may still be reported by
+     * scheduler later.
+     */
+    private void taskCompleted(int index, boolean succeeded, Throwable failure) {
+        if (!states.compareAndSet(index, RELEASED, COMPLETED)) {
+            return;
+        }
+        if (failure != null) {
+            failures.add(failure);
+        }
+        if (succeeded) {
+            for (int dependent : dependents[index]) {
+                if (remainingDependencies.decrementAndGet(dependent) == 0) {
+                    releaseTask(dependent);
+                }
+            }
+        } else {
+            failedTasks.add(tasks[index].id);
+            skipDependents(index);
+        }
+        taskDone();
+    }
+
+    /**
+     * Walks dependents with explicit queue, as chains of tasks may be longer than the stack allows to recurse.
+     */
+    private void skipDependents(int index) {
+        Deque<Integer> toVisit = new ArrayDeque<>();
+        toVisit.add(index);
+        while (!toVisit.isEmpty()) {
+            for (int dependent : dependents[toVisit.poll()]) {
+                if (states.compareAndSet(dependent, PENDING, SKIPPED)) {
+                    skippedTasks.add(tasks[dependent].id);
+                    toVisit.add(dependent);
+                    taskDone();
+                }
+            }
+        }
+    }
+
+    private void taskDone() {
+        if (unfinishedTasks.decrementAndGet() == 0) {
+            finished.countDown();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event emitted when task is handed over to AsynchronousTaskScheduler.
+ */
+@Name("pl.trul.charactersheet.TaskScheduled")
+@Label("Task Scheduled")
+@Category({"Charactersheet", "Tasks"})
+@StackTrace(false)
+class TaskScheduledJfrEvent extends jdk.jfr.Event {
+    @Label("Task Id")
+    String taskId;
+
+    @Label("Blocking")
+    @Description("Task runs on a thread of its own instead of the cooperative pool")
+    boolean blocking;
+
+    @Label("Initial Delay")
+    @Timespan
+    long initialDelay;
+
+    static void record(ScheduledTask task) {
+        TaskScheduledJfrEvent event = new TaskScheduledJfrEvent();
+        if (event.shouldCommit()) {
+            event.taskId = task.getTask().id.toString();
+            event.blocking = task.isBlocking();
+            event.initialDelay = task.getInitialDelayNanos();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * Library of characters kept in a memory-mapped, append-only segment with an offset index (see StoreFormat).
+ * Every change is a small append: saving a field never rewrites anything written before. Opening a library reads
+ * only the index (one entry per character) and scans records appended after it has been written; a character is
+ * decoded only once it is loaded, by walking its own chain of records.
+ *
+ * Superseded records are dropped by compaction, which rewrites live fields into a new segment once it has grown
+ * compactionFactor times since the previous one (see needsCompaction).
+ *
+ * All methods are synchronized, so the store may be shared by autosave and readers. Library is locked while it is
+ * open, so only a single store (of any process) appends to it.
+ */
+public class CharacterStore implements Closeable {
+    public static final int DEFAULT_INITIAL_CAPACITY = 1024 * 1024;
+    public static final int DEFAULT_CHECKPOINT_BYTES = 1024 * 1024;
+    public static final double DEFAULT_COMPACTION_FACTOR = 2.0;
+
+    private Logger logger = Logger.getLogger(CharacterStore.class.getName());
+    private final Path directory;
+    private final int initialCapacity;
+    private final int checkpointBytes;
+    private final double compactionFactor;
+    private final Map<String, Long> heads = new HashMap<>();
+    private final FileLock lock;
+    private SegmentFile segment;
+    private long indexedLength;
+    private long compactedLength;
+
+    /**
+     * Opens library in given directory with default settings, creating empty one if there is none.
+     */
+    public static CharacterStore open(Path directory) throws IOException {
+        return new CharacterStore(directory, DEFAULT_INITIAL_CAPACITY, DEFAULT_CHECKPOINT_BYTES, DEFAULT_COMPACTION_FACTOR);
+    }
+
+    /**
+     * @param checkpointBytes number of appended bytes after which flush rewrites the index
+     * @param compactionFactor growth of segment since the last compaction which makes it due
+     */
+    public CharacterStore(Path directory, int initialCapacity, int checkpointBytes, double compactionFactor)
+            throws IOException {
+        if (initialCapacity <= StoreFormat.SEGMENT_HEADER_SIZE || compactionFactor <= 1.0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid store capacity %d or compaction factor %f", initialCapacity, compactionFactor));
+        }
+        this.directory = directory;
+        this.initialCapacity = initialCapacity;
+        this.checkpointBytes = checkpointBytes;
+        this.compactionFactor = compactionFactor;
+        Files.createDirectories(directory);
+        lock = lockLibrary(directory);
+        try {
+            Files.deleteIfExists(directory.resolve(StoreFormat.SEGMENT_FILE + StoreFormat.COMPACTION_SUFFIX));
+            segment = SegmentFile.open(directory.resolve(StoreFormat.SEGMENT_FILE), initialCapacity);
+        } catch (IOException | RuntimeException ex) {
+            lock.channel().close();
+            throw ex;
+        }
+        try {
+            loadIndex();
+            recoverTail();
+        } catch (IOException | RuntimeException ex) {
+            segment.close();
+            lock.channel().close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @throws IOException if library is already open, by this or by another process
+     */
+    private static FileLock lockLibrary(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(StoreFormat.LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired = null;
+        try {
+            acquired = channel.tryLock();
+        } catch (OverlappingFileLockException ignored) {
+            // held by another store of this process
+        } finally {
+            if (acquired == null) {
+                channel.close();
+            }
+        }
+        if (acquired == null) {
+            throw new IOException("Character library " + directory + " is already open by another application");
+        }
+        return acquired;
+    }
+
+    /**
+     * @return ids of all stored characters, sorted
+     */
+    public synchronized Set<String> listCharacters() {
+        return Collections.unmodifiableSet(new TreeSet<>(heads.keySet()));
+    }
+
+    public synchronized boolean contains(String characterId) {
+        return heads.containsKey(characterId);
+    }
+
+    /**
+     * @return stored character, or null if there is no such character
+     */
+    public synchronized CharacterSheet load(String characterId) throws IOException {
+        Long head = heads.get(characterId);
+        if (head == null) {
+            return null;
+        }
+        List<StoreRecord> chain = new ArrayList<>();
+        for (long offset = head; offset != StoreFormat.NO_OFFSET; ) {
+            StoreRecord record = segment.read(offset);
+            chain.add(record);
+            offset = record.getPreviousOffset();
+        }
+        CharacterSheet sheet = new CharacterSheet(characterId);
+        for (int i = chain.size() - 1; i >= 0; --i) {
+            chain.get(i).applyTo(sheet);
+        }
+        return sheet;
+    }
+
+    /**
+     * Appends change of a single field. Null value removes the field.
+     */
+    public synchronized void appendField(String characterId, String section, String entryId, String field, String value)
+            throws IOException {
+        append(StoreRecord.field(headOf(characterId), characterId, section, entryId, field, value));
+    }
+
+    public synchronized void appendEntryRemoved(String characterId, String section, String entryId) throws IOException {
+        append(StoreRecord.entryRemoved(headOf(characterId), characterId, section, entryId));
+    }
+
+    /**
+     * Stores whole sheet, replacing character of the same id. Meant for new or imported characters, edits
+     * should be saved field by field.
+     */
+    public synchronized void save(CharacterSheet sheet) throws IOException {
+        delete(sheet.getId());
+        writeSheet(segment, sheet, heads);
+    }
+
+    /**
+     * @return false if there was no such character
+     */
+    public synchronized boolean delete(String characterId) throws IOException {
+        Long head = heads.get(characterId);
+        if (head == null) {
+            return false;
+        }
+        segment.append(StoreRecord.characterDeleted(head, characterId));
+        heads.remove(characterId);
+        return true;
+    }
+
+    /**
+     * Forces appended records to disk. Index is rewritten only once checkpointBytes have been appended since it
+     * has been written last, as records past it are recovered on open anyway.
+     */
+    public synchronized void flush() throws IOException {
+        segment.force();
+        if (segment.getWritePosition() - indexedLength >= checkpointBytes) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * @return true once segment has grown compactionFactor times since the last compaction
+     */
+    public synchronized boolean needsCompaction() {
+        long compacted = Math.max(compactedLength, initialCapacity / 2);
+        return segment.getWritePosition() > compacted * compactionFactor;
+    }
+
+    /**
+     * Rewrites live fields of all characters into a new segment, which atomically replaces the current one.
+     * Characters are copied one by one, so only a single character is held in memory at a time. If the swap fails,
+     * the current segment is reopened and the store goes on without compaction.
+     */
+    public synchronized void compact() throws IOException {
+        long before = segment.getWritePosition();
+        Path file = segment.getFile();
+        Path target = directory.resolve(StoreFormat.SEGMENT_FILE + StoreFormat.COMPACTION_SUFFIX);
+        Map<String, Long> compactedHeads = new HashMap<>();
+        long compactedEnd;
+        try (SegmentFile compacted = SegmentFile.create(target, segment.getGeneration() + 1, initialCapacity)) {
+            for (String characterId : heads.keySet()) {
+                writeSheet(compacted, load(characterId), compactedHeads);
+            }
+            compactedEnd = compacted.getWritePosition();
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(target);
+            throw ex;
+        }
+        segment.close();
+        try {
+            Files.move(target, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(target);
+            reopenSegment(file, before);
+            throw ex;
+        }
+        reopenSegment(file, compactedEnd);
+        heads.clear();
+        heads.putAll(compactedHeads);
+        compactedLength = compactedEnd;
+        writeIndex();
+        logger.info(String.format("Store compacted from %d to %d bytes", before, compactedLength));
+    }
+
+    /**
+     * @return length of data in segment, including superseded records
+     */
+    public synchronized long getSegmentLength() {
+        return segment.getWritePosition();
+    }
+
+    /**
+     * Writes index, closes segment and releases the library.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeIndex();
+        } finally {
+            abandon();
+        }
+    }
+
+    /**
+     * Closes segment and releases the library without writing index, as a crash of the process would.
+     */
+    synchronized void abandon() throws IOException {
+        try {
+            segment.close();
+        } finally {
+            lock.channel().close();
+        }
+    }
+
+    private void reopenSegment(Path file, long writePosition) throws IOException {
+        segment = SegmentFile.open(file, initialCapacity);
+        segment.truncateTo(writePosition);
+    }
+
+    private long headOf(String characterId) {
+        Long head = heads.get(characterId);
+        return head == null ? StoreFormat.NO_OFFSET : head;
+    }
+
+    private void append(StoreRecord record) throws IOException {
+        heads.put(record.getCharacterId(), segment.append(record));
+    }
+
+    private static void writeSheet(SegmentFile target, CharacterSheet sheet, Map<String, Long> heads)
+            throws IOException {
+        long previous = target.append(StoreRecord.characterCreated(StoreFormat.NO_OFFSET, sheet.getId()));
+        for (Map.Entry<String, Map<String, SheetEntry>> section : sheet.getSections().entrySet()) {
+            for (SheetEntry entry : section.getValue().values()) {
+                for (Map.Entry<String, String> field : entry.getFields().entrySet()) {
+                    previous = target.append(StoreRecord.field(previous, sheet.getId(),
+                            section.getKey(), entry.getId(), field.getKey(), field.getValue()));
+                }
+            }
+        }
+        heads.put(sheet.getId(), previous);
+    }
+
+    /**
+     * Reads heads from index if it belongs to the current segment; otherwise whole segment will be scanned.
+     * Index is small, so it is read rather than mapped, which would keep it from being replaced on some platforms.
+     */
+    private void loadIndex() throws IOException {
+        indexedLength = StoreFormat.SEGMENT_HEADER_SIZE;
+        compactedLength = StoreFormat.SEGMENT_HEADER_SIZE;
+        Path file = directory.resolve(StoreFormat.INDEX_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (index.getInt() != StoreFormat.INDEX_MAGIC || index.getShort() != StoreFormat.VERSION) {
+                logger.warning(file + " is not a valid store index, scanning whole segment");
+                return;
+            }
+            long generation = index.getLong();
+            long indexed = index.getLong();
+            long compacted = index.getLong();
+            if (generation != segment.getGeneration() || indexed > segment.getCapacity()) {
+                logger.warning(file + " does not match store segment, scanning whole segment");
+                return;
+            }
+            int count = index.getInt();
+            for (int i = 0; i < count; ++i) {
+                heads.put(StoreRecord.readString(index), index.getLong());
+            }
+            indexedLength = indexed;
+            compactedLength = compacted;
+        } catch (RuntimeException ex) {
+            heads.clear();
+            logger.warning(file + " is corrupted, scanning whole segment: " + ex);
+        }
+    }
+
+    /**
+     * Scans records appended after the index has been written, stopping at the end of data or at a torn record.
+     */
+    private void recoverTail() throws IOException {
+        long offset = indexedLength;
+        int recovered = 0;
+        for (long end = segment.recordEnd(offset); end != StoreFormat.NO_OFFSET; end = segment.recordEnd(offset)) {
+            StoreRecord record = segment.read(offset);
+            if (record.getKind() == StoreFormat.KIND_CHARACTER_DELETED) {
+                heads.remove(record.getCharacterId());
+            } else {
+                heads.put(record.getCharacterId(), offset);
+            }
+            offset = end;
+            ++recovered;
+        }
+        segment.truncateTo(offset);
+        if (recovered > 0) {
+            logger.info(String.format("Recovered %d store records past the index", recovered));
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path file = directory.resolve(StoreFormat.INDEX_FILE);
+        Path temporary = directory.resolve(StoreFormat.INDEX_FILE + ".tmp");
+        long indexed = segment.getWritePosition();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(StoreFormat.INDEX_MAGIC);
+            out.writeShort(StoreFormat.VERSION);
+            out.writeLong(segment.getGeneration());
+            out.writeLong(indexed);
+            out.writeLong(compactedLength);
+            out.writeInt(heads.size());
+            for (Map.Entry<String, Long> head : heads.entrySet()) {
+                byte[] id = head.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(id.length);
+                out.write(id);
+                out.writeLong(head.getValue());
+            }
+        }
+        segment.force();
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        indexedLength = indexed;
+    }
+}
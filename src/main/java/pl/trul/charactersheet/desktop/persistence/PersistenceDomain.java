@@ -0,0 +1,119 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+import com.github.michal_stempkowski.charactersheet.internal.Target;
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import com.github.michal_stempkowski.charactersheet.internal.events.events.InitializeEvent;
+import com.github.michal_stempkowski.charactersheet.internal.events.events.ShutdownPerformedEvent;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskScheduler;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import pl.trul.charactersheet.desktop.DesktopDomainId;
+import pl.trul.charactersheet.desktop.events.EventPublisher;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+import pl.trul.charactersheet.desktop.sheet.SheetFieldChangedEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Domain responsible for keeping characters in a CharacterStore. Opened character is published as sheet events
+ * on initialization, its edits are then saved by a background autosave task. Remaining changes are saved and the
+ * store is closed once shutdown has been performed.
+ *
+ * Configured with system properties: charactersheet.persistence.directory (library),
+ * charactersheet.persistence.character (default) and charactersheet.persistence.autosaveMillis (2000).
+ */
+public class PersistenceDomain implements Domain {
+    private static final String DIRECTORY_PROPERTY = "charactersheet.persistence.directory";
+    private static final String DEFAULT_DIRECTORY = "library";
+    private static final String CHARACTER_PROPERTY = "charactersheet.persistence.character";
+    private static final String DEFAULT_CHARACTER = "default";
+    private static final String AUTOSAVE_INTERVAL_PROPERTY = "charactersheet.persistence.autosaveMillis";
+    private static final int DEFAULT_AUTOSAVE_INTERVAL_MILLIS = 2_000;
+
+    private final ErrorMonad status = new ErrorMonad();
+    private final Logger logger;
+    private CharacterStore store;
+    private SheetAutosave autosave;
+    private CyclingTask autosaveTask;
+
+    public PersistenceDomain() {
+        logger = AppRootLogic.createLogger(Target.DESKTOP, DesktopDomainId.PERSISTENCE, getClass().getName());
+    }
+
+    @Override
+    public ErrorMonad getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setup() {
+        try {
+            store = CharacterStore.open(Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)));
+            autosave = new SheetAutosave(store, System.getProperty(CHARACTER_PROPERTY, DEFAULT_CHARACTER));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open character library: " + ex.getMessage(), ex);
+        }
+        logger.info(String.format("Character library opened with %d characters", store.listCharacters().size()));
+
+        EventDispatcher dispatcher = AppRootLogic.getEventDispatcher();
+        autosave.connect(dispatcher);
+        dispatcher.registerListener(InitializeEvent.eventType(), this::onInitializeEventStartAutosave);
+        dispatcher.registerListener(ShutdownPerformedEvent.eventType(), this::onShutdownPerformedCloseStore);
+    }
+
+    /**
+     * @return store of the character library, open between setup and shutdown
+     */
+    public CharacterStore getStore() {
+        return store;
+    }
+
+    private void onInitializeEventStartAutosave(Event event) {
+        publishSavedSheet();
+        autosaveTask = autosave.createTask();
+        Duration interval = Duration.ofMillis(Integer.getInteger(AUTOSAVE_INTERVAL_PROPERTY, DEFAULT_AUTOSAVE_INTERVAL_MILLIS));
+        TaskScheduler scheduler = AppRootLogic.getTaskScheduler();
+        if (scheduler instanceof AsynchronousTaskScheduler) {
+            ((AsynchronousTaskScheduler) scheduler).scheduleWithFixedDelay(autosaveTask, interval, interval);
+        } else {
+            logger.warning("Scheduler does not support delayed tasks, changes will be saved on shutdown only");
+        }
+    }
+
+    /**
+     * Values equal to saved ones are not appended again by autosave.
+     */
+    private void publishSavedSheet() {
+        CharacterSheet sheet = autosave.getSavedSheet();
+        EventPublisher publisher = EventPublisher.of(AppRootLogic.getEventDispatcher());
+        for (Map.Entry<String, Map<String, SheetEntry>> section : sheet.getSections().entrySet()) {
+            for (SheetEntry entry : section.getValue().values()) {
+                for (Map.Entry<String, String> field : entry.getFields().entrySet()) {
+                    publisher.publish(new SheetFieldChangedEvent(
+                            section.getKey(), entry.getId(), field.getKey(), field.getValue()));
+                }
+            }
+        }
+    }
+
+    private void onShutdownPerformedCloseStore(Event event) {
+        try {
+            autosave.close();
+            store.close();
+            logger.info("Character library closed");
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Unable to save character library", ex);
+        }
+    }
+}
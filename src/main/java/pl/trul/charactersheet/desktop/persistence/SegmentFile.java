@@ -0,0 +1,231 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+import pl.trul.charactersheet.desktop.utils.MappedBuffers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped, append-only segment of a character store (see StoreFormat). Mapping is doubled whenever appended
+ * record does not fit, so the file grows in steps and stays zero-filled past written data. Replaced mappings are
+ * released right away, so the file can be replaced once segment is closed. Not thread safe.
+ */
+final class SegmentFile implements Closeable {
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long generation;
+    private final ScratchBuffer scratch = new ScratchBuffer();
+    private final DataOutputStream out = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    private SegmentFile(Path file, FileChannel channel, int capacity) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (buffer.getInt(0) == 0) {
+            this.generation = 0;
+            writeHeader();
+        } else {
+            if (buffer.getInt(0) != StoreFormat.SEGMENT_MAGIC) {
+                MappedBuffers.unmap(buffer);
+                throw new IOException(file + " is not a character store segment");
+            }
+            short version = buffer.getShort(4);
+            if (version != StoreFormat.VERSION) {
+                MappedBuffers.unmap(buffer);
+                throw new IOException(String.format("Unsupported version %d of store segment %s", version, file));
+            }
+            this.generation = buffer.getLong(6);
+        }
+        this.writePosition = StoreFormat.SEGMENT_HEADER_SIZE;
+    }
+
+    private SegmentFile(Path file, FileChannel channel, int capacity, long generation) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.generation = generation;
+        this.writePosition = StoreFormat.SEGMENT_HEADER_SIZE;
+        writeHeader();
+    }
+
+    /**
+     * Opens segment, creating empty one of generation 0 if there is none. Write position is left right after
+     * the header, until it is moved by recovery.
+     */
+    static SegmentFile open(Path file, int minCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new SegmentFile(file, channel, (int) Math.min(MAX_CAPACITY, Math.max(minCapacity, channel.size())));
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates new, empty segment of given generation, replacing any existing file.
+     */
+    static SegmentFile create(Path file, long generation, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new SegmentFile(file, channel, capacity, generation);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    long getWritePosition() {
+        return writePosition;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return offset of appended record
+     */
+    long append(StoreRecord record) throws IOException {
+        scratch.reset();
+        record.encode(out);
+        int recordSize = StoreFormat.RECORD_HEADER_SIZE + scratch.size();
+        ensureCapacity((long) writePosition + recordSize);
+
+        crc.reset();
+        crc.update(scratch.array(), 0, scratch.size());
+        long offset = writePosition;
+        buffer.position(writePosition);
+        buffer.putInt(scratch.size());
+        buffer.putInt((int) crc.getValue());
+        buffer.put(scratch.array(), 0, scratch.size());
+        writePosition += recordSize;
+        return offset;
+    }
+
+    /**
+     * @throws IOException if there is no valid record at given offset
+     */
+    StoreRecord read(long offset) throws IOException {
+        ByteBuffer body = readBody(offset);
+        if (body == null) {
+            throw new IOException(String.format("No valid record at offset %d of %s", offset, file));
+        }
+        try {
+            return StoreRecord.decode(body);
+        } catch (RuntimeException ex) {
+            throw new IOException(String.format("Malformed record at offset %d of %s", offset, file), ex);
+        }
+    }
+
+    /**
+     * @return offset right after valid record starting at given offset, or NO_OFFSET if there is none (end of data
+     * or torn write)
+     */
+    long recordEnd(long offset) {
+        ByteBuffer body = readBody(offset);
+        return body == null ? StoreFormat.NO_OFFSET : offset + StoreFormat.RECORD_HEADER_SIZE + body.remaining();
+    }
+
+    /**
+     * Moves write position to given offset, zero-filling anything written past it (e.g. torn record).
+     */
+    void truncateTo(long offset) {
+        writePosition = (int) offset;
+        for (int i = writePosition; i < buffer.capacity() && i < writePosition + StoreFormat.RECORD_HEADER_SIZE; ++i) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * Forces written records to disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            buffer.force();
+            channel.close();
+        } finally {
+            MappedBuffers.unmap(buffer);
+        }
+    }
+
+    private ByteBuffer readBody(long offset) {
+        if (offset < StoreFormat.SEGMENT_HEADER_SIZE || offset + StoreFormat.RECORD_HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int position = (int) offset;
+        int length = buffer.getInt(position);
+        if (length <= 0 || (long) position + StoreFormat.RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + StoreFormat.RECORD_HEADER_SIZE);
+        body.limit(position + StoreFormat.RECORD_HEADER_SIZE + length);
+        crc.reset();
+        crc.update(body.duplicate());
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? body : null;
+    }
+
+    private void ensureCapacity(long required) throws IOException {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > MAX_CAPACITY) {
+            throw new IOException("Store segment " + file + " cannot grow past 2 GiB");
+        }
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        MappedByteBuffer previous = buffer;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, MAX_CAPACITY));
+        MappedBuffers.unmap(previous);
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, StoreFormat.SEGMENT_MAGIC);
+        buffer.putShort(4, StoreFormat.VERSION);
+        buffer.putLong(6, generation);
+    }
+
+    /**
+     * Reusable encoding buffer, copied into mapping without intermediate arrays.
+     */
+    private static final class ScratchBuffer extends ByteArrayOutputStream {
+        ScratchBuffer() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
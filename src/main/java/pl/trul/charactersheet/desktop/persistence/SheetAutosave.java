@@ -0,0 +1,169 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import pl.trul.charactersheet.desktop.events.DeliveryMode;
+import pl.trul.charactersheet.desktop.events.ModalEventDispatcher;
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+import pl.trul.charactersheet.desktop.sheet.SheetEntryRemovedEvent;
+import pl.trul.charactersheet.desktop.sheet.SheetFieldChangedEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Saves edits of a single character incrementally. Sheet events are only collected (a newer change of a field
+ * replaces the pending one); saving appends just the pending changes whose value differs from the saved one, so
+ * the store grows with size of edits, not with size of the sheet. Meant to be run periodically by a CyclingTask
+ * (see createTask), which also compacts the store once it is due.
+ */
+public class SheetAutosave {
+    private Logger logger = Logger.getLogger(SheetAutosave.class.getName());
+    private final CharacterStore store;
+    private final CharacterSheet saved;
+    private final Map<Object, Event> pending = new LinkedHashMap<>();
+    private volatile boolean closed = false;
+
+    public SheetAutosave(CharacterStore store, String characterId) throws IOException {
+        this.store = store;
+        CharacterSheet stored = store.load(characterId);
+        this.saved = stored != null ? stored : new CharacterSheet(characterId);
+    }
+
+    /**
+     * @return character as saved in the store, to be modified only by this autosave
+     */
+    public CharacterSheet getSavedSheet() {
+        return saved;
+    }
+
+    /**
+     * Starts collecting sheet events from dispatcher. Collecting is cheap, so listeners run inline where possible,
+     * which also keeps changes in publishing order.
+     */
+    public void connect(EventDispatcher dispatcher) {
+        if (dispatcher instanceof ModalEventDispatcher) {
+            ModalEventDispatcher modal = (ModalEventDispatcher) dispatcher;
+            modal.registerListener(SheetFieldChangedEvent.eventType(), this::onFieldChanged, DeliveryMode.INLINE);
+            modal.registerListener(SheetEntryRemovedEvent.eventType(), this::onEntryRemoved, DeliveryMode.INLINE);
+        } else {
+            dispatcher.registerListener(SheetFieldChangedEvent.eventType(), this::onFieldChanged);
+            dispatcher.registerListener(SheetEntryRemovedEvent.eventType(), this::onEntryRemoved);
+        }
+    }
+
+    public void onFieldChanged(Event event) {
+        synchronized (pending) {
+            Object key = SheetFieldChangedEvent.coalescingKey(event);
+            pending.remove(key);
+            pending.put(key, event);
+        }
+    }
+
+    /**
+     * Drops pending changes of removed entry, as they would be lost anyway.
+     */
+    public void onEntryRemoved(Event event) {
+        SheetEntryRemovedEvent removal = Event.tryCast(event);
+        synchronized (pending) {
+            Iterator<Event> changes = pending.values().iterator();
+            while (changes.hasNext()) {
+                Event change = changes.next();
+                if (change instanceof SheetFieldChangedEvent
+                        && ((SheetFieldChangedEvent) change).getSection().equals(removal.getSection())
+                        && ((SheetFieldChangedEvent) change).getEntryId().equals(removal.getEntryId())) {
+                    changes.remove();
+                }
+            }
+            pending.put(Arrays.asList(removal.getSection(), removal.getEntryId()), event);
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Appends pending changes to the store and flushes it.
+     * @return number of appended records
+     */
+    public synchronized int saveChanges() throws IOException {
+        List<Event> changes;
+        synchronized (pending) {
+            changes = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+
+        String characterId = saved.getId();
+        int appended = 0;
+        for (Event change : changes) {
+            if (change instanceof SheetFieldChangedEvent) {
+                SheetFieldChangedEvent e = (SheetFieldChangedEvent) change;
+                if (!Objects.equals(saved.getField(e.getSection(), e.getEntryId(), e.getField()), e.getValue())) {
+                    store.appendField(characterId, e.getSection(), e.getEntryId(), e.getField(), e.getValue());
+                    saved.apply(e);
+                    ++appended;
+                }
+            } else {
+                SheetEntryRemovedEvent e = Event.tryCast(change);
+                if (saved.removeEntry(e.getSection(), e.getEntryId())) {
+                    store.appendEntryRemoved(characterId, e.getSection(), e.getEntryId());
+                    ++appended;
+                }
+            }
+        }
+        if (appended > 0) {
+            store.flush();
+        }
+        return appended;
+    }
+
+    /**
+     * @return task saving changes on every cycle and compacting store when it is due, until autosave is closed
+     */
+    public CyclingTask createTask() {
+        return new CyclingTask(this::runCycle,
+                (TaskState state, ErrorMonad error) -> closed ? TaskState.DONE : TaskState.RUNNING);
+    }
+
+    /**
+     * Failures are only logged: changes which have not been appended are lost, but the next cycles go on.
+     */
+    private synchronized void runCycle() {
+        if (closed) {
+            return;
+        }
+        try {
+            int appended = saveChanges();
+            if (appended > 0) {
+                logger.fine(() -> String.format("Autosaved %d changes of %s", appended, saved.getId()));
+            }
+            if (store.needsCompaction()) {
+                store.compact();
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Autosave of " + saved.getId() + " has failed", ex);
+        }
+    }
+
+    /**
+     * Saves remaining changes and stops the task. Store is left open.
+     */
+    public synchronized void close() throws IOException {
+        closed = true;
+        saveChanges();
+    }
+}
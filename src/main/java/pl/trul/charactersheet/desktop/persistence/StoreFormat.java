@@ -0,0 +1,42 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+/**
+ * Layout of character store files written by CharacterStore.
+ *
+ * Segment starts with header (magic, version, generation) followed by records, each being body length, CRC32 of
+ * body and body itself. Body starts with kind and offset of the previous record of the same character (or
+ * NO_OFFSET), so records of a character form a backward chain and loading it touches only its own records. Chain
+ * of a saved character starts with a creation record, so even a character without any field has a head.
+ * Unused space of a segment is zero-filled, so zero length marks the end of data. Generation is increased by
+ * every compaction, which rewrites live fields into a new segment.
+ *
+ * Index holds head (latest record offset) of every character's chain, valid for the segment of the same
+ * generation up to indexed length; records past it are recovered by scanning. Index also remembers segment
+ * length right after the last compaction.
+ *
+ * Lock file is held locked by the store which has the library open, so no other process appends to it at once.
+ *
+ * All numbers are big-endian, strings are written as byte length followed by UTF-8 bytes (NO_STRING for null).
+ */
+final class StoreFormat {
+    static final int SEGMENT_MAGIC = 0x43534547;
+    static final int INDEX_MAGIC = 0x43534958;
+    static final short VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 4 + 2 + 8;
+    static final int RECORD_HEADER_SIZE = 4 + 4;
+    static final String SEGMENT_FILE = "characters.seg";
+    static final String INDEX_FILE = "characters.idx";
+    static final String COMPACTION_SUFFIX = ".compacting";
+    static final String LOCK_FILE = "characters.lock";
+
+    static final byte KIND_FIELD = 1;
+    static final byte KIND_ENTRY_REMOVED = 2;
+    static final byte KIND_CHARACTER_DELETED = 3;
+    static final byte KIND_CHARACTER_CREATED = 4;
+
+    static final long NO_OFFSET = -1;
+    static final int NO_STRING = -1;
+
+    private StoreFormat() {
+    }
+}
@@ -0,0 +1,134 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single record of a store segment (see StoreFormat): creation of a character, change of a field, removal of
+ * an entry or deletion of a whole character.
+ */
+final class StoreRecord {
+    private final byte kind;
+    private final long previousOffset;
+    private final String characterId;
+    private final String section;
+    private final String entryId;
+    private final String field;
+    private final String value;
+
+    private StoreRecord(byte kind, long previousOffset, String characterId,
+                        String section, String entryId, String field, String value) {
+        this.kind = kind;
+        this.previousOffset = previousOffset;
+        this.characterId = characterId;
+        this.section = section;
+        this.entryId = entryId;
+        this.field = field;
+        this.value = value;
+    }
+
+    static StoreRecord field(long previousOffset, String characterId,
+                             String section, String entryId, String field, String value) {
+        return new StoreRecord(StoreFormat.KIND_FIELD, previousOffset, characterId, section, entryId, field, value);
+    }
+
+    static StoreRecord entryRemoved(long previousOffset, String characterId, String section, String entryId) {
+        return new StoreRecord(StoreFormat.KIND_ENTRY_REMOVED, previousOffset, characterId, section, entryId, null, null);
+    }
+
+    static StoreRecord characterDeleted(long previousOffset, String characterId) {
+        return new StoreRecord(StoreFormat.KIND_CHARACTER_DELETED, previousOffset, characterId, null, null, null, null);
+    }
+
+    static StoreRecord characterCreated(long previousOffset, String characterId) {
+        return new StoreRecord(StoreFormat.KIND_CHARACTER_CREATED, previousOffset, characterId, null, null, null, null);
+    }
+
+    byte getKind() {
+        return kind;
+    }
+
+    long getPreviousOffset() {
+        return previousOffset;
+    }
+
+    String getCharacterId() {
+        return characterId;
+    }
+
+    /**
+     * Replays record on sheet being loaded.
+     */
+    void applyTo(CharacterSheet sheet) {
+        switch (kind) {
+            case StoreFormat.KIND_FIELD:
+                sheet.setField(section, entryId, field, value);
+                break;
+            case StoreFormat.KIND_ENTRY_REMOVED:
+                sheet.removeEntry(section, entryId);
+                break;
+            case StoreFormat.KIND_CHARACTER_CREATED:
+                break;
+            default:
+                throw new IllegalStateException("Record of kind " + kind + " cannot be applied to a sheet");
+        }
+    }
+
+    void encode(DataOutputStream out) throws IOException {
+        out.writeByte(kind);
+        out.writeLong(previousOffset);
+        writeString(out, characterId);
+        if (kind == StoreFormat.KIND_CHARACTER_DELETED || kind == StoreFormat.KIND_CHARACTER_CREATED) {
+            return;
+        }
+        writeString(out, section);
+        writeString(out, entryId);
+        if (kind == StoreFormat.KIND_FIELD) {
+            writeString(out, field);
+            writeString(out, value);
+        }
+    }
+
+    static StoreRecord decode(ByteBuffer body) {
+        byte kind = body.get();
+        long previousOffset = body.getLong();
+        String characterId = readString(body);
+        switch (kind) {
+            case StoreFormat.KIND_FIELD:
+                return field(previousOffset, characterId,
+                        readString(body), readString(body), readString(body), readString(body));
+            case StoreFormat.KIND_ENTRY_REMOVED:
+                return entryRemoved(previousOffset, characterId, readString(body), readString(body));
+            case StoreFormat.KIND_CHARACTER_DELETED:
+                return characterDeleted(previousOffset, characterId);
+            case StoreFormat.KIND_CHARACTER_CREATED:
+                return characterCreated(previousOffset, characterId);
+            default:
+                throw new IllegalArgumentException("Unknown record kind " + kind);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(StoreFormat.NO_STRING);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == StoreFormat.NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Text format of character files: UTF-8 lines of tab separated columns. First line is a header
+ * "charactersheet &lt;version&gt; &lt;character id&gt;", every following one holds a single field as
+ * "&lt;section&gt; &lt;entry id&gt; &lt;field&gt; &lt;value&gt;". Tabs, line breaks and backslashes inside columns are
+ * escaped with backslash. Empty lines and lines starting with # are skipped. Entries without fields are not stored.
+ */
+public final class CharacterFileFormat {
+    public static final String EXTENSION = ".sheet";
+    private static final String MAGIC = "charactersheet";
+    private static final int VERSION = 1;
+    private static final int FIELD_COLUMNS = 4;
+
+    private CharacterFileFormat() {
+    }
+
+    /**
+     * @throws IOException if file cannot be read or is not a valid character file (message points the bad line)
+     */
+    public static CharacterSheet read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, file.toString());
+        }
+    }
+
+    public static CharacterSheet read(BufferedReader reader, String sourceName) throws IOException {
+        String header = reader.readLine();
+        String[] headerColumns = header == null ? new String[0] : split(header, sourceName, 1);
+        if (headerColumns.length != 3 || !MAGIC.equals(headerColumns[0])) {
+            throw new IOException(sourceName + " is not a character file");
+        }
+        if (!Integer.toString(VERSION).equals(headerColumns[1])) {
+            throw new IOException(String.format("Unsupported version %s of character file %s",
+                    headerColumns[1], sourceName));
+        }
+
+        CharacterSheet sheet = new CharacterSheet(headerColumns[2]);
+        int lineNumber = 1;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            ++lineNumber;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = split(line, sourceName, lineNumber);
+            if (columns.length != FIELD_COLUMNS) {
+                throw new IOException(String.format("%s:%d: expected %d columns, got %d",
+                        sourceName, lineNumber, FIELD_COLUMNS, columns.length));
+            }
+            for (int i = 0; i < FIELD_COLUMNS - 1; ++i) {
+                if (columns[i].isEmpty()) {
+                    throw new IOException(String.format("%s:%d: empty section, entry or field name",
+                            sourceName, lineNumber));
+                }
+            }
+            if (sheet.setField(columns[0], columns[1], columns[2], columns[3]) != null) {
+                throw new IOException(String.format("%s:%d: duplicated field %s/%s/%s",
+                        sourceName, lineNumber, columns[0], columns[1], columns[2]));
+            }
+        }
+        return sheet;
+    }
+
+    public static void write(CharacterSheet sheet, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(sheet, writer);
+        }
+    }
+
+    public static void write(CharacterSheet sheet, Writer writer) throws IOException {
+        writer.write(MAGIC + '\t' + VERSION + '\t' + escape(sheet.getId()) + '\n');
+        for (Map.Entry<String, Map<String, SheetEntry>> section : sheet.getSections().entrySet()) {
+            for (SheetEntry entry : section.getValue().values()) {
+                for (Map.Entry<String, String> field : entry.getFields().entrySet()) {
+                    writer.write(escape(section.getKey()) + '\t' + escape(entry.getId()) + '\t'
+                            + escape(field.getKey()) + '\t' + escape(field.getValue()) + '\n');
+                }
+            }
+        }
+    }
+
+    static String escape(String column) {
+        StringBuilder escaped = new StringBuilder(column.length());
+        for (int i = 0; i < column.length(); ++i) {
+            char c = column.charAt(i);
+            switch (c) {
+                case '\\': escaped.append("\\\\"); break;
+                case '\t': escaped.append("\\t"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String[] split(String line, String sourceName, int lineNumber) throws IOException {
+        String[] columns = line.split("\t", -1);
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = unescape(columns[i], sourceName, lineNumber);
+        }
+        return columns;
+    }
+
+    private static String unescape(String column, String sourceName, int lineNumber) throws IOException {
+        if (column.indexOf('\\') < 0) {
+            return column;
+        }
+        StringBuilder unescaped = new StringBuilder(column.length());
+        for (int i = 0; i < column.length(); ++i) {
+            char c = column.charAt(i);
+            if (c != '\\') {
+                unescaped.append(c);
+                continue;
+            }
+            if (++i == column.length()) {
+                throw new IOException(String.format("%s:%d: dangling escape", sourceName, lineNumber));
+            }
+            switch (column.charAt(i)) {
+                case '\\': unescaped.append('\\'); break;
+                case 't': unescaped.append('\t'); break;
+                case 'n': unescaped.append('\n'); break;
+                case 'r': unescaped.append('\r'); break;
+                default:
+                    throw new IOException(String.format("%s:%d: unknown escape \\%c",
+                            sourceName, lineNumber, column.charAt(i)));
+            }
+        }
+        return unescaped.toString();
+    }
+}
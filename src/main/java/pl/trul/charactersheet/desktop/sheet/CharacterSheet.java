@@ -0,0 +1,80 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Whole character sheet: sections of entries (skills, spells, items...), each holding named field values. Sections
+ * and entries keep the order in which they were first set. Not thread safe.
+ */
+public class CharacterSheet {
+    private final String id;
+    private final Map<String, Map<String, SheetEntry>> sections = new LinkedHashMap<>();
+
+    public CharacterSheet(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return previous value of the field or null. Null value removes the field, entry is kept though.
+     */
+    public String setField(String section, String entryId, String field, String value) {
+        Map<String, SheetEntry> entries = sections.computeIfAbsent(section, s -> new LinkedHashMap<>());
+        SheetEntry entry = entries.get(entryId);
+        if (entry == null) {
+            entry = new SheetEntry(entryId);
+        }
+        String previous = entry.getFields().get(field);
+        entries.put(entryId, entry.withField(field, value));
+        return previous;
+    }
+
+    public String getField(String section, String entryId, String field) {
+        SheetEntry entry = getEntry(section, entryId);
+        return entry == null ? null : entry.getFields().get(field);
+    }
+
+    public SheetEntry getEntry(String section, String entryId) {
+        Map<String, SheetEntry> entries = sections.get(section);
+        return entries == null ? null : entries.get(entryId);
+    }
+
+    /**
+     * @return false if there was no such entry
+     */
+    public boolean removeEntry(String section, String entryId) {
+        Map<String, SheetEntry> entries = sections.get(section);
+        return entries != null && entries.remove(entryId) != null;
+    }
+
+    /**
+     * Applies change published by the dispatcher to this sheet.
+     */
+    public void apply(SheetFieldChangedEvent change) {
+        setField(change.getSection(), change.getEntryId(), change.getField(), change.getValue());
+    }
+
+    /**
+     * @return read only view of sections, keyed by section name and then by entry id
+     */
+    public Map<String, Map<String, SheetEntry>> getSections() {
+        Map<String, Map<String, SheetEntry>> view = new LinkedHashMap<>();
+        sections.forEach((section, entries) -> view.put(section, Collections.unmodifiableMap(entries)));
+        return Collections.unmodifiableMap(view);
+    }
+
+    public int getFieldCount() {
+        int count = 0;
+        for (Map<String, SheetEntry> entries : sections.values()) {
+            for (SheetEntry entry : entries.values()) {
+                count += entry.getFields().size();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,30 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * All changes of derived fields (modifiers, totals, bonuses...) caused by a single edit, published at once after
+ * recomputation, so listeners see consistent values.
+ */
+public class DerivedFieldsChangedEvent extends Event {
+    private final List<SheetFieldChangedEvent> changes;
+
+    public DerivedFieldsChangedEvent(List<SheetFieldChangedEvent> changes) {
+        super(eventType());
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    public static int eventType() {
+        return 10_002;
+    }
+
+    /**
+     * @return changed fields, dependencies before their dependents
+     */
+    public List<SheetFieldChangedEvent> getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,67 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import java.util.Objects;
+
+/**
+ * Address of a single field of a character sheet: section, entry within it and field of the entry.
+ */
+public final class FieldRef {
+    private final String section;
+    private final String entryId;
+    private final String field;
+
+    private FieldRef(String section, String entryId, String field) {
+        this.section = Objects.requireNonNull(section);
+        this.entryId = Objects.requireNonNull(entryId);
+        this.field = Objects.requireNonNull(field);
+    }
+
+    public static FieldRef of(String section, String entryId, String field) {
+        return new FieldRef(section, entryId, field);
+    }
+
+    public static FieldRef of(SheetFieldChangedEvent change) {
+        return new FieldRef(change.getSection(), change.getEntryId(), change.getField());
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public String getEntryId() {
+        return entryId;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return true if field belongs to given entry
+     */
+    public boolean isOf(String section, String entryId) {
+        return this.section.equals(section) && this.entryId.equals(entryId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FieldRef)) {
+            return false;
+        }
+        FieldRef other = (FieldRef) o;
+        return section.equals(other.section) && entryId.equals(other.entryId) && field.equals(other.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(section, entryId, field);
+    }
+
+    @Override
+    public String toString() {
+        return section + "/" + entryId + "/" + field;
+    }
+}
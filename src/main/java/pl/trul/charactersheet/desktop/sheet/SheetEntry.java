@@ -0,0 +1,44 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable entry of a sheet section. Changing a field creates a new entry, so views holding the old one are
+ * notified by replacing it in their list.
+ */
+public final class SheetEntry {
+    private final String id;
+    private final Map<String, String> fields;
+
+    public SheetEntry(String id) {
+        this(id, Collections.emptyMap());
+    }
+
+    private SheetEntry(String id, Map<String, String> fields) {
+        this.id = id;
+        this.fields = fields;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return fields in order they were first set
+     */
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    public SheetEntry withField(String field, String value) {
+        Map<String, String> changed = new LinkedHashMap<>(fields);
+        if (value == null) {
+            changed.remove(field);
+        } else {
+            changed.put(field, value);
+        }
+        return new SheetEntry(id, Collections.unmodifiableMap(changed));
+    }
+}
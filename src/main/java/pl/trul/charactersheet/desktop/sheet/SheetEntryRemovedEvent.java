@@ -0,0 +1,29 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+
+/**
+ * Removal of a whole entry from a character sheet section.
+ */
+public class SheetEntryRemovedEvent extends Event {
+    private final String section;
+    private final String entryId;
+
+    public SheetEntryRemovedEvent(String section, String entryId) {
+        super(eventType());
+        this.section = section;
+        this.entryId = entryId;
+    }
+
+    public static int eventType() {
+        return 10_001;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public String getEntryId() {
+        return entryId;
+    }
+}
@@ -0,0 +1,52 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+
+import java.util.Arrays;
+
+/**
+ * Field-level change of a character sheet: a single field of a single entry (skill, spell, item...) within a sheet
+ * section. Entry is created by its first change. Null value removes the field.
+ */
+public class SheetFieldChangedEvent extends Event {
+    private final String section;
+    private final String entryId;
+    private final String field;
+    private final String value;
+
+    public SheetFieldChangedEvent(String section, String entryId, String field, String value) {
+        super(eventType());
+        this.section = section;
+        this.entryId = entryId;
+        this.field = field;
+        this.value = value;
+    }
+
+    public static int eventType() {
+        return 10_000;
+    }
+
+    /**
+     * @return key under which changes may be coalesced: a newer change of the same field replaces an older one
+     */
+    public static Object coalescingKey(Event event) {
+        SheetFieldChangedEvent e = Event.tryCast(event);
+        return Arrays.asList(e.section, e.entryId, e.field);
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public String getEntryId() {
+        return entryId;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
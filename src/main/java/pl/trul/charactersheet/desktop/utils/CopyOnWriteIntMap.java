@@ -0,0 +1,107 @@
+package pl.trul.charactersheet.desktop.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Map from primitive int keys to values, meant for data read on hot paths and modified rarely. Lookups are
+ * lock-free and do not box the key: every modification publishes a new immutable snapshot of sorted keys.
+ *
+ * @param <V> type of stored values
+ */
+public class CopyOnWriteIntMap<V> {
+    private volatile Snapshot snapshot = new Snapshot(new int[0], new Object[0]);
+    private final Object writeMutex = new Object();
+
+    public V get(int key) {
+        return snapshot.get(key);
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        V value = snapshot.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public void put(int key, V value) {
+        synchronized (writeMutex) {
+            snapshot = snapshot.with(key, value);
+        }
+    }
+
+    /**
+     * Returns value under key, creating and publishing it first if there is none. Only the first lookup of a key
+     * takes a lock.
+     */
+    public V computeIfAbsent(int key, IntFunction<V> factory) {
+        V value = snapshot.get(key);
+        if (value != null) {
+            return value;
+        }
+        synchronized (writeMutex) {
+            value = snapshot.get(key);
+            if (value == null) {
+                value = factory.apply(key);
+                snapshot = snapshot.with(key, value);
+            }
+            return value;
+        }
+    }
+
+    public int[] keys() {
+        return snapshot.keys.clone();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>();
+        for (Object value : snapshot.values) {
+            result.add((V) value);
+        }
+        return result;
+    }
+
+    public int size() {
+        return snapshot.keys.length;
+    }
+
+    /**
+     * Immutable mapping of sorted keys to values.
+     */
+    private final class Snapshot {
+        private final int[] keys;
+        private final Object[] values;
+
+        private Snapshot(int[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int key) {
+            int idx = Arrays.binarySearch(keys, key);
+            return idx >= 0 ? (V) values[idx] : null;
+        }
+
+        Snapshot with(int key, V value) {
+            int idx = Arrays.binarySearch(keys, key);
+            if (idx >= 0) {
+                Object[] updated = values.clone();
+                updated[idx] = value;
+                return new Snapshot(keys, updated);
+            }
+
+            int insertAt = -idx - 1;
+            int[] updatedKeys = new int[keys.length + 1];
+            Object[] updatedValues = new Object[values.length + 1];
+            System.arraycopy(keys, 0, updatedKeys, 0, insertAt);
+            System.arraycopy(values, 0, updatedValues, 0, insertAt);
+            updatedKeys[insertAt] = key;
+            updatedValues[insertAt] = value;
+            System.arraycopy(keys, insertAt, updatedKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(values, insertAt, updatedValues, insertAt + 1, values.length - insertAt);
+            return new Snapshot(updatedKeys, updatedValues);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package pl.trul.charactersheet.desktop.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Releases file mappings right away instead of waiting for garbage collection. Some platforms (Windows) refuse to
+ * replace or delete a file while it is still mapped, so mappings have to be released before such operations.
+ *
+ * There is no public API for this before Java 9's Unsafe.invokeCleaner, so buffer's cleaner is invoked
+ * reflectively. Where neither is available, mapping is left to garbage collection. Released buffer must never be
+ * accessed again, not even by its duplicates, as that crashes the JVM.
+ */
+public final class MappedBuffers {
+    private static final Logger logger = Logger.getLogger(MappedBuffers.class.getName());
+    private static final Unmapper unmapper = createUnmapper();
+
+    private MappedBuffers() {
+    }
+
+    public static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || unmapper == null) {
+            return;
+        }
+        try {
+            unmapper.unmap(buffer);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            logger.log(Level.FINE, "Unable to release file mapping, leaving it to garbage collector", ex);
+        }
+    }
+
+    private static Unmapper createUnmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return (buffer) -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException java9Unavailable) {
+            try {
+                Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return (buffer) -> {
+                    Object bufferCleaner = cleaner.invoke(buffer);
+                    if (bufferCleaner != null) {
+                        clean.invoke(bufferCleaner);
+                    }
+                };
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                logger.log(Level.INFO, "File mappings cannot be released explicitly on this JVM", ex);
+                return null;
+            }
+        }
+    }
+
+    private interface Unmapper {
+        void unmap(MappedByteBuffer buffer) throws ReflectiveOperationException;
+    }
+}
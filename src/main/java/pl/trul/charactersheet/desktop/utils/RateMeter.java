@@ -0,0 +1,45 @@
+package pl.trul.charactersheet.desktop.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures rate of occurrences over the last WINDOW_SECONDS full seconds. Occurrences are counted in a ring of
+ * per-second buckets, which are lazily reclaimed as time moves on; counts racing with a reclaim may get lost,
+ * which is acceptable for a statistic.
+ */
+public class RateMeter {
+    private static final int WINDOW_SECONDS = 10;
+    private static final int BUCKETS = WINDOW_SECONDS + 1;
+
+    private final AtomicLongArray seconds = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public RateMeter() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            seconds.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public void mark(long nowNanos) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(nowNanos);
+        int idx = (int) Math.floorMod(second, (long) BUCKETS);
+        long stamp = seconds.get(idx);
+        if (stamp != second && seconds.compareAndSet(idx, stamp, second)) {
+            counts.set(idx, 0);
+        }
+        counts.incrementAndGet(idx);
+    }
+
+    public double getRatePerSecond(long nowNanos) {
+        long current = TimeUnit.NANOSECONDS.toSeconds(nowNanos);
+        long occurrences = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            long second = seconds.get(i);
+            if (second < current && second >= current - WINDOW_SECONDS) {
+                occurrences += counts.get(i);
+            }
+        }
+        return (double) occurrences / WINDOW_SECONDS;
+    }
+}
@@ -0,0 +1,127 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Shape of the load generated by SoakHarness, read from `soak.*` properties. Thresholds set to a negative value
+ * are not checked.
+ */
+public class SoakConfig {
+    static final String PREFIX = "soak.";
+
+    private final Properties properties;
+
+    public SoakConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static SoakConfig fromSystemProperties() {
+        return new SoakConfig(System.getProperties());
+    }
+
+    public Duration getDuration() {
+        return Duration.ofSeconds(getLong("durationSeconds", 300));
+    }
+
+    /**
+     * @return time after which gathered statistics are reset and heap baseline is taken
+     */
+    public Duration getWarmup() {
+        return Duration.ofSeconds(getLong("warmupSeconds", 15));
+    }
+
+    public int getEventTypes() {
+        return getInt("eventTypes", 8);
+    }
+
+    public int getListenersPerEventType() {
+        return getInt("listenersPerEventType", 4);
+    }
+
+    public Duration getListenerWork() {
+        return Duration.ofNanos(1000 * getLong("listenerWorkMicros", 0));
+    }
+
+    public int getPublishers() {
+        return getInt("publishers", 2);
+    }
+
+    public int getEventsPerSecond() {
+        return getInt("eventsPerSecond", 20_000);
+    }
+
+    /**
+     * @return number of events published at once, storms are bursts of events separated by silence
+     */
+    public int getBurstSize() {
+        return getInt("burstSize", 100);
+    }
+
+    public int getPeriodicTasks() {
+        return getInt("periodicTasks", 16);
+    }
+
+    public Duration getTaskPeriod() {
+        return Duration.ofMillis(getLong("taskPeriodMillis", 10));
+    }
+
+    public int getShortTasksPerSecond() {
+        return getInt("shortTasksPerSecond", 50);
+    }
+
+    public int getShortTaskCycles() {
+        return getInt("shortTaskCycles", 100);
+    }
+
+    public int getBlockingTasksPerSecond() {
+        return getInt("blockingTasksPerSecond", 2);
+    }
+
+    public Duration getBlockingTaskDuration() {
+        return Duration.ofMillis(getLong("blockingTaskMillis", 50));
+    }
+
+    /**
+     * @return number of listeners registered and dropped every second, half of them weakly and abandoned
+     */
+    public int getListenerChurnPerSecond() {
+        return getInt("listenerChurnPerSecond", 50);
+    }
+
+    public long getMaxP99Micros() {
+        return getLong("maxP99Micros", -1);
+    }
+
+    public long getMaxJitterP99Micros() {
+        return getLong("maxJitterP99Micros", -1);
+    }
+
+    public long getMaxHeapGrowthMegabytes() {
+        return getLong("maxHeapGrowthMegabytes", -1);
+    }
+
+    public long getMaxLeakedListeners() {
+        return getLong("maxLeakedListeners", 0);
+    }
+
+    public String getReportFile() {
+        return properties.getProperty(PREFIX + "reportFile", "build/reports/soak/soak-report.json");
+    }
+
+    private int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(PREFIX + key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(String.format("Invalid value of %s%s: %s", PREFIX, key, value), ex);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+
+/**
+ * Synthetic event carrying the moment it has been published, so listeners can measure delivery latency.
+ */
+public class SoakEvent extends Event {
+    static final int FIRST_EVENT_TYPE = 1_000_000;
+
+    private final long publishedNanos;
+
+    public SoakEvent(int eventType, long publishedNanos) {
+        super(eventType);
+        this.publishedNanos = publishedNanos;
+    }
+
+    public long getPublishedNanos() {
+        return publishedNanos;
+    }
+
+    static int eventType(int index) {
+        return FIRST_EVENT_TYPE + index;
+    }
+}
@@ -0,0 +1,28 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Entry point of soak runs: boots AppRootLogic headlessly with synthetic domains, runs configured load (see
+ * SoakConfig) and prints the report. Exits with status 1 if any threshold has been exceeded, so it can be used as
+ * a regression gate.
+ */
+public class SoakHarness {
+    public static void main(String[] args) throws IOException {
+        SoakConfig config = SoakConfig.fromSystemProperties();
+        SoakTopLogicFactory factory = new SoakTopLogicFactory(config);
+        new AppRootLogic(factory);
+        if (!AppRootLogic.init()) {
+            System.exit(2);
+        }
+        AppRootLogic.start();
+
+        SoakReport report = factory.getReport();
+        System.out.println(report);
+        report.writeTo(Paths.get(config.getReportFile()));
+        System.exit(report.isPassed() ? 0 : 1);
+    }
+}
@@ -0,0 +1,64 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import pl.trul.charactersheet.desktop.utils.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics shared by synthetic listeners, tasks and load generators of a soak run.
+ */
+public class SoakProbe {
+    private final LatencyHistogram publishToHandle = new LatencyHistogram();
+    private final LatencyHistogram cycleJitter = new LatencyHistogram();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder tasksFinished = new LongAdder();
+
+    void eventPublished() {
+        published.increment();
+    }
+
+    void eventHandled(SoakEvent event) {
+        publishToHandle.record(System.nanoTime() - event.getPublishedNanos());
+        handled.increment();
+    }
+
+    /**
+     * @param lateNanos how far from its scheduled moment a periodic cycle has started
+     */
+    void cycleStarted(long lateNanos) {
+        cycleJitter.record(Math.abs(lateNanos));
+    }
+
+    void taskFinished() {
+        tasksFinished.increment();
+    }
+
+    public LatencyHistogram getPublishToHandle() {
+        return publishToHandle;
+    }
+
+    public LatencyHistogram getCycleJitter() {
+        return cycleJitter;
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getHandled() {
+        return handled.sum();
+    }
+
+    public long getTasksFinished() {
+        return tasksFinished.sum();
+    }
+
+    void reset() {
+        publishToHandle.reset();
+        cycleJitter.reset();
+        published.reset();
+        handled.reset();
+        tasksFinished.reset();
+    }
+}
@@ -0,0 +1,107 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownReport;
+import pl.trul.charactersheet.desktop.utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of a soak run, checked against thresholds of SoakConfig. Written both as text and as flat JSON, so
+ * results of consecutive releases can be compared.
+ */
+public class SoakReport {
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final Map<String, Number> values = new LinkedHashMap<>();
+    private final List<String> violations = new ArrayList<>();
+    private final ShutdownReport shutdown;
+
+    SoakReport(SoakConfig config, SoakProbe probe, Duration measured, int baselineThreads, int finalThreads,
+               int peakThreads, long baselineHeap, long finalHeap, long leakedListeners, ShutdownReport shutdown) {
+        this.shutdown = shutdown;
+        values.put("measuredSeconds", measured.getSeconds());
+        values.put("eventsPublished", probe.getPublished());
+        values.put("eventsHandled", probe.getHandled());
+        putPercentiles("publishToHandle", probe.getPublishToHandle());
+        putPercentiles("cycleJitter", probe.getCycleJitter());
+        values.put("tasksFinished", probe.getTasksFinished());
+        values.put("baselineThreads", baselineThreads);
+        values.put("finalThreads", finalThreads);
+        values.put("peakThreads", peakThreads);
+        values.put("baselineHeapMegabytes", baselineHeap / MEGABYTE);
+        values.put("finalHeapMegabytes", finalHeap / MEGABYTE);
+        values.put("heapGrowthMegabytes", (finalHeap - baselineHeap) / MEGABYTE);
+        values.put("leakedListeners", leakedListeners);
+        values.put("shutdownMillis", shutdown.getDuration().toMillis());
+
+        check("publishToHandleP99Micros", config.getMaxP99Micros());
+        check("cycleJitterP99Micros", config.getMaxJitterP99Micros());
+        check("heapGrowthMegabytes", config.getMaxHeapGrowthMegabytes());
+        check("leakedListeners", config.getMaxLeakedListeners());
+        if (!shutdown.isQuiescent()) {
+            violations.add("shutdown has not been quiescent: " + shutdown.getStragglers());
+        }
+    }
+
+    public boolean isPassed() {
+        return violations.isEmpty();
+    }
+
+    public List<String> getViolations() {
+        return Collections.unmodifiableList(violations);
+    }
+
+    public Map<String, Number> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        for (Map.Entry<String, Number> entry : values.entrySet()) {
+            json.append(String.format("  \"%s\": %s,%n", entry.getKey(), entry.getValue()));
+        }
+        json.append("  \"violations\": [");
+        for (int i = 0; i < violations.size(); ++i) {
+            json.append(i == 0 ? "" : ", ").append('"').append(violations.get(i).replace("\"", "\\\"")).append('"');
+        }
+        return json.append("]\n}\n").toString();
+    }
+
+    public void writeTo(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Soak run ").append(isPassed() ? "passed" : "FAILED").append('\n');
+        values.forEach((key, value) -> text.append(String.format("  %-28s %s%n", key, value)));
+        violations.forEach(violation -> text.append("  violation: ").append(violation).append('\n'));
+        text.append(shutdown);
+        return text.toString();
+    }
+
+    private void putPercentiles(String name, LatencyHistogram histogram) {
+        values.put(name + "P50Micros", histogram.getPercentileNanos(50) / 1000);
+        values.put(name + "P99Micros", histogram.getPercentileNanos(99) / 1000);
+        values.put(name + "P999Micros", histogram.getPercentileNanos(99.9) / 1000);
+    }
+
+    private void check(String key, long threshold) {
+        long value = values.get(key).longValue();
+        if (threshold >= 0 && value > threshold) {
+            violations.add(String.format("%s is %d, above threshold of %d", key, value, threshold));
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskScheduler;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import pl.trul.charactersheet.desktop.events.AsynchronousEventDispatcher;
+import pl.trul.charactersheet.desktop.events.EventPublisher;
+import pl.trul.charactersheet.desktop.events.EventTypeStatistics;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownReport;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Single soak run: event storms from publisher threads, a mix of periodic, short and blocking tasks and listener
+ * churn, all running for configured duration. Statistics gathered during warmup are discarded.
+ */
+class SoakRun {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int GC_ROUNDS = 3;
+
+    private Logger logger = Logger.getLogger(SoakRun.class.getName());
+    private final SoakConfig config;
+    private final SoakProbe probe;
+    private final EventDispatcher dispatcher;
+    private final TaskScheduler scheduler;
+    private final EventPublisher publisher;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<EventConnection> churnedListeners = new ArrayList<>();
+    private volatile boolean stopping = false;
+    private int churned = 0;
+    private long measuredNanos;
+    private int baselineThreads;
+    private int finalThreads;
+    private long baselineHeap;
+    private long finalHeap;
+
+    SoakRun(SoakConfig config, SoakProbe probe, EventDispatcher dispatcher, TaskScheduler scheduler) {
+        this.config = config;
+        this.probe = probe;
+        this.dispatcher = dispatcher;
+        this.scheduler = scheduler;
+        this.publisher = EventPublisher.of(dispatcher);
+    }
+
+    void execute() throws InterruptedException {
+        logger.info(String.format("Soak run of %s has begun", config.getDuration()));
+        long start = System.nanoTime();
+        long warmupEnd = start + config.getWarmup().toNanos();
+        long end = warmupEnd + config.getDuration().toNanos();
+
+        List<Thread> publishers = startPublishers();
+        startPeriodicTasks();
+        try {
+            runLoad(warmupEnd);
+            probe.reset();
+            threads.resetPeakThreadCount();
+            baselineThreads = threads.getThreadCount();
+            baselineHeap = usedHeapAfterGc();
+            long measuredStart = System.nanoTime();
+            runLoad(end);
+            measuredNanos = System.nanoTime() - measuredStart;
+        } finally {
+            stopping = true;
+            for (Thread thread : publishers) {
+                thread.join();
+            }
+            unregisterChurnedListeners();
+        }
+        finalThreads = threads.getThreadCount();
+        finalHeap = usedHeapAfterGc();
+        logger.info("Soak run has finished");
+    }
+
+    SoakReport createReport(ShutdownReport shutdown) {
+        return new SoakReport(config, probe, Duration.ofNanos(measuredNanos), baselineThreads, finalThreads,
+                threads.getPeakThreadCount(), baselineHeap, finalHeap, countLeakedListeners(), shutdown);
+    }
+
+    private List<Thread> startPublishers() {
+        List<Thread> publishers = new ArrayList<>();
+        double eventsPerPublisher = (double) config.getEventsPerSecond() / config.getPublishers();
+        long burstInterval = (long) (TimeUnit.SECONDS.toNanos(1) * config.getBurstSize() / eventsPerPublisher);
+        for (int i = 0; i < config.getPublishers(); ++i) {
+            int firstType = i;
+            Thread thread = new Thread(() -> publishStorms(firstType, burstInterval), "soak-publisher-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            publishers.add(thread);
+        }
+        return publishers;
+    }
+
+    /**
+     * Bursts are published on a fixed schedule, so a publisher delayed by backpressure catches up afterwards.
+     */
+    private void publishStorms(int firstType, long burstInterval) {
+        int type = firstType;
+        long nextBurst = System.nanoTime();
+        while (!stopping) {
+            for (int i = 0; i < config.getBurstSize(); ++i) {
+                publisher.publish(new SoakEvent(SoakEvent.eventType(type), System.nanoTime()));
+                probe.eventPublished();
+                type = (type + 1) % config.getEventTypes();
+            }
+            nextBurst += burstInterval;
+            parkUntil(nextBurst);
+        }
+    }
+
+    private void startPeriodicTasks() {
+        for (int i = 0; i < config.getPeriodicTasks(); ++i) {
+            long period = config.getTaskPeriod().toNanos();
+            long[] expectedStart = { 0 };
+            CyclingTask task = new CyclingTask(() -> {
+                long now = System.nanoTime();
+                if (expectedStart[0] != 0) {
+                    probe.cycleStarted(now - expectedStart[0]);
+                }
+                expectedStart[0] = now + period;
+            }, this::evaluatePeriodicTask);
+            if (scheduler instanceof AsynchronousTaskScheduler) {
+                ((AsynchronousTaskScheduler) scheduler).scheduleWithFixedRate(
+                        task, Duration.ZERO, config.getTaskPeriod());
+            } else {
+                scheduler.scheduleTask(task);
+            }
+        }
+    }
+
+    private TaskState evaluatePeriodicTask(TaskState state, ErrorMonad error) {
+        return stopping ? TaskState.DONE : state;
+    }
+
+    /**
+     * Generates short and blocking tasks and listener churn on calling thread, in ticks, until given moment.
+     */
+    private void runLoad(long until) {
+        double shortTasks = 0;
+        double blockingTasks = 0;
+        double churn = 0;
+        double ticksPerSecond = (double) TimeUnit.SECONDS.toNanos(1) / TICK_NANOS;
+        long nextTick = System.nanoTime();
+        while (nextTick < until) {
+            shortTasks += config.getShortTasksPerSecond() / ticksPerSecond;
+            blockingTasks += config.getBlockingTasksPerSecond() / ticksPerSecond;
+            churn += config.getListenerChurnPerSecond() / ticksPerSecond;
+            for (; shortTasks >= 1; --shortTasks) {
+                scheduleShortTask();
+            }
+            for (; blockingTasks >= 1; --blockingTasks) {
+                scheduleBlockingTask();
+            }
+            unregisterChurnedListeners();
+            for (; churn >= 1; --churn) {
+                churnListener(churned++);
+            }
+            nextTick += TICK_NANOS;
+            parkUntil(Math.min(nextTick, until));
+        }
+    }
+
+    private void scheduleShortTask() {
+        int[] cycles = { 0 };
+        scheduler.scheduleTask(new CyclingTask(() -> ++cycles[0], (TaskState state, ErrorMonad error) -> {
+            return cycles[0] < config.getShortTaskCycles() ? state : TaskState.DONE;
+        }));
+    }
+
+    private void scheduleBlockingTask() {
+        CyclingTask task = new CyclingTask(
+                () -> Thread.sleep(config.getBlockingTaskDuration().toMillis()),
+                (TaskState state, ErrorMonad error) -> TaskState.DONE);
+        if (scheduler instanceof AsynchronousTaskScheduler) {
+            ((AsynchronousTaskScheduler) scheduler).scheduleBlockingTask(task);
+        } else {
+            scheduler.scheduleTask(task);
+        }
+    }
+
+    /**
+     * Half of churned listeners are registered weakly by owners abandoned right away, the rest are unregistered
+     * on next tick. Either way none of them should outlive the run.
+     */
+    private void churnListener(int index) {
+        int eventType = SoakEvent.eventType(index % config.getEventTypes());
+        if (index % 2 == 0 && dispatcher instanceof AsynchronousEventDispatcher) {
+            ((AsynchronousEventDispatcher) dispatcher).registerWeakListener(
+                    eventType, new Object(), (owner, event) -> { });
+        } else {
+            churnedListeners.add(dispatcher.registerListener(eventType, (event) -> { }));
+        }
+    }
+
+    private void unregisterChurnedListeners() {
+        for (EventConnection conn : churnedListeners) {
+            try {
+                dispatcher.unregisterListener(conn);
+            } catch (Exception ex) {
+                logger.warning("Unable to unregister churned listener: " + ex);
+            }
+        }
+        churnedListeners.clear();
+    }
+
+    /**
+     * @return number of listeners of synthetic event types registered above the ones of SyntheticDomain
+     */
+    private long countLeakedListeners() {
+        if (!(dispatcher instanceof AsynchronousEventDispatcher)) {
+            return 0;
+        }
+        long leaked = 0;
+        for (EventTypeStatistics statistics
+                : ((AsynchronousEventDispatcher) dispatcher).getMetrics().getEventTypeStatistics()) {
+            int index = statistics.getEventType() - SoakEvent.FIRST_EVENT_TYPE;
+            if (index >= 0 && index < config.getEventTypes()) {
+                leaked += Math.max(0, statistics.getListenerCount() - config.getListenersPerEventType());
+            }
+        }
+        return leaked;
+    }
+
+    private long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < GC_ROUNDS; ++i) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
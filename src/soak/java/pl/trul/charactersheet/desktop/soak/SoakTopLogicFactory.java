@@ -0,0 +1,76 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.PackageInitializer;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDomain;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.ParallelismDomain;
+import pl.trul.charactersheet.desktop.app.BasicFunctionalityInitializer;
+import pl.trul.charactersheet.desktop.app.DependencyAwareInitializer;
+import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
+import pl.trul.charactersheet.desktop.app.DomainSpec;
+import pl.trul.charactersheet.desktop.lifecycle.ShutdownReport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Headless TopLogicFactory used by soak runs: desktop dispatcher, scheduler and executors, but synthetic domains
+ * instead of the GUI. Starting it runs the load and shuts everything down afterwards.
+ */
+public class SoakTopLogicFactory extends DesktopTopLogicFactory {
+    private Logger logger = Logger.getLogger(SoakTopLogicFactory.class.getName());
+    private final SoakConfig config;
+    private final SoakProbe probe = new SoakProbe();
+    private SoakReport report;
+
+    public SoakTopLogicFactory(SoakConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public List<PackageInitializer> getPackageInitializers() {
+        return new ArrayList<>(Arrays.asList(
+                new BasicFunctionalityInitializer(getDomainStartup()),
+                new SyntheticInitializer()
+        ));
+    }
+
+    @Override
+    public void start() {
+        awaitDomainStartup();
+
+        SoakRun run = new SoakRun(config, probe, getEventDispatcher(), getTaskScheduler());
+        try {
+            run.execute();
+        } catch (InterruptedException ex) {
+            logger.warning("Soak run has been interrupted, reporting partial results");
+            Thread.currentThread().interrupt();
+        }
+        ShutdownReport shutdown = shutdown(Duration.ofSeconds(5), Duration.ofSeconds(5));
+        report = run.createReport(shutdown);
+    }
+
+    /**
+     * @return results of the run, null until start has returned
+     */
+    public SoakReport getReport() {
+        return report;
+    }
+
+    private class SyntheticInitializer extends DependencyAwareInitializer {
+        SyntheticInitializer() {
+            super(getDomainStartup());
+        }
+
+        @Override
+        protected List<DomainSpec> getDomainSpecs() {
+            return new ArrayList<>(Collections.singletonList(
+                    DomainSpec.of(SyntheticDomain.class, () -> new SyntheticDomain(config, probe))
+                            .dependsOn(EventDomain.class, ParallelismDomain.class)
+            ));
+        }
+    }
+}
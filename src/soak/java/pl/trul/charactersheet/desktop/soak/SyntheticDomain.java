@@ -0,0 +1,50 @@
+package pl.trul.charactersheet.desktop.soak;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventDispatcher;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.events.TaskFinishedEvent;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+
+/**
+ * Domain standing in for the real ones during soak runs: on setup it registers listeners of all synthetic event
+ * types, which record delivery latency and optionally keep their thread busy for a while, and counts finished tasks.
+ */
+public class SyntheticDomain implements Domain {
+    private final ErrorMonad status = new ErrorMonad();
+    private final SoakConfig config;
+    private final SoakProbe probe;
+
+    public SyntheticDomain(SoakConfig config, SoakProbe probe) {
+        this.config = config;
+        this.probe = probe;
+    }
+
+    @Override
+    public ErrorMonad getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setup() {
+        EventDispatcher dispatcher = AppRootLogic.getEventDispatcher();
+        for (int type = 0; type < config.getEventTypes(); ++type) {
+            for (int i = 0; i < config.getListenersPerEventType(); ++i) {
+                dispatcher.registerListener(SoakEvent.eventType(type), this::onSoakEvent);
+            }
+        }
+        dispatcher.registerListener(TaskFinishedEvent.eventType(), (event) -> probe.taskFinished());
+    }
+
+    private void onSoakEvent(Event event) {
+        probe.eventHandled(Event.tryCast(event));
+        long work = config.getListenerWork().toNanos();
+        if (work > 0) {
+            long end = System.nanoTime() + work;
+            while (System.nanoTime() < end) {
+                // Simulates listener doing some computation
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package pl.trul.charactersheet.desktop.app;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.Domain;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for parallel startup of domains
+ */
+public class DomainStartupTest {
+    private static final Duration timeout = Duration.ofSeconds(10);
+    private static final List<String> setUpDomains = new CopyOnWriteArrayList<>();
+    private static volatile CyclicBarrier barrier = null;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final DomainStartup uut = new DomainStartup(executor);
+
+    private abstract static class TestDomain implements Domain {
+        private final ErrorMonad status = new ErrorMonad();
+
+        @Override
+        public ErrorMonad getStatus() {
+            return status;
+        }
+
+        @Override
+        public void setup() {
+            try {
+                if (barrier != null && !(this instanceof DependentDomain)) {
+                    barrier.await(10, TimeUnit.SECONDS);
+                }
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+            setUpDomains.add(getClass().getSimpleName());
+        }
+    }
+
+    private static class FirstDomain extends TestDomain {
+    }
+
+    private static class SecondDomain extends TestDomain {
+    }
+
+    private static class DependentDomain extends TestDomain {
+    }
+
+    private static class FailingDomain extends TestDomain {
+        @Override
+        public void setup() {
+            throw new IllegalStateException("setup failed");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        setUpDomains.clear();
+        barrier = null;
+        executor.shutdownNow();
+    }
+
+    private void initialize(DomainSpec... specs) {
+        for (DomainSpec spec : specs) {
+            uut.register(spec).setup();
+        }
+    }
+
+    @Test
+    public void independentDomainsShouldBeSetUpInParallelBeforeTheirDependents() throws Exception {
+        // Given:
+        barrier = new CyclicBarrier(2);
+        initialize(
+                DomainSpec.of(DependentDomain.class, DependentDomain::new)
+                        .dependsOn(FirstDomain.class, SecondDomain.class),
+                DomainSpec.of(FirstDomain.class, FirstDomain::new),
+                DomainSpec.of(SecondDomain.class, SecondDomain::new));
+
+        // When:
+        uut.awaitEagerDomains(timeout);
+
+        // Then:
+        assertThat(setUpDomains.size(), is(equalTo(3)));
+        assertThat(setUpDomains.get(2), is(equalTo("DependentDomain")));
+        assertThat(uut.getTimingReport().contains("FirstDomain"), is(true));
+    }
+
+    @Test
+    public void lazyDomainShouldBeSetUpOnFirstUse() throws Exception {
+        // Given:
+        initialize(DomainSpec.of(FirstDomain.class, FirstDomain::new).lazy());
+        uut.awaitEagerDomains(timeout);
+        boolean setUpBeforeUse = !setUpDomains.isEmpty();
+
+        // When:
+        FirstDomain domain = uut.require(FirstDomain.class);
+
+        // Then:
+        assertThat(setUpBeforeUse, is(false));
+        assertThat(domain.getStatus().hasErrorOccurred(), is(false));
+        assertThat(setUpDomains.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void failureShouldSkipDependentDomains() throws Exception {
+        // Given:
+        initialize(
+                DomainSpec.of(FailingDomain.class, FailingDomain::new),
+                DomainSpec.of(DependentDomain.class, DependentDomain::new).dependsOn(FailingDomain.class));
+
+        // When:
+        boolean failed = false;
+        try {
+            uut.awaitEagerDomains(timeout);
+        } catch (ExecutionException ex) {
+            failed = true;
+        }
+
+        // Then:
+        assertThat(failed, is(true));
+        assertThat(setUpDomains.isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void undeclaredDependencyShouldBeReported() throws Exception {
+        // Given:
+        initialize(DomainSpec.of(DependentDomain.class, DependentDomain::new).dependsOn(FirstDomain.class));
+
+        // When/Then:
+        uut.awaitEagerDomains(timeout);
+    }
+}
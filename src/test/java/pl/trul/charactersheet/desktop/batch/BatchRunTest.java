@@ -0,0 +1,153 @@
+package pl.trul.charactersheet.desktop.batch;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+import pl.trul.charactersheet.desktop.sheet.CharacterFileFormat;
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for batch processing of character files
+ */
+public class BatchRunTest {
+    private static final int fileCount = 20;
+
+    private DesktopTopLogicFactory factory;
+    private AsynchronousTaskScheduler scheduler;
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        factory = new DesktopTopLogicFactory();
+        new AppRootLogic(factory);
+        scheduler = new AsynchronousTaskScheduler(2, 1);
+        scheduler.init();
+        directory = Files.createTempDirectory("batch");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        factory.shutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        scheduler.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        try (Stream<Path> tree = Files.walk(directory)) {
+            for (Path path : tree.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private List<Path> writeSheets() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < fileCount; ++i) {
+            CharacterSheet sheet = new CharacterSheet("hero-" + i);
+            sheet.setField("skills", "climb", "rank", Integer.toString(i));
+            Path file = directory.resolve(String.format("hero-%02d%s", i, CharacterFileFormat.EXTENSION));
+            CharacterFileFormat.write(sheet, file);
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    public void everyFileShouldBeProcessedAndFailuresReported() throws Exception {
+        // Given:
+        List<Path> files = writeSheets();
+        Path broken = directory.resolve("broken" + CharacterFileFormat.EXTENSION);
+        Files.write(broken, "not a sheet".getBytes(StandardCharsets.UTF_8));
+        files.add(broken);
+
+        // When:
+        BatchReport report = new BatchRun("validate", new ValidateJob(), files)
+                .execute(scheduler, factory.getEventDispatcher());
+
+        // Then:
+        assertThat(report.getFileCount(), is(equalTo(fileCount + 1)));
+        assertThat(report.getSucceeded(), is(equalTo(fileCount)));
+        assertThat(report.getFailures().size(), is(equalTo(1)));
+        assertThat(report.getFailures().get(0).startsWith(broken.toString()), is(true));
+        assertThat(report.isPassed(), is(false));
+        assertThat(report.getFilesPerSecond() > 0, is(true));
+        assertThat(scheduler.tasksInQueue(), is(equalTo(0)));
+    }
+
+    @Test
+    public void filesNotProcessedBeforeDeadlineShouldBeReportedAsFailed() throws Exception {
+        // Given:
+        List<Path> files = writeSheets().subList(0, 2);
+        Path stuck = files.get(1);
+        CountDownLatch reportReady = new CountDownLatch(1);
+        BatchJob job = (file) -> {
+            if (file.equals(stuck)) {
+                reportReady.await(5, TimeUnit.SECONDS);
+            }
+        };
+
+        // When:
+        BatchReport report = new BatchRun("validate", job, files, Duration.ofMillis(200))
+                .execute(scheduler, factory.getEventDispatcher());
+        reportReady.countDown();
+
+        // Then:
+        assertThat(report.getSucceeded(), is(equalTo(1)));
+        assertThat(report.getFailures(), is(equalTo(Collections.singletonList(stuck + ": not finished within PT0.2S"))));
+    }
+
+    @Test
+    public void exportShouldWriteJsonOfEachFile() throws Exception {
+        // Given:
+        writeSheets();
+        Path output = directory.resolve("json");
+        List<Path> files = BatchMain.listFiles(Collections.singletonList(directory));
+
+        // When:
+        BatchReport report = new BatchRun("export", new ExportJob(output), files)
+                .execute(scheduler, factory.getEventDispatcher());
+
+        // Then:
+        assertThat(report.isPassed(), is(true));
+        assertThat(files.size(), is(equalTo(fileCount)));
+        assertThat(new String(Files.readAllBytes(output.resolve("hero-03.json")), StandardCharsets.UTF_8),
+                is(equalTo("{\"id\": \"hero-3\", \"sections\": {\"skills\": {\"climb\": {\"rank\": \"3\"}}}}\n")));
+    }
+
+    @Test
+    public void recomputeShouldRewriteOnlyStaleDerivedFields() throws Exception {
+        // Given:
+        CharacterSheet sheet = new CharacterSheet("hero");
+        sheet.setField("abilities", "strength", "score", "15");
+        sheet.setField("abilities", "strength", "modifier", "0");
+        sheet.setField("skills", "climb", "rank", "4");
+        Path file = directory.resolve("hero" + CharacterFileFormat.EXTENSION);
+        CharacterFileFormat.write(sheet, file);
+
+        // When:
+        new RecomputeJob(null).process(file);
+
+        // Then:
+        CharacterSheet recomputed = CharacterFileFormat.read(file);
+        assertThat(recomputed.getField("abilities", "strength", "modifier"), is(equalTo("2")));
+        assertThat(recomputed.getField("skills", "climb", "rank"), is(equalTo("4")));
+        assertThat(recomputed.getFieldCount(), is(equalTo(3)));
+    }
+}
@@ -0,0 +1,160 @@
+package pl.trul.charactersheet.desktop.calculation;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+import pl.trul.charactersheet.desktop.sheet.FieldRef;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for incremental recomputation of derived fields
+ */
+public class CalculationEngineTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    private static FieldRef field(String entry, String field) {
+        return FieldRef.of("stats", entry, field);
+    }
+
+    private Formula sum() {
+        return inputs -> {
+            evaluations.incrementAndGet();
+            int total = 0;
+            for (String input : inputs) {
+                total += input == null ? 0 : Integer.parseInt(input);
+            }
+            return Integer.toString(total);
+        };
+    }
+
+    /**
+     * Builds given number of chains: base -> bonus -> total, independent of each other.
+     */
+    private DependencyGraph makeChains(int count) {
+        DependencyGraph graph = new DependencyGraph();
+        for (int i = 0; i < count; ++i) {
+            String entry = "chain" + i;
+            graph.define(field(entry, "bonus"), sum(), field(entry, "base"));
+            graph.define(field(entry, "total"), sum(), field(entry, "bonus"), field("shared", "level"));
+        }
+        return graph;
+    }
+
+    @Test
+    public void onlyFieldsDependingOnChangeShouldBeRecomputed() {
+        // Given:
+        CalculationEngine uut = new CalculationEngine(makeChains(100));
+        Map<FieldRef, String> initial = new HashMap<>();
+        for (int i = 0; i < 100; ++i) {
+            initial.put(field("chain" + i, "base"), "1");
+        }
+        uut.update(initial);
+        evaluations.set(0);
+
+        // When:
+        Map<FieldRef, String> changes = uut.update(Collections.singletonMap(field("chain7", "base"), "5"));
+
+        // Then:
+        assertThat(evaluations.get(), is(equalTo(2)));
+        assertThat(new ArrayList<>(changes.keySet()),
+                is(equalTo(Arrays.asList(field("chain7", "bonus"), field("chain7", "total")))));
+        assertThat(uut.getValue(field("chain7", "total")), is(equalTo("5")));
+        assertThat(uut.getValue(field("chain8", "total")), is(equalTo("1")));
+    }
+
+    @Test
+    public void recomputationShouldStopWhereValueHasNotChanged() {
+        // Given:
+        DependencyGraph graph = new DependencyGraph();
+        graph.define(field("strength", "modifier"), StandardRules::abilityModifier, field("strength", "score"));
+        graph.define(field("attack", "total"), sum(), field("strength", "modifier"));
+        CalculationEngine uut = new CalculationEngine(graph);
+        uut.update(Collections.singletonMap(field("strength", "score"), "14"));
+        evaluations.set(0);
+
+        // When:
+        Map<FieldRef, String> changes = uut.update(Collections.singletonMap(field("strength", "score"), "15"));
+
+        // Then:
+        assertThat(changes.isEmpty(), is(true));
+        assertThat(evaluations.get(), is(equalTo(0)));
+        assertThat(uut.getValue(field("attack", "total")), is(equalTo("2")));
+    }
+
+    @Test
+    public void independentBranchesShouldBeRecomputedInParallel() throws Exception {
+        // Given:
+        new AppRootLogic(new DesktopTopLogicFactory());
+        AsynchronousTaskScheduler scheduler = new AsynchronousTaskScheduler(2, 1);
+        scheduler.init();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        DependencyGraph graph = new DependencyGraph();
+        for (int i = 0; i < 2; ++i) {
+            graph.define(field("branch" + i, "total"), inputs -> {
+                threads.add(Thread.currentThread().getName());
+                return inputs.get(0);
+            }, field("shared", "level"));
+        }
+        for (int i = 0; i < 20; ++i) {
+            graph.define(field("chain" + i, "bonus"), sum(), field("chain" + i, "base"), field("shared", "level"));
+        }
+        CalculationEngine uut = new CalculationEngine(graph, scheduler, 4);
+
+        // When:
+        Map<FieldRef, String> changes = uut.update(Collections.singletonMap(field("shared", "level"), "3"));
+
+        // Then:
+        assertThat(changes.size(), is(equalTo(22)));
+        assertThat(uut.getValue(field("chain19", "bonus")), is(equalTo("3")));
+        assertThat(threads.contains(Thread.currentThread().getName()), is(false));
+        scheduler.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void removingEntryShouldRemoveDerivedFields() {
+        // Given:
+        CalculationEngine uut = new CalculationEngine(StandardRules.createGraph());
+        FieldRef score = FieldRef.of(StandardRules.ABILITIES_SECTION, "dexterity", StandardRules.SCORE_FIELD);
+        FieldRef modifier = FieldRef.of(StandardRules.ABILITIES_SECTION, "dexterity", StandardRules.MODIFIER_FIELD);
+        uut.update(Collections.singletonMap(score, "7"));
+        String before = uut.getValue(modifier);
+
+        // When:
+        Map<FieldRef, String> changes = uut.removeEntry(StandardRules.ABILITIES_SECTION, "dexterity");
+
+        // Then:
+        assertThat(before, is(equalTo("-2")));
+        assertThat(changes, is(equalTo(Collections.singletonMap(modifier, null))));
+    }
+
+    @Test
+    public void definitionCreatingCycleShouldBeRejected() {
+        // Given:
+        DependencyGraph graph = makeChains(1);
+
+        // Then:
+        thrown.expect(IllegalArgumentException.class);
+
+        // When:
+        graph.define(field("chain0", "base"), sum(), field("chain0", "total"));
+    }
+}
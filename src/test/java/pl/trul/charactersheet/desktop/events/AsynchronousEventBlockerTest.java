@@ -0,0 +1,94 @@
+package pl.trul.charactersheet.desktop.events;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test suite for completion based event blocker
+ */
+public class AsynchronousEventBlockerTest {
+    private static final Duration blockLimit = Duration.ofMillis(200);
+
+    @Test
+    public void blockerWithoutHandlersShouldBeFinished() throws Exception {
+        // Given:
+        AsynchronousEventBlocker uut = new AsynchronousEventBlocker(0);
+
+        // When/Then:
+        uut.block(blockLimit);
+        assertThat(uut.hasFinished(), is(true));
+    }
+
+    @Test
+    public void blockShouldEnforceSingleOverallDeadline() throws Exception {
+        // Given:
+        AsynchronousEventBlocker uut = new AsynchronousEventBlocker(3);
+        long start = System.nanoTime();
+
+        // When:
+        try {
+            uut.block(blockLimit);
+        } catch (TimeoutException ignored) {
+
+        }
+
+        // Then:
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= blockLimit.toNanos());
+        assertTrue(elapsed < 2 * blockLimit.toNanos());
+    }
+
+    @Test
+    public void callbacksShouldRunOnceLastHandlerFinishes() {
+        // Given:
+        AsynchronousEventBlocker uut = new AsynchronousEventBlocker(2);
+        AtomicInteger calls = new AtomicInteger();
+        uut.whenFinished(calls::incrementAndGet);
+
+        // When:
+        uut.handlerFinished();
+        int callsBeforeLastHandler = calls.get();
+        uut.handlerDropped();
+
+        // Then:
+        assertThat(callsBeforeLastHandler, is(equalTo(0)));
+        assertThat(calls.get(), is(equalTo(1)));
+        assertThat(uut.droppedHandlers(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void callbackRegisteredAfterCompletionShouldRunImmediately() {
+        // Given:
+        AsynchronousEventBlocker uut = new AsynchronousEventBlocker(1);
+        AtomicInteger calls = new AtomicInteger();
+        uut.handlerFinished();
+
+        // When:
+        uut.whenFinished(calls::incrementAndGet);
+
+        // Then:
+        assertThat(calls.get(), is(equalTo(1)));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void handlerFailureShouldBeReportedByBlock() throws Exception {
+        // Given:
+        AsynchronousEventBlocker uut = new AsynchronousEventBlocker(2);
+
+        // When:
+        uut.handlerFailed(new IllegalStateException());
+        uut.handlerFinished();
+
+        // Then:
+        uut.block(blockLimit);
+    }
+}
@@ -7,9 +7,21 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import pl.trul.charactersheet.desktop.parallelism.ExecutorSubsystem;
 
+import java.lang.ref.WeakReference;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -26,6 +38,7 @@ public class AsynchronousEventDispatcherTest {
     public ExpectedException thrown = ExpectedException.none();
 
     private static final int eventType = 0;
+    private static final int controlEventType = 1;
     private static final Duration handlingEventLimit = Duration.ofSeconds(10);
 
     private Event caughtEvent = null;
@@ -121,6 +134,101 @@ public class AsynchronousEventDispatcherTest {
         assertTrue(true);
     }
 
+    @Test
+    public void publishShouldDeliverEventWithoutTrackingCompletion() throws Exception {
+        // Given:
+        CountDownLatch delivered = new CountDownLatch(1);
+        uut.registerListener(eventType, (event) -> {
+            caughtEvent = event;
+            delivered.countDown();
+        });
+        Event e = new Event(eventType);
+
+        // When:
+        uut.publish(e);
+
+        // Then:
+        assertTrue(delivered.await(handlingEventLimit.toMillis(), TimeUnit.MILLISECONDS));
+        assertThat(caughtEvent, is(equalTo(e)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void inlineListenerShouldRunOnPublisherThread() throws Exception {
+        // Given:
+        List<Thread> handlingThreads = new ArrayList<>();
+        uut.registerListener(eventType, (event) -> handlingThreads.add(Thread.currentThread()), DeliveryMode.INLINE);
+
+        // When:
+        EventBlocker bl = uut.notifyEvent(new Event(eventType));
+
+        // Then:
+        assertThat(bl.hasFinished(), is(true));
+        assertThat(handlingThreads, is(equalTo(Collections.singletonList(Thread.currentThread()))));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void serialListenerShouldHandleEventsInPublishingOrder() throws Exception {
+        // Given:
+        List<Event> published = new ArrayList<>();
+        List<Event> handled = new ArrayList<>();
+        uut.registerListener(eventType, handled::add, DeliveryMode.SERIAL);
+        EventBlocker bl = null;
+
+        // When:
+        for (int i = 0; i < 500; ++i) {
+            Event e = new Event(eventType);
+            published.add(e);
+            bl = uut.notifyEvent(e);
+        }
+        bl.block(handlingEventLimit);
+
+        // Then:
+        assertThat(handled, is(equalTo(published)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void serialListenerShouldKeepReceivingEventsOnceExecutorRejectsThem() throws Exception {
+        // Given:
+        ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+        AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher(rejecting);
+        List<Event> handled = new ArrayList<>();
+        dispatcher.registerListener(eventType, handled::add, DeliveryMode.SERIAL);
+
+        // When:
+        EventBlocker first = dispatcher.notifyEvent(new Event(eventType));
+        EventBlocker second = dispatcher.notifyEvent(new Event(eventType));
+
+        // Then:
+        assertThat(first.hasFinished() && second.hasFinished(), is(true));
+        assertThat(handled.size(), is(equalTo(2)));
+        assertThat(dispatcher.isQuiescent(), is(true));
+    }
+
+    @Test
+    public void serialListenerOfSeveralTypesShouldHandleThemInPublishingOrder() throws Exception {
+        // Given:
+        List<Event> published = new ArrayList<>();
+        List<Event> handled = new ArrayList<>();
+        uut.registerSerialListener(handled::add, eventType, controlEventType);
+        EventBlocker bl = null;
+
+        // When:
+        for (int i = 0; i < 500; ++i) {
+            Event e = new Event(i % 3 == 0 ? controlEventType : eventType);
+            published.add(e);
+            bl = uut.notifyEvent(e);
+        }
+        bl.block(handlingEventLimit);
+
+        // Then:
+        assertThat(handled, is(equalTo(published)));
+        shutdownDispatcher();
+    }
+
     @Test
     public void gentleShutdownShouldAlwaysWork() throws Exception {
         // Given:
@@ -152,4 +260,260 @@ public class AsynchronousEventDispatcherTest {
 
         shutdownDispatcher();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void higherPriorityLaneShouldBeDrainedFirst() throws Exception {
+        // Given:
+        uut = new AsynchronousEventDispatcher(new EventLane("bulk", 0, 100, OverflowPolicy.BLOCK), 1);
+        uut.assignLane(controlEventType, new EventLane("control", 10, 100, OverflowPolicy.BLOCK));
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handlingOrder = Collections.synchronizedList(new ArrayList<>());
+        uut.registerListener(eventType, makeRecordingTask(release, handlingOrder));
+        uut.registerListener(controlEventType, makeRecordingTask(release, handlingOrder));
+        awaitHandlingStarted(uut.notifyEvent(new Event(eventType)));
+
+        // When:
+        for (int i = 0; i < 5; ++i) {
+            uut.notifyEvent(new Event(eventType));
+        }
+        EventBlocker bl = uut.notifyEvent(new Event(controlEventType));
+        release.countDown();
+        bl.block(handlingEventLimit);
+
+        // Then:
+        assertThat(handlingOrder.subList(0, 2), is(equalTo(Arrays.asList(eventType, controlEventType))));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void listenerPublishingIntoItsOwnFullLaneShouldNotDeadlock() throws Exception {
+        // Given:
+        uut = new AsynchronousEventDispatcher(new EventLane("bulk", 0, 1, OverflowPolicy.BLOCK), 1);
+        AtomicInteger handled = new AtomicInteger();
+        List<EventBlocker> nested = Collections.synchronizedList(new ArrayList<>());
+        uut.registerListener(controlEventType, (event) -> handled.incrementAndGet());
+        uut.registerListener(eventType, (event) -> {
+            nested.add(uut.notifyEvent(new Event(controlEventType)));
+            nested.add(uut.notifyEvent(new Event(controlEventType)));
+        });
+
+        // When:
+        uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+        for (EventBlocker bl : nested) {
+            bl.block(handlingEventLimit);
+        }
+
+        // Then:
+        assertThat(handled.get(), is(equalTo(2)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void eventPublishedAfterShutdownShouldBeDropped() throws Exception {
+        // Given:
+        uut.registerListener(eventType, makeCallback());
+        shutdownDispatcher();
+
+        // When:
+        uut.publish(new Event(eventType));
+        AsynchronousEventBlocker bl = (AsynchronousEventBlocker) uut.notifyEvent(new Event(eventType));
+
+        // Then:
+        assertThat(bl.hasFinished(), is(true));
+        assertThat(bl.droppedHandlers(), is(equalTo(1L)));
+        assertThat(caughtEvent, is(nullValue()));
+    }
+
+    @Test
+    public void eventPublishedAfterShutdownThroughConfiguredPoolShouldBeDropped() throws Exception {
+        // Given:
+        uut = new AsynchronousEventDispatcher(ExecutorSubsystem.load().getPool("events"));
+        uut.registerListener(eventType, makeCallback());
+        shutdownDispatcher();
+
+        // When:
+        AsynchronousEventBlocker bl = (AsynchronousEventBlocker) uut.notifyEvent(new Event(eventType));
+
+        // Then:
+        assertThat(bl.hasFinished(), is(true));
+        assertThat(bl.droppedHandlers(), is(equalTo(1L)));
+        assertThat(uut.isQuiescent(), is(true));
+        assertThat(caughtEvent, is(nullValue()));
+    }
+
+    @Test
+    public void blockerShouldExposeLaneOccupancyAndDroppedHandlers() throws Exception {
+        // Given:
+        uut = new AsynchronousEventDispatcher(new EventLane("bulk", 0, 2, OverflowPolicy.DROP_NEWEST), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        uut.registerListener(eventType, makeRecordingTask(release, new ArrayList<>()));
+        awaitHandlingStarted(uut.notifyEvent(new Event(eventType)));
+        uut.notifyEvent(new Event(eventType));
+
+        // When:
+        AsynchronousEventBlocker queued = (AsynchronousEventBlocker) uut.notifyEvent(new Event(eventType));
+        AsynchronousEventBlocker dropped = (AsynchronousEventBlocker) uut.notifyEvent(new Event(eventType));
+
+        // Then:
+        assertThat(queued.getLaneOccupancy(), is(equalTo(2)));
+        assertThat(queued.getLane().get().getName(), is(equalTo("bulk")));
+        assertThat(queued.droppedHandlers(), is(equalTo(0L)));
+        assertThat(dropped.droppedHandlers(), is(equalTo(1L)));
+        assertThat(dropped.hasFinished(), is(true));
+        release.countDown();
+        queued.block(handlingEventLimit);
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void metricsShouldCountPublishedEventsAndFailedOrSlowListeners() throws Exception {
+        // Given:
+        uut.getMetrics().setSlowListenerThresholdMillis(0);
+        uut.registerListener(eventType, (event) -> { throw new IllegalStateException("test"); });
+        uut.registerListener(eventType, makeLongTask());
+
+        // When:
+        uut.publish(new Event(eventType));
+        EventBlocker bl = uut.notifyEvent(new Event(eventType));
+        try {
+            bl.block(handlingEventLimit);
+        } catch (ExecutionException ignored) {
+
+        }
+
+        // Then:
+        List<EventTypeStatistics> statistics = uut.getMetrics().getEventTypeStatistics();
+        assertThat(statistics.size(), is(equalTo(1)));
+        EventTypeStatistics stats = statistics.get(0);
+        assertThat(stats.getEventType(), is(equalTo(eventType)));
+        assertThat(stats.getPublishedCount(), is(equalTo(2L)));
+        assertThat(stats.getListenerCount(), is(equalTo(2)));
+        assertThat(stats.getFailedListeners(), is(equalTo(2L)));
+        assertTrue(stats.getSlowListeners() >= 3);
+        assertTrue(stats.getExecutionP99Micros() >= TimeUnit.SECONDS.toMicros(1));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void coalescableEventsShouldBeMergedUntilDelivered() throws Exception {
+        // Given:
+        List<Event> delivered = Collections.synchronizedList(new ArrayList<>());
+        uut.registerListener(eventType, delivered::add);
+        uut.registerCoalescing(eventType, (event) -> ((KeyedEvent) event).key, Duration.ofMillis(200));
+        List<EventBlocker> blockers = new ArrayList<>();
+        KeyedEvent lastOfFirst = null;
+        KeyedEvent lastOfSecond = null;
+
+        // When:
+        for (int i = 0; i < 5; ++i) {
+            lastOfFirst = new KeyedEvent("first");
+            lastOfSecond = new KeyedEvent("second");
+            blockers.add(uut.notifyEvent(lastOfFirst));
+            blockers.add(uut.notifyEvent(lastOfSecond));
+        }
+        for (EventBlocker bl : blockers) {
+            bl.block(handlingEventLimit);
+        }
+
+        // Then:
+        assertThat(delivered.size(), is(equalTo(2)));
+        assertTrue(delivered.contains(lastOfFirst));
+        assertTrue(delivered.contains(lastOfSecond));
+        assertThat(uut.getCoalescedEventCount(eventType), is(equalTo(8L)));
+        assertThat(uut.getMetrics().getEventTypeStatistics().get(0).getPublishedCount(), is(equalTo(10L)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void shutdownShouldDeliverPendingCoalescedEvents() throws Exception {
+        // Given:
+        uut.registerListener(eventType, makeCallback());
+        uut.registerCoalescing(eventType, (event) -> null, Duration.ofHours(1));
+        Event published = new Event(eventType);
+        EventBlocker bl = uut.notifyEvent(published);
+
+        // When:
+        shutdownDispatcher();
+
+        // Then:
+        assertThat(bl.hasFinished(), is(true));
+        assertThat(caughtEvent, is(equalTo(published)));
+    }
+
+    @Test
+    public void weakListenerShouldBePrunedOnceOwnerIsCollected() throws Exception {
+        // Given:
+        AtomicInteger handled = new AtomicInteger();
+        Object owner = new Object();
+        WeakReference<Object> ownerReference = new WeakReference<>(owner);
+        uut.registerWeakListener(eventType, owner, (o, event) -> handled.incrementAndGet());
+        uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+
+        // When:
+        owner = null;
+        while (ownerReference.get() != null) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+
+        // Then:
+        assertThat(handled.get(), is(equalTo(1)));
+        assertThat(uut.getMetrics().getEventTypeStatistics().get(0).getListenerCount(), is(equalTo(0)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void pulseListenerShouldHandleOnlyLatestEventPerKeyOnDrainingThread() throws Exception {
+        // Given:
+        List<String> handled = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        uut.registerPulseListener(eventType, (event) -> {
+            handled.add(((KeyedEvent) event).key);
+            threads.add(Thread.currentThread());
+        }, (event) -> ((KeyedEvent) event).key.substring(0, 1));
+        EventBlocker first = uut.notifyEvent(new KeyedEvent("a1"));
+        EventBlocker second = uut.notifyEvent(new KeyedEvent("b1"));
+        EventBlocker third = uut.notifyEvent(new KeyedEvent("a2"));
+        boolean handledBeforePulse = first.hasFinished() || !handled.isEmpty();
+
+        // When:
+        int drained = uut.getPulseBatcher().drain(TimeUnit.SECONDS.toNanos(1));
+
+        // Then:
+        assertThat(handledBeforePulse, is(false));
+        assertThat(drained, is(equalTo(2)));
+        assertThat(handled, is(equalTo(Arrays.asList("b1", "a2"))));
+        assertThat(threads, is(equalTo(Arrays.asList(Thread.currentThread(), Thread.currentThread()))));
+        assertThat(first.hasFinished() && second.hasFinished() && third.hasFinished(), is(true));
+        assertThat(uut.getMetrics().getPulseBatchCount(), is(equalTo(1L)));
+        shutdownDispatcher();
+    }
+
+    private static class KeyedEvent extends Event {
+        private final String key;
+
+        private KeyedEvent(String key) {
+            super(AsynchronousEventDispatcherTest.eventType);
+            this.key = key;
+        }
+    }
+
+    private void awaitHandlingStarted(EventBlocker bl) throws InterruptedException {
+        while (((AsynchronousEventBlocker) bl).getLaneOccupancy() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private Consumer<Event> makeRecordingTask(CountDownLatch release, List<Integer> handlingOrder) {
+        return (event) -> {
+            try {
+                release.await();
+                handlingOrder.add(event.eventType);
+            }
+            catch (InterruptedException ignored) {
+
+            }
+        };
+    }
+}
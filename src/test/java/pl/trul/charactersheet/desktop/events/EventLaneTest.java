@@ -0,0 +1,159 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for bounded event lanes
+ */
+public class EventLaneTest {
+    private static final int capacity = 2;
+
+    private final EventConnection conn = new EventConnection(0, (event) -> { });
+    private final List<Event> invoked = new ArrayList<>();
+    private final LaneScheduler.Invoker recordingInvoker = (event, conn, completion, publishedNanos) -> {
+        invoked.add(event);
+        completion.handlerFinished();
+    };
+
+    private AsynchronousEventBlocker makeCompletion() {
+        return new AsynchronousEventBlocker(1);
+    }
+
+    private EventLane makeFullLane(OverflowPolicy policy, AsynchronousEventBlocker oldest) {
+        EventLane lane = new EventLane("test", 0, capacity, policy);
+        lane.offer(new Event(0), conn, oldest, 0L);
+        lane.offer(new Event(0), conn, makeCompletion(), 0L);
+        return lane;
+    }
+
+    @Test
+    public void invocationsShouldBeRunInFifoOrder() {
+        // Given:
+        EventLane lane = new EventLane("test", 0, capacity, OverflowPolicy.BLOCK);
+        Event first = new Event(1);
+        Event second = new Event(2);
+        Event third = new Event(3);
+        lane.offer(first, conn, makeCompletion(), 0L);
+        lane.offer(second, conn, makeCompletion(), 0L);
+
+        // When:
+        lane.runNext(recordingInvoker);
+        lane.offer(third, conn, makeCompletion(), 0L);
+        while (lane.runNext(recordingInvoker)) {
+            assertThat(lane.getOccupancy() < capacity, is(true));
+        }
+
+        // Then:
+        assertThat(invoked, is(equalTo(Arrays.asList(first, second, third))));
+        assertThat(lane.getOccupancy(), is(equalTo(0)));
+    }
+
+    @Test
+    public void dropOldestShouldCancelHeadOfFullLane() {
+        // Given:
+        AsynchronousEventBlocker oldest = makeCompletion();
+        AsynchronousEventBlocker newest = makeCompletion();
+        EventLane lane = makeFullLane(OverflowPolicy.DROP_OLDEST, oldest);
+
+        // When:
+        boolean queued = lane.offer(new Event(0), conn, newest, 0L);
+
+        // Then:
+        assertThat(queued, is(true));
+        assertThat(oldest.droppedHandlers(), is(equalTo(1L)));
+        assertThat(oldest.hasFinished(), is(true));
+        assertThat(newest.hasFinished(), is(false));
+        assertThat(lane.getOccupancy(), is(equalTo(capacity)));
+    }
+
+    @Test
+    public void dropNewestShouldCancelPublishedInvocation() {
+        // Given:
+        AsynchronousEventBlocker oldest = makeCompletion();
+        AsynchronousEventBlocker newest = makeCompletion();
+        EventLane lane = makeFullLane(OverflowPolicy.DROP_NEWEST, oldest);
+
+        // When:
+        lane.offer(new Event(0), conn, newest, 0L);
+
+        // Then:
+        assertThat(oldest.hasFinished(), is(false));
+        assertThat(newest.droppedHandlers(), is(equalTo(1L)));
+        assertThat(lane.getOccupancy(), is(equalTo(capacity)));
+    }
+
+    @Test
+    public void droppingFireAndForgetInvocationShouldBePossible() {
+        // Given:
+        EventLane lane = new EventLane("test", 0, 1, OverflowPolicy.DROP_OLDEST);
+        lane.offer(new Event(0), conn, null, 0L);
+
+        // When/Then:
+        assertThat(lane.offer(new Event(0), conn, null, 0L), is(true));
+        assertThat(lane.getOccupancy(), is(equalTo(1)));
+    }
+
+    @Test
+    public void callerRunsShouldRefuseInvocationOfFullLane() {
+        // Given:
+        EventLane lane = makeFullLane(OverflowPolicy.CALLER_RUNS, makeCompletion());
+
+        // When/Then:
+        assertThat(lane.offer(new Event(0), conn, makeCompletion(), 0L), is(false));
+        assertThat(lane.getOccupancy(), is(equalTo(capacity)));
+    }
+
+    @Test
+    public void blockShouldWaitUntilLaneHasSpace() throws Exception {
+        // Given:
+        EventLane lane = makeFullLane(OverflowPolicy.BLOCK, makeCompletion());
+        Thread publisher = new Thread(() -> lane.offer(new Event(0), conn, makeCompletion(), 0L));
+
+        // When:
+        publisher.start();
+        TimeUnit.MILLISECONDS.timedJoin(publisher, 100);
+        boolean blocked = publisher.isAlive();
+        lane.runNext(recordingInvoker);
+        publisher.join(10_000);
+
+        // Then:
+        assertThat(blocked, is(true));
+        assertThat(publisher.isAlive(), is(false));
+        assertThat(lane.getOccupancy(), is(equalTo(capacity)));
+    }
+
+    @Test
+    public void blockShouldFallBackToCallerRunsWhenPublisherMayNotBlock() {
+        // Given:
+        EventLane lane = makeFullLane(OverflowPolicy.BLOCK, makeCompletion());
+
+        // When/Then:
+        assertThat(lane.offer(new Event(0), conn, makeCompletion(), 0L, false), is(false));
+        assertThat(lane.getOccupancy(), is(equalTo(capacity)));
+    }
+
+    @Test
+    public void cancelAllShouldFinishPendingCompletions() {
+        // Given:
+        AsynchronousEventBlocker oldest = makeCompletion();
+        EventLane lane = makeFullLane(OverflowPolicy.BLOCK, oldest);
+
+        // When:
+        lane.cancelAll();
+
+        // Then:
+        assertThat(oldest.hasFinished(), is(true));
+        assertThat(lane.getOccupancy(), is(equalTo(0)));
+    }
+}
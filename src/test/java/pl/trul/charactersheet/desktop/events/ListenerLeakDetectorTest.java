@@ -0,0 +1,69 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for listener leak detector
+ */
+public class ListenerLeakDetectorTest {
+    private static final int eventType = 3;
+    private static final int growthStreakThreshold = 3;
+
+    private ListenerRegistry registry;
+    private ListenerLeakDetector uut;
+
+    private EventConnection addListener() {
+        EventConnection conn = new EventConnection(eventType, (event) -> { });
+        registry.add(new ListenerBinding(conn, DeliveryMode.ASYNC, null));
+        return conn;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new ListenerRegistry();
+        uut = new ListenerLeakDetector(registry, growthStreakThreshold);
+    }
+
+    @Test
+    public void steadilyGrowingListenerCountShouldBeReported() {
+        // Given:
+        addListener();
+        uut.sample();
+
+        // When:
+        for (int i = 0; i < growthStreakThreshold; ++i) {
+            addListener();
+            uut.sample();
+            uut.sample();
+        }
+
+        // Then:
+        assertThat(uut.getSuspectedLeaks().get(eventType), is(equalTo(growthStreakThreshold + 1)));
+    }
+
+    @Test
+    public void droppingListenerCountShouldResetGrowthStreak() throws Exception {
+        // Given:
+        EventConnection first = addListener();
+        uut.sample();
+        for (int i = 0; i < growthStreakThreshold - 1; ++i) {
+            addListener();
+            uut.sample();
+        }
+
+        // When:
+        registry.remove(first);
+        uut.sample();
+        addListener();
+        uut.sample();
+
+        // Then:
+        assertThat(uut.getSuspectedLeaks().isEmpty(), is(true));
+    }
+}
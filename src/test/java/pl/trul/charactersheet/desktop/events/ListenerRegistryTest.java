@@ -0,0 +1,177 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test suite for copy-on-write listener registry
+ */
+public class ListenerRegistryTest {
+    private static final int eventType = 7;
+    private static final int otherEventType = -3;
+    private static final int permanentListeners = 8;
+    private static final int churnRounds = 10_000;
+
+    private ListenerRegistry uut;
+
+    private Consumer<Event> makeCallback() {
+        return (event) -> { };
+    }
+
+    private ListenerBinding bind(EventConnection conn) {
+        return new ListenerBinding(conn, DeliveryMode.ASYNC, null);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new ListenerRegistry();
+    }
+
+    @Test
+    public void unknownEventTypeShouldHaveNoListeners() {
+        assertThat(uut.getListeners(eventType).length, is(equalTo(0)));
+    }
+
+    @Test
+    public void listenersShouldBeKeptPerEventType() {
+        // Given:
+        EventConnection first = new EventConnection(eventType, makeCallback());
+        EventConnection second = new EventConnection(eventType, makeCallback());
+        EventConnection other = new EventConnection(otherEventType, makeCallback());
+
+        // When:
+        uut.add(bind(first));
+        uut.add(bind(other));
+        uut.add(bind(second));
+
+        // Then:
+        assertThat(uut.listenerCount(eventType), is(equalTo(2)));
+        assertThat(uut.getListeners(eventType)[0].getConnection(), is(equalTo(first)));
+        assertThat(uut.getListeners(eventType)[1].getConnection(), is(equalTo(second)));
+        assertThat(uut.listenerCount(otherEventType), is(equalTo(1)));
+    }
+
+    @Test
+    public void removalShouldNotAffectPreviouslyReadSnapshot() {
+        // Given:
+        EventConnection conn = new EventConnection(eventType, makeCallback());
+        uut.add(bind(conn));
+        ListenerBinding[] snapshot = uut.getListeners(eventType);
+
+        // When:
+        boolean removed = uut.remove(conn);
+
+        // Then:
+        assertThat(removed, is(true));
+        assertThat(snapshot.length, is(equalTo(1)));
+        assertThat(uut.listenerCount(eventType), is(equalTo(0)));
+    }
+
+    @Test
+    public void removingUnknownConnectionShouldFail() {
+        // Given:
+        uut.add(bind(new EventConnection(eventType, makeCallback())));
+
+        // When/Then:
+        assertThat(uut.remove(new EventConnection(eventType, makeCallback())), is(false));
+        assertThat(uut.remove(new EventConnection(otherEventType, makeCallback())), is(false));
+    }
+
+    @Test
+    public void removedBindingShouldBeDeactivatedUntilCompaction() {
+        // Given:
+        EventConnection conn = new EventConnection(eventType, makeCallback());
+        ListenerBinding binding = bind(conn);
+        uut.add(binding);
+
+        // When:
+        uut.remove(conn);
+        ListenerBinding[] beforeCompaction = uut.getListeners(eventType);
+        uut.compact();
+
+        // Then:
+        assertThat(binding.isActive(), is(false));
+        assertThat(beforeCompaction.length, is(equalTo(1)));
+        assertThat(uut.getListeners(eventType).length, is(equalTo(0)));
+        assertThat(uut.remove(conn), is(false));
+    }
+
+    @Test
+    public void staleBindingsShouldBeCompactedOnceTheyOutnumberActiveOnes() {
+        // Given:
+        uut.add(bind(new EventConnection(eventType, makeCallback())));
+        List<EventConnection> removed = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            EventConnection conn = new EventConnection(eventType, makeCallback());
+            uut.add(bind(conn));
+            removed.add(conn);
+        }
+
+        // When:
+        removed.forEach(uut::remove);
+
+        // Then:
+        assertTrue(uut.getListeners(eventType).length < 50);
+        assertThat(uut.listenerCount(eventType), is(equalTo(1)));
+    }
+
+    @Test
+    public void concurrentReadersShouldAlwaysSeeListenersRegisteredBeforeChurn() throws Exception {
+        // Given:
+        List<EventConnection> permanent = new ArrayList<>();
+        for (int i = 0; i < permanentListeners; ++i) {
+            EventConnection conn = new EventConnection(eventType, makeCallback());
+            uut.add(bind(conn));
+            permanent.add(conn);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger incompleteReads = new AtomicInteger();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < threads; ++i) {
+            readers.add(new Thread(() -> {
+                while (running.get()) {
+                    int found = 0;
+                    for (ListenerBinding binding : uut.getListeners(eventType)) {
+                        if (permanent.contains(binding.getConnection())) {
+                            ++found;
+                        }
+                    }
+                    if (found != permanentListeners) {
+                        incompleteReads.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+
+        // When:
+        for (int i = 0; i < churnRounds; ++i) {
+            EventConnection conn = new EventConnection(i % 2 == 0 ? eventType : otherEventType, makeCallback());
+            uut.add(bind(conn));
+            uut.remove(conn);
+        }
+        running.set(false);
+        for (Thread t : readers) {
+            t.join();
+        }
+
+        // Then:
+        assertThat(incompleteReads.get(), is(equalTo(0)));
+        assertThat(uut.listenerCount(eventType), is(equalTo(permanentListeners)));
+        assertThat(uut.listenerCount(otherEventType), is(equalTo(0)));
+    }
+}
@@ -0,0 +1,179 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for batched delivery of PULSE listeners
+ */
+public class PulseBatcherTest {
+    private static final long unlimitedBudget = TimeUnit.SECONDS.toNanos(10);
+
+    private final List<Event> invoked = new ArrayList<>();
+    private final DispatcherMetrics metrics = new DispatcherMetrics((eventType) -> 0);
+    private final PulseBatcher uut = new PulseBatcher((event, conn, completion, publishedNanos) -> {
+        invoked.add(event);
+        if (completion != null) {
+            completion.handlerFinished();
+        }
+    }, metrics);
+    private final EventConnection conn = new EventConnection(0, (event) -> { });
+
+    @Test
+    public void invocationsQueuedDuringBatchShouldWaitForNextPulse() {
+        // Given:
+        Event first = new Event(1);
+        Event published = new Event(2);
+        PulseBatcher[] batcher = { null };
+        batcher[0] = new PulseBatcher((event, conn, completion, publishedNanos) -> {
+            invoked.add(event);
+            if (event == first) {
+                batcher[0].submit(published, conn, null, 0L);
+            }
+        }, metrics);
+        batcher[0].submit(first, conn, null, 0L);
+
+        // When:
+        int firstPulse = batcher[0].drain(unlimitedBudget);
+        int secondPulse = batcher[0].drain(unlimitedBudget);
+
+        // Then:
+        assertThat(firstPulse, is(equalTo(1)));
+        assertThat(secondPulse, is(equalTo(1)));
+        assertThat(invoked, is(equalTo(Arrays.asList(first, published))));
+    }
+
+    @Test
+    public void drainShouldRunQueuedInvocationsInPublishingOrder() {
+        // Given:
+        Event first = new Event(1);
+        Event second = new Event(2);
+        uut.submit(first, conn, null, 0L);
+        uut.submit(second, conn, null, 0L);
+
+        // When:
+        int handled = uut.drain(unlimitedBudget);
+
+        // Then:
+        assertThat(handled, is(equalTo(2)));
+        assertThat(invoked, is(equalTo(Arrays.asList(first, second))));
+        assertThat(uut.getPendingCount(), is(equalTo(0)));
+        assertThat(metrics.getLargestPulseBatch(), is(equalTo(2)));
+    }
+
+    @Test
+    public void exhaustedBudgetShouldLeaveInvocationsForNextPulse() {
+        // Given:
+        uut.submit(new Event(1), conn, null, 0L);
+        uut.submit(new Event(2), conn, null, 0L);
+
+        // When:
+        int handled = uut.drain(0);
+
+        // Then:
+        assertThat(handled, is(equalTo(0)));
+        assertThat(uut.getPendingCount(), is(equalTo(2)));
+        assertThat(uut.drain(unlimitedBudget), is(equalTo(2)));
+    }
+
+    @Test
+    public void coalescedEventShouldFinishAllItsPublishers() {
+        // Given:
+        uut.register(conn, (event) -> "same");
+        AsynchronousEventBlocker older = new AsynchronousEventBlocker(1);
+        AsynchronousEventBlocker newer = new AsynchronousEventBlocker(1);
+        Event latest = new Event(2);
+        uut.submit(new Event(1), conn, older, 0L);
+        uut.submit(latest, conn, newer, 0L);
+
+        // When:
+        uut.drain(unlimitedBudget);
+
+        // Then:
+        assertThat(invoked, is(equalTo(Arrays.asList(latest))));
+        assertThat(older.hasFinished() && newer.hasFinished(), is(true));
+        assertThat(metrics.forEventType(latest.eventType).getCoalescedCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void coalescedEventShouldRunAfterEventsPublishedBeforeIt() {
+        // Given:
+        uut.register(conn, (event) -> "same");
+        EventConnection other = new EventConnection(0, (event) -> { });
+        Event between = new Event(2);
+        Event latest = new Event(1);
+        uut.submit(new Event(1), conn, null, 0L);
+        uut.submit(between, other, null, 0L);
+        uut.submit(latest, conn, null, 0L);
+
+        // When:
+        int handled = uut.drain(unlimitedBudget);
+
+        // Then:
+        assertThat(handled, is(equalTo(2)));
+        assertThat(invoked, is(equalTo(Arrays.asList(between, latest))));
+        assertThat(uut.getPendingCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void pulseShouldBeRequestedOnlyOnceQueueStopsBeingEmpty() {
+        // Given:
+        int[] requests = { 0 };
+        uut.setPulseRequester(() -> ++requests[0]);
+        uut.submit(new Event(1), conn, null, 0L);
+        uut.submit(new Event(2), conn, null, 0L);
+
+        // When:
+        uut.drain(unlimitedBudget);
+        uut.submit(new Event(3), conn, null, 0L);
+
+        // Then:
+        assertThat(requests[0], is(equalTo(2)));
+    }
+
+    @Test
+    public void fullQueueShouldDropNewInvocations() {
+        // Given:
+        PulseBatcher bounded = new PulseBatcher((event, conn, completion, publishedNanos) -> invoked.add(event),
+                metrics, 1);
+        Event queued = new Event(1);
+        AsynchronousEventBlocker overflowing = new AsynchronousEventBlocker(1);
+        bounded.submit(queued, conn, null, 0L);
+
+        // When:
+        bounded.submit(new Event(2), conn, overflowing, 0L);
+        bounded.drain(unlimitedBudget);
+
+        // Then:
+        assertThat(invoked, is(equalTo(Arrays.asList(queued))));
+        assertThat(overflowing.droppedHandlers(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void cancelPendingShouldDropQueuedInvocations() {
+        // Given:
+        uut.register(conn, (event) -> "same");
+        AsynchronousEventBlocker older = new AsynchronousEventBlocker(1);
+        AsynchronousEventBlocker newer = new AsynchronousEventBlocker(1);
+        uut.submit(new Event(1), conn, older, 0L);
+        uut.submit(new Event(1), conn, newer, 0L);
+
+        // When:
+        uut.cancelPending();
+
+        // Then:
+        assertThat(invoked.isEmpty(), is(true));
+        assertThat(older.droppedHandlers() + newer.droppedHandlers(), is(equalTo(2L)));
+        assertThat(uut.getPendingCount(), is(equalTo(0)));
+    }
+}
@@ -0,0 +1,303 @@
+package pl.trul.charactersheet.desktop.events;
+
+import com.github.michal_stempkowski.charactersheet.internal.events.Event;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventBlocker;
+import com.github.michal_stempkowski.charactersheet.internal.events.EventConnection;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test suite for ring buffer based event dispatcher
+ */
+public class RingBufferEventDispatcherTest {
+    private static final int eventType = 0;
+    private static final Duration handlingEventLimit = Duration.ofSeconds(10);
+
+    private Event caughtEvent = null;
+    private RingBufferEventDispatcher uut;
+
+    private Consumer<Event> makeCallback() {
+        return (event) -> caughtEvent = event;
+    }
+
+    private Consumer<Event> makeLongTask() {
+        return (event) -> {
+            try {
+                Thread.sleep(1000);
+                caughtEvent = event;
+            }
+            catch (InterruptedException ignored) {
+
+            }
+        };
+    }
+
+    private Consumer<Event> makeInfiniteTask() {
+        return (event) -> {
+            try {
+                while (!Thread.interrupted()) {
+                    Thread.sleep(10);
+                }
+            }
+            catch (InterruptedException ignored) {
+
+            }
+        };
+    }
+
+    private void shutdownDispatcher() throws Exception {
+        uut.gentleShutdown(Duration.ofSeconds(10), Duration.ofMillis(500));
+    }
+
+    @Test
+    public void shouldBeAbleToRegisterNewListener() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+        uut.registerListener(eventType, makeCallback());
+        Event e = new Event(eventType);
+
+        // When:
+        uut.notifyEvent(e).block(handlingEventLimit);
+
+        // Then:
+        assertThat(caughtEvent, is(equalTo(e)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void shouldBeAbleToUnregisterListener() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+        EventConnection conn = uut.registerListener(eventType, makeCallback());
+        uut.unregisterListener(conn);
+
+        // When:
+        uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+
+        // Then:
+        assertThat(caughtEvent, is(nullValue()));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void publicationsAndInvocationsShouldBeRecordedInMetrics() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+        uut.registerListener(eventType, makeCallback());
+
+        // When:
+        uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+        uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+
+        // Then:
+        EventTypeMetrics metrics = uut.getMetrics().forEventType(eventType);
+        assertThat(metrics.getPublishedCount(), is(equalTo(2L)));
+        assertThat(metrics.getExecution().getCount(), is(equalTo(2L)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void executionShouldBeAsynchronous() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+        uut.registerListener(eventType, makeLongTask());
+        Event e = new Event(eventType);
+
+        // When/Then:
+        EventBlocker bl = uut.notifyEvent(e);
+        assertThat(bl.hasFinished(), is(false));
+        assertThat(caughtEvent, is(nullValue()));
+
+        bl.block(handlingEventLimit);
+        assertThat(bl.hasFinished(), is(true));
+        assertThat(caughtEvent, is(equalTo(e)));
+
+        shutdownDispatcher();
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void listenerFailureShouldBeReportedByBlocker() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+        uut.registerListener(eventType, (event) -> { throw new IllegalStateException(); });
+
+        // When/Then:
+        try {
+            uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+        } finally {
+            shutdownDispatcher();
+        }
+    }
+
+    @Test
+    public void everyEventShouldBeDeliveredWhenBufferWrapsAround() throws Exception {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            // Given:
+            uut = new RingBufferEventDispatcher(8, 2, 4, strategy);
+            uut.start();
+            AtomicInteger handled = new AtomicInteger();
+            uut.registerListener(eventType, (event) -> handled.incrementAndGet());
+            int publishers = 4;
+            int eventsPerPublisher = 200;
+
+            // When:
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < publishers; ++i) {
+                Thread t = new Thread(() -> {
+                    for (int j = 0; j < eventsPerPublisher; ++j) {
+                        uut.notifyEvent(new Event(eventType));
+                    }
+                });
+                threads.add(t);
+                t.start();
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            uut.notifyEvent(new Event(eventType)).block(handlingEventLimit);
+            shutdownDispatcher();
+
+            // Then:
+            assertThat(handled.get(), is(equalTo(publishers * eventsPerPublisher + 1)));
+        }
+    }
+
+    @Test
+    public void eventsPublishedBeforeStartShouldBeDeliveredOnceStarted() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.registerListener(eventType, makeCallback());
+        Event e = new Event(eventType);
+        EventBlocker bl = uut.notifyEvent(e);
+        boolean handledBeforeStart = bl.hasFinished();
+
+        // When:
+        uut.start();
+        bl.block(handlingEventLimit);
+
+        // Then:
+        assertThat(handledBeforeStart, is(false));
+        assertThat(caughtEvent, is(equalTo(e)));
+        shutdownDispatcher();
+    }
+
+    @Test
+    public void inlineListenerShouldRunOnPublishersThread() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+        List<Thread> handlingThreads = new ArrayList<>();
+        uut.registerListener(eventType, (event) -> handlingThreads.add(Thread.currentThread()), DeliveryMode.INLINE);
+        uut.registerListener(eventType, makeCallback());
+        Event e = new Event(eventType);
+
+        // When:
+        EventBlocker bl = uut.notifyEvent(e);
+
+        // Then:
+        assertThat(handlingThreads, is(equalTo(Collections.singletonList(Thread.currentThread()))));
+        bl.block(handlingEventLimit);
+        assertThat(caughtEvent, is(equalTo(e)));
+        shutdownDispatcher();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedDeliveryModeShouldBeRejected() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+
+        // When/Then:
+        try {
+            uut.registerListener(eventType, makeCallback(), DeliveryMode.SERIAL);
+        } finally {
+            shutdownDispatcher();
+        }
+    }
+
+    @Test
+    public void publisherWaitingForSpaceShouldGiveUpOnShutdown() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher(2, 1, 1, WaitStrategy.PARK);
+        uut.registerListener(eventType, makeCallback());
+        uut.notifyEvent(new Event(eventType));
+        uut.notifyEvent(new Event(eventType));
+        List<EventBlocker> blockers = Collections.synchronizedList(new ArrayList<>());
+        Thread publisher = new Thread(() -> blockers.add(uut.notifyEvent(new Event(eventType))));
+        publisher.start();
+
+        // When:
+        shutdownDispatcher();
+        publisher.join(handlingEventLimit.toMillis());
+
+        // Then:
+        assertThat(publisher.isAlive(), is(false));
+        assertThat(((AsynchronousEventBlocker) blockers.get(0)).droppedHandlers(), is(equalTo(1L)));
+        assertThat(caughtEvent, is(nullValue()));
+    }
+
+    @Test
+    public void eventsPublishedDuringShutdownShouldAllBeFinished() throws Exception {
+        for (int attempt = 0; attempt < 20; ++attempt) {
+            // Given:
+            uut = new RingBufferEventDispatcher(8, 2, 4, WaitStrategy.YIELD);
+            uut.start();
+            uut.registerListener(eventType, makeCallback());
+            List<EventBlocker> blockers = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> publishers = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                Thread t = new Thread(() -> {
+                    for (int j = 0; j < 500; ++j) {
+                        blockers.add(uut.notifyEvent(new Event(eventType)));
+                    }
+                });
+                publishers.add(t);
+                t.start();
+            }
+
+            // When:
+            shutdownDispatcher();
+            for (Thread t : publishers) {
+                t.join(handlingEventLimit.toMillis());
+            }
+
+            // Then:
+            for (EventBlocker bl : blockers) {
+                assertThat(bl.hasFinished(), is(true));
+            }
+        }
+    }
+
+    @Test
+    public void gentleShutdownShouldAlwaysWork() throws Exception {
+        // Given:
+        uut = new RingBufferEventDispatcher();
+        uut.start();
+        uut.registerListener(eventType, makeInfiniteTask());
+
+        // When:
+        uut.notifyEvent(new Event(eventType));
+
+        // Then:
+        uut.gentleShutdown(Duration.ofMillis(1), Duration.ofSeconds(1));
+        assertTrue(true);
+    }
+}
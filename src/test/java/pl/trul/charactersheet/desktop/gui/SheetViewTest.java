@@ -0,0 +1,159 @@
+package pl.trul.charactersheet.desktop.gui;
+
+import org.junit.After;
+import org.junit.Test;
+import pl.trul.charactersheet.desktop.events.AsynchronousEventDispatcher;
+import pl.trul.charactersheet.desktop.events.EventPublisher;
+import pl.trul.charactersheet.desktop.sheet.DerivedFieldsChangedEvent;
+import pl.trul.charactersheet.desktop.sheet.SheetEntry;
+import pl.trul.charactersheet.desktop.sheet.SheetEntryRemovedEvent;
+import pl.trul.charactersheet.desktop.sheet.SheetFieldChangedEvent;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for incrementally updated sheet view
+ */
+public class SheetViewTest {
+    private static final long pulseBudget = TimeUnit.SECONDS.toNanos(10);
+
+    private final AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher();
+    private final SheetView uut = new SheetView();
+
+    @After
+    public void tearDown() {
+        dispatcher.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    private void publishChange(String entry, String field, String value) {
+        EventPublisher.of(dispatcher).publish(new SheetFieldChangedEvent("skills", entry, field, value));
+    }
+
+    private List<String> entryIds(String section) {
+        return uut.getSection(section).getEntries().stream().map(SheetEntry::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void changesShouldBeAppliedOnPulseWithLatestValuePerField() {
+        // Given:
+        uut.connect(dispatcher);
+        publishChange("Climb", "rank", "1");
+        publishChange("Swim", "rank", "3");
+        publishChange("Climb", "rank", "2");
+        publishChange("Climb", "ability", "STR");
+        boolean appliedBeforePulse = !uut.getSection("skills").getEntries().isEmpty();
+
+        // When:
+        int handled = dispatcher.getPulseBatcher().drain(pulseBudget);
+
+        // Then:
+        assertThat(appliedBeforePulse, is(false));
+        assertThat(handled, is(equalTo(3)));
+        assertThat(entryIds("skills"), is(equalTo(Arrays.asList("Swim", "Climb"))));
+        SheetEntry climb = uut.getSection("skills").getEntries().get(1);
+        assertThat(climb.getFields().get("rank"), is(equalTo("2")));
+        assertThat(climb.getFields().get("ability"), is(equalTo("STR")));
+    }
+
+    @Test
+    public void fieldChangeShouldReplaceOnlyItsEntry() {
+        // Given:
+        SheetSection section = uut.getSection("skills");
+        section.applyFieldChange("Climb", "rank", "1");
+        section.applyFieldChange("Swim", "rank", "3");
+        SheetEntry swim = section.getEntries().get(1);
+
+        // When:
+        section.applyFieldChange("Climb", "rank", "2");
+
+        // Then:
+        assertThat(section.getEntries().get(1) == swim, is(true));
+        assertThat(section.getEntries().get(0).getFields(), is(equalTo(Collections.singletonMap("rank", "2"))));
+    }
+
+    @Test
+    public void removedEntryShouldNotBreakLaterChanges() {
+        // Given:
+        uut.connect(dispatcher);
+        publishChange("Climb", "rank", "1");
+        publishChange("Swim", "rank", "3");
+        publishChange("Ride", "rank", "5");
+        EventPublisher.of(dispatcher).publish(new SheetEntryRemovedEvent("skills", "Swim"));
+        publishChange("Ride", "ability", "DEX");
+
+        // When:
+        dispatcher.getPulseBatcher().drain(pulseBudget);
+
+        // Then:
+        assertThat(entryIds("skills"), is(equalTo(Arrays.asList("Climb", "Ride"))));
+        assertThat(uut.getSection("skills").getEntries().get(1).getFields().get("ability"), is(equalTo("DEX")));
+    }
+
+    @Test
+    public void changeCoalescedAfterRemovalShouldRecreateEntry() {
+        // Given:
+        uut.connect(dispatcher);
+        publishChange("Swim", "rank", "3");
+        EventPublisher.of(dispatcher).publish(new SheetEntryRemovedEvent("skills", "Swim"));
+        publishChange("Swim", "rank", "4");
+
+        // When:
+        dispatcher.getPulseBatcher().drain(pulseBudget);
+
+        // Then:
+        assertThat(entryIds("skills"), is(equalTo(Collections.singletonList("Swim"))));
+        assertThat(uut.getSection("skills").getEntries().get(0).getFields().get("rank"), is(equalTo("4")));
+    }
+
+    @Test
+    public void derivedFieldsOfEditShouldBeAppliedTogether() {
+        // Given:
+        uut.connect(dispatcher);
+        publishChange("Climb", "rank", "1");
+        EventPublisher.of(dispatcher).publish(new DerivedFieldsChangedEvent(Arrays.asList(
+                new SheetFieldChangedEvent("skills", "Climb", "total", "3"),
+                new SheetFieldChangedEvent("abilities", "strength", "modifier", "2"))));
+
+        // When:
+        dispatcher.getPulseBatcher().drain(pulseBudget);
+
+        // Then:
+        assertThat(uut.getSection("skills").getEntries().get(0).getFields().get("total"), is(equalTo("3")));
+        assertThat(entryIds("abilities"), is(equalTo(Collections.singletonList("strength"))));
+    }
+
+    @Test
+    public void removedDerivedFieldOfRemovedEntryShouldNotLeaveEmptyRow() {
+        // Given:
+        uut.connect(dispatcher);
+        EventPublisher.of(dispatcher).publish(new SheetFieldChangedEvent("abilities", "dexterity", "score", "7"));
+        dispatcher.getPulseBatcher().drain(pulseBudget);
+        EventPublisher.of(dispatcher).publish(new SheetEntryRemovedEvent("abilities", "dexterity"));
+        EventPublisher.of(dispatcher).publish(new DerivedFieldsChangedEvent(Collections.singletonList(
+                new SheetFieldChangedEvent("abilities", "dexterity", "modifier", null))));
+
+        // When:
+        dispatcher.getPulseBatcher().drain(pulseBudget);
+
+        // Then:
+        assertThat(uut.getSection("abilities").getEntries().isEmpty(), is(true));
+    }
+
+    @Test
+    public void cellShouldDescribeFieldsInOrderTheyWereSet() {
+        // Given:
+        SheetEntry entry = new SheetEntry("Climb").withField("rank", "2").withField("ability", "STR");
+
+        // When/Then:
+        assertThat(SheetEntryCell.describeFields(entry.getFields()), is(equalTo("rank: 2   ability: STR")));
+    }
+}
@@ -0,0 +1,130 @@
+package pl.trul.charactersheet.desktop.lifecycle;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import org.junit.Test;
+import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
+import pl.trul.charactersheet.desktop.parallelism.AsynchronousTaskScheduler;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for coordinated shutdown
+ */
+public class ShutdownCoordinatorTest {
+    private final Duration gracePeriod = Duration.ofSeconds(1);
+    private final Duration forcePeriod = Duration.ofSeconds(1);
+
+    /**
+     * Participant which stays busy until it is forced to shut down (or it is never busy at all).
+     */
+    private static class FakeParticipant implements ShutdownParticipant {
+        private final AtomicBoolean busy;
+        private volatile boolean released = false;
+        private volatile boolean forced = false;
+
+        FakeParticipant(boolean busy) {
+            this.busy = new AtomicBoolean(busy);
+        }
+
+        @Override
+        public void beginShutdown() {
+        }
+
+        @Override
+        public boolean isQuiescent() {
+            return !busy.get();
+        }
+
+        @Override
+        public List<String> getStragglers() {
+            return busy.get() ? Collections.singletonList("stuck listener") : Collections.emptyList();
+        }
+
+        @Override
+        public void release() {
+            released = true;
+        }
+
+        @Override
+        public void forceShutdown() {
+            forced = true;
+            busy.set(false);
+        }
+
+        @Override
+        public boolean awaitTermination(long deadlineNanos) {
+            return released || forced;
+        }
+    }
+
+    @Test
+    public void idleComponentsShouldBeShutDownWithoutWaitingForDeadline() {
+        // Given:
+        FakeParticipant first = new FakeParticipant(false);
+        FakeParticipant second = new FakeParticipant(false);
+
+        // When:
+        ShutdownReport report = new ShutdownCoordinator().shutdown(gracePeriod, forcePeriod, Arrays.asList(first, second));
+
+        // Then:
+        assertThat(report.isQuiescent(), is(true));
+        assertThat(report.isTerminated(), is(true));
+        assertThat(report.getDuration().compareTo(Duration.ofMillis(100)) < 0, is(true));
+        assertThat(first.released && second.released, is(true));
+        assertThat(first.forced || second.forced, is(false));
+    }
+
+    @Test
+    public void componentBusyPastGracePeriodShouldBeReportedAndForced() {
+        // Given:
+        FakeParticipant idle = new FakeParticipant(false);
+        FakeParticipant busy = new FakeParticipant(true);
+
+        // When:
+        ShutdownReport report = new ShutdownCoordinator().shutdown(
+                Duration.ofMillis(50), forcePeriod, Arrays.asList(idle, busy));
+
+        // Then:
+        assertThat(report.isQuiescent(), is(false));
+        assertThat(report.isTerminated(), is(true));
+        assertThat(busy.forced, is(true));
+        assertThat(report.getStragglers().get(FakeParticipant.class.getSimpleName()),
+                is(equalTo(Collections.singletonList("stuck listener"))));
+    }
+
+    @Test
+    public void schedulerShouldBeQuiescentOnceRunningSliceFinishes() throws Exception {
+        // Given:
+        new AppRootLogic(new DesktopTopLogicFactory());
+        AsynchronousTaskScheduler scheduler = new AsynchronousTaskScheduler(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.init();
+        scheduler.scheduleTask(new CyclingTask(() -> {
+            started.countDown();
+            Thread.sleep(100);
+        }, (TaskState state, ErrorMonad error) -> state));
+        started.await();
+
+        // When:
+        ShutdownReport report = new ShutdownCoordinator().shutdown(
+                gracePeriod, forcePeriod, Collections.singletonList(scheduler));
+
+        // Then:
+        assertThat(report.isQuiescent(), is(true));
+        assertThat(report.isTerminated(), is(true));
+        assertThat(report.getDuration().compareTo(gracePeriod) < 0, is(true));
+        assertThat(scheduler.tasksInQueue(), is(equalTo(0)));
+    }
+}
@@ -0,0 +1,90 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for asynchronous batching log handler
+ */
+public class AsyncBatchingHandlerTest {
+
+    private static class RecordingHandler extends Handler {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch blockPublishing = new CountDownLatch(0);
+
+        @Override
+        public void publish(LogRecord record) {
+            entered.countDown();
+            try {
+                blockPublishing.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void recordsShouldReachTargetInOrder() {
+        // Given:
+        RecordingHandler target = new RecordingHandler();
+        AsyncBatchingHandler uut = new AsyncBatchingHandler(target, 16, 4);
+
+        // When:
+        for (int i = 0; i < 10; ++i) {
+            uut.publish(new LogRecord(Level.INFO, Integer.toString(i)));
+        }
+        uut.close();
+
+        // Then:
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            expected.add(Integer.toString(i));
+        }
+        assertThat(target.messages, is(equalTo(expected)));
+    }
+
+    @Test
+    public void publishingShouldNotBlockWhenTargetIsStuck() throws InterruptedException {
+        // Given:
+        RecordingHandler target = new RecordingHandler();
+        target.blockPublishing = new CountDownLatch(1);
+        AsyncBatchingHandler uut = new AsyncBatchingHandler(target, 2, 1);
+        uut.publish(new LogRecord(Level.INFO, "stuck"));
+        target.entered.await(10, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (uut.getDroppedCount() == 0 && System.nanoTime() < deadline) {
+            uut.publish(new LogRecord(Level.INFO, "overflow"));
+        }
+
+        // When:
+        target.blockPublishing.countDown();
+        uut.close();
+
+        // Then:
+        assertThat(uut.getDroppedCount() > 0, is(true));
+        assertThat(target.messages.get(0), is(equalTo("stuck")));
+        assertThat(target.messages.get(1).endsWith("log records dropped, log buffer was full"), is(true));
+    }
+}
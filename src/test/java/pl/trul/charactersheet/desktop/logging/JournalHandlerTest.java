@@ -0,0 +1,149 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for binary log journal and its decoder
+ */
+public class JournalHandlerTest {
+    private static final int segmentSize = 64 * 1024;
+    private static final int smallSegmentSize = 1024;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path segment : JournalHandler.listSegments(directory)) {
+            Files.delete(segment);
+        }
+        Files.delete(directory);
+    }
+
+    private LogRecord makeRecord(Level level, String loggerName, String message, Object... params) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName(loggerName);
+        record.setSourceClassName("SomeClass");
+        record.setSourceMethodName("someMethod");
+        record.setParameters(params);
+        return record;
+    }
+
+    private List<JournalEntry> readAll() throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (Path segment : JournalHandler.listSegments(directory)) {
+            entries.addAll(JournalReader.read(segment));
+        }
+        return entries;
+    }
+
+    @Test
+    public void recordsShouldBeDecodedAsWritten() throws IOException {
+        // Given:
+        JournalHandler uut = new JournalHandler(directory, segmentSize, 4);
+        LogRecord failure = makeRecord(Level.WARNING, "DESKTOP|\tGUI|\tname", "Failed");
+        failure.setThrown(new IllegalStateException("broken"));
+
+        // When:
+        uut.publish(makeRecord(Level.FINE, "DESKTOP|\tPARALLELISM|\tname", "Task {0} took {1} ms, done: {2}",
+                "first", 12L, true));
+        uut.publish(failure);
+        uut.close();
+
+        // Then:
+        List<JournalEntry> entries = readAll();
+        assertThat(entries.size(), is(equalTo(2)));
+        assertThat(entries.get(0).getLevel(), is(equalTo(Level.FINE)));
+        assertThat(entries.get(0).getDomain(), is(equalTo("PARALLELISM")));
+        assertThat(entries.get(0).getFormattedMessage(), is(equalTo("Task first took 12 ms, done: true")));
+        assertThat(entries.get(1).getTarget(), is(equalTo("DESKTOP")));
+        assertThat(entries.get(1).getThrown().contains("broken"), is(true));
+    }
+
+    @Test
+    public void recordFailedWhileEncodingShouldNotInternItsStrings() throws IOException {
+        // Given:
+        JournalHandler uut = new JournalHandler(directory, segmentSize, 4);
+        uut.setErrorManager(new ErrorManager() {
+            @Override
+            public synchronized void error(String msg, Exception ex, int code) {
+            }
+        });
+        Object broken = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("broken");
+            }
+        };
+
+        // When:
+        uut.publish(makeRecord(Level.INFO, "DESKTOP|\tGUI|\tname", "Value {0}", broken));
+        uut.publish(makeRecord(Level.INFO, "DESKTOP|\tGUI|\tname", "Value {0}", 1));
+        uut.close();
+
+        // Then:
+        List<JournalEntry> entries = readAll();
+        assertThat(entries.size(), is(equalTo(1)));
+        assertThat(entries.get(0).getDomain(), is(equalTo("GUI")));
+        assertThat(entries.get(0).getFormattedMessage(), is(equalTo("Value 1")));
+    }
+
+    @Test
+    public void oldestSegmentsShouldBeDeletedWhenJournalRolls() throws IOException {
+        // Given:
+        JournalHandler uut = new JournalHandler(directory, smallSegmentSize, 2);
+
+        // When:
+        for (int i = 0; i < 100; ++i) {
+            uut.publish(makeRecord(Level.INFO, "logger", "Record {0}", i));
+        }
+        uut.close();
+
+        // Then:
+        List<JournalEntry> entries = readAll();
+        assertThat(JournalHandler.listSegments(directory).size(), is(equalTo(2)));
+        assertThat(entries.get(entries.size() - 1).getFormattedMessage(), is(equalTo("Record 99")));
+        assertThat(entries.size() < 100, is(true));
+    }
+
+    @Test
+    public void decoderShouldFilterByDomain() throws IOException {
+        // Given:
+        JournalHandler uut = new JournalHandler(directory, segmentSize, 4);
+        uut.publish(makeRecord(Level.INFO, "DESKTOP|\tPARALLELISM|\tname", "Kept"));
+        uut.publish(makeRecord(Level.INFO, "DESKTOP|\tGUI|\tname", "Filtered out"));
+        uut.close();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When:
+        int status = JournalDecoder.run(new String[] { "--domain", "PARALLELISM", directory.toString() },
+                new PrintStream(out, true), System.err);
+
+        // Then:
+        String rendered = out.toString();
+        assertThat(status, is(equalTo(0)));
+        assertThat(rendered.contains("Kept"), is(true));
+        assertThat(rendered.contains("Filtered out"), is(false));
+    }
+}
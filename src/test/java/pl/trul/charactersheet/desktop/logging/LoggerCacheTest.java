@@ -0,0 +1,41 @@
+package pl.trul.charactersheet.desktop.logging;
+
+import com.github.michal_stempkowski.charactersheet.internal.InternalDomainId;
+import com.github.michal_stempkowski.charactersheet.internal.Target;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for logger cache
+ */
+public class LoggerCacheTest {
+
+    @Test
+    public void loggerShouldBeCreatedOncePerTargetDomainAndName() {
+        // Given:
+        List<String> created = new ArrayList<>();
+        LoggerCache uut = new LoggerCache((name) -> {
+            created.add(name);
+            return Logger.getLogger(name);
+        });
+
+        // When:
+        Logger first = uut.get(Target.DESKTOP, InternalDomainId.PARALLELISM, "name");
+        Logger second = uut.get(Target.DESKTOP, InternalDomainId.PARALLELISM, "name");
+        uut.get(Target.INTERNAL, InternalDomainId.PARALLELISM, "name");
+
+        // Then:
+        assertThat(first == second, is(true));
+        assertThat(first.getName(), is(equalTo("DESKTOP|\tPARALLELISM|\tname")));
+        assertThat(created, is(equalTo(Arrays.asList("DESKTOP|\tPARALLELISM|\tname", "INTERNAL|\tPARALLELISM|\tname"))));
+        assertThat(uut.size(), is(equalTo(2)));
+    }
+}
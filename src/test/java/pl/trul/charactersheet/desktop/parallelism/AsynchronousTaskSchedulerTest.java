@@ -6,12 +6,26 @@ import com.github.michal_stempkowski.charactersheet.internal.parallelism.Cycling
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
 import com.github.michal_stempkowski.charactersheet.internal.parallelism.events.TaskFinishedEvent;
 import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Before;
 import org.junit.Test;
 import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -100,6 +114,210 @@ public class AsynchronousTaskSchedulerTest {
         assertThat(uut.tasksInQueue(), is(equalTo(0)));
     }
 
+    @Test
+    public void manyTasksShouldShareBoundedNumberOfThreads() throws InterruptedException {
+        //Given:
+        int parallelism = 2;
+        uut = new AsynchronousTaskScheduler(parallelism, 4);
+        Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        for (int i = 0; i < 200; ++i) {
+            AtomicInteger cycles = new AtomicInteger();
+            uut.scheduleTask(new CyclingTask(
+                    () -> threads.add(Thread.currentThread()),
+                    (TaskState state, ErrorMonad error) -> cycles.incrementAndGet() >= 20 ? TaskState.DONE : state));
+        }
+        // When:
+        uut.init();
+        // Then:
+        expectAllTasksFinished();
+        assertThat(threads.size() <= parallelism, is(true));
+    }
+
+    @Test
+    public void idleTaskShouldBeParkedUntilWoken() throws InterruptedException {
+        //Given:
+        AtomicInteger cycles = new AtomicInteger();
+        CyclingTask task = new CyclingTask(
+                () -> {
+                    cycles.incrementAndGet();
+                    TaskContext.reportIdle();
+                },
+                (TaskState state, ErrorMonad error) -> cycles.get() >= 2 ? TaskState.DONE : state);
+        uut.scheduleTask(task);
+        uut.init();
+        Thread.sleep(200);
+        int cyclesWhileParked = cycles.get();
+        // When:
+        uut.wakeTask(task.id);
+        // Then:
+        expectAllTasksFinished();
+        assertThat(cyclesWhileParked, is(equalTo(1)));
+        assertThat(task.getState(), is(equalTo(TaskState.DONE)));
+    }
+
+    @Test
+    public void neverStartedTasksShouldBeRemovedOnShutdown() {
+        //Given:
+        uut.scheduleTask(makeInfiniteTask());
+        // When:
+        uut.gentleShutdown(Duration.ofSeconds(10), Duration.ofSeconds(1));
+        // Then:
+        assertThat(uut.tasksInQueue(), is(equalTo(0)));
+    }
+
+    @Test
+    public void taskThrowingFromItsCycleShouldBeRemoved() throws InterruptedException {
+        //Given:
+        uut.scheduleTask(new CyclingTask(() -> { }, (TaskState state, ErrorMonad error) -> {
+            throw new IllegalStateException("broken evaluation");
+        }));
+        // When:
+        uut.init();
+        // Then:
+        expectAllTasksFinished();
+    }
+
+    @Test
+    public void alreadyScheduledTaskShouldBeRejected() {
+        //Given:
+        CyclingTask task = makeInfiniteTask();
+        uut.scheduleTask(task);
+        boolean rejected = false;
+        // When:
+        try {
+            uut.scheduleAll(Arrays.asList(makeInfiniteTask(), task));
+        } catch (IllegalArgumentException ex) {
+            rejected = true;
+        }
+        // Then:
+        assertThat(rejected, is(true));
+        assertThat(uut.tasksInQueue(), is(equalTo(1)));
+    }
+
+    @Test
+    public void fixedRateTaskShouldRunWithoutHoldingThreadBetweenCycles() throws InterruptedException {
+        //Given:
+        List<Long> cycleStarts = Collections.synchronizedList(new ArrayList<>());
+        CyclingTask task = new CyclingTask(
+                () -> cycleStarts.add(System.nanoTime()),
+                (TaskState state, ErrorMonad error) -> cycleStarts.size() >= 5 ? TaskState.DONE : state);
+        uut.init();
+        // When:
+        uut.scheduleWithFixedRate(task, Duration.ZERO, Duration.ofMillis(50));
+        // Then:
+        expectAllTasksFinished();
+        long elapsed = cycleStarts.get(4) - cycleStarts.get(0);
+        assertThat(elapsed >= TimeUnit.MILLISECONDS.toNanos(4 * 50 - 5), is(true));
+    }
+
+    @Test
+    public void taskShouldBeAbleToDelayItsNextCycle() throws InterruptedException {
+        //Given:
+        AtomicInteger cycles = new AtomicInteger();
+        long start = System.nanoTime();
+        uut.scheduleAt(new CyclingTask(
+                () -> {
+                    cycles.incrementAndGet();
+                    TaskContext.delayNextCycle(Duration.ofMillis(100));
+                },
+                (TaskState state, ErrorMonad error) -> cycles.get() >= 2 ? TaskState.DONE : state),
+                Instant.now().plusMillis(100));
+        // When:
+        uut.init();
+        // Then:
+        expectAllTasksFinished();
+        assertThat(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200 - 5), is(true));
+    }
+
+    @Test
+    public void cancelShouldPromptlyInterruptRunningTask() throws InterruptedException {
+        //Given:
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CyclingTask task = new CyclingTask(() -> {
+            running.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+        },
+        (TaskState state, ErrorMonad error) -> state);
+        uut.init();
+        uut.scheduleTask(task);
+        running.await(10, TimeUnit.SECONDS);
+        // When:
+        boolean cancelled = uut.cancel(task.id);
+        // Then:
+        assertThat(cancelled, is(true));
+        assertThat(interrupted.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(uut.tasksInQueue(), is(equalTo(0)));
+        assertThat(uut.cancel(task.id), is(false));
+    }
+
+    @Test
+    public void scheduleAllShouldRunWholeBatch() throws InterruptedException {
+        //Given:
+        AtomicInteger finished = new AtomicInteger();
+        List<CyclingTask> batch = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            batch.add(new CyclingTask(finished::incrementAndGet, (TaskState state, ErrorMonad error) -> TaskState.DONE));
+        }
+        uut.scheduleAll(batch);
+        // When:
+        uut.init();
+        // Then:
+        expectAllTasksFinished();
+        assertThat(finished.get(), is(equalTo(100)));
+    }
+
+    @Test
+    public void onlySlowCyclesShouldBeRecordedByFlightRecorder() throws Exception {
+        // Given:
+        AtomicInteger fastCycles = new AtomicInteger();
+        CyclingTask slowTask = new CyclingTask(() -> Thread.sleep(50),
+                (TaskState state, ErrorMonad error) -> TaskState.DONE);
+        CyclingTask fastTask = new CyclingTask(fastCycles::incrementAndGet,
+                (TaskState state, ErrorMonad error) -> fastCycles.get() < 100 ? state : TaskState.DONE);
+        List<RecordedEvent> recorded;
+        Path dump = Files.createTempFile("scheduler", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("pl.trul.charactersheet.TaskCycle");
+            recording.enable("pl.trul.charactersheet.TaskFinished");
+            recording.start();
+            uut.scheduleTask(slowTask);
+            uut.scheduleTask(fastTask);
+            // When:
+            uut.init();
+            expectAllTasksFinished();
+            recording.stop();
+            recording.dump(dump);
+            recorded = RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.delete(dump);
+        }
+        // Then:
+        List<String> slowCycles = new ArrayList<>();
+        int finishedTasks = 0;
+        for (RecordedEvent event : recorded) {
+            if (event.getEventType().getName().equals("pl.trul.charactersheet.TaskCycle")) {
+                slowCycles.add(event.getString("taskId"));
+            } else if (event.getEventType().getName().equals("pl.trul.charactersheet.TaskFinished")) {
+                ++finishedTasks;
+            }
+        }
+        assertThat(slowCycles, is(equalTo(Collections.singletonList(slowTask.id.toString()))));
+        assertThat(finishedTasks, is(equalTo(2)));
+    }
+
+    private void expectAllTasksFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (uut.tasksInQueue() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(uut.tasksInQueue(), is(equalTo(0)));
+    }
+
     private CyclingTask makeInfiniteTask() {
         return new CyclingTask(() -> {
             try {
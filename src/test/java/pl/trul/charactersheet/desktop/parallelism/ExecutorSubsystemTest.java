@@ -0,0 +1,131 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for executor pools configured from properties
+ */
+public class ExecutorSubsystemTest {
+    private static final Duration timeout = Duration.ofSeconds(10);
+
+    private ExecutorSubsystem subsystem;
+
+    @After
+    public void tearDown() {
+        if (subsystem != null) {
+            subsystem.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        }
+    }
+
+    private Properties makeBoundedPoolProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("executors.pool.bounded.coreSize", "1");
+        properties.setProperty("executors.pool.bounded.maxSize", "1");
+        properties.setProperty("executors.pool.bounded.queueCapacity", "1");
+        properties.setProperty("executors.pool.bounded.threadNamePrefix", "bounded-worker");
+        properties.setProperty("executors.pool.bounded.rejectionPolicy", "ABORT");
+        return properties;
+    }
+
+    @Test
+    public void poolShouldUseConfiguredThreadNames() throws Exception {
+        // Given:
+        subsystem = new ExecutorSubsystem(makeBoundedPoolProperties());
+        AtomicReference<String> threadName = new AtomicReference<>();
+
+        // When:
+        subsystem.getPool("bounded").submit(() -> threadName.set(Thread.currentThread().getName()))
+                .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        // Then:
+        assertThat(threadName.get(), is(equalTo("bounded-worker-0")));
+        assertThat(subsystem.getPool("bounded"), is(subsystem.getPool("bounded")));
+    }
+
+    @Test
+    public void saturatedPoolShouldRejectAndCountTasks() throws Exception {
+        // Given:
+        subsystem = new ExecutorSubsystem(makeBoundedPoolProperties());
+        ExecutorService pool = subsystem.getPool("bounded");
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pool.execute(() -> { });
+
+        // When:
+        boolean rejected = false;
+        try {
+            pool.execute(() -> { });
+        } catch (RejectedExecutionException ex) {
+            rejected = true;
+        }
+        release.countDown();
+
+        // Then:
+        List<ExecutorPoolStatistics> statistics = subsystem.getPoolStatistics();
+        assertThat(rejected, is(true));
+        assertThat(statistics.size(), is(equalTo(1)));
+        assertThat(statistics.get(0).getName(), is(equalTo("bounded")));
+        assertThat(statistics.get(0).getMaxSize(), is(equalTo(1)));
+        assertThat(statistics.get(0).getRejectedTasks(), is(equalTo(1L)));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void poolShouldRejectTasksAfterShutdownWhateverItsPolicy() {
+        // Given:
+        Properties properties = makeBoundedPoolProperties();
+        properties.setProperty("executors.pool.bounded.rejectionPolicy", "CALLER_RUNS");
+        subsystem = new ExecutorSubsystem(properties);
+        ExecutorService pool = subsystem.getPool("bounded");
+        pool.shutdown();
+
+        // When/Then:
+        pool.execute(() -> { });
+    }
+
+    @Test
+    public void unknownPoolShouldUseDefaults() {
+        // Given:
+        ExecutorPoolConfig config = ExecutorPoolConfig.fromProperties("unknown", new Properties());
+
+        // When/Then:
+        assertThat(config.getThreadNamePrefix(), is(equalTo("unknown")));
+        assertThat(config.getCoreSize(), is(equalTo(0)));
+        assertThat(config.getQueueCapacity(), is(equalTo(0)));
+        assertThat(config.getRejectionPolicy(), is(equalTo(RejectionPolicy.ABORT)));
+    }
+
+    @Test
+    public void virtualThreadModeShouldStillRunTasks() throws Exception {
+        // Given:
+        Properties properties = makeBoundedPoolProperties();
+        properties.setProperty("executors.virtualThreads", "true");
+        subsystem = new ExecutorSubsystem(properties);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // When:
+        subsystem.getPool("bounded").execute(done::countDown);
+
+        // Then:
+        assertThat(done.await(timeout.toMillis(), TimeUnit.MILLISECONDS), is(true));
+    }
+}
@@ -0,0 +1,89 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Test suite for hierarchical timer wheel
+ */
+public class HierarchicalTimerWheelTest {
+    private HierarchicalTimerWheel uut;
+
+    @Before
+    public void setUp() throws Exception {
+        uut = new HierarchicalTimerWheel("test-timer-wheel", HierarchicalTimerWheel.DEFAULT_TICK);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uut.stop();
+    }
+
+    @Test
+    public void actionShouldNotRunBeforeItsDeadline() throws InterruptedException {
+        // Given:
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(150);
+        long scheduledAt = System.nanoTime();
+        CountDownLatch expired = new CountDownLatch(1);
+        long[] expiredAt = new long[1];
+
+        // When:
+        uut.schedule(() -> {
+            expiredAt[0] = System.nanoTime();
+            expired.countDown();
+        }, delayNanos);
+
+        // Then:
+        assertThat(expired.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(expiredAt[0] - scheduledAt >= delayNanos, is(true));
+        assertThat(uut.getPendingCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void cancelledActionShouldNeverRun() throws InterruptedException {
+        // Given:
+        AtomicInteger runs = new AtomicInteger();
+        HierarchicalTimerWheel.Timeout timeout = uut.schedule(runs::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(50));
+
+        // When:
+        boolean cancelled = timeout.cancel();
+        Thread.sleep(200);
+
+        // Then:
+        assertThat(cancelled, is(true));
+        assertThat(timeout.cancel(), is(false));
+        assertThat(runs.get(), is(equalTo(0)));
+        assertThat(uut.getPendingCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void manyTimeoutsSpanningSeveralLevelsShouldAllExpire() throws InterruptedException {
+        // Given:
+        int timeouts = 20_000;
+        CountDownLatch expired = new CountDownLatch(timeouts);
+        List<HierarchicalTimerWheel.Timeout> cancelled = new ArrayList<>();
+
+        // When:
+        for (int i = 0; i < timeouts; ++i) {
+            uut.schedule(expired::countDown, TimeUnit.MICROSECONDS.toNanos(37 * (i % 10_000)));
+            cancelled.add(uut.schedule(() -> { throw new IllegalStateException(); }, Duration.ofHours(1).toNanos()));
+        }
+        cancelled.forEach(HierarchicalTimerWheel.Timeout::cancel);
+
+        // Then:
+        assertThat(expired.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(uut.getPendingCount(), is(equalTo(0)));
+    }
+}
@@ -0,0 +1,205 @@
+package pl.trul.charactersheet.desktop.parallelism;
+
+import com.github.michal_stempkowski.charactersheet.internal.app.AppRootLogic;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.CyclingTask;
+import com.github.michal_stempkowski.charactersheet.internal.parallelism.TaskState;
+import com.github.michal_stempkowski.charactersheet.internal.utils.ErrorMonad;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import pl.trul.charactersheet.desktop.app.DesktopTopLogicFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Test suite for running graphs of dependent tasks
+ */
+public class TaskGraphTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private static final Duration graphLimit = Duration.ofSeconds(10);
+
+    private AsynchronousTaskScheduler uut;
+    private List<String> finishOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        AppRootLogic root = new AppRootLogic(new DesktopTopLogicFactory());
+        uut = new AsynchronousTaskScheduler(2, AsynchronousTaskScheduler.DEFAULT_CYCLES_PER_SLICE);
+        uut.init();
+        finishOrder = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private CyclingTask makeTask(String name, Step action) {
+        return new CyclingTask(() -> {
+            action.run();
+            finishOrder.add(name);
+        },
+        (TaskState state, ErrorMonad error) -> error.hasErrorOccurred() ? TaskState.ERROR : TaskState.DONE);
+    }
+
+    @Test
+    public void dependentsShouldRunAfterTheirDependenciesWithBranchesInParallel() throws Exception {
+        // Given:
+        CyclicBarrier bothBranchesRunning = new CyclicBarrier(2);
+        CyclingTask load = makeTask("load", () -> { });
+        CyclingTask validate = makeTask("validate", () -> bothBranchesRunning.await(5, TimeUnit.SECONDS));
+        CyclingTask index = makeTask("index", () -> bothBranchesRunning.await(5, TimeUnit.SECONDS));
+        CyclingTask publish = makeTask("publish", () -> { });
+        TaskGraph graph = new TaskGraph()
+                .addTask(load)
+                .addTask(validate, load)
+                .addTask(index, load)
+                .addTask(publish, validate, index);
+
+        // When:
+        TaskGraphExecution execution = uut.scheduleGraph(graph);
+        execution.block(graphLimit);
+
+        // Then:
+        assertThat(finishOrder.size(), is(equalTo(4)));
+        assertThat(finishOrder.get(0), is(equalTo("load")));
+        assertThat(finishOrder.get(3), is(equalTo("publish")));
+        assertThat(execution.getFailedTasks().isEmpty(), is(true));
+    }
+
+    @Test
+    public void failureShouldSkipAllTransitiveDependents() throws Exception {
+        // Given:
+        CyclingTask load = makeTask("load", () -> { throw new Exception("corrupted library"); });
+        CyclingTask validate = makeTask("validate", () -> { });
+        CyclingTask index = makeTask("index", () -> { });
+        CyclingTask independent = makeTask("independent", () -> { });
+        TaskGraph graph = new TaskGraph()
+                .addTask(load)
+                .addTask(validate, load)
+                .addTask(index, validate)
+                .addTask(independent);
+
+        // When:
+        TaskGraphExecution execution = uut.scheduleGraph(graph);
+        thrown.expect(ExecutionException.class);
+        try {
+            execution.block(graphLimit);
+        } finally {
+            // Then:
+            assertThat(execution.hasFinished(), is(true));
+            assertThat(execution.getFailedTasks().contains(load.id), is(true));
+            assertThat(execution.getSkippedTasks().size(), is(equalTo(2)));
+            assertThat(finishOrder, is(equalTo(Collections.singletonList("independent"))));
+        }
+    }
+
+    @Test
+    public void failureShouldSkipDependentsOfLongChain() throws Exception {
+        // Given:
+        CyclingTask load = makeTask("load", () -> { throw new Exception("corrupted library"); });
+        TaskGraph graph = new TaskGraph().addTask(load);
+        CyclingTask previous = load;
+        for (int i = 0; i < 100_000; ++i) {
+            CyclingTask next = makeTask("step", () -> { });
+            graph.addTask(next, previous);
+            previous = next;
+        }
+
+        // When:
+        TaskGraphExecution execution = uut.scheduleGraph(graph);
+        thrown.expect(ExecutionException.class);
+        try {
+            execution.block(graphLimit);
+        } finally {
+            // Then:
+            assertThat(execution.getSkippedTasks().size(), is(equalTo(100_000)));
+        }
+    }
+
+    @Test
+    public void taskThrowingFromItsCycleShouldBeCauseOfGraphFailure() throws Exception {
+        // Given:
+        IllegalStateException broken = new IllegalStateException("broken evaluation");
+        CyclingTask load = new CyclingTask(() -> { }, (TaskState state, ErrorMonad error) -> { throw broken; });
+        TaskGraph graph = new TaskGraph().addTask(load);
+
+        // When:
+        ExecutionException failure = null;
+        try {
+            uut.scheduleGraph(graph).block(graphLimit);
+        } catch (ExecutionException ex) {
+            failure = ex;
+        }
+
+        // Then:
+        assertThat(failure.getCause(), is(equalTo(broken)));
+    }
+
+    @Test
+    public void taskWhichCouldNotBeReleasedShouldFailAndSkipItsDependents() throws Exception {
+        // Given:
+        CountDownLatch loadMayFinish = new CountDownLatch(1);
+        CyclingTask load = makeTask("load", () -> loadMayFinish.await(5, TimeUnit.SECONDS));
+        uut.scheduleTask(load);
+        TaskGraph graph = new TaskGraph()
+                .addTask(load)
+                .addTask(makeTask("validate", () -> { }), load);
+
+        // When:
+        TaskGraphExecution execution = uut.scheduleGraph(graph);
+        ExecutionException failure = null;
+        try {
+            execution.block(graphLimit);
+        } catch (ExecutionException ex) {
+            failure = ex;
+        }
+        loadMayFinish.countDown();
+
+        // Then:
+        assertThat(failure.getCause() instanceof IllegalArgumentException, is(true));
+        assertThat(execution.getFailedTasks().contains(load.id), is(true));
+        assertThat(execution.getSkippedTasks().size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void tasksAddedAfterSchedulingShouldNotJoinExecution() throws Exception {
+        // Given:
+        CountDownLatch loadMayFinish = new CountDownLatch(1);
+        CyclingTask load = makeTask("load", () -> loadMayFinish.await(5, TimeUnit.SECONDS));
+        TaskGraph graph = new TaskGraph().addTask(load);
+        TaskGraphExecution execution = uut.scheduleGraph(graph);
+
+        // When:
+        graph.addTask(makeTask("late", () -> { }), load);
+        loadMayFinish.countDown();
+        execution.block(graphLimit);
+
+        // Then:
+        assertThat(finishOrder, is(equalTo(Collections.singletonList("load"))));
+    }
+
+    @Test
+    public void dependencyHasToBeAddedBeforeItsDependents() {
+        // Given:
+        CyclingTask load = makeTask("load", () -> { });
+        CyclingTask validate = makeTask("validate", () -> { });
+
+        // When/Then:
+        thrown.expect(IllegalArgumentException.class);
+        new TaskGraph().addTask(validate, load);
+    }
+}
@@ -0,0 +1,173 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.trul.charactersheet.desktop.sheet.CharacterSheet;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for memory-mapped character store
+ */
+public class CharacterStoreTest {
+    private static final int capacity = 4096;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("store");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private CharacterStore open(int checkpointBytes) throws IOException {
+        return new CharacterStore(directory, capacity, checkpointBytes, 2.0);
+    }
+
+    @Test
+    public void appendedChangesShouldBeLoadedAfterReopening() throws Exception {
+        // Given:
+        try (CharacterStore store = open(capacity)) {
+            store.appendField("hero", "skills", "climb", "rank", "1");
+            store.appendField("hero", "skills", "swim", "rank", "2");
+            store.appendField("other", "skills", "climb", "rank", "7");
+            store.appendField("hero", "skills", "climb", "rank", "3");
+            store.appendField("hero", "skills", "swim", "notes", "wet");
+            store.appendEntryRemoved("hero", "skills", "swim");
+        }
+
+        // When:
+        CharacterSheet hero;
+        try (CharacterStore store = open(capacity)) {
+            hero = store.load("hero");
+            assertThat(store.listCharacters(), is(equalTo(new HashSet<>(Arrays.asList("hero", "other")))));
+        }
+
+        // Then:
+        assertThat(hero.getField("skills", "climb", "rank"), is(equalTo("3")));
+        assertThat(hero.getEntry("skills", "swim"), is(nullValue()));
+        assertThat(hero.getFieldCount(), is(equalTo(1)));
+    }
+
+    @Test
+    public void recordsPastIndexShouldBeRecoveredWithoutClosing() throws Exception {
+        // Given:
+        CharacterStore crashed = open(capacity);
+        crashed.appendField("hero", "skills", "climb", "rank", "1");
+        crashed.appendField("doomed", "skills", "climb", "rank", "1");
+        crashed.delete("doomed");
+        crashed.flush();
+        crashed.abandon();
+
+        // When:
+        CharacterStore store = open(capacity);
+
+        // Then:
+        assertThat(store.listCharacters(), is(equalTo(Collections.singleton("hero"))));
+        assertThat(store.load("hero").getField("skills", "climb", "rank"), is(equalTo("1")));
+        assertThat(store.getSegmentLength(), is(equalTo(crashed.getSegmentLength())));
+        store.close();
+    }
+
+    @Test
+    public void libraryShouldNotBeOpenedTwiceAtOnce() throws Exception {
+        // Given:
+        CharacterStore first = open(capacity);
+        boolean rejected = false;
+
+        // When:
+        try {
+            open(capacity).close();
+        } catch (IOException ex) {
+            rejected = true;
+        }
+        first.close();
+
+        // Then:
+        assertThat(rejected, is(true));
+        open(capacity).close();
+    }
+
+    @Test
+    public void savedEmptyCharacterShouldSurviveCompactionAndReopening() throws Exception {
+        // Given:
+        CharacterStore store = open(0);
+        store.save(new CharacterSheet("blank"));
+
+        // When:
+        store.compact();
+        store.close();
+
+        // Then:
+        try (CharacterStore reopened = open(0)) {
+            assertThat(reopened.listCharacters(), is(equalTo(Collections.singleton("blank"))));
+            assertThat(reopened.load("blank").getSections().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void compactionShouldKeepOnlyLiveFields() throws Exception {
+        // Given:
+        CharacterStore store = open(0);
+        for (int i = 0; i < 200; ++i) {
+            store.appendField("hero", "stats", "strength", "value", Integer.toString(i));
+        }
+        store.appendField("hero", "skills", "climb", "rank", "4");
+        long before = store.getSegmentLength();
+        boolean wasDue = store.needsCompaction();
+
+        // When:
+        store.compact();
+        store.appendField("hero", "skills", "climb", "rank", "5");
+        store.close();
+
+        // Then:
+        assertThat(wasDue, is(true));
+        assertThat(store.getSegmentLength() < before / 10, is(true));
+        try (CharacterStore reopened = open(0)) {
+            CharacterSheet hero = reopened.load("hero");
+            assertThat(hero.getField("stats", "strength", "value"), is(equalTo("199")));
+            assertThat(hero.getField("skills", "climb", "rank"), is(equalTo("5")));
+        }
+    }
+
+    @Test
+    public void segmentShouldGrowPastInitialCapacity() throws Exception {
+        // Given:
+        char[] longValue = new char[capacity];
+        Arrays.fill(longValue, 'x');
+
+        // When:
+        try (CharacterStore store = open(capacity)) {
+            store.appendField("hero", "notes", "history", "text", new String(longValue));
+            store.appendField("hero", "notes", "history", "title", "Long story");
+        }
+
+        // Then:
+        try (CharacterStore store = open(capacity)) {
+            assertThat(store.load("hero").getField("notes", "history", "text").length(), is(equalTo(capacity)));
+            assertThat(store.load("hero").getField("notes", "history", "title"), is(equalTo("Long story")));
+        }
+    }
+}
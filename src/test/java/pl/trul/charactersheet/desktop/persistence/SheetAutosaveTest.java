@@ -0,0 +1,97 @@
+package pl.trul.charactersheet.desktop.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.trul.charactersheet.desktop.events.RingBufferEventDispatcher;
+import pl.trul.charactersheet.desktop.sheet.SheetEntryRemovedEvent;
+import pl.trul.charactersheet.desktop.sheet.SheetFieldChangedEvent;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test suite for incremental autosave of sheet edits
+ */
+public class SheetAutosaveTest {
+    private Path directory;
+    private CharacterStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("autosave");
+        store = CharacterStore.open(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void onlyChangedFieldsShouldBeAppended() throws Exception {
+        // Given:
+        store.appendField("hero", "skills", "climb", "rank", "1");
+        store.appendField("hero", "skills", "swim", "rank", "2");
+        SheetAutosave autosave = new SheetAutosave(store, "hero");
+        autosave.onFieldChanged(new SheetFieldChangedEvent("skills", "climb", "rank", "1"));
+        autosave.onFieldChanged(new SheetFieldChangedEvent("skills", "swim", "rank", "3"));
+        autosave.onFieldChanged(new SheetFieldChangedEvent("skills", "swim", "rank", "4"));
+        long before = store.getSegmentLength();
+
+        // When:
+        int appended = autosave.saveChanges();
+
+        // Then:
+        assertThat(appended, is(equalTo(1)));
+        assertThat(autosave.getPendingCount(), is(equalTo(0)));
+        assertThat(store.getSegmentLength() - before < 100, is(true));
+        assertThat(store.load("hero").getField("skills", "swim", "rank"), is(equalTo("4")));
+        assertThat(store.load("hero").getField("skills", "climb", "rank"), is(equalTo("1")));
+    }
+
+    @Test
+    public void connectedAutosaveShouldCollectChangesOnPublishersThread() throws Exception {
+        // Given:
+        RingBufferEventDispatcher dispatcher = new RingBufferEventDispatcher();
+        SheetAutosave autosave = new SheetAutosave(store, "hero");
+        autosave.connect(dispatcher);
+
+        // When:
+        dispatcher.notifyEvent(new SheetFieldChangedEvent("skills", "climb", "rank", "1"));
+
+        // Then:
+        assertThat(autosave.getPendingCount(), is(equalTo(1)));
+        dispatcher.gentleShutdown(Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void entryRemovalShouldDropItsPendingChanges() throws Exception {
+        // Given:
+        store.appendField("hero", "items", "rope", "weight", "10");
+        SheetAutosave autosave = new SheetAutosave(store, "hero");
+        autosave.onFieldChanged(new SheetFieldChangedEvent("items", "rope", "weight", "12"));
+        autosave.onEntryRemoved(new SheetEntryRemovedEvent("items", "rope"));
+
+        // When:
+        autosave.close();
+
+        // Then:
+        assertThat(autosave.getPendingCount(), is(equalTo(0)));
+        assertThat(store.load("hero").getEntry("items", "rope"), is(nullValue()));
+    }
+}
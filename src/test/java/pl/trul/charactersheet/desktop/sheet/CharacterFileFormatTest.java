@@ -0,0 +1,73 @@
+package pl.trul.charactersheet.desktop.sheet;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Test suite for text format of character files
+ */
+public class CharacterFileFormatTest {
+    private CharacterSheet read(String content) throws IOException {
+        return CharacterFileFormat.read(new BufferedReader(new StringReader(content)), "test.sheet");
+    }
+
+    private String readFailure(String content) {
+        try {
+            read(content);
+        } catch (IOException ex) {
+            return ex.getMessage();
+        }
+        fail("Invalid content has been accepted");
+        return null;
+    }
+
+    @Test
+    public void writtenSheetShouldBeReadBack() throws Exception {
+        // Given:
+        CharacterSheet sheet = new CharacterSheet("hero\t1");
+        sheet.setField("skills", "climb", "rank", "4");
+        sheet.setField("skills", "climb", "notes", "back\\slash\nsecond line");
+        sheet.setField("items", "rope", "weight", "10");
+        StringWriter written = new StringWriter();
+
+        // When:
+        CharacterFileFormat.write(sheet, written);
+        CharacterSheet readBack = read(written.toString());
+
+        // Then:
+        assertThat(readBack.getId(), is(equalTo("hero\t1")));
+        assertThat(readBack.getFieldCount(), is(equalTo(3)));
+        assertThat(readBack.getField("skills", "climb", "notes"), is(equalTo("back\\slash\nsecond line")));
+        assertThat(readBack.getSections().keySet().toString(), is(equalTo("[skills, items]")));
+    }
+
+    @Test
+    public void commentsAndEmptyLinesShouldBeSkipped() throws Exception {
+        // When:
+        CharacterSheet sheet = read("charactersheet\t1\thero\n\n# comment\nskills\tclimb\trank\t4\n");
+
+        // Then:
+        assertThat(sheet.getField("skills", "climb", "rank"), is(equalTo("4")));
+    }
+
+    @Test
+    public void malformedContentShouldBeRejectedWithLineNumber() {
+        // When/Then:
+        assertThat(readFailure("hero\n"), is(equalTo("test.sheet is not a character file")));
+        assertThat(readFailure("charactersheet\t1\thero\nskills\tclimb\trank\n"),
+                is(equalTo("test.sheet:2: expected 4 columns, got 3")));
+        assertThat(readFailure("charactersheet\t1\thero\nskills\tclimb\trank\t4\nskills\tclimb\trank\t5\n"),
+                is(equalTo("test.sheet:3: duplicated field skills/climb/rank")));
+        assertThat(readFailure("charactersheet\t1\thero\nskills\tclimb\trank\t4\\x\n"),
+                is(equalTo("test.sheet:2: unknown escape \\x")));
+    }
+}
@@ -0,0 +1,82 @@
+package pl.trul.charactersheet.desktop.utils;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test suite for latency histogram
+ */
+public class LatencyHistogramTest {
+    private final LatencyHistogram uut = new LatencyHistogram();
+
+    @Test
+    public void everyValueShouldFitItsBucket() {
+        for (long value = 0; value < 100_000; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+        assertThat(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)),
+                is(equalTo(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentilesShouldBeAccurateWithinBucketResolution() {
+        // Given:
+        for (long value = 1; value <= 1000; ++value) {
+            uut.record(value * 1000);
+        }
+
+        // When:
+        long p50 = uut.getPercentileNanos(50);
+        long p99 = uut.getPercentileNanos(99);
+
+        // Then:
+        assertThat(uut.getCount(), is(equalTo(1000L)));
+        assertThat(uut.getMeanNanos(), is(equalTo(500_500L)));
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 9 / 8);
+        assertTrue(p99 >= 990_000 && p99 <= 990_000 * 9 / 8);
+    }
+
+    @Test
+    public void valuesRecordedByManyThreadsShouldAllBeCounted() throws Exception {
+        // Given:
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; ++j) {
+                    uut.record(1000);
+                }
+            });
+        }
+
+        // When:
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then:
+        assertThat(uut.getCount(), is(equalTo(80_000L)));
+        assertThat(uut.getPercentileNanos(100), is(equalTo(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(1000)))));
+    }
+
+    @Test
+    public void resetShouldForgetRecordedValues() {
+        // Given:
+        uut.record(42);
+
+        // When:
+        uut.reset();
+
+        // Then:
+        assertThat(uut.getCount(), is(equalTo(0L)));
+        assertThat(uut.getPercentileNanos(99), is(equalTo(0L)));
+    }
+}